@@ -15,6 +15,7 @@
  */
 package ai.langstream.agents.grpc;
 
+import ai.langstream.ai.agents.commons.AvroCodec;
 import ai.langstream.api.runner.code.AbstractAgentCode;
 import ai.langstream.api.runner.code.SimpleRecord;
 import ai.langstream.api.runner.topics.TopicProducer;
@@ -26,7 +27,6 @@ import com.google.protobuf.ByteString;
 import com.google.protobuf.Empty;
 import io.grpc.ManagedChannel;
 import io.grpc.stub.StreamObserver;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -41,14 +41,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import lombok.Getter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.avro.Conversions;
-import org.apache.avro.generic.GenericDatumReader;
-import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.io.BinaryEncoder;
-import org.apache.avro.io.Decoder;
-import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.io.EncoderFactory;
 
 @Slf4j
 abstract class AbstractGrpcAgent extends AbstractAgentCode {
@@ -119,12 +112,11 @@ abstract class AbstractGrpcAgent extends AbstractAgentCode {
                                     if (topicProducerResponse.hasSchema()) {
                                         serverSchemas.put(
                                                 topicProducerResponse.getSchema().getSchemaId(),
-                                                new org.apache.avro.Schema.Parser()
-                                                        .parse(
-                                                                topicProducerResponse
-                                                                        .getSchema()
-                                                                        .getValue()
-                                                                        .toStringUtf8()));
+                                                AvroCodec.parseSchema(
+                                                        topicProducerResponse
+                                                                .getSchema()
+                                                                .getValue()
+                                                                .toStringUtf8()));
                                     }
                                     if (topicProducerResponse.hasRecord()
                                             && !"".equals(topicProducerResponse.getTopic())) {
@@ -387,22 +379,12 @@ abstract class AbstractGrpcAgent extends AbstractAgentCode {
     }
 
     private static byte[] serializeGenericRecord(GenericRecord record) throws IOException {
-        GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(record.getSchema());
-        // enable Decimal conversion, otherwise attempting to serialize java.math.BigDecimal will
-        // throw ClassCastException.
-        writer.getData().addLogicalTypeConversion(new Conversions.DecimalConversion());
-        ByteArrayOutputStream oo = new ByteArrayOutputStream();
-        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(oo, null);
-        writer.write(record, encoder);
-        return oo.toByteArray();
+        return AvroCodec.forSchema(record.getSchema()).encode(record);
     }
 
     private static GenericRecord deserializeGenericRecord(
             org.apache.avro.Schema schema, byte[] data) throws IOException {
-        GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(schema);
-        reader.getData().addLogicalTypeConversion(new Conversions.DecimalConversion());
-        Decoder decoder = DecoderFactory.get().binaryDecoder(data, null);
-        return reader.read(null, decoder);
+        return AvroCodec.forSchema(schema).decode(data);
     }
 
     @Override
@@ -15,6 +15,7 @@
  */
 package ai.langstream.agents.grpc;
 
+import ai.langstream.ai.agents.commons.AvroCodec;
 import ai.langstream.api.runner.code.AgentProcessor;
 import ai.langstream.api.runner.code.RecordSink;
 import io.grpc.ManagedChannel;
@@ -129,8 +130,8 @@ public class GrpcAgentProcessor extends AbstractGrpcAgent implements AgentProces
                 try {
                     if (response.hasSchema()) {
                         org.apache.avro.Schema schema =
-                                new org.apache.avro.Schema.Parser()
-                                        .parse(response.getSchema().getValue().toStringUtf8());
+                                AvroCodec.parseSchema(
+                                        response.getSchema().getValue().toStringUtf8());
                         serverSchemas.put(response.getSchema().getSchemaId(), schema);
                     }
                     for (ProcessorResult result : response.getResultsList()) {
@@ -15,6 +15,7 @@
  */
 package ai.langstream.agents.grpc;
 
+import ai.langstream.ai.agents.commons.AvroCodec;
 import ai.langstream.api.runner.code.AgentSource;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.util.ConfigurationUtils;
@@ -108,8 +109,8 @@ public class GrpcAgentSource extends AbstractGrpcAgent implements AgentSource {
                 try {
                     if (response.hasSchema()) {
                         org.apache.avro.Schema schema =
-                                new org.apache.avro.Schema.Parser()
-                                        .parse(response.getSchema().getValue().toStringUtf8());
+                                AvroCodec.parseSchema(
+                                        response.getSchema().getValue().toStringUtf8());
                         serverSchemas.put(response.getSchema().getSchemaId(), schema);
                     }
 
@@ -0,0 +1,67 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.agents.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import ai.langstream.ai.agents.commons.AvroCodec;
+import java.math.BigDecimal;
+import java.util.List;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.Test;
+
+class AvroCodecTest {
+
+    @Test
+    void testRoundTrip() throws Exception {
+        Schema decimal = LogicalTypes.decimal(10, 2).addToSchema(Schema.create(Schema.Type.BYTES));
+        Schema schema =
+                Schema.createRecord(
+                        "record",
+                        null,
+                        "ns",
+                        false,
+                        List.of(
+                                new Schema.Field("name", Schema.create(Schema.Type.STRING)),
+                                new Schema.Field("amount", decimal)));
+        AvroCodec codec = AvroCodec.forSchema(schema);
+        assertSame(codec, AvroCodec.forSchema(schema));
+
+        for (int i = 0; i < 10; i++) {
+            GenericRecord record = new GenericData.Record(schema);
+            record.put("name", "name-" + i);
+            record.put("amount", new BigDecimal(i + ".25"));
+
+            GenericRecord decoded = codec.decode(codec.encode(record));
+            assertEquals("name-" + i, decoded.get("name").toString());
+            assertEquals(new BigDecimal(i + ".25"), decoded.get("amount"));
+        }
+    }
+
+    @Test
+    void testParseSchema() {
+        String definition =
+                SchemaBuilder.record("test").fields().requiredInt("a").endRecord().toString();
+        Schema schema = AvroCodec.parseSchema(definition);
+        assertEquals(definition, schema.toString());
+        assertSame(schema, AvroCodec.parseSchema(definition));
+    }
+}
@@ -23,6 +23,8 @@ import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.RecordSink;
 import ai.langstream.api.runtime.ComponentType;
 import ai.langstream.api.util.ConfigurationUtils;
+import ai.langstream.api.util.HttpClientRegistry;
+import ai.langstream.api.util.SharedHttpClient;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.samskivert.mustache.Mustache;
@@ -40,8 +42,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.Schema;
@@ -54,8 +54,7 @@ public class HttpRequestAgent extends AbstractAgentCode implements AgentProcesso
 
     private final Map<Schema, Schema> avroKeySchemaCache = new ConcurrentHashMap<>();
 
-    private ExecutorService executor;
-    private HttpClient httpClient;
+    private SharedHttpClient httpClient;
     private String url;
     private String method;
     private Map<String, Template> queryStringTemplates;
@@ -98,19 +97,24 @@ public class HttpRequestAgent extends AbstractAgentCode implements AgentProcesso
             bodyTemplate = Mustache.compiler().compile(body);
         }
 
-        executor = Executors.newCachedThreadPool();
-        CookieManager cookieManager = new CookieManager();
-        cookieManager.setCookiePolicy(
-                handleCookies ? CookiePolicy.ACCEPT_ALL : CookiePolicy.ACCEPT_NONE);
-        httpClient =
-                HttpClient.newBuilder()
-                        .followRedirects(
-                                allowRedirects
-                                        ? HttpClient.Redirect.NORMAL
-                                        : HttpClient.Redirect.NEVER)
-                        .cookieHandler(cookieManager)
-                        .executor(executor)
-                        .build();
+        HttpClient.Redirect redirect =
+                allowRedirects ? HttpClient.Redirect.NORMAL : HttpClient.Redirect.NEVER;
+        if (handleCookies) {
+            CookieManager cookieManager = new CookieManager();
+            cookieManager.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
+            httpClient = HttpClientRegistry.create(redirect, cookieManager);
+        } else {
+            httpClient = HttpClientRegistry.get(redirect);
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        if (agentContext != null) {
+            httpClient =
+                    httpClient.withMetricsReporter(
+                            agentContext.getMetricsReporter().withAgentName(agentId()));
+        }
     }
 
     @Override
@@ -139,10 +143,7 @@ public class HttpRequestAgent extends AbstractAgentCode implements AgentProcesso
                 bodyPublisher = HttpRequest.BodyPublishers.noBody();
             }
             final HttpRequest.Builder requestBuilder =
-                    HttpRequest.newBuilder()
-                            .uri(uri)
-                            .version(HttpClient.Version.HTTP_1_1)
-                            .method(this.method, bodyPublisher);
+                    HttpRequest.newBuilder().uri(uri).method(this.method, bodyPublisher);
             headersTemplates.forEach(
                     (key, value) -> requestBuilder.header(key, value.execute(jsonRecord)));
             final HttpRequest request = requestBuilder.build();
@@ -224,11 +225,4 @@ public class HttpRequestAgent extends AbstractAgentCode implements AgentProcesso
     private static String encodeParam(String key, String value) {
         return String.format("%s=%s", key, URLEncoder.encode(value, StandardCharsets.UTF_8));
     }
-
-    @Override
-    public void close() throws Exception {
-        if (executor != null) {
-            executor.shutdownNow();
-        }
-    }
 }
@@ -15,6 +15,9 @@
  */
 package ai.langstream.agents.http;
 
+import ai.langstream.api.runner.code.MetricsReporter;
+import ai.langstream.api.util.HttpClientRegistry;
+import ai.langstream.api.util.SharedHttpClient;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -27,7 +30,6 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Flow;
 import java.util.concurrent.atomic.AtomicInteger;
 import lombok.Builder;
@@ -39,7 +41,7 @@ public class LangServeClient {
 
     static final ObjectMapper mapper = new ObjectMapper();
 
-    final HttpClient httpClient;
+    final SharedHttpClient httpClient;
 
     final Options options;
 
@@ -49,7 +51,6 @@ public class LangServeClient {
         private String url;
         @Builder.Default private String method = "POST";
         @Builder.Default private boolean allowRedirects = true;
-        private ExecutorService executorService;
         private CookieManager cookieManager;
         @Builder.Default private boolean debug = false;
         @Builder.Default private String contentField = "content";
@@ -58,19 +59,26 @@ public class LangServeClient {
 
     public LangServeClient(Options options) {
         this.options = options;
-        HttpClient.Builder builder =
-                HttpClient.newBuilder()
-                        .followRedirects(
-                                options.isAllowRedirects()
-                                        ? HttpClient.Redirect.NORMAL
-                                        : HttpClient.Redirect.NEVER);
+        HttpClient.Redirect redirect =
+                options.isAllowRedirects() ? HttpClient.Redirect.NORMAL : HttpClient.Redirect.NEVER;
         if (options.getCookieManager() != null) {
-            builder.cookieHandler(options.getCookieManager());
-        }
-        if (options.getExecutorService() != null) {
-            builder.executor(options.getExecutorService());
+            httpClient = HttpClientRegistry.create(redirect, options.getCookieManager());
+        } else {
+            httpClient = HttpClientRegistry.get(redirect);
         }
-        httpClient = builder.build();
+    }
+
+    private LangServeClient(Options options, SharedHttpClient httpClient) {
+        this.options = options;
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * @param metricsReporter the reporter
+     * @return a client with the same options that reports the metrics of its requests
+     */
+    public LangServeClient withMetricsReporter(MetricsReporter metricsReporter) {
+        return new LangServeClient(options, httpClient.withMetricsReporter(metricsReporter));
     }
 
     private CompletableFuture<String> invoke(HttpRequest request) {
@@ -285,7 +293,6 @@ public class LangServeClient {
             final HttpRequest.Builder requestBuilder =
                     HttpRequest.newBuilder()
                             .uri(new URI(options.url))
-                            .version(HttpClient.Version.HTTP_1_1)
                             .method(options.method, bodyPublisher);
             requestBuilder.header("Content-Type", "application/json");
             headers.forEach((key, value) -> requestBuilder.header(key, value));
@@ -39,8 +39,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.Schema;
 
@@ -60,7 +58,6 @@ public class LangServeInvokeAgent extends AbstractAgentCode implements AgentProc
 
     private final Map<Schema, Schema> avroKeySchemaCache = new ConcurrentHashMap<>();
 
-    private ExecutorService executor;
     private LangServeClient langServeClient;
     private String url;
     private String method;
@@ -113,10 +110,11 @@ public class LangServeInvokeAgent extends AbstractAgentCode implements AgentProc
                     entry.getKey(), Mustache.compiler().compile(entry.getValue().toString()));
         }
 
-        executor = Executors.newCachedThreadPool();
-        CookieManager cookieManager = new CookieManager();
-        cookieManager.setCookiePolicy(
-                handleCookies ? CookiePolicy.ACCEPT_ALL : CookiePolicy.ACCEPT_NONE);
+        CookieManager cookieManager = null;
+        if (handleCookies) {
+            cookieManager = new CookieManager();
+            cookieManager.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
+        }
 
         langServeClient =
                 new LangServeClient(
@@ -126,7 +124,6 @@ public class LangServeInvokeAgent extends AbstractAgentCode implements AgentProc
                                 .url(url)
                                 .minChunksPerMessage(minChunksPerMessage)
                                 .debug(debug)
-                                .executorService(executor)
                                 .cookieManager(cookieManager)
                                 .build());
     }
@@ -214,6 +211,11 @@ public class LangServeInvokeAgent extends AbstractAgentCode implements AgentProc
 
     @Override
     public void start() throws Exception {
+        if (agentContext != null) {
+            langServeClient =
+                    langServeClient.withMetricsReporter(
+                            agentContext.getMetricsReporter().withAgentName(agentId()));
+        }
         if (!streamToTopic.isEmpty()) {
             log.info("Streaming answers to topic {}", streamToTopic);
             topicProducer =
@@ -231,9 +233,6 @@ public class LangServeInvokeAgent extends AbstractAgentCode implements AgentProc
             topicProducer.close();
             topicProducer = null;
         }
-        if (executor != null) {
-            executor.shutdownNow();
-        }
     }
 
     private void applyResultFieldToContext(
@@ -0,0 +1,134 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.commons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.avro.Conversions;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+
+/**
+ * Binary AVRO encoding and decoding of GenericRecords. The datum writers and readers are created
+ * once per schema, and the encoders, decoders and output buffers are reused by each thread.
+ */
+public final class AvroCodec {
+
+    // caches are cleared when they grow too much, this happens only with a lot of dynamic schemas
+    private static final int MAX_CACHED_SCHEMAS = 1000;
+    // don't keep large buffers around
+    private static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+
+    // the shared GenericData instance is used, as the other readers of the records
+    // expect the Decimal conversion to be registered there
+    private static final GenericData GENERIC_DATA = GenericData.get();
+
+    static {
+        // enable Decimal conversion, otherwise attempting to serialize java.math.BigDecimal will
+        // throw ClassCastException
+        GENERIC_DATA.addLogicalTypeConversion(new Conversions.DecimalConversion());
+    }
+
+    private static final Map<Schema, AvroCodec> CODECS = new ConcurrentHashMap<>();
+    private static final Map<String, Schema> PARSED_SCHEMAS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Buffer> BUFFERS = ThreadLocal.withInitial(Buffer::new);
+    private static final ThreadLocal<BinaryDecoder> DECODERS = new ThreadLocal<>();
+
+    private final GenericDatumWriter<GenericRecord> writer;
+    private final GenericDatumReader<GenericRecord> reader;
+
+    private AvroCodec(Schema schema) {
+        this.writer = new GenericDatumWriter<>(schema, GENERIC_DATA);
+        this.reader = new GenericDatumReader<>(schema, schema, GENERIC_DATA);
+    }
+
+    /**
+     * Get the codec for a schema. The lookup uses the hashCode of the schema, that is computed only
+     * once by AVRO.
+     *
+     * @param schema the schema
+     * @return the codec
+     */
+    public static AvroCodec forSchema(Schema schema) {
+        AvroCodec codec = CODECS.get(schema);
+        if (codec == null) {
+            if (CODECS.size() >= MAX_CACHED_SCHEMAS) {
+                CODECS.clear();
+            }
+            codec = CODECS.computeIfAbsent(schema, AvroCodec::new);
+        }
+        return codec;
+    }
+
+    /**
+     * Parse a schema, the same definition is parsed only once.
+     *
+     * @param definition the JSON definition of the schema
+     * @return the schema
+     */
+    public static Schema parseSchema(String definition) {
+        Schema schema = PARSED_SCHEMAS.get(definition);
+        if (schema == null) {
+            if (PARSED_SCHEMAS.size() >= MAX_CACHED_SCHEMAS) {
+                PARSED_SCHEMAS.clear();
+            }
+            schema =
+                    PARSED_SCHEMAS.computeIfAbsent(
+                            definition, d -> new Schema.Parser().parse(definition));
+        }
+        return schema;
+    }
+
+    public byte[] encode(GenericRecord record) throws IOException {
+        Buffer buffer = BUFFERS.get();
+        buffer.reset();
+        buffer.encoder = EncoderFactory.get().directBinaryEncoder(buffer, buffer.encoder);
+        writer.write(record, buffer.encoder);
+        byte[] result = buffer.toByteArray();
+        if (buffer.capacity() > MAX_REUSED_BUFFER_SIZE) {
+            BUFFERS.remove();
+        }
+        return result;
+    }
+
+    public GenericRecord decode(byte[] data) throws IOException {
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(data, DECODERS.get());
+        DECODERS.set(decoder);
+        return reader.read(null, decoder);
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+        private BinaryEncoder encoder;
+
+        private Buffer() {
+            super(1024);
+        }
+
+        private int capacity() {
+            return buf.length;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.commons;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Read-only {@link Map} views over an AVRO {@link GenericRecord} or a {@link JsonNode}. The nested
+ * records, arrays and maps are wrapped on access, nothing is copied.
+ *
+ * <p>The values are the same that you get by converting the {@link
+ * JsonConverter#toJson(GenericRecord)} tree to a Map with Jackson: the logical types are exposed
+ * with their underlying AVRO value (BigDecimal for decimals, numbers for dates and timestamps) and
+ * strings are always {@link String}s.
+ */
+public final class JsonMapView {
+
+    private JsonMapView() {}
+
+    public static Map<String, Object> of(GenericRecord genericRecord) {
+        return genericRecord == null ? null : new GenericRecordMap(genericRecord);
+    }
+
+    public static Object of(JsonNode jsonNode) {
+        if (jsonNode == null || jsonNode.isNull() || jsonNode.isMissingNode()) {
+            return null;
+        }
+        if (jsonNode.isObject()) {
+            return new JsonNodeMap(jsonNode);
+        }
+        if (jsonNode.isArray()) {
+            return new JsonNodeList(jsonNode);
+        }
+        if (jsonNode.isTextual()) {
+            return jsonNode.textValue();
+        }
+        if (jsonNode.isNumber()) {
+            return jsonNode.numberValue();
+        }
+        if (jsonNode.isBoolean()) {
+            return jsonNode.booleanValue();
+        }
+        if (jsonNode.isBinary()) {
+            return ((BinaryNode) jsonNode).binaryValue();
+        }
+        if (jsonNode.isPojo()) {
+            return ((POJONode) jsonNode).getPojo();
+        }
+        return jsonNode.asText();
+    }
+
+    static Object of(Schema schema, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (schema.getLogicalType() != null) {
+            switch (schema.getLogicalType().getName()) {
+                case "decimal":
+                case "date":
+                case "time-millis":
+                case "time-micros":
+                case "timestamp-millis":
+                case "timestamp-micros":
+                    return value;
+                case "uuid":
+                    return value.toString();
+                default:
+                    break;
+            }
+        }
+        switch (schema.getType()) {
+            case NULL:
+                return null;
+            case INT:
+            case LONG:
+            case DOUBLE:
+            case FLOAT:
+            case BOOLEAN:
+                return value;
+            case BYTES:
+                if (value instanceof byte[]) {
+                    return value;
+                } else if (value instanceof ByteBuffer) {
+                    return JsonConverter.getBytes((ByteBuffer) value);
+                }
+                throw new IllegalArgumentException(
+                        "Invalid type for field of type BYTES, expected byte[] or ByteBuffer but was "
+                                + value.getClass());
+            case FIXED:
+                return ((GenericFixed) value).bytes();
+            case ENUM:
+            case STRING:
+                // can be a String or org.apache.avro.util.Utf8
+                return value.toString();
+            case ARRAY:
+                if (value instanceof List<?> list) {
+                    return new AvroList(schema.getElementType(), list);
+                }
+                return new AvroList(schema.getElementType(), List.of((Object[]) value));
+            case MAP:
+                return new AvroMap(schema.getValueType(), (Map<?, ?>) value);
+            case RECORD:
+                return new GenericRecordMap((GenericRecord) value);
+            case UNION:
+                for (Schema s : schema.getTypes()) {
+                    if (s.getType() == Schema.Type.NULL) {
+                        continue;
+                    }
+                    return of(s, value);
+                }
+                // this case should not happen
+                return value.toString();
+            default:
+                throw new UnsupportedOperationException(
+                        "Unknown AVRO schema type=" + schema.getType());
+        }
+    }
+
+    private static final class GenericRecordMap extends AbstractMap<String, Object> {
+        private final GenericRecord genericRecord;
+
+        private GenericRecordMap(GenericRecord genericRecord) {
+            this.genericRecord = genericRecord;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Schema.Field field =
+                    key instanceof String name ? genericRecord.getSchema().getField(name) : null;
+            return field == null ? null : of(field.schema(), genericRecord.get(field.pos()));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String name && genericRecord.getSchema().getField(name) != null;
+        }
+
+        @Override
+        public int size() {
+            return genericRecord.getSchema().getFields().size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            List<Schema.Field> fields = genericRecord.getSchema().getFields();
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<Schema.Field> iterator = fields.iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            Schema.Field field = iterator.next();
+                            return new SimpleImmutableEntry<>(
+                                    field.name(),
+                                    of(field.schema(), genericRecord.get(field.pos())));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return fields.size();
+                }
+            };
+        }
+    }
+
+    private static final class AvroMap extends AbstractMap<String, Object> {
+        private final Schema valueSchema;
+        private final Map<?, ?> map;
+
+        private AvroMap(Schema valueSchema, Map<?, ?> map) {
+            this.valueSchema = valueSchema;
+            this.map = map;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<? extends Entry<?, ?>> iterator = map.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            Entry<?, ?> entry = iterator.next();
+                            // can be a String or org.apache.avro.util.Utf8
+                            String key = entry.getKey() == null ? null : entry.getKey().toString();
+                            return new SimpleImmutableEntry<>(
+                                    key, of(valueSchema, entry.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return map.size();
+                }
+            };
+        }
+    }
+
+    private static final class AvroList extends AbstractList<Object> {
+        private final Schema elementSchema;
+        private final List<?> list;
+
+        private AvroList(Schema elementSchema, List<?> list) {
+            this.elementSchema = elementSchema;
+            this.list = list;
+        }
+
+        @Override
+        public Object get(int index) {
+            return of(elementSchema, list.get(index));
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+    }
+
+    private static final class JsonNodeMap extends AbstractMap<String, Object> {
+        private final JsonNode jsonNode;
+
+        private JsonNodeMap(JsonNode jsonNode) {
+            this.jsonNode = jsonNode;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof String name ? of(jsonNode.get(name)) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String name && jsonNode.has(name);
+        }
+
+        @Override
+        public int size() {
+            return jsonNode.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<Entry<String, JsonNode>> iterator = jsonNode.fields();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            Entry<String, JsonNode> entry = iterator.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), of(entry.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return jsonNode.size();
+                }
+            };
+        }
+    }
+
+    private static final class JsonNodeList extends AbstractList<Object> {
+        private final JsonNode jsonNode;
+
+        private JsonNodeList(JsonNode jsonNode) {
+            this.jsonNode = jsonNode;
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= jsonNode.size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return of(jsonNode.get(index));
+        }
+
+        @Override
+        public int size() {
+            return jsonNode.size();
+        }
+    }
+}
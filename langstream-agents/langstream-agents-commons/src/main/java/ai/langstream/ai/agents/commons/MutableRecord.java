@@ -18,12 +18,13 @@ package ai.langstream.ai.agents.commons;
 import ai.langstream.api.runner.code.Header;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.SimpleRecord;
+import ai.langstream.api.util.FloatVector;
+import ai.langstream.api.util.VectorCodec;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.sql.Time;
@@ -42,19 +43,24 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.SneakyThrows;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.avro.Conversions;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.io.BinaryEncoder;
-import org.apache.avro.io.EncoderFactory;
 
 @Slf4j
 @Data
+// the getters convert the key, the value and the headers on first access and mark them as modified,
+// logging or comparing a record must not change how it is written back
+@ToString(doNotUseGetters = true)
+@EqualsAndHashCode(doNotUseGetters = true)
 public class MutableRecord {
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private TransformSchemaType keySchemaType;
@@ -73,12 +79,142 @@ public class MutableRecord {
     // only for fn:filter
     private Object recordObject;
 
+    // the original key and value, converted to JSON only when they are accessed
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private LazyJson lazyKey;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private LazyJson lazyValue;
+
+    // the original headers, converted to properties only when they are accessed
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Collection<Header> sourceHeaders;
+
+    /**
+     * The original String or byte[] of the key or of the value. The JSON conversion is attempted on
+     * first access, and if the converted object has never been handed out for modification the
+     * original is written back as is by {@link #convertMapToStringOrBytes()}.
+     */
+    private static final class LazyJson {
+        private final Object original;
+        private boolean converted;
+        private boolean modified;
+
+        private LazyJson(Object original) {
+            this.original = original;
+        }
+
+        private LazyJson copy() {
+            LazyJson copy = new LazyJson(original);
+            copy.converted = converted;
+            copy.modified = modified;
+            return copy;
+        }
+
+        private static LazyJson of(Object object, boolean attemptJsonConversion) {
+            if (attemptJsonConversion && (object instanceof String || object instanceof byte[])) {
+                return new LazyJson(object);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return the key, the caller is allowed to modify it
+     */
+    public Object getKeyObject() {
+        convertKey();
+        if (lazyKey != null) {
+            lazyKey.modified = true;
+        }
+        return keyObject;
+    }
+
+    /**
+     * @return the key, the caller must not modify it
+     */
+    public Object peekKeyObject() {
+        convertKey();
+        return keyObject;
+    }
+
+    public void setKeyObject(Object keyObject) {
+        this.keyObject = keyObject;
+        this.lazyKey = null;
+    }
+
+    /**
+     * @return the value, the caller is allowed to modify it
+     */
+    public Object getValueObject() {
+        convertValue();
+        if (lazyValue != null) {
+            lazyValue.modified = true;
+        }
+        return valueObject;
+    }
+
+    /**
+     * @return the value, the caller must not modify it
+     */
+    public Object peekValueObject() {
+        convertValue();
+        return valueObject;
+    }
+
+    public void setValueObject(Object valueObject) {
+        this.valueObject = valueObject;
+        this.lazyValue = null;
+    }
+
+    private void convertKey() {
+        if (lazyKey != null && !lazyKey.converted) {
+            lazyKey.converted = true;
+            keyObject = attemptJsonConversion(lazyKey.original);
+        }
+    }
+
+    private void convertValue() {
+        if (lazyValue != null && !lazyValue.converted) {
+            lazyValue.converted = true;
+            valueObject = attemptJsonConversion(lazyValue.original);
+        }
+    }
+
+    public Map<String, String> getProperties() {
+        if (sourceHeaders != null) {
+            properties = headersToProperties(sourceHeaders);
+            sourceHeaders = null;
+        }
+        return properties;
+    }
+
+    public void setProperties(Map<String, String> properties) {
+        this.properties = properties;
+        this.sourceHeaders = null;
+    }
+
     public MutableRecord copy() {
         MutableRecord copy = new MutableRecord();
 
-        copy.keyObject = safeClone(keyObject);
-        copy.valueObject = safeClone(valueObject);
-
+        // the original String or byte[] is never modified, so it can be shared
+        copy.keyObject =
+                lazyKey != null && !lazyKey.converted ? lazyKey.original : safeClone(keyObject);
+        copy.valueObject =
+                lazyValue != null && !lazyValue.converted
+                        ? lazyValue.original
+                        : safeClone(valueObject);
+        copy.lazyKey = lazyKey != null ? lazyKey.copy() : null;
+        copy.lazyValue = lazyValue != null ? lazyValue.copy() : null;
+
+        copy.sourceHeaders = sourceHeaders;
         copy.properties =
                 properties != null
                         ? new HashMap<>(properties)
@@ -104,6 +240,15 @@ public class MutableRecord {
     }
 
     public void convertMapToStringOrBytes() throws JsonProcessingException {
+        // write back the original String or byte[] if the record has not been modified
+        if (lazyValue != null && !lazyValue.modified) {
+            valueObject = lazyValue.original;
+        }
+        lazyValue = null;
+        if (lazyKey != null && !lazyKey.modified) {
+            keyObject = lazyKey.original;
+        }
+        lazyKey = null;
         if (valueObject instanceof Map) {
             if (valueSchemaType == TransformSchemaType.STRING) {
                 valueObject = OBJECT_MAPPER.writeValueAsString(valueObject);
@@ -122,34 +267,26 @@ public class MutableRecord {
 
     public void convertAvroToBytes() throws IOException {
         if (keySchemaType == TransformSchemaType.AVRO) {
-            keyObject = serializeGenericRecord((GenericRecord) keyObject);
+            setKeyObject(serializeGenericRecord((GenericRecord) keyObject));
         }
         if (valueSchemaType == TransformSchemaType.AVRO) {
-            valueObject = serializeGenericRecord((GenericRecord) valueObject);
+            setValueObject(serializeGenericRecord((GenericRecord) valueObject));
         }
     }
 
     public void setProperty(String key, String value) {
-        if (this.properties == null) {
+        if (getProperties() == null) {
             this.properties = new HashMap<>();
         }
         this.properties.put(key, value);
     }
 
     public static byte[] serializeGenericRecord(GenericRecord record) throws IOException {
-        GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(record.getSchema());
-        // enable Decimal conversion, otherwise attempting to serialize java.math.BigDecimal will
-        // throw
-        // ClassCastException
-        writer.getData().addLogicalTypeConversion(new Conversions.DecimalConversion());
-        ByteArrayOutputStream oo = new ByteArrayOutputStream();
-        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(oo, null);
-        writer.write(record, encoder);
-        return oo.toByteArray();
+        return AvroCodec.forSchema(record.getSchema()).encode(record);
     }
 
     public void dropValueFields(Collection<String> fields, Map<Schema, Schema> schemaCache) {
-        if (valueObject instanceof Map) {
+        if (getValueObject() instanceof Map) {
             fields.forEach(((Map<?, ?>) valueObject)::remove);
         } else if (valueSchemaType == TransformSchemaType.AVRO) {
             dropAvroValueFields(fields, schemaCache);
@@ -174,7 +311,7 @@ public class MutableRecord {
     }
 
     public void dropKeyFields(Collection<String> fields, Map<Schema, Schema> schemaCache) {
-        if (keyObject instanceof Map) {
+        if (getKeyObject() instanceof Map) {
             fields.forEach(((Map<?, ?>) keyObject)::remove);
         } else if (keySchemaType == TransformSchemaType.AVRO) {
             dropAvroKeyFields(fields, schemaCache);
@@ -271,14 +408,14 @@ public class MutableRecord {
     public JsonRecord toJsonRecord() {
         JsonRecord jsonRecord = new JsonRecord();
         if (keySchemaType != null) {
-            jsonRecord.setKey(toJsonSerializable(keySchemaType, keyObject));
+            jsonRecord.setKey(toJsonSerializable(keySchemaType, peekKeyObject()));
         } else {
             jsonRecord.setKey(key);
         }
-        jsonRecord.setValue(toJsonSerializable(valueSchemaType, valueObject));
+        jsonRecord.setValue(toJsonSerializable(valueSchemaType, peekValueObject()));
         jsonRecord.setDestinationTopic(outputTopic);
 
-        jsonRecord.setProperties(properties);
+        jsonRecord.setProperties(getProperties());
         jsonRecord.setEventTime(eventTime);
         jsonRecord.setTopicName(inputTopic);
         return jsonRecord;
@@ -290,12 +427,9 @@ public class MutableRecord {
         }
         switch (schemaType) {
             case AVRO:
-                // TODO: do better than the double conversion AVRO -> JsonNode -> Map
-                return OBJECT_MAPPER.convertValue(
-                        JsonConverter.toJson((GenericRecord) val),
-                        new TypeReference<Map<String, Object>>() {});
+                return JsonMapView.of((GenericRecord) val);
             case JSON:
-                return OBJECT_MAPPER.convertValue(val, new TypeReference<Map<String, Object>>() {});
+                return JsonMapView.of((JsonNode) val);
             default:
                 throw new UnsupportedOperationException("Unsupported schemaType " + schemaType);
         }
@@ -314,10 +448,10 @@ public class MutableRecord {
             Map<Schema, Schema> avroValueSchemaCache) {
         if (fieldName == null || fieldName.equals("value")) {
             valueSchemaType = TransformSchemaType.STRING;
-            valueObject = content;
+            setValueObject(content);
         } else if (fieldName.equals("key")) {
             keySchemaType = TransformSchemaType.STRING;
-            keyObject = content;
+            setKeyObject(content);
         } else if (fieldName.equals("destinationTopic")) {
             outputTopic = content.toString();
         } else if (fieldName.equals("messageKey")) {
@@ -327,7 +461,7 @@ public class MutableRecord {
             setProperty(propertyKey, content.toString());
         } else if (fieldName.startsWith("value.")) {
             String valueFieldName = fieldName.substring("value.".length());
-            if (valueObject instanceof Map) {
+            if (getValueObject() instanceof Map) {
                 ((Map<String, Object>) valueObject).put(valueFieldName, content);
             } else {
                 if (fieldSchema == null) {
@@ -340,7 +474,7 @@ public class MutableRecord {
             }
         } else if (fieldName.startsWith("key.")) {
             String keyFieldName = fieldName.substring("key.".length());
-            if (keyObject instanceof Map) {
+            if (getKeyObject() instanceof Map) {
                 ((Map<String, Object>) keyObject).put(keyFieldName, content);
             } else {
                 if (fieldSchema == null) {
@@ -366,7 +500,8 @@ public class MutableRecord {
         if (object.getClass().isPrimitive()
                 || object instanceof String
                 || object instanceof Number
-                || object instanceof Boolean) {
+                || object instanceof Boolean
+                || object instanceof FloatVector) {
             return object;
         }
         if (object instanceof Map map) {
@@ -403,53 +538,81 @@ public class MutableRecord {
         if (record.key() instanceof GenericRecord) {
             context.setKeyNativeSchema(((GenericRecord) record.key()).getSchema());
         }
-        context.setValueObject(record.value());
-        context.setValueSchemaType(
-                record.value() == null ? null : getSchemaType(record.value().getClass()));
+        Object value = record.value();
+        Collection<Header> headers = record.headers();
+        if (value instanceof byte[] bytes && isVectorEncoded(headers)) {
+            value = VectorCodec.decode(bytes);
+            headers = headers.stream().filter(h -> !VectorCodec.HEADER.equals(h.key())).toList();
+        }
+        context.setValueObject(value);
+        context.setValueSchemaType(value == null ? null : getSchemaType(value.getClass()));
         // TODO: temporary hack. We should be able to get the schema from the record
-        if (record.value() instanceof GenericRecord) {
-            context.setKeyNativeSchema(((GenericRecord) record.value()).getSchema());
+        if (value instanceof GenericRecord) {
+            context.setKeyNativeSchema(((GenericRecord) value).getSchema());
         }
         context.setInputTopic(record.origin());
         context.setEventTime(record.timestamp());
-        if (attemptJsonConversion) {
-            context.setKeyObject(attemptJsonConversion(context.getKeyObject()));
-            context.setValueObject(attemptJsonConversion(context.getValueObject()));
-        }
-        // the headers must be Strings, this is a tentative conversion
-        // in the future we need a better way to handle headers
-        context.setProperties(
-                record.headers().stream()
-                        .filter(h -> h.key() != null && h.value() != null)
-                        .collect(
-                                Collectors.toMap(
-                                        Header::key,
-                                        (h -> {
-                                            if (h.value() == null) {
-                                                return null;
-                                            }
-                                            if (h.value() instanceof byte[]) {
-                                                return new String(
-                                                        (byte[]) h.value(), StandardCharsets.UTF_8);
-                                            } else {
-                                                return h.value().toString();
-                                            }
-                                        }))));
+        // the JSON conversion and the conversion of the headers happen on first access
+        context.lazyKey = LazyJson.of(context.keyObject, attemptJsonConversion);
+        context.lazyValue = LazyJson.of(context.valueObject, attemptJsonConversion);
+        context.sourceHeaders = headers;
         return context;
     }
 
+    private static boolean isVectorEncoded(Collection<Header> headers) {
+        if (headers == null) {
+            return false;
+        }
+        for (Header header : headers) {
+            if (VectorCodec.HEADER.equals(header.key())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, String> headersToProperties(Collection<Header> headers) {
+        return headers.stream()
+                .filter(h -> h.key() != null && h.value() != null)
+                .collect(Collectors.toMap(Header::key, MutableRecord::headerValueToString));
+    }
+
+    // the headers must be Strings, this is a tentative conversion
+    // in the future we need a better way to handle headers
+    private static String headerValueToString(Header header) {
+        if (header.value() == null) {
+            return null;
+        }
+        if (header.value() instanceof byte[]) {
+            return new String((byte[]) header.value(), StandardCharsets.UTF_8);
+        } else {
+            return header.value().toString();
+        }
+    }
+
     public static Optional<Record> mutableRecordToRecord(MutableRecord context) {
         if (context.isDropCurrentRecord()) {
             return Optional.empty();
         }
         List<Header> headers = new ArrayList<>();
-        context.getProperties()
-                .forEach(
-                        (key, value) -> {
-                            SimpleRecord.SimpleHeader header =
-                                    new SimpleRecord.SimpleHeader(key, value);
-                            headers.add(header);
-                        });
+        if (context.sourceHeaders != null) {
+            // the properties have never been accessed, copy the original headers
+            for (Header header : context.sourceHeaders) {
+                if (header.key() != null && header.value() != null) {
+                    headers.add(
+                            new SimpleRecord.SimpleHeader(
+                                    header.key(), headerValueToString(header)));
+                }
+            }
+        } else {
+            context.getProperties()
+                    .forEach(
+                            (key, value) -> {
+                                SimpleRecord.SimpleHeader header =
+                                        new SimpleRecord.SimpleHeader(key, value);
+                                headers.add(header);
+                            });
+        }
         return Optional.of(new TransformRecord(context, headers));
     }
 
@@ -545,6 +708,9 @@ public class MutableRecord {
     }
 
     public static Object attemptJsonConversion(Object value) {
+        if (!mayBeJsonObject(value)) {
+            return value;
+        }
         try {
             if (value instanceof String) {
                 return OBJECT_MAPPER.readValue(
@@ -560,4 +726,29 @@ public class MutableRecord {
         }
         return value;
     }
+
+    /**
+     * Cheap check to avoid running the JSON parser (and building an exception) on values that
+     * cannot be a JSON object.
+     */
+    private static boolean mayBeJsonObject(Object value) {
+        if (value instanceof String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (!Character.isWhitespace(c)) {
+                    return c == '{';
+                }
+            }
+            return false;
+        } else if (value instanceof byte[] bytes) {
+            for (byte b : bytes) {
+                if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                    // let the parser deal with the byte order marks
+                    return b == '{' || b == (byte) 0xEF || b == (byte) 0xFE || b == (byte) 0xFF;
+                }
+            }
+            return false;
+        }
+        return false;
+    }
 }
@@ -0,0 +1,264 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.commons.jstl;
+
+import ai.langstream.ai.agents.commons.MutableRecord;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.el.ArrayELResolver;
+import jakarta.el.CompositeELResolver;
+import jakarta.el.ELContext;
+import jakarta.el.ELResolver;
+import jakarta.el.ExpressionFactory;
+import jakarta.el.FunctionMapper;
+import jakarta.el.ListELResolver;
+import jakarta.el.MapELResolver;
+import jakarta.el.PropertyNotWritableException;
+import jakarta.el.ResourceBundleELResolver;
+import jakarta.el.StaticFieldELResolver;
+import jakarta.el.VariableMapper;
+import java.util.Map;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.el.ExpressionFactoryImpl;
+
+/**
+ * The context of a single evaluation of a {@link JstlEvaluator}. The resolvers are stateless and
+ * shared by all the evaluations, the top level variables are resolved from the {@link Variables}
+ * bound to this context only.
+ *
+ * <p>The functions and the variable mappers are used only while parsing, so they are not needed
+ * here.
+ */
+final class EvaluationContext extends ELContext {
+
+    private static final ExpressionFactory FACTORY = new ExpressionFactoryImpl();
+    private static final ELResolver RESOLVER = createResolver(FACTORY);
+
+    EvaluationContext(Variables variables) {
+        putContext(ExpressionFactory.class, FACTORY);
+        // the EL implementation wraps this context, the resolvers find the variables here
+        putContext(Variables.class, variables);
+    }
+
+    private static ELResolver createResolver(ExpressionFactory factory) {
+        // same resolvers as StandardContext, with the variables in place of the beans
+        CompositeELResolver resolver = new CompositeELResolver();
+        resolver.add(new VariablesELResolver());
+        ELResolver streamResolver = factory.getStreamELResolver();
+        if (streamResolver != null) {
+            resolver.add(streamResolver);
+        }
+        resolver.add(JstlTypeConverter.INSTANCE);
+        resolver.add(new StaticFieldELResolver());
+        resolver.add(new MapELResolver());
+        resolver.add(new ResourceBundleELResolver());
+        resolver.add(new ListELResolver());
+        resolver.add(new ArrayELResolver());
+        resolver.add(new DisabledInvocationBeanResolver());
+        return resolver;
+    }
+
+    @Override
+    public ELResolver getELResolver() {
+        return RESOLVER;
+    }
+
+    @Override
+    public FunctionMapper getFunctionMapper() {
+        return null;
+    }
+
+    @Override
+    public VariableMapper getVariableMapper() {
+        return null;
+    }
+
+    /** The top level variables of an expression. */
+    interface Variables {
+        boolean isDefined(String name);
+
+        Object get(String name);
+
+        /**
+         * @return the property of a top level variable, or {@link JstlAccessor#UNRESOLVED}
+         */
+        default Object getProperty(String name, Object property) {
+            return JstlAccessor.getProperty(get(name), property);
+        }
+    }
+
+    static final class MapVariables implements Variables {
+        private final Map<String, Object> values;
+
+        MapVariables(Map<String, Object> values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean isDefined(String name) {
+            return values.containsKey(name);
+        }
+
+        @Override
+        public Object get(String name) {
+            return values.get(name);
+        }
+    }
+
+    /**
+     * The variables bound to a record. The adapter that wraps the key and the value is created only
+     * if the expression refers to them.
+     */
+    static final class RecordVariables implements Variables {
+        private final MutableRecord mutableRecord;
+        private JstlTransformContextAdapter adapter;
+
+        RecordVariables(MutableRecord mutableRecord) {
+            this.mutableRecord = mutableRecord;
+        }
+
+        private JstlTransformContextAdapter adapter() {
+            if (adapter == null) {
+                adapter = new JstlTransformContextAdapter(mutableRecord);
+            }
+            return adapter;
+        }
+
+        @Override
+        public boolean isDefined(String name) {
+            return switch (name) {
+                case "key",
+                        "value",
+                        "record",
+                        "messageKey",
+                        "topicName",
+                        "destinationTopic",
+                        "eventTime",
+                        "properties" -> true;
+                default -> false;
+            };
+        }
+
+        @Override
+        public Object get(String name) {
+            return switch (name) {
+                case "key" -> adapter().getKey();
+                case "value" -> adapter().adaptValue();
+                    // this is only for fn:filter
+                case "record" -> mutableRecord.getRecordObject();
+                    // message headers as top level fields
+                case "messageKey" -> mutableRecord.getKey();
+                case "topicName" -> mutableRecord.getInputTopic();
+                case "destinationTopic" -> mutableRecord.getOutputTopic();
+                case "eventTime" -> mutableRecord.getEventTime();
+                case "properties" -> mutableRecord.getProperties();
+                default -> null;
+            };
+        }
+
+        /** Access the fields of the key and the value without wrapping them. */
+        @Override
+        public Object getProperty(String name, Object property) {
+            if (property instanceof String field) {
+                switch (name) {
+                    case "key" -> {
+                        Object keyObject = mutableRecord.peekKeyObject();
+                        if (keyObject == null) {
+                            return JstlAccessor.getProperty(mutableRecord.getKey(), field);
+                        }
+                        return getField(keyObject, mutableRecord.getKeyNativeSchema(), field);
+                    }
+                    case "value" -> {
+                        return getField(
+                                mutableRecord.peekValueObject(),
+                                mutableRecord.getValueNativeSchema(),
+                                field);
+                    }
+                    default -> {}
+                }
+            }
+            return Variables.super.getProperty(name, property);
+        }
+
+        private static Object getField(Object object, Object nativeSchema, String field) {
+            if (object instanceof GenericRecord genericRecord) {
+                return new JstlTransformContextAdapter.GenericRecordTransformer(genericRecord)
+                        .transform(field);
+            }
+            if (object instanceof JsonNode jsonNode) {
+                return new JstlTransformContextAdapter.JsonNodeTransformer(
+                                jsonNode, (Schema) nativeSchema)
+                        .transform(field);
+            }
+            return JstlAccessor.getProperty(object, field);
+        }
+    }
+
+    private static final class VariablesELResolver extends ELResolver {
+
+        private static Variables variables(ELContext context, Object base, Object property) {
+            if (base == null && property instanceof String name) {
+                Variables variables = (Variables) context.getContext(Variables.class);
+                if (variables != null && variables.isDefined(name)) {
+                    return variables;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Object getValue(ELContext context, Object base, Object property) {
+            Variables variables = variables(context, base, property);
+            if (variables == null) {
+                return null;
+            }
+            context.setPropertyResolved(null, property);
+            return variables.get((String) property);
+        }
+
+        @Override
+        public Class<?> getType(ELContext context, Object base, Object property) {
+            if (variables(context, base, property) == null) {
+                return null;
+            }
+            context.setPropertyResolved(null, property);
+            // read only
+            return null;
+        }
+
+        @Override
+        public void setValue(ELContext context, Object base, Object property, Object value) {
+            if (variables(context, base, property) != null) {
+                throw new PropertyNotWritableException(
+                        "Variable " + property + " cannot be modified");
+            }
+        }
+
+        @Override
+        public boolean isReadOnly(ELContext context, Object base, Object property) {
+            if (variables(context, base, property) == null) {
+                return false;
+            }
+            context.setPropertyResolved(null, property);
+            return true;
+        }
+
+        @Override
+        public Class<?> getCommonPropertyType(ELContext context, Object base) {
+            return base == null ? String.class : null;
+        }
+    }
+}
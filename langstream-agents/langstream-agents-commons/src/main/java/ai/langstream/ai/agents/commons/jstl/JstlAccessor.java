@@ -0,0 +1,405 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.commons.jstl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.el.lang.ELSupport;
+
+/**
+ * A fast path for the most common expressions: plain property paths like {@code value.question} or
+ * {@code properties['session-id']}, optionally compared with a literal like {@code value.language
+ * == 'en'}.
+ *
+ * <p>The path is navigated directly over the record and the {@link Map}s and {@link List}s that it
+ * contains, without going through the EL engine. The semantics are the same as EL: a null in the
+ * middle of the path returns null, the comparisons and the conversion to the expected type use the
+ * same coercion rules. Whenever the navigation finds something that it cannot handle (for instance
+ * a bean or an array) it returns {@link #UNRESOLVED} and the caller falls back to EL.
+ */
+final class JstlAccessor {
+
+    static final Object UNRESOLVED = new Object();
+
+    private static final Set<String> RESERVED_WORDS =
+            Set.of(
+                    "and",
+                    "or",
+                    "not",
+                    "eq",
+                    "ne",
+                    "lt",
+                    "gt",
+                    "le",
+                    "ge",
+                    "true",
+                    "false",
+                    "null",
+                    "instanceof",
+                    "empty",
+                    "div",
+                    "mod");
+
+    private enum Operator {
+        EQ,
+        NE,
+        LT,
+        GT,
+        LE,
+        GE
+    }
+
+    private final String root;
+    private final Object[] path;
+    private final Operator operator;
+    private final Object literal;
+    private final Class<?> type;
+
+    private JstlAccessor(
+            String root, Object[] path, Operator operator, Object literal, Class<?> type) {
+        this.root = root;
+        this.path = path;
+        this.operator = operator;
+        this.literal = literal;
+        this.type = type;
+    }
+
+    /**
+     * Compile an expression.
+     *
+     * @param expression the expression, without the ${ }
+     * @param type the expected type of the result
+     * @return the accessor, or null if the expression is not a simple path or comparison
+     */
+    static JstlAccessor compile(String expression, Class<?> type) {
+        Parser parser = new Parser(expression);
+        String root = parser.identifier();
+        if (root == null) {
+            return null;
+        }
+        List<Object> path = new ArrayList<>();
+        while (true) {
+            parser.skipWhitespace();
+            if (parser.consume(".")) {
+                String property = parser.identifier();
+                if (property == null) {
+                    return null;
+                }
+                path.add(property);
+            } else if (parser.consume("[")) {
+                parser.skipWhitespace();
+                Object property = parser.literal();
+                parser.skipWhitespace();
+                if (!(property instanceof String || property instanceof Long)
+                        || !parser.consume("]")) {
+                    return null;
+                }
+                path.add(property);
+            } else {
+                break;
+            }
+        }
+        Operator operator = null;
+        Object literal = null;
+        if (!parser.atEnd()) {
+            operator = parser.operator();
+            if (operator == null) {
+                return null;
+            }
+            parser.skipWhitespace();
+            literal = parser.literal();
+            if (literal == null && !parser.consumedNull) {
+                return null;
+            }
+            parser.skipWhitespace();
+            if (!parser.atEnd()) {
+                return null;
+            }
+        }
+        return new JstlAccessor(root, path.toArray(), operator, literal, type);
+    }
+
+    /**
+     * Evaluate the expression.
+     *
+     * @param variables the top level variables
+     * @return the result, converted to the expected type, or {@link #UNRESOLVED}
+     */
+    Object evaluate(EvaluationContext.Variables variables) {
+        if (!variables.isDefined(root)) {
+            return UNRESOLVED;
+        }
+        Object value;
+        int start;
+        if (path.length > 0) {
+            value = variables.getProperty(root, path[0]);
+            start = 1;
+        } else {
+            value = variables.get(root);
+            start = 0;
+        }
+        for (int i = start; i < path.length && value != UNRESOLVED; i++) {
+            value = getProperty(value, path[i]);
+        }
+        if (value == UNRESOLVED) {
+            return UNRESOLVED;
+        }
+        if (operator != null) {
+            value = compare(value, variables);
+        }
+        return coerce(value, type);
+    }
+
+    /**
+     * The same as the Map and List resolvers of EL.
+     *
+     * @param base the object
+     * @param property the property
+     * @return the value, or {@link #UNRESOLVED} if the base is not a Map or a List
+     */
+    static Object getProperty(Object base, Object property) {
+        if (base == null) {
+            return null;
+        }
+        if (base instanceof Map<?, ?> map) {
+            return map.get(property);
+        }
+        if (base instanceof List<?> list) {
+            int index;
+            if (property instanceof Number number) {
+                index = number.intValue();
+            } else {
+                try {
+                    index = Integer.parseInt(property.toString());
+                } catch (NumberFormatException notAnIndex) {
+                    return UNRESOLVED;
+                }
+            }
+            return index < 0 || index >= list.size() ? null : list.get(index);
+        }
+        return UNRESOLVED;
+    }
+
+    private Boolean compare(Object value, EvaluationContext.Variables variables) {
+        switch (operator) {
+            case EQ, NE -> {
+                boolean equals;
+                if (value == literal) {
+                    equals = true;
+                } else if (value == null || literal == null) {
+                    equals = false;
+                } else if ((value instanceof String && literal instanceof String)
+                        || (value instanceof Boolean && literal instanceof Boolean)) {
+                    equals = value.equals(literal);
+                } else {
+                    equals = ELSupport.equals(new EvaluationContext(variables), value, literal);
+                }
+                return operator == Operator.EQ ? equals : !equals;
+            }
+            case LE, GE -> {
+                if (value == literal) {
+                    return Boolean.TRUE;
+                }
+                if (value == null || literal == null) {
+                    return Boolean.FALSE;
+                }
+                int result = ELSupport.compare(new EvaluationContext(variables), value, literal);
+                return operator == Operator.LE ? result <= 0 : result >= 0;
+            }
+            default -> {
+                if (value == null || literal == null) {
+                    return Boolean.FALSE;
+                }
+                int result = ELSupport.compare(new EvaluationContext(variables), value, literal);
+                return operator == Operator.LT ? result < 0 : result > 0;
+            }
+        }
+    }
+
+    /**
+     * The same as the conversion done by EL, that gives precedence to {@link JstlTypeConverter}.
+     */
+    private static Object coerce(Object value, Class<?> type) {
+        if (value == null) {
+            return JstlTypeConverter.coerceNullToType(type);
+        }
+        Object converted = JstlTypeConverter.INSTANCE.coerceToType(value, type);
+        if (converted != null) {
+            return converted;
+        }
+        return ELSupport.coerceToType(null, value, type);
+    }
+
+    private static final class Parser {
+        private final String expression;
+        private int position;
+        private boolean consumedNull;
+
+        Parser(String expression) {
+            this.expression = expression.strip();
+        }
+
+        boolean atEnd() {
+            return position == expression.length();
+        }
+
+        void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(expression.charAt(position))) {
+                position++;
+            }
+        }
+
+        boolean consume(String token) {
+            if (expression.startsWith(token, position)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        String identifier() {
+            skipWhitespace();
+            int start = position;
+            while (!atEnd()) {
+                char c = expression.charAt(position);
+                boolean valid =
+                        (c >= 'a' && c <= 'z')
+                                || (c >= 'A' && c <= 'Z')
+                                || c == '_'
+                                || c == '$'
+                                || (position > start && c >= '0' && c <= '9');
+                if (!valid) {
+                    break;
+                }
+                position++;
+            }
+            if (start == position) {
+                return null;
+            }
+            String identifier = expression.substring(start, position);
+            return RESERVED_WORDS.contains(identifier) ? null : identifier;
+        }
+
+        Operator operator() {
+            for (String[] token :
+                    new String[][] {
+                        {"==", "EQ"},
+                        {"!=", "NE"},
+                        {"<=", "LE"},
+                        {">=", "GE"},
+                        {"<", "LT"},
+                        {">", "GT"}
+                    }) {
+                if (consume(token[0])) {
+                    return Operator.valueOf(token[1]);
+                }
+            }
+            // eq, ne, lt, gt, le, ge must be followed by a space
+            int start = position;
+            String word = identifierOrReservedWord();
+            if (word != null && !atEnd() && Character.isWhitespace(expression.charAt(position))) {
+                switch (word) {
+                    case "eq":
+                        return Operator.EQ;
+                    case "ne":
+                        return Operator.NE;
+                    case "lt":
+                        return Operator.LT;
+                    case "gt":
+                        return Operator.GT;
+                    case "le":
+                        return Operator.LE;
+                    case "ge":
+                        return Operator.GE;
+                    default:
+                        break;
+                }
+            }
+            position = start;
+            return null;
+        }
+
+        private String identifierOrReservedWord() {
+            int start = position;
+            while (!atEnd() && Character.isLetter(expression.charAt(position))) {
+                position++;
+            }
+            return start == position ? null : expression.substring(start, position);
+        }
+
+        /**
+         * @return a String, a Long or a Boolean, null if the literal is not supported (or it is the
+         *     null literal, see consumedNull)
+         */
+        Object literal() {
+            if (atEnd()) {
+                return null;
+            }
+            char first = expression.charAt(position);
+            if (first == '\'' || first == '"') {
+                int end = expression.indexOf(first, position + 1);
+                if (end < 0) {
+                    return null;
+                }
+                String value = expression.substring(position + 1, end);
+                if (value.indexOf('\\') >= 0) {
+                    // escapes are left to EL
+                    return null;
+                }
+                position = end + 1;
+                return value;
+            }
+            if (first >= '0' && first <= '9') {
+                int start = position;
+                while (!atEnd() && Character.isDigit(expression.charAt(position))) {
+                    position++;
+                }
+                if (!atEnd()) {
+                    char next = expression.charAt(position);
+                    if (next == '.' || next == 'e' || next == 'E') {
+                        // floating point, left to EL
+                        return null;
+                    }
+                }
+                try {
+                    return Long.parseLong(expression.substring(start, position));
+                } catch (NumberFormatException tooLarge) {
+                    return null;
+                }
+            }
+            int start = position;
+            String word = identifierOrReservedWord();
+            if (word != null
+                    && (atEnd() || !Character.isLetterOrDigit(expression.charAt(position)))) {
+                switch (word) {
+                    case "true":
+                        return Boolean.TRUE;
+                    case "false":
+                        return Boolean.FALSE;
+                    case "null":
+                        consumedNull = true;
+                        return null;
+                    default:
+                        break;
+                }
+            }
+            position = start;
+            return null;
+        }
+    }
+}
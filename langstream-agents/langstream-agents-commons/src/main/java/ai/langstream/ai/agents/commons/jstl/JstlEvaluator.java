@@ -23,217 +23,215 @@ import jakarta.el.PropertyNotFoundException;
 import jakarta.el.ValueExpression;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.SneakyThrows;
 import org.apache.el.ExpressionFactoryImpl;
 
+/**
+ * Evaluates an EL expression against a record.
+ *
+ * <p>The expression is parsed only once, the parsed {@link ValueExpression} is immutable and it is
+ * shared by all the evaluators with the same expression. Every evaluation runs in its own {@link
+ * EvaluationContext}, that resolves the variables (key, value, properties...) directly from the
+ * record, so the same evaluator can be used concurrently.
+ */
 public class JstlEvaluator<T> {
 
     private static final ExpressionFactory FACTORY = new ExpressionFactoryImpl();
+
+    // the context used only to parse the expressions, it holds the functions
+    private static final ELContext PARSE_CONTEXT = createParseContext();
+
+    private record CompiledExpressionKey(String expression, Class<?> type) {}
+
+    private static final Map<CompiledExpressionKey, ValueExpression> COMPILED_EXPRESSIONS =
+            new ConcurrentHashMap<>();
+
     private final ValueExpression valueExpression;
+    private final JstlAccessor accessor;
     private final String expression;
-    private final ELContext expressionContext;
 
     public JstlEvaluator(String expression, Class<? extends T> type) {
-        this.expressionContext = new StandardContext(FACTORY);
         this.expression =
                 expression.startsWith("${") && expression.endsWith("}")
                         ? expression.substring(2, expression.length() - 1)
                         : expression;
-        registerFunctions();
-        this.valueExpression = FACTORY.createValueExpression(expressionContext, expression, type);
+        this.valueExpression =
+                COMPILED_EXPRESSIONS.computeIfAbsent(
+                        new CompiledExpressionKey(expression, type), JstlEvaluator::compile);
+        // the EL parser validates the expression in any case, then the simple paths
+        // bypass the EL engine
+        this.accessor =
+                expression.startsWith("${") && expression.endsWith("}")
+                        ? JstlAccessor.compile(this.expression, type)
+                        : null;
+    }
+
+    private static ValueExpression compile(CompiledExpressionKey key) {
+        // the parse context is not thread safe, but parsing happens only once per expression
+        synchronized (PARSE_CONTEXT) {
+            return FACTORY.createValueExpression(PARSE_CONTEXT, key.expression(), key.type());
+        }
+    }
+
+    private static ELContext createParseContext() {
+        StandardContext context = new StandardContext(FACTORY);
+        registerFunctions(context);
+        return context;
     }
 
     @SneakyThrows
-    private void registerFunctions() {
-        this.expressionContext
-                .getFunctionMapper()
+    private static void registerFunctions(ELContext context) {
+        context.getFunctionMapper()
                 .mapFunction("fn", "length", JstlFunctions.class.getMethod("length", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction("fn", "toJson", JstlFunctions.class.getMethod("toJson", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn", "fromJson", JstlFunctions.class.getMethod("fromJson", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "split",
                         JstlFunctions.class.getMethod("split", Object.class, Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "unpack",
                         JstlFunctions.class.getMethod("unpack", Object.class, Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "uppercase",
                         JstlFunctions.class.getMethod("uppercase", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "lowercase",
                         JstlFunctions.class.getMethod("lowercase", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "contains",
                         JstlFunctions.class.getMethod("contains", Object.class, Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction("fn", "trim", JstlFunctions.class.getMethod("trim", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn", "concat", JstlFunctions.class.getMethod("concat", Object[].class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "concat3",
                         JstlFunctions.class.getMethod(
                                 "concat3", Object.class, Object.class, Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "coalesce",
                         JstlFunctions.class.getMethod("coalesce", Object.class, Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction("fn", "str", JstlFunctions.class.getMethod("toString", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn", "toString", JstlFunctions.class.getMethod("toString", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn", "toDouble", JstlFunctions.class.getMethod("toDouble", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "filter",
                         JstlFunctions.class.getMethod("filter", Object.class, String.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "addAll",
                         JstlFunctions.class.getMethod("addAll", Object.class, Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn", "listOf", JstlFunctions.class.getMethod("listOf", Object[].class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction("fn", "emptyList", JstlFunctions.class.getMethod("emptyList"));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "mapToListOfStructs",
                         JstlFunctions.class.getMethod(
                                 "mapToListOfStructs", Object.class, String.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "listToListOfStructs",
                         JstlFunctions.class.getMethod(
                                 "listToListOfStructs", Object.class, String.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "listAdd",
                         JstlFunctions.class.getMethod("listAdd", Object.class, Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction("fn", "emptyMap", JstlFunctions.class.getMethod("emptyMap"));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "mapPut",
                         JstlFunctions.class.getMethod(
                                 "mapPut", Object.class, Object.class, Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction("fn", "mapOf", JstlFunctions.class.getMethod("mapOf", Object[].class));
 
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "mapRemove",
                         JstlFunctions.class.getMethod("mapRemove", Object.class, Object.class));
 
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction("fn", "toInt", JstlFunctions.class.getMethod("toInt", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "toListOfFloat",
                         JstlFunctions.class.getMethod("toListOfFloat", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction("fn", "toLong", JstlFunctions.class.getMethod("toLong", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "replace",
                         JstlFunctions.class.getMethod(
                                 "replace", Object.class, Object.class, Object.class));
-        this.expressionContext
-                .getFunctionMapper()
-                .mapFunction("fn", "now", JstlFunctions.class.getMethod("now"));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper().mapFunction("fn", "now", JstlFunctions.class.getMethod("now"));
+        context.getFunctionMapper()
                 .mapFunction("fn", "uuid", JstlFunctions.class.getMethod("uuid"));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction("fn", "random", JstlFunctions.class.getMethod("random", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "timestampAdd",
                         JstlFunctions.class.getMethod(
                                 "timestampAdd", Object.class, Object.class, Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "toSQLTimestamp",
                         JstlFunctions.class.getMethod("toSQLTimestamp", Object.class));
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "decimalFromUnscaled",
                         JstlFunctions.class.getMethod("toBigDecimal", Object.class, Object.class));
 
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "decimalFromNumber",
                         JstlFunctions.class.getMethod("toBigDecimal", Object.class));
 
         // Deprecated
-        this.expressionContext
-                .getFunctionMapper()
+        context.getFunctionMapper()
                 .mapFunction(
                         "fn",
                         "dateadd",
@@ -242,34 +240,21 @@ public class JstlEvaluator<T> {
     }
 
     public T evaluate(MutableRecord mutableRecord) {
-        JstlTransformContextAdapter adapter = new JstlTransformContextAdapter(mutableRecord);
-        FACTORY.createValueExpression(expressionContext, "${key}", Object.class)
-                .setValue(expressionContext, adapter.getKey());
-        FACTORY.createValueExpression(expressionContext, "${value}", Object.class)
-                .setValue(expressionContext, adapter.adaptValue());
-
-        // this is only for fn:filter
-        FACTORY.createValueExpression(expressionContext, "${record}", Object.class)
-                .setValue(expressionContext, adapter.adaptRecord());
-
-        // Register message headers as top level fields
-        FACTORY.createValueExpression(expressionContext, "${messageKey}", String.class)
-                .setValue(expressionContext, adapter.getHeader().get("messageKey"));
-        FACTORY.createValueExpression(expressionContext, "${topicName}", String.class)
-                .setValue(expressionContext, adapter.getHeader().get("topicName"));
-        FACTORY.createValueExpression(expressionContext, "${destinationTopic}", String.class)
-                .setValue(expressionContext, adapter.getHeader().get("destinationTopic"));
-        FACTORY.createValueExpression(expressionContext, "${eventTime}", Long.class)
-                .setValue(expressionContext, adapter.getHeader().get("eventTime"));
-        FACTORY.createValueExpression(expressionContext, "${properties}", Map.class)
-                .setValue(expressionContext, adapter.getHeader().get("properties"));
+        EvaluationContext.Variables variables =
+                new EvaluationContext.RecordVariables(mutableRecord);
+        if (accessor != null) {
+            Object result = accessor.evaluate(variables);
+            if (result != JstlAccessor.UNRESOLVED) {
+                return (T) result;
+            }
+        }
         try {
-            return this.valueExpression.getValue(expressionContext);
+            return (T) this.valueExpression.getValue(new EvaluationContext(variables));
         } catch (PropertyNotFoundException notFound) {
 
             // this is a very common error, so we provide a better error message
             if (expression.startsWith("value.")) {
-                Object valueObject = mutableRecord.getValueObject();
+                Object valueObject = mutableRecord.peekValueObject();
                 if (valueObject instanceof String s) {
                     try {
                         new ObjectMapper().readValue(s, Object.class);
@@ -289,14 +274,14 @@ public class JstlEvaluator<T> {
     }
 
     public T evaluateRawContext(Map<String, Object> context) {
-        for (Map.Entry<String, Object> stringObjectEntry : context.entrySet()) {
-            FACTORY.createValueExpression(
-                            expressionContext,
-                            "${%s}".formatted(stringObjectEntry.getKey()),
-                            Object.class)
-                    .setValue(expressionContext, stringObjectEntry.getValue());
+        EvaluationContext.Variables variables = new EvaluationContext.MapVariables(context);
+        if (accessor != null) {
+            Object result = accessor.evaluate(variables);
+            if (result != JstlAccessor.UNRESOLVED) {
+                return (T) result;
+            }
         }
-        return this.valueExpression.getValue(expressionContext);
+        return (T) this.valueExpression.getValue(new EvaluationContext(variables));
     }
 
     public String toString() {
@@ -17,6 +17,7 @@ package ai.langstream.ai.agents.commons.jstl;
 
 import ai.langstream.ai.agents.commons.MutableRecord;
 import ai.langstream.ai.agents.commons.jstl.predicate.JstlPredicate;
+import ai.langstream.api.util.FloatVector;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.el.ELException;
 import java.lang.reflect.Array;
@@ -94,7 +95,13 @@ public class JstlFunctions {
         if (input == null) {
             return null;
         }
-        if (input instanceof Collection<?> collection) {
+        if (input instanceof FloatVector vector) {
+            List<Float> result = new ArrayList<>(vector.size());
+            for (float f : vector.floats()) {
+                result.add(f);
+            }
+            return result;
+        } else if (input instanceof Collection<?> collection) {
             List<Float> result = new ArrayList<>(collection.size());
             for (Object o : collection) {
                 result.add(JstlTypeConverter.INSTANCE.coerceToFloat(o));
@@ -115,7 +122,11 @@ public class JstlFunctions {
         if (input == null) {
             return null;
         }
-        if (input instanceof Collection<?> collection) {
+        if (input instanceof FloatVector vector) {
+            return vector.floats().clone();
+        } else if (input instanceof float[] a) {
+            return a.clone();
+        } else if (input instanceof Collection<?> collection) {
             float[] result = new float[collection.size()];
             int i = 0;
             for (Object o : collection) {
@@ -48,7 +48,7 @@ public class JstlTransformContextAdapter {
      */
     private final Transformer<String, Object> keyTransformer =
             (fieldName) -> {
-                Object keyObject = this.mutableRecord.getKeyObject();
+                Object keyObject = this.mutableRecord.peekKeyObject();
                 if (keyObject instanceof GenericRecord) {
                     GenericRecord genericRecord = (GenericRecord) keyObject;
                     GenericRecordTransformer transformer =
@@ -72,7 +72,7 @@ public class JstlTransformContextAdapter {
      */
     private final Transformer<String, Object> valueTransformer =
             (fieldName) -> {
-                Object valueObject = this.mutableRecord.getValueObject();
+                Object valueObject = this.mutableRecord.peekValueObject();
                 if (valueObject instanceof GenericRecord) {
                     GenericRecord genericRecord = (GenericRecord) valueObject;
                     GenericRecordTransformer transformer =
@@ -123,7 +123,7 @@ public class JstlTransformContextAdapter {
      *     object, or the primitive type itself.
      */
     public Object getKey() {
-        Object keyObject = this.mutableRecord.getKeyObject();
+        Object keyObject = this.mutableRecord.peekKeyObject();
         if (keyObject == null) {
             return mutableRecord.getKey();
         }
@@ -137,7 +137,7 @@ public class JstlTransformContextAdapter {
      *     object, or the primitive type itself.
      */
     public Object adaptValue() {
-        Object valueObject = this.mutableRecord.getValueObject();
+        Object valueObject = this.mutableRecord.peekValueObject();
         return valueObject instanceof GenericRecord || valueObject instanceof JsonNode
                 ? lazyValue
                 : valueObject;
@@ -508,11 +508,19 @@ public class JstlTypeConverter extends TypeConverter {
                 MessageFactory.get("error.convert", value, value.getClass(), BigDecimal.class));
     }
 
+    /**
+     * A null is kept as null, unless the expected type is a primitive: in that case EL coerces it
+     * to false or 0, the callers that unbox the result (like the predicates) would fail otherwise.
+     */
+    static <T> T coerceNullToType(Class<T> type) {
+        return type.isPrimitive() ? ELSupport.coerceToType(null, null, type) : null;
+    }
+
     @Override
     public <T> T convertToType(ELContext elContext, Object value, Class<T> type) {
         if (value == null) {
             elContext.setPropertyResolved(true);
-            return null;
+            return coerceNullToType(type);
         }
         T coercedValue = coerceToType(value, type);
         elContext.setPropertyResolved(coercedValue != null);
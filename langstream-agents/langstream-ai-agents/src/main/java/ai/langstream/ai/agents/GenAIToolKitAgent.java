@@ -39,12 +39,15 @@ import com.datastax.oss.streaming.ai.streaming.StreamingAnswersConsumer;
 import com.datastax.oss.streaming.ai.streaming.StreamingAnswersConsumerFactory;
 import com.datastax.oss.streaming.ai.util.TransformFunctionUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -53,11 +56,12 @@ import lombok.extern.slf4j.Slf4j;
 public class GenAIToolKitAgent extends AbstractAgentCode implements AgentProcessor {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
-    private StepPredicatePair step;
+    private List<StepPredicatePair> steps;
     private TransformStepConfig config;
     private QueryStepDataSource dataSource;
     private ServiceProvider serviceProvider;
     private Map<String, Object> configuration;
+    private MetricsReporter.Timer stepLatency = MetricsReporter.Timer.NOOP;
 
     private TopicProducerStreamingAnswersConsumerFactory streamingAnswersConsumerFactory;
 
@@ -73,9 +77,11 @@ public class GenAIToolKitAgent extends AbstractAgentCode implements AgentProcess
         }
         for (Record record : records) {
             processed(1, 0);
+            long start = System.nanoTime();
             CompletableFuture<List<Record>> process = processRecord(record);
             process.whenComplete(
                     (resultRecords, e) -> {
+                        stepLatency.recordSince(start);
                         if (e != null) {
                             log.error("Error processing record: {}", record, e);
                             recordSink.emit(new SourceRecordAndResult(record, null, e));
@@ -96,7 +102,16 @@ public class GenAIToolKitAgent extends AbstractAgentCode implements AgentProcess
         }
         MutableRecord context = recordToMutableRecord(record, config.isAttemptJsonConversion());
 
-        CompletableFuture<?> handle = processStep(context, step);
+        CompletableFuture<?> handle = processStep(context, steps.get(0));
+        for (int i = 1; i < steps.size(); i++) {
+            StepPredicatePair next = steps.get(i);
+            handle =
+                    handle.thenCompose(
+                            ___ ->
+                                    context.isDropCurrentRecord()
+                                            ? CompletableFuture.completedFuture(null)
+                                            : processStep(context, next));
+        }
         return handle.thenApply(
                 ___ -> {
                     try {
@@ -133,6 +148,7 @@ public class GenAIToolKitAgent extends AbstractAgentCode implements AgentProcess
     @Override
     public void start() throws Exception {
         MetricsReporter reporter = agentContext.getMetricsReporter().withAgentName(agentId());
+        stepLatency = reporter.timer("ai_step_latency", "Time spent by the AI step on a record");
 
         // remove this from the config in order to avoid passing it TransformStepConfig
         Map<String, Object> datasourceConfiguration =
@@ -146,19 +162,34 @@ public class GenAIToolKitAgent extends AbstractAgentCode implements AgentProcess
             dataSource.initialize(datasourceConfiguration);
         }
         streamingAnswersConsumerFactory = new TopicProducerStreamingAnswersConsumerFactory();
+        // consecutive agents may have been fused by the planner, the steps are executed in
+        // order over the same record and keep the persistent disk of the agent that declared them
+        Function<String, Path> persistentStateDirectories =
+                stepAgentId ->
+                        agentContext
+                                .getPersistentStateDirectoryForAgent(
+                                        stepAgentId != null ? stepAgentId : agentId())
+                                .orElse(null);
         List<StepConfig> stepsConfig = config.getSteps();
-        if (stepsConfig.size() != 1) {
-            throw new IllegalArgumentException("Only one step is supported");
-        }
-        step =
-                TransformFunctionUtil.buildStep(
-                        config,
-                        serviceProvider,
-                        dataSource,
-                        streamingAnswersConsumerFactory,
-                        stepsConfig.get(0));
+        if (stepsConfig.isEmpty()) {
+            throw new IllegalArgumentException("At least one step is required");
+        }
+        steps = new ArrayList<>(stepsConfig.size());
+        for (StepConfig stepConfig : stepsConfig) {
+            steps.add(
+                    TransformFunctionUtil.buildStep(
+                            config,
+                            serviceProvider,
+                            dataSource,
+                            streamingAnswersConsumerFactory,
+                            reporter,
+                            persistentStateDirectories,
+                            stepConfig));
+        }
         streamingAnswersConsumerFactory.setAgentContext(agentContext);
-        step.getTransformStep().start();
+        for (StepPredicatePair step : steps) {
+            step.getTransformStep().start();
+        }
     }
 
     @Override
@@ -166,8 +197,10 @@ public class GenAIToolKitAgent extends AbstractAgentCode implements AgentProcess
         if (dataSource != null) {
             dataSource.close();
         }
-        if (step != null) {
-            step.getTransformStep().close();
+        if (steps != null) {
+            for (StepPredicatePair step : steps) {
+                step.getTransformStep().close();
+            }
         }
         if (serviceProvider != null) {
             serviceProvider.close();
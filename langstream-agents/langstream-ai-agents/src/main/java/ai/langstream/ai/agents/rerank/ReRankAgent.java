@@ -23,6 +23,7 @@ import ai.langstream.ai.agents.commons.jstl.JstlEvaluator;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.SingleRecordAgentProcessor;
 import ai.langstream.api.util.ConfigurationUtils;
+import ai.langstream.api.util.FloatVector;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -346,7 +347,10 @@ public class ReRankAgent extends SingleRecordAgentProcessor {
         if (input == null) {
             return null;
         }
-        if (input instanceof Collection<?> collection) {
+        if (input instanceof FloatVector vector) {
+            // the embeddings are only read
+            return vector.floats();
+        } else if (input instanceof Collection<?> collection) {
             float[] result = new float[collection.size()];
             int i = 0;
             for (Object o : collection) {
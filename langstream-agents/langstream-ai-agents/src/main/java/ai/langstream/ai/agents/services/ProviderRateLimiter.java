@@ -0,0 +1,232 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.services;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limits the requests per minute and the tokens per minute sent to an AI service. Each limit is a
+ * token bucket that starts full and refills continuously. The requests that exceed the limits are
+ * queued in FIFO order and released asynchronously when the buckets have enough capacity, so the
+ * callers never block a thread.
+ */
+@Slf4j
+public class ProviderRateLimiter implements AutoCloseable {
+
+    private final Bucket requests;
+    private final Bucket tokens;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService scheduler;
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private final MetricsReporter.Timer waitTime;
+    private final MetricsReporter.Gauge queued;
+
+    private long pausedUntil;
+    private ScheduledFuture<?> scheduledDrain;
+    private long scheduledDrainAt;
+    private boolean closed;
+
+    public ProviderRateLimiter(
+            int requestsPerMinute, int tokensPerMinute, MetricsReporter metricsReporter) {
+        this(
+                requestsPerMinute,
+                tokensPerMinute,
+                metricsReporter,
+                System::nanoTime,
+                Executors.newSingleThreadScheduledExecutor());
+    }
+
+    ProviderRateLimiter(
+            int requestsPerMinute,
+            int tokensPerMinute,
+            MetricsReporter metricsReporter,
+            LongSupplier clock,
+            ScheduledExecutorService scheduler) {
+        this.clock = clock;
+        this.scheduler = scheduler;
+        long now = clock.getAsLong();
+        this.requests = requestsPerMinute > 0 ? new Bucket(requestsPerMinute, now) : null;
+        this.tokens = tokensPerMinute > 0 ? new Bucket(tokensPerMinute, now) : null;
+        this.waitTime =
+                metricsReporter.timer(
+                        "ai_rate_limiter_wait",
+                        "Time spent by the requests waiting for the rate limits of the AI service");
+        this.queued =
+                metricsReporter.gauge(
+                        "ai_rate_limiter_queued",
+                        "Number of requests waiting for the rate limits of the AI service");
+    }
+
+    /**
+     * Acquire the permission to send a request.
+     *
+     * @param estimatedTokens the estimated number of tokens used by the request, the requests
+     *     bigger than the tokens per minute are accounted as the whole minute
+     * @return a handle completed when the request can be sent
+     */
+    public CompletableFuture<Void> acquire(long estimatedTokens) {
+        Waiter waiter =
+                new Waiter(
+                        tokens == null ? 0 : Math.min(estimatedTokens, (long) tokens.capacity),
+                        clock.getAsLong(),
+                        new CompletableFuture<>());
+        List<Waiter> ready;
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(
+                        new IllegalStateException("Rate limiter is closed"));
+            }
+            waiters.add(waiter);
+            ready = drainReady();
+        }
+        release(ready, false);
+        return waiter.handle;
+    }
+
+    /**
+     * Stop releasing requests for some time, because the AI service asked for it (for instance with
+     * the Retry-After header).
+     *
+     * @param millis the time to wait
+     */
+    public synchronized void pause(long millis) {
+        long now = clock.getAsLong();
+        pausedUntil = Math.max(pausedUntil, now + TimeUnit.MILLISECONDS.toNanos(millis));
+        if (log.isDebugEnabled()) {
+            log.debug("Pausing the requests to the AI service for {} ms", millis);
+        }
+    }
+
+    void drain() {
+        List<Waiter> ready;
+        synchronized (this) {
+            scheduledDrain = null;
+            ready = drainReady();
+        }
+        release(ready, true);
+    }
+
+    private List<Waiter> drainReady() {
+        if (waiters.isEmpty()) {
+            return List.of();
+        }
+        long now = clock.getAsLong();
+        if (requests != null) {
+            requests.refill(now);
+        }
+        if (tokens != null) {
+            tokens.refill(now);
+        }
+        List<Waiter> ready = new ArrayList<>();
+        while (!waiters.isEmpty()) {
+            Waiter head = waiters.peek();
+            long delay = pausedUntil - now;
+            if (requests != null) {
+                delay = Math.max(delay, requests.nanosUntil(1));
+            }
+            if (tokens != null) {
+                delay = Math.max(delay, tokens.nanosUntil(head.tokens));
+            }
+            if (delay > 0) {
+                scheduleDrain(now, delay);
+                break;
+            }
+            waiters.poll();
+            if (requests != null) {
+                requests.available -= 1;
+            }
+            if (tokens != null) {
+                tokens.available -= head.tokens;
+            }
+            ready.add(head);
+        }
+        queued.set(waiters.size());
+        return ready;
+    }
+
+    private void scheduleDrain(long now, long delay) {
+        if (closed || (scheduledDrain != null && scheduledDrainAt <= now + delay)) {
+            return;
+        }
+        if (scheduledDrain != null) {
+            scheduledDrain.cancel(false);
+        }
+        scheduledDrainAt = now + delay;
+        scheduledDrain = scheduler.schedule(this::drain, delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void release(List<Waiter> ready, boolean async) {
+        for (Waiter waiter : ready) {
+            waitTime.record(clock.getAsLong() - waiter.enqueued);
+            if (async) {
+                // do not run the requests on the scheduler thread
+                waiter.handle.completeAsync(() -> null);
+            } else {
+                waiter.handle.complete(null);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Waiter> pending;
+        synchronized (this) {
+            closed = true;
+            pending = new ArrayList<>(waiters);
+            waiters.clear();
+        }
+        for (Waiter waiter : pending) {
+            waiter.handle.completeExceptionally(
+                    new IllegalStateException("Rate limiter is closed"));
+        }
+        scheduler.shutdownNow();
+    }
+
+    private record Waiter(long tokens, long enqueued, CompletableFuture<Void> handle) {}
+
+    private static final class Bucket {
+        private final double capacity;
+        private final double perNano;
+        private double available;
+        private long lastRefill;
+
+        Bucket(int perMinute, long now) {
+            this.capacity = perMinute;
+            this.perNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.available = perMinute;
+            this.lastRefill = now;
+        }
+
+        void refill(long now) {
+            available = Math.min(capacity, available + (now - lastRefill) * perNano);
+            lastRefill = now;
+        }
+
+        long nanosUntil(double amount) {
+            return available >= amount ? 0 : (long) Math.ceil((amount - available) / perNano);
+        }
+    }
+}
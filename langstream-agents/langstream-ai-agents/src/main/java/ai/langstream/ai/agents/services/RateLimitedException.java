@@ -0,0 +1,114 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.services;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.Getter;
+
+/** The AI service rejected a request because a rate limit has been exceeded (HTTP 429). */
+@Getter
+public class RateLimitedException extends RuntimeException {
+
+    public static final int STATUS_CODE = 429;
+
+    private static final Pattern RESET_DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    /** The time to wait before sending other requests, in milliseconds, or -1 if unknown. */
+    private final long retryAfterMillis;
+
+    public RateLimitedException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public static RateLimitedException fromResponse(HttpResponse<?> response) {
+        return new RateLimitedException(
+                "Rate limit exceeded: " + response.statusCode() + " " + response.body(),
+                retryAfterMillis(name -> response.headers().firstValue(name).orElse(null)));
+    }
+
+    /**
+     * Read the time to wait from the response headers: "retry-after-ms", "retry-after" (seconds or
+     * HTTP date) and the OpenAI style "x-ratelimit-reset-requests" and "x-ratelimit-reset-tokens"
+     * (like "6m0s"). The reset of a limit is ignored if the matching "x-ratelimit-remaining-*"
+     * header says that the limit is not exhausted.
+     *
+     * @param headers the header values by name, null if the header is missing
+     * @return the time to wait in milliseconds, or -1 if no header is present
+     */
+    public static long retryAfterMillis(Function<String, String> headers) {
+        long result = -1;
+        String retryAfterMs = headers.apply("retry-after-ms");
+        if (retryAfterMs != null) {
+            result = Math.max(result, parseNumber(retryAfterMs, 1));
+        }
+        String retryAfter = headers.apply("retry-after");
+        if (retryAfter != null) {
+            long seconds = parseNumber(retryAfter, 1000);
+            result = Math.max(result, seconds >= 0 ? seconds : parseHttpDate(retryAfter));
+        }
+        for (String limit : new String[] {"requests", "tokens"}) {
+            String reset = headers.apply("x-ratelimit-reset-" + limit);
+            String remaining = headers.apply("x-ratelimit-remaining-" + limit);
+            if (reset != null && (remaining == null || parseNumber(remaining, 1) <= 0)) {
+                result = Math.max(result, parseResetDuration(reset));
+            }
+        }
+        return result;
+    }
+
+    private static long parseNumber(String value, long multiplier) {
+        try {
+            return (long) (Double.parseDouble(value.trim()) * multiplier);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseHttpDate(String value) {
+        try {
+            ZonedDateTime date =
+                    ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(), date).toMillis());
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    static long parseResetDuration(String value) {
+        Matcher matcher = RESET_DURATION.matcher(value.trim());
+        double millis = 0;
+        boolean found = false;
+        while (matcher.find()) {
+            found = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            millis +=
+                    switch (matcher.group(2)) {
+                        case "h" -> amount * 3_600_000;
+                        case "m" -> amount * 60_000;
+                        case "s" -> amount * 1000;
+                        default -> amount;
+                    };
+        }
+        return found ? (long) Math.ceil(millis) : parseNumber(value, 1000);
+    }
+}
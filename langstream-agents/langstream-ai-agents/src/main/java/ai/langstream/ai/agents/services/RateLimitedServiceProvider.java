@@ -0,0 +1,242 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.services;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import ai.langstream.api.util.ConfigurationUtils;
+import com.azure.core.exception.HttpResponseException;
+import com.datastax.oss.streaming.ai.completions.ChatCompletions;
+import com.datastax.oss.streaming.ai.completions.ChatMessage;
+import com.datastax.oss.streaming.ai.completions.CompletionsService;
+import com.datastax.oss.streaming.ai.completions.TextCompletionResult;
+import com.datastax.oss.streaming.ai.embeddings.EmbeddingsService;
+import com.datastax.oss.streaming.ai.services.ServiceProvider;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+
+/**
+ * Decorates a {@link ServiceProvider} in order to share a {@link ProviderRateLimiter} among all the
+ * services it creates. The requests rejected by the AI service because of its rate limits are
+ * queued again instead of failing.
+ */
+@Slf4j
+public class RateLimitedServiceProvider implements ServiceProvider {
+
+    static final int MAX_RETRIES = 10;
+    static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+    private static final int MAX_BACKOFF_SHIFT = 5;
+
+    private final ServiceProvider delegate;
+    private final ProviderRateLimiter limiter;
+    private final MetricsReporter.Counter throttled;
+
+    public RateLimitedServiceProvider(
+            ServiceProvider delegate,
+            ProviderRateLimiter limiter,
+            MetricsReporter metricsReporter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+        this.throttled =
+                metricsReporter.counter(
+                        "ai_rate_limiter_throttled",
+                        "Number of requests rejected by the AI service because of its rate limits");
+    }
+
+    /**
+     * Wrap the service provider if the configuration of the AI service sets "requests-per-minute"
+     * or "tokens-per-minute".
+     */
+    public static ServiceProvider wrap(
+            ServiceProvider serviceProvider,
+            Map<String, Object> serviceConfiguration,
+            MetricsReporter metricsReporter) {
+        if (serviceConfiguration == null) {
+            return serviceProvider;
+        }
+        int requestsPerMinute =
+                ConfigurationUtils.getInt("requests-per-minute", 0, serviceConfiguration);
+        int tokensPerMinute =
+                ConfigurationUtils.getInt("tokens-per-minute", 0, serviceConfiguration);
+        if (requestsPerMinute <= 0 && tokensPerMinute <= 0) {
+            return serviceProvider;
+        }
+        log.info(
+                "Limiting the requests to the AI service to {} requests/minute and {} tokens/minute",
+                requestsPerMinute,
+                tokensPerMinute);
+        return new RateLimitedServiceProvider(
+                serviceProvider,
+                new ProviderRateLimiter(requestsPerMinute, tokensPerMinute, metricsReporter),
+                metricsReporter);
+    }
+
+    @Override
+    public CompletionsService getCompletionsService(Map<String, Object> additionalConfiguration)
+            throws Exception {
+        return new RateLimitedCompletionsService(
+                delegate.getCompletionsService(additionalConfiguration));
+    }
+
+    @Override
+    public EmbeddingsService getEmbeddingsService(Map<String, Object> additionalConfiguration)
+            throws Exception {
+        return new RateLimitedEmbeddingsService(
+                delegate.getEmbeddingsService(additionalConfiguration));
+    }
+
+    @Override
+    public void close() {
+        limiter.close();
+        delegate.close();
+    }
+
+    <T> CompletableFuture<T> execute(long estimatedTokens, Supplier<CompletableFuture<T>> call) {
+        return execute(estimatedTokens, call, 0);
+    }
+
+    private <T> CompletableFuture<T> execute(
+            long estimatedTokens, Supplier<CompletableFuture<T>> call, int attempt) {
+        return limiter.acquire(estimatedTokens)
+                .thenCompose(___ -> call.get())
+                .handle(
+                        (result, error) -> {
+                            if (error == null) {
+                                return CompletableFuture.completedFuture(result);
+                            }
+                            long retryAfter = retryAfterMillis(error);
+                            if (retryAfter < 0 || attempt >= MAX_RETRIES) {
+                                return CompletableFuture.<T>failedFuture(error);
+                            }
+                            throttled.count(1);
+                            long delay =
+                                    retryAfter > 0
+                                            ? retryAfter
+                                            : DEFAULT_RETRY_AFTER_MILLIS
+                                                    << Math.min(attempt, MAX_BACKOFF_SHIFT);
+                            log.info(
+                                    "The AI service is rate limiting the requests, retrying in {} ms (attempt {})",
+                                    delay,
+                                    attempt + 1);
+                            limiter.pause(delay);
+                            return execute(estimatedTokens, call, attempt + 1);
+                        })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * @return the time to wait before retrying if the error is a rate limit error (0 if the service
+     *     did not tell), otherwise -1
+     */
+    static long retryAfterMillis(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RateLimitedException rateLimited) {
+                return Math.max(0, rateLimited.getRetryAfterMillis());
+            }
+            if (cause instanceof HttpResponseException httpError
+                    && httpError.getResponse() != null
+                    && httpError.getResponse().getStatusCode()
+                            == RateLimitedException.STATUS_CODE) {
+                return Math.max(
+                        0,
+                        RateLimitedException.retryAfterMillis(
+                                httpError.getResponse()::getHeaderValue));
+            }
+            if (cause instanceof SdkServiceException sdkError && sdkError.isThrottlingException()) {
+                return 0;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /** A rough estimate of the tokens, the exact number depends on the model tokenizer. */
+    static long estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    private static long estimateTokens(Map<String, Object> options) {
+        if (options == null) {
+            return 0;
+        }
+        Integer maxTokens = ConfigurationUtils.getInteger("max-tokens", null, options);
+        return maxTokens == null ? 0 : maxTokens;
+    }
+
+    private class RateLimitedCompletionsService implements CompletionsService {
+        private final CompletionsService delegate;
+
+        RateLimitedCompletionsService(CompletionsService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public CompletableFuture<ChatCompletions> getChatCompletions(
+                List<ChatMessage> messages,
+                StreamingChunksConsumer streamingChunksConsumer,
+                Map<String, Object> options) {
+            long tokens = estimateTokens(options);
+            for (ChatMessage message : messages) {
+                tokens += estimateTokens(message.getContent());
+            }
+            return execute(
+                    tokens,
+                    () -> delegate.getChatCompletions(messages, streamingChunksConsumer, options));
+        }
+
+        @Override
+        public CompletableFuture<TextCompletionResult> getTextCompletions(
+                List<String> prompt,
+                StreamingChunksConsumer streamingChunksConsumer,
+                Map<String, Object> options) {
+            long tokens = estimateTokens(options);
+            for (String text : prompt) {
+                tokens += estimateTokens(text);
+            }
+            return execute(
+                    tokens,
+                    () -> delegate.getTextCompletions(prompt, streamingChunksConsumer, options));
+        }
+    }
+
+    private class RateLimitedEmbeddingsService implements EmbeddingsService {
+        private final EmbeddingsService delegate;
+
+        RateLimitedEmbeddingsService(EmbeddingsService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public CompletableFuture<List<List<Double>>> computeEmbeddings(List<String> texts) {
+            long tokens = 0;
+            for (String text : texts) {
+                tokens += estimateTokens(text);
+            }
+            return execute(tokens, () -> delegate.computeEmbeddings(texts));
+        }
+
+        @Override
+        public void close() throws Exception {
+            delegate.close();
+        }
+    }
+}
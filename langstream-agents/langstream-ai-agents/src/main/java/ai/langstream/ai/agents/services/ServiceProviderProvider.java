@@ -25,4 +25,12 @@ public interface ServiceProviderProvider {
 
     ServiceProvider createImplementation(
             Map<String, Object> agentConfiguration, MetricsReporter metricsReporter);
+
+    /**
+     * @return the key of the configuration of the AI service in the agent configuration, used to
+     *     read the settings common to all the services, like the rate limits
+     */
+    default String configurationKey() {
+        return null;
+    }
 }
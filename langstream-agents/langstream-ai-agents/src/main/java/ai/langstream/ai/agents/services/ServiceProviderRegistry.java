@@ -60,7 +60,18 @@ public class ServiceProviderRegistry {
         Optional<ServiceLoader.Provider<ServiceProviderProvider>> provider =
                 loader.stream().filter(p -> p.get().supports(agentConfiguration)).findFirst();
         if (provider.isPresent()) {
-            return provider.get().get().createImplementation(agentConfiguration, metricsReporter);
+            ServiceProviderProvider serviceProviderProvider = provider.get().get();
+            ServiceProvider serviceProvider =
+                    serviceProviderProvider.createImplementation(
+                            agentConfiguration, metricsReporter);
+            String configurationKey = serviceProviderProvider.configurationKey();
+            if (configurationKey == null) {
+                return serviceProvider;
+            }
+            return RateLimitedServiceProvider.wrap(
+                    serviceProvider,
+                    (Map<String, Object>) agentConfiguration.get(configurationKey),
+                    metricsReporter);
         } else {
             return NoServiceProvider.INSTANCE;
         }
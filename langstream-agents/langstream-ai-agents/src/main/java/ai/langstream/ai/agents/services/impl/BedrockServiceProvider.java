@@ -50,6 +50,11 @@ public class BedrockServiceProvider implements ServiceProviderProvider {
         return agentConfiguration.containsKey("bedrock");
     }
 
+    @Override
+    public String configurationKey() {
+        return "bedrock";
+    }
+
     @Override
     public ServiceProvider createImplementation(
             Map<String, Object> agentConfiguration, MetricsReporter metricsReporter) {
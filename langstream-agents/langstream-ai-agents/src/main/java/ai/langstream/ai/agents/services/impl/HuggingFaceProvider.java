@@ -15,8 +15,12 @@
  */
 package ai.langstream.ai.agents.services.impl;
 
+import ai.langstream.ai.agents.services.RateLimitedException;
 import ai.langstream.ai.agents.services.ServiceProviderProvider;
 import ai.langstream.api.runner.code.MetricsReporter;
+import ai.langstream.api.util.ConfigurationUtils;
+import ai.langstream.api.util.HttpClientRegistry;
+import ai.langstream.api.util.SharedHttpClient;
 import com.datastax.oss.streaming.ai.completions.ChatChoice;
 import com.datastax.oss.streaming.ai.completions.ChatCompletions;
 import com.datastax.oss.streaming.ai.completions.ChatMessage;
@@ -33,7 +37,6 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.List;
@@ -54,19 +57,28 @@ public class HuggingFaceProvider implements ServiceProviderProvider {
         return agentConfiguration.containsKey("huggingface");
     }
 
+    @Override
+    public String configurationKey() {
+        return "huggingface";
+    }
+
     @Override
     public ServiceProvider createImplementation(
             Map<String, Object> agentConfiguration, MetricsReporter metricsReporter) {
         return new HuggingFaceServiceProvider(
-                (Map<String, Object>) agentConfiguration.get("huggingface"));
+                (Map<String, Object>) agentConfiguration.get("huggingface"),
+                HttpClientRegistry.get().withMetricsReporter(metricsReporter));
     }
 
     @Slf4j
     static class HuggingFaceServiceProvider implements ServiceProvider {
         private final Map<String, Object> providerConfiguration;
+        private final SharedHttpClient httpClient;
 
-        public HuggingFaceServiceProvider(Map<String, Object> providerConfiguration) {
+        public HuggingFaceServiceProvider(
+                Map<String, Object> providerConfiguration, SharedHttpClient httpClient) {
             this.providerConfiguration = providerConfiguration;
+            this.httpClient = httpClient;
         }
 
         public CompletionsService getCompletionsService(
@@ -76,7 +88,8 @@ public class HuggingFaceProvider implements ServiceProviderProvider {
                     (String)
                             providerConfiguration.getOrDefault(
                                     "inference-url", "https://api-inference.huggingface.co");
-            return new HuggingFaceCompletionsService(url, accessKey, additionalConfiguration);
+            return new HuggingFaceCompletionsService(
+                    url, accessKey, additionalConfiguration, httpClient);
         }
 
         public EmbeddingsService getEmbeddingsService(Map<String, Object> additionalConfiguration)
@@ -96,7 +109,22 @@ public class HuggingFaceProvider implements ServiceProviderProvider {
                             builder =
                                     AbstractHuggingFaceEmbeddingService.HuggingFaceConfig.builder()
                                             .options(options)
-                                            .arguments(arguments);
+                                            .arguments(arguments)
+                                            .microBatchSize(
+                                                    ConfigurationUtils.getInt(
+                                                            "micro-batch-size",
+                                                            0,
+                                                            additionalConfiguration))
+                                            .microBatchDelayMillis(
+                                                    ConfigurationUtils.getInt(
+                                                            "micro-batch-delay-ms",
+                                                            5,
+                                                            additionalConfiguration))
+                                            .intraOpThreads(
+                                                    ConfigurationUtils.getInt(
+                                                            "intra-op-threads",
+                                                            0,
+                                                            additionalConfiguration));
                     if (model != null && !model.isEmpty()) {
                         builder.modelName(model);
                         if (modelUrl == null || modelUrl.isEmpty()) {
@@ -131,7 +159,7 @@ public class HuggingFaceProvider implements ServiceProviderProvider {
                     } else {
                         apiBuilder.options(Map.of("wait_for_model", "true"));
                     }
-                    return new HuggingFaceRestEmbeddingService(apiBuilder.build());
+                    return new HuggingFaceRestEmbeddingService(apiBuilder.build(), httpClient);
                 }
                 default -> throw new IllegalArgumentException(
                         "Unsupported HuggingFace service type: " + provider);
@@ -142,15 +170,18 @@ public class HuggingFaceProvider implements ServiceProviderProvider {
 
         private static class HuggingFaceCompletionsService implements CompletionsService {
 
-            final HttpClient httpClient;
+            final SharedHttpClient httpClient;
             final String url;
             final String accessKey;
 
             public HuggingFaceCompletionsService(
-                    String url, String accessKey, Map<String, Object> additionalConfiguration) {
+                    String url,
+                    String accessKey,
+                    Map<String, Object> additionalConfiguration,
+                    SharedHttpClient httpClient) {
                 this.url = url;
                 this.accessKey = accessKey;
-                this.httpClient = HttpClient.newHttpClient();
+                this.httpClient = httpClient;
             }
 
             @Override
@@ -201,6 +232,9 @@ public class HuggingFaceProvider implements ServiceProviderProvider {
 
             @SneakyThrows
             private static List<ResponseBean> convertResponse(HttpResponse<String> response) {
+                if (response.statusCode() == RateLimitedException.STATUS_CODE) {
+                    throw RateLimitedException.fromResponse(response);
+                }
                 String body = response.body();
                 if (log.isDebugEnabled()) {
                     log.debug("Response: {}", body);
@@ -15,9 +15,13 @@
  */
 package ai.langstream.ai.agents.services.impl;
 
+import ai.langstream.ai.agents.services.RateLimitedException;
 import ai.langstream.ai.agents.services.ServiceProviderProvider;
 import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.util.ConfigurationUtils;
+import ai.langstream.api.util.FloatVector;
+import ai.langstream.api.util.HttpClientRegistry;
+import ai.langstream.api.util.SharedHttpClient;
 import com.datastax.oss.streaming.ai.completions.ChatChoice;
 import com.datastax.oss.streaming.ai.completions.ChatCompletions;
 import com.datastax.oss.streaming.ai.completions.ChatMessage;
@@ -30,7 +34,6 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.StringWriter;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.ArrayList;
@@ -58,24 +61,30 @@ public class OllamaProvider implements ServiceProviderProvider {
         return agentConfiguration.containsKey("ollama");
     }
 
+    @Override
+    public String configurationKey() {
+        return "ollama";
+    }
+
     @Override
     public ServiceProvider createImplementation(
             Map<String, Object> agentConfiguration, MetricsReporter metricsReporter) {
 
         Map<String, Object> config = (Map<String, Object>) agentConfiguration.get("ollama");
         String url = (String) config.get("url");
-        return new OllamaServiceProvider(url);
+        return new OllamaServiceProvider(
+                url, HttpClientRegistry.get().withMetricsReporter(metricsReporter));
     }
 
     private static class OllamaServiceProvider implements ServiceProvider {
 
-        final HttpClient httpClient;
+        final SharedHttpClient httpClient;
         private final String url;
 
         @SneakyThrows
-        public OllamaServiceProvider(String url) {
+        public OllamaServiceProvider(String url, SharedHttpClient httpClient) {
             this.url = url;
-            this.httpClient = HttpClient.newHttpClient();
+            this.httpClient = httpClient;
         }
 
         @Override
@@ -119,7 +128,7 @@ public class OllamaProvider implements ServiceProviderProvider {
                                                 .collect(Collectors.toList()));
             }
 
-            record EmbeddingResponse(List<Double> embedding, String error) {}
+            record EmbeddingResponse(FloatVector embedding, String error) {}
 
             private CompletableFuture<List<Double>> computeEmbeddings(String prompt) {
                 String request;
@@ -131,7 +140,6 @@ public class OllamaProvider implements ServiceProviderProvider {
                     final HttpRequest.Builder requestBuilder =
                             HttpRequest.newBuilder()
                                     .uri(new URI(url + "/api/embeddings"))
-                                    .version(HttpClient.Version.HTTP_1_1)
                                     .method("POST", bodyPublisher);
                     final HttpRequest httpRequest = requestBuilder.build();
 
@@ -139,6 +147,10 @@ public class OllamaProvider implements ServiceProviderProvider {
                             .sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString())
                             .thenApply(
                                     response -> {
+                                        if (response.statusCode()
+                                                == RateLimitedException.STATUS_CODE) {
+                                            throw RateLimitedException.fromResponse(response);
+                                        }
                                         if (response.statusCode() != 200) {
                                             throw new RuntimeException(
                                                     "HTTP Error: " + response.statusCode());
@@ -287,7 +299,6 @@ public class OllamaProvider implements ServiceProviderProvider {
                     final HttpRequest.Builder requestBuilder =
                             HttpRequest.newBuilder()
                                     .uri(new URI(url + "/api/generate"))
-                                    .version(HttpClient.Version.HTTP_1_1)
                                     .method("POST", bodyPublisher);
                     final HttpRequest httpRequest = requestBuilder.build();
 
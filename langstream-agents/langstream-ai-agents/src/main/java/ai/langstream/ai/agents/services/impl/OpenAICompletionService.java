@@ -58,12 +58,14 @@ public class OpenAICompletionService implements CompletionsService {
     private final MetricsReporter.Counter textCompletionTokens;
     private final MetricsReporter.Counter textNumCalls;
     private final MetricsReporter.Counter textNumErrors;
+    private final MetricsReporter.Timer textLatency;
 
     private final MetricsReporter.Counter chatTotalTokens;
     private final MetricsReporter.Counter chatPromptTokens;
     private final MetricsReporter.Counter chatCompletionTokens;
     private final MetricsReporter.Counter chatNumCalls;
     private final MetricsReporter.Counter chatNumErrors;
+    private final MetricsReporter.Timer chatLatency;
 
     public OpenAICompletionService(OpenAIAsyncClient client, MetricsReporter metricsReporter) {
         this.client = client;
@@ -91,6 +93,11 @@ public class OpenAICompletionService implements CompletionsService {
                         "openai_chat_completions_num_errors",
                         "Total number of errors while calling OpenAI Chat Completions");
 
+        this.chatLatency =
+                metricsReporter.timer(
+                        "openai_chat_completions_latency",
+                        "Time to receive the full answer from OpenAI Chat Completions");
+
         this.textTotalTokens =
                 metricsReporter.counter(
                         "openai_text_completions_total_tokens",
@@ -115,6 +122,11 @@ public class OpenAICompletionService implements CompletionsService {
                 metricsReporter.counter(
                         "openai_text_completions_num_errors",
                         "Total number of errors while calling OpenAI Text Completions");
+
+        this.textLatency =
+                metricsReporter.timer(
+                        "openai_text_completions_latency",
+                        "Time to receive the full answer from OpenAI Text Completions");
     }
 
     @Override
@@ -145,6 +157,7 @@ public class OpenAICompletionService implements CompletionsService {
                         .setFrequencyPenalty(getDouble("frequency-penalty", null, options));
         ChatCompletions result = new ChatCompletions();
         chatNumCalls.count(1);
+        long start = System.nanoTime();
         // this is the default behavior, as it is async
         // it works even if the streamingChunksConsumer is null
         if (chatCompletionsOptions.isStream()) {
@@ -167,6 +180,7 @@ public class OpenAICompletionService implements CompletionsService {
                             })
                     .doOnNext(chatCompletionsConsumer)
                     .subscribe();
+            finished.whenComplete((___, error) -> chatLatency.recordSince(start));
 
             return finished.thenApply(
                     ___ -> {
@@ -201,6 +215,7 @@ public class OpenAICompletionService implements CompletionsService {
                                         return result;
                                     });
 
+            resultHandle.whenComplete((___, error) -> chatLatency.recordSince(start));
             resultHandle.exceptionally(
                     error -> {
                         chatNumErrors.count(1);
@@ -333,6 +348,7 @@ public class OpenAICompletionService implements CompletionsService {
         // it works even if the streamingChunksConsumer is null
         final String model = (String) options.get("model");
         textNumCalls.count(1);
+        long start = System.nanoTime();
         if (completionsOptions.isStream()) {
             CompletableFuture<?> finished = new CompletableFuture<>();
             Flux<com.azure.ai.openai.models.Completions> flux =
@@ -352,6 +368,7 @@ public class OpenAICompletionService implements CompletionsService {
                             })
                     .doOnNext(textCompletionsConsumer)
                     .subscribe();
+            finished.whenComplete((___, error) -> textLatency.recordSince(start));
 
             return finished.thenApply(
                     ___ -> {
@@ -394,6 +411,7 @@ public class OpenAICompletionService implements CompletionsService {
                                                                 .LogProbInformation(null, null);
                                         return new TextCompletionResult(text, logProbs);
                                     });
+            resultHandle.whenComplete((___, error) -> textLatency.recordSince(start));
             resultHandle.exceptionally(
                     error -> {
                         textNumErrors.count(1);
@@ -29,6 +29,11 @@ public class OpenAIServiceProvider implements ServiceProviderProvider {
         return agentConfiguration.containsKey("openai");
     }
 
+    @Override
+    public String configurationKey() {
+        return "openai";
+    }
+
     @Override
     public ServiceProvider createImplementation(
             Map<String, Object> agentConfiguration, MetricsReporter metricsReporter) {
@@ -15,9 +15,13 @@
  */
 package ai.langstream.ai.agents.services.impl;
 
+import ai.langstream.ai.agents.services.RateLimitedException;
 import ai.langstream.ai.agents.services.ServiceProviderProvider;
 import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.util.ConfigurationUtils;
+import ai.langstream.api.util.FloatVector;
+import ai.langstream.api.util.HttpClientRegistry;
+import ai.langstream.api.util.SharedHttpClient;
 import com.datastax.oss.streaming.ai.completions.ChatChoice;
 import com.datastax.oss.streaming.ai.completions.ChatCompletions;
 import com.datastax.oss.streaming.ai.completions.ChatMessage;
@@ -36,7 +40,6 @@ import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
@@ -68,6 +71,11 @@ public class VertexAIProvider implements ServiceProviderProvider {
         return agentConfiguration.containsKey("vertex");
     }
 
+    @Override
+    public String configurationKey() {
+        return "vertex";
+    }
+
     @Override
     public ServiceProvider createImplementation(
             Map<String, Object> agentConfiguration, MetricsReporter metricsReporter) {
@@ -79,12 +87,18 @@ public class VertexAIProvider implements ServiceProviderProvider {
         String project = (String) config.get("project");
         String region = (String) config.get("region");
 
-        return new VertexAIServiceProvider(url, project, region, token, serviceAccountJson);
+        return new VertexAIServiceProvider(
+                url,
+                project,
+                region,
+                token,
+                serviceAccountJson,
+                HttpClientRegistry.get().withMetricsReporter(metricsReporter));
     }
 
     private static class VertexAIServiceProvider implements ServiceProvider {
 
-        final HttpClient httpClient;
+        final SharedHttpClient httpClient;
         private final String url;
         private final String project;
         private final String region;
@@ -100,7 +114,8 @@ public class VertexAIProvider implements ServiceProviderProvider {
                 String project,
                 String region,
                 String token,
-                String serviceAccountJson) {
+                String serviceAccountJson,
+                SharedHttpClient httpClient) {
             if (url == null || url.isEmpty()) {
                 url = "https://" + region + "-aiplatform.googleapis.com";
             }
@@ -165,7 +180,7 @@ public class VertexAIProvider implements ServiceProviderProvider {
                         "You have to pass the access token or the service account json file");
             }
 
-            this.httpClient = HttpClient.newHttpClient();
+            this.httpClient = httpClient;
         }
 
         private void scheduleRefreshToken(long refresh) {
@@ -484,7 +499,7 @@ public class VertexAIProvider implements ServiceProviderProvider {
 
                 @Data
                 static class Embeddings {
-                    List<Double> values;
+                    FloatVector values;
                 }
             }
         }
@@ -492,6 +507,9 @@ public class VertexAIProvider implements ServiceProviderProvider {
 
     @SneakyThrows
     private static <T> T handleResponse(Class<T> responseType, HttpResponse<String> response) {
+        if (response.statusCode() == RateLimitedException.STATUS_CODE) {
+            throw RateLimitedException.fromResponse(response);
+        }
         if (response.statusCode() != 200) {
             throw new IllegalStateException(
                     "Unexpected status code: " + response.statusCode() + " " + response.body());
@@ -15,7 +15,7 @@
  */
 package ai.langstream.ai.agents.services.impl.bedrock;
 
-import java.util.List;
+import ai.langstream.api.util.FloatVector;
 import lombok.Builder;
 import lombok.Data;
 
@@ -28,7 +28,7 @@ public class TitanEmbeddingsModel extends BaseInvokeModelRequest<TitanEmbeddings
 
     public record RequestBody(String inputText) {}
 
-    public record ResponseBody(List<Double> embedding) {}
+    public record ResponseBody(FloatVector embedding) {}
 
     @Override
     public String getModelId() {
@@ -23,6 +23,7 @@ import com.datastax.oss.streaming.ai.completions.ChatChoice;
 import com.datastax.oss.streaming.ai.completions.ChatCompletions;
 import com.datastax.oss.streaming.ai.completions.ChatMessage;
 import com.datastax.oss.streaming.ai.completions.Chunk;
+import com.datastax.oss.streaming.ai.completions.CompletionsCache;
 import com.datastax.oss.streaming.ai.completions.CompletionsService;
 import com.datastax.oss.streaming.ai.model.config.ChatCompletionsConfig;
 import com.datastax.oss.streaming.ai.streaming.StreamingAnswersConsumer;
@@ -52,6 +53,8 @@ public class ChatCompletionsStep implements TransformStep {
     private final Map<ChatMessage, Template> messageTemplates = new ConcurrentHashMap<>();
     private final StreamingAnswersConsumerFactory streamingAnswersConsumerFactory;
 
+    private final CompletionsCache<ChatCompletions> completionsCache;
+
     private StreamingAnswersConsumer streamingAnswersConsumer;
 
     // for tests
@@ -78,6 +81,15 @@ public class ChatCompletionsStep implements TransformStep {
             CompletionsService completionsService,
             StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
             ChatCompletionsConfig config) {
+        this(completionsService, streamingAnswersConsumerFactory, config, null);
+    }
+
+    public ChatCompletionsStep(
+            CompletionsService completionsService,
+            StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
+            ChatCompletionsConfig config,
+            CompletionsCache<ChatCompletions> completionsCache) {
+        this.completionsCache = completionsCache;
         this.streamingAnswersConsumerFactory = streamingAnswersConsumerFactory;
         this.completionsService = completionsService;
         this.config = config;
@@ -129,30 +141,45 @@ public class ChatCompletionsStep implements TransformStep {
         Map<String, Object> options = convertToMap(config);
         options.put("min-chunks-per-message", config.getMinChunksPerMessage());
 
-        CompletableFuture<ChatCompletions> chatCompletionsHandle =
-                completionsService.getChatCompletions(
-                        messages,
-                        new CompletionsService.StreamingChunksConsumer() {
-                            @Override
-                            public void consumeChunk(
-                                    String answerId, int index, Chunk chunk, boolean last) {
-
-                                // we must copy the context because the same context is used for all
-                                // chunks
-                                // and also for the final answer
-                                MutableRecord copy = mutableRecord.copy();
-
-                                copy.getProperties().put("stream-id", answerId);
-                                copy.getProperties().put("stream-index", index + "");
-                                copy.getProperties().put("stream-last-message", last + "");
-
-                                final String content = chunk.content();
-                                applyResultFieldToContext(copy, content, true);
-                                streamingAnswersConsumer.streamAnswerChunk(
-                                        index, content, last, copy);
-                            }
-                        },
-                        options);
+        CompletionsService.StreamingChunksConsumer streamingChunksConsumer =
+                new CompletionsService.StreamingChunksConsumer() {
+                    @Override
+                    public void consumeChunk(
+                            String answerId, int index, Chunk chunk, boolean last) {
+
+                        // we must copy the context because the same context is used for all
+                        // chunks
+                        // and also for the final answer
+                        MutableRecord copy = mutableRecord.copy();
+
+                        copy.getProperties().put("stream-id", answerId);
+                        copy.getProperties().put("stream-index", index + "");
+                        copy.getProperties().put("stream-last-message", last + "");
+
+                        final String content = chunk.content();
+                        applyResultFieldToContext(copy, content, true);
+                        streamingAnswersConsumer.streamAnswerChunk(index, content, last, copy);
+                    }
+                };
+
+        CompletableFuture<ChatCompletions> chatCompletionsHandle;
+        if (completionsCache == null) {
+            chatCompletionsHandle =
+                    completionsService.getChatCompletions(
+                            messages, streamingChunksConsumer, options);
+        } else {
+            Map<String, Object> request = new HashMap<>();
+            request.put("provider", completionsService.getClass().getName());
+            request.put("options", options);
+            request.put("messages", messages);
+            chatCompletionsHandle =
+                    completionsCache.get(
+                            MutableRecord.toJson(request),
+                            streamingChunksConsumer,
+                            consumer ->
+                                    completionsService.getChatCompletions(
+                                            messages, consumer, options));
+        }
 
         return chatCompletionsHandle.thenApply(
                 chatCompletions -> {
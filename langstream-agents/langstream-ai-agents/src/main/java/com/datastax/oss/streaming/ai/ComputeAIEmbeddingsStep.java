@@ -15,15 +15,18 @@
  */
 package com.datastax.oss.streaming.ai;
 
-import ai.langstream.ai.agents.commons.JsonRecord;
 import ai.langstream.ai.agents.commons.MutableRecord;
 import ai.langstream.ai.agents.commons.jstl.JstlEvaluator;
+import ai.langstream.api.runner.code.MetricsReporter;
+import ai.langstream.api.util.AdaptiveBatchSize;
 import ai.langstream.api.util.OrderedAsyncBatchExecutor;
+import com.datastax.oss.streaming.ai.embeddings.EmbeddingsCache;
 import com.datastax.oss.streaming.ai.embeddings.EmbeddingsService;
 import com.samskivert.mustache.Mustache;
 import com.samskivert.mustache.Template;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -35,6 +38,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.Schema;
 
@@ -53,6 +58,9 @@ public class ComputeAIEmbeddingsStep implements TransformStep {
     private final String loopOverFieldName;
     private final String fieldInRecord;
     private final EmbeddingsService embeddingsService;
+    private final EmbeddingsCache cache;
+    private final ToIntFunction<String> lengthFunction;
+    private final AdaptiveBatchSize adaptiveBatchSize;
 
     private final OrderedAsyncBatchExecutor<RecordHolder> batchExecutor;
 
@@ -71,6 +79,69 @@ public class ComputeAIEmbeddingsStep implements TransformStep {
             long flushInterval,
             int concurrency,
             EmbeddingsService embeddingsService) {
+        this(
+                text,
+                embeddingsFieldName,
+                loopOver,
+                batchSize,
+                flushInterval,
+                concurrency,
+                embeddingsService,
+                null);
+    }
+
+    public ComputeAIEmbeddingsStep(
+            String text,
+            String embeddingsFieldName,
+            String loopOver,
+            int batchSize,
+            long flushInterval,
+            int concurrency,
+            EmbeddingsService embeddingsService,
+            EmbeddingsCache cache) {
+        this(
+                text,
+                embeddingsFieldName,
+                loopOver,
+                batchSize,
+                flushInterval,
+                concurrency,
+                embeddingsService,
+                cache,
+                null,
+                0,
+                false,
+                0,
+                1,
+                null);
+    }
+
+    /**
+     * @param lengthFunction the function that counts the tokens of a text
+     * @param batchMaxTokens the maximum number of tokens in a batch, 0 to disable the budget
+     * @param adaptiveBatchSize adapt the number of records in a batch (at most batchSize) to the
+     *     latency and the errors of the AI service
+     * @param maxPendingBatches the maximum number of batches waiting for the AI service for each
+     *     concurrency slot, when it is reached the step blocks; 0 means no limit
+     * @param maxInFlightBatches the number of batches of the same slot sent at the same time to the
+     *     AI service, with more than one the records with the same key may complete out of order
+     */
+    @Builder
+    private ComputeAIEmbeddingsStep(
+            String text,
+            String embeddingsFieldName,
+            String loopOver,
+            int batchSize,
+            long flushInterval,
+            int concurrency,
+            EmbeddingsService embeddingsService,
+            EmbeddingsCache cache,
+            ToIntFunction<String> lengthFunction,
+            int batchMaxTokens,
+            boolean adaptiveBatchSize,
+            int maxPendingBatches,
+            int maxInFlightBatches,
+            MetricsReporter metricsReporter) {
         this.template =
                 Mustache.compiler().compile(MustacheCompatibilityUtils.handleLegacyTemplate(text));
         this.loopOverFieldName = loopOver;
@@ -92,21 +163,82 @@ public class ComputeAIEmbeddingsStep implements TransformStep {
             this.fieldInRecord = null;
         }
         this.embeddingsService = embeddingsService;
+        this.cache = cache;
+        this.lengthFunction = lengthFunction;
+        this.adaptiveBatchSize =
+                adaptiveBatchSize && batchSize > 1 ? new AdaptiveBatchSize(1, batchSize) : null;
         this.executorService =
                 flushInterval > 0 ? Executors.newSingleThreadScheduledExecutor() : null;
         int numBuckets = concurrency > 0 ? concurrency : 1;
         this.batchExecutor =
-                new OrderedAsyncBatchExecutor<>(
-                        batchSize,
-                        this::processBatch,
-                        flushInterval,
-                        numBuckets,
-                        ComputeAIEmbeddingsStep::computeHashForRecord,
-                        executorService);
+                OrderedAsyncBatchExecutor.<RecordHolder>builder()
+                        .batchSize(batchSize)
+                        .processor(this::processBatch)
+                        .maxIdleTime(flushInterval)
+                        .numBuckets(numBuckets)
+                        .hashFunction(ComputeAIEmbeddingsStep::computeHashForRecord)
+                        .scheduledExecutorService(executorService)
+                        .weightFunction(
+                                lengthFunction != null ? this::computeTokensForRecord : null)
+                        .maxBatchWeight(lengthFunction != null ? batchMaxTokens : 0)
+                        .maxPendingBatches(maxPendingBatches)
+                        .maxInFlightBatches(maxInFlightBatches)
+                        .metricsReporter(metricsReporter)
+                        .metricsPrefix("ai_embeddings")
+                        .build();
+    }
+
+    private int computeTokensForRecord(RecordHolder holder) {
+        try {
+            int tokens = 0;
+            for (String text : renderTexts(holder)) {
+                tokens += lengthFunction.applyAsInt(text);
+            }
+            return tokens;
+        } catch (RuntimeException error) {
+            // the error is reported when the batch is processed
+            return 0;
+        }
+    }
+
+    /**
+     * Render the texts of the record, once: the texts are needed to weigh the record and then to
+     * build the request.
+     */
+    private List<String> renderTexts(RecordHolder holder) {
+        if (holder.texts == null) {
+            MutableRecord mutableRecord = holder.mutableRecord;
+            if (loopOverAccessor == null) {
+                holder.texts = List.of(template.execute(mutableRecord.toJsonRecord()));
+            } else {
+                List<Object> documents = loopOverAccessor.evaluate(mutableRecord);
+                List<String> texts = new ArrayList<>(documents.size());
+                for (Object document : documents) {
+                    Map<String, Object> mustacheContext = new HashMap<>();
+                    mustacheContext.put("record", document);
+                    texts.add(template.execute(mustacheContext));
+                }
+                holder.documents = documents;
+                holder.texts = texts;
+            }
+        }
+        return holder.texts;
+    }
+
+    private void adaptBatchSize(int texts, long startNanos, Throwable error) {
+        int newBatchSize =
+                error == null
+                        ? adaptiveBatchSize.onSuccess(texts, System.nanoTime() - startNanos)
+                        : adaptiveBatchSize.onError(texts);
+        if (newBatchSize != batchExecutor.getBatchSize()) {
+            log.info("Changing the batch size to {}", newBatchSize);
+            batchExecutor.setBatchSize(newBatchSize);
+        }
     }
 
     private static int computeHashForRecord(RecordHolder record) {
-        Object key = record.mutableRecord.getKeyObject();
+        // read only, the key must not be marked as modified
+        Object key = record.mutableRecord.peekKeyObject();
         if (key != null) {
             return Objects.hashCode(key);
         } else {
@@ -129,10 +261,10 @@ public class ComputeAIEmbeddingsStep implements TransformStep {
 
         try {
             for (RecordHolder holder : records) {
-                MutableRecord mutableRecord = holder.mutableRecord();
-                JsonRecord jsonRecord = mutableRecord.toJsonRecord();
+                MutableRecord mutableRecord = holder.mutableRecord;
+                List<String> recordTexts = renderTexts(holder);
                 if (loopOverAccessor == null) {
-                    String text = template.execute(jsonRecord);
+                    String text = recordTexts.get(0);
                     texts.add(text);
                     textsAndCompletions.add(
                             new TextAndReference(
@@ -145,22 +277,21 @@ public class ComputeAIEmbeddingsStep implements TransformStep {
                                                         Schema.create(Schema.Type.DOUBLE)),
                                                 avroKeySchemaCache,
                                                 avroValueSchemaCache);
-                                        holder.handle().complete(null);
+                                        holder.handle.complete(null);
                                     }));
                 } else {
-                    List<Object> nestedRecords = loopOverAccessor.evaluate(mutableRecord);
+                    List<Object> nestedRecords = holder.documents;
                     List<Map<String, Object>> newList = new CopyOnWriteArrayList<>();
                     AtomicInteger remaining = new AtomicInteger(nestedRecords.size());
 
-                    for (Object document : nestedRecords) {
+                    for (int i = 0; i < nestedRecords.size(); i++) {
+                        Object document = nestedRecords.get(i);
                         log.info("Processing nested record {}", document);
                         // this is a mutable map
                         Map<String, Object> newMap =
                                 new ConcurrentHashMap<>((Map<String, Object>) document);
                         newList.add(newMap);
-                        Map<String, Object> mustacheContext = new HashMap<>();
-                        mustacheContext.put("record", document);
-                        String text = template.execute(mustacheContext);
+                        String text = recordTexts.get(i);
                         texts.add(text);
                         log.info("text {}", text);
                         textsAndCompletions.add(
@@ -185,7 +316,7 @@ public class ComputeAIEmbeddingsStep implements TransformStep {
                                                                                                 .STRING)))),
                                                         avroKeySchemaCache,
                                                         avroValueSchemaCache);
-                                                holder.handle().complete(null);
+                                                holder.handle.complete(null);
                                             }
                                         }));
                     }
@@ -201,15 +332,63 @@ public class ComputeAIEmbeddingsStep implements TransformStep {
             return;
         }
 
-        CompletableFuture<List<List<Double>>> embeddings =
-                embeddingsService.computeEmbeddings(texts);
+        // identical texts in the batch are sent only once
+        Map<String, Integer> distinctTexts = new LinkedHashMap<>();
+        for (String text : texts) {
+            distinctTexts.putIfAbsent(text, distinctTexts.size());
+        }
+        List<List<Double>> distinctResults = new ArrayList<>(distinctTexts.size());
+        List<String> missingTexts = new ArrayList<>();
+        List<Integer> missingIndexes = new ArrayList<>();
+        List<EmbeddingsCache.Key> missingKeys = new ArrayList<>();
+        for (String text : distinctTexts.keySet()) {
+            List<Double> cached = null;
+            if (cache != null) {
+                EmbeddingsCache.Key key = cache.key(text);
+                cached = cache.get(key);
+                if (cached == null) {
+                    missingKeys.add(key);
+                }
+            }
+            if (cached == null) {
+                missingIndexes.add(distinctResults.size());
+                missingTexts.add(text);
+            }
+            distinctResults.add(cached);
+        }
+        if (cache != null) {
+            cache.countHits(texts.size() - distinctTexts.size());
+        }
+
+        CompletableFuture<List<List<Double>>> embeddings;
+        if (missingTexts.isEmpty()) {
+            embeddings = CompletableFuture.completedFuture(List.of());
+        } else {
+            long start = System.nanoTime();
+            embeddings = embeddingsService.computeEmbeddings(missingTexts);
+            if (adaptiveBatchSize != null) {
+                embeddings =
+                        embeddings.whenComplete(
+                                (result, error) ->
+                                        adaptBatchSize(missingTexts.size(), start, error));
+            }
+        }
 
         embeddings
                 .thenAccept(
                         (result) -> {
-                            for (int i = 0; i < textsAndCompletions.size(); i++) {
+                            for (int i = 0; i < missingTexts.size(); i++) {
                                 List<Double> embeddingsForText = result.get(i);
-                                textsAndCompletions.get(i).completion().accept(embeddingsForText);
+                                distinctResults.set(missingIndexes.get(i), embeddingsForText);
+                                if (cache != null) {
+                                    cache.put(missingKeys.get(i), embeddingsForText);
+                                }
+                            }
+                            for (TextAndReference textAndReference : textsAndCompletions) {
+                                List<Double> embeddingsForText =
+                                        distinctResults.get(
+                                                distinctTexts.get(textAndReference.text()));
+                                textAndReference.completion().accept(embeddingsForText);
                             }
                         })
                 .whenComplete(
@@ -237,9 +416,23 @@ public class ComputeAIEmbeddingsStep implements TransformStep {
         if (embeddingsService != null) {
             embeddingsService.close();
         }
+        if (cache != null) {
+            cache.close();
+        }
     }
 
-    record RecordHolder(MutableRecord mutableRecord, CompletableFuture<?> handle) {}
+    static final class RecordHolder {
+        private final MutableRecord mutableRecord;
+        private final CompletableFuture<?> handle;
+        // rendered on first use, by the weight function or by the batch
+        private List<String> texts;
+        private List<Object> documents;
+
+        RecordHolder(MutableRecord mutableRecord, CompletableFuture<?> handle) {
+            this.mutableRecord = mutableRecord;
+            this.handle = handle;
+        }
+    }
 
     @Override
     public CompletableFuture<?> processAsync(MutableRecord mutableRecord) {
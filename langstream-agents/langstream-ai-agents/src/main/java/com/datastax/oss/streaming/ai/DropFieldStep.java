@@ -36,9 +36,12 @@ public class DropFieldStep implements TransformStep {
 
     @Override
     public void process(MutableRecord mutableRecord) {
-        if (mutableRecord.getKeyObject() != null) {
+        // the key and the value are modified only if there are fields to drop
+        if (!keyFields.isEmpty() && mutableRecord.peekKeyObject() != null) {
             mutableRecord.dropKeyFields(keyFields, keySchemaCache);
         }
-        mutableRecord.dropValueFields(valueFields, valueSchemaCache);
+        if (!valueFields.isEmpty()) {
+            mutableRecord.dropValueFields(valueFields, valueSchemaCache);
+        }
     }
 }
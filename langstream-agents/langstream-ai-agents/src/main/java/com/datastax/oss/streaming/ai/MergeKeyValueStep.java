@@ -38,7 +38,8 @@ public class MergeKeyValueStep implements TransformStep {
         if (keySchemaType == null) {
             return;
         }
-        Object keyObject = mutableRecord.getKeyObject();
+        // the key is only read
+        Object keyObject = mutableRecord.peekKeyObject();
         Object valueObject = mutableRecord.getValueObject();
         if (keyObject instanceof Map && valueObject instanceof Map) {
             Map<Object, Object> value = (Map<Object, Object>) valueObject;
@@ -20,6 +20,7 @@ import static com.datastax.oss.streaming.ai.util.TransformFunctionUtil.convertTo
 import ai.langstream.ai.agents.commons.JsonRecord;
 import ai.langstream.ai.agents.commons.MutableRecord;
 import com.datastax.oss.streaming.ai.completions.Chunk;
+import com.datastax.oss.streaming.ai.completions.CompletionsCache;
 import com.datastax.oss.streaming.ai.completions.CompletionsService;
 import com.datastax.oss.streaming.ai.completions.TextCompletionResult;
 import com.datastax.oss.streaming.ai.model.config.TextCompletionsConfig;
@@ -50,12 +51,23 @@ public class TextCompletionsStep implements TransformStep {
     private final Map<String, Template> messageTemplates = new ConcurrentHashMap<>();
     private final StreamingAnswersConsumerFactory streamingAnswersConsumerFactory;
 
+    private final CompletionsCache<TextCompletionResult> completionsCache;
+
     private StreamingAnswersConsumer streamingAnswersConsumer;
 
     public TextCompletionsStep(
             CompletionsService completionsService,
             StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
             TextCompletionsConfig config) {
+        this(completionsService, streamingAnswersConsumerFactory, config, null);
+    }
+
+    public TextCompletionsStep(
+            CompletionsService completionsService,
+            StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
+            TextCompletionsConfig config,
+            CompletionsCache<TextCompletionResult> completionsCache) {
+        this.completionsCache = completionsCache;
         this.streamingAnswersConsumerFactory = streamingAnswersConsumerFactory;
         this.completionsService = completionsService;
         this.config = config;
@@ -91,30 +103,44 @@ public class TextCompletionsStep implements TransformStep {
         final Map<String, Object> options = convertToMap(config);
         options.put("min-chunks-per-message", config.getMinChunksPerMessage());
 
-        CompletableFuture<TextCompletionResult> chatCompletionsHandle =
-                completionsService.getTextCompletions(
-                        prompt,
-                        new CompletionsService.StreamingChunksConsumer() {
-                            @Override
-                            public void consumeChunk(
-                                    String answerId, int index, Chunk chunk, boolean last) {
-
-                                // we must copy the context because the same context is used for all
-                                // chunks
-                                // and also for the final answer
-                                MutableRecord copy = mutableRecord.copy();
-
-                                copy.getProperties().put("stream-id", answerId);
-                                copy.getProperties().put("stream-index", index + "");
-                                copy.getProperties().put("stream-last-message", last + "");
-
-                                final String content = chunk.content();
-                                applyResultFieldToContext(copy, content, true);
-                                streamingAnswersConsumer.streamAnswerChunk(
-                                        index, content, last, copy);
-                            }
-                        },
-                        options);
+        CompletionsService.StreamingChunksConsumer streamingChunksConsumer =
+                new CompletionsService.StreamingChunksConsumer() {
+                    @Override
+                    public void consumeChunk(
+                            String answerId, int index, Chunk chunk, boolean last) {
+
+                        // we must copy the context because the same context is used for all
+                        // chunks
+                        // and also for the final answer
+                        MutableRecord copy = mutableRecord.copy();
+
+                        copy.getProperties().put("stream-id", answerId);
+                        copy.getProperties().put("stream-index", index + "");
+                        copy.getProperties().put("stream-last-message", last + "");
+
+                        final String content = chunk.content();
+                        applyResultFieldToContext(copy, content, true);
+                        streamingAnswersConsumer.streamAnswerChunk(index, content, last, copy);
+                    }
+                };
+
+        CompletableFuture<TextCompletionResult> chatCompletionsHandle;
+        if (completionsCache == null) {
+            chatCompletionsHandle =
+                    completionsService.getTextCompletions(prompt, streamingChunksConsumer, options);
+        } else {
+            Map<String, Object> request = new HashMap<>();
+            request.put("provider", completionsService.getClass().getName());
+            request.put("options", options);
+            request.put("prompt", prompt);
+            chatCompletionsHandle =
+                    completionsCache.get(
+                            MutableRecord.toJson(request),
+                            streamingChunksConsumer,
+                            consumer ->
+                                    completionsService.getTextCompletions(
+                                            prompt, consumer, options));
+        }
 
         return chatCompletionsHandle.thenApply(
                 content -> {
@@ -0,0 +1,177 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.completions;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Exact match cache of the completions. The key is the full request (model, options and rendered
+ * prompt) and the answers expire after a TTL. Identical requests that arrive while the first one is
+ * still running wait for its result instead of calling the AI service again.
+ *
+ * <p>The chunks streamed by the AI service are recorded with the answer and replayed for every
+ * request served by the cache, so the clients of the stream-to-topic see the same messages.
+ *
+ * @param <T> the type of the answer
+ */
+public class CompletionsCache<T> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry<T>> entries;
+    private final MetricsReporter.Counter hits;
+    private final MetricsReporter.Counter misses;
+
+    public CompletionsCache(int maxSize, long ttlSeconds, MetricsReporter metricsReporter) {
+        this(maxSize, ttlSeconds, metricsReporter, System::nanoTime);
+    }
+
+    CompletionsCache(
+            int maxSize, long ttlSeconds, MetricsReporter metricsReporter, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The cache size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlSeconds > 0 ? TimeUnit.SECONDS.toNanos(ttlSeconds) : Long.MAX_VALUE;
+        this.clock = clock;
+        this.entries =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                        return size() > CompletionsCache.this.maxSize;
+                    }
+                };
+        this.hits =
+                metricsReporter.counter(
+                        "ai_completions_cache_hits",
+                        "Number of completions served by the cache or by an identical running request");
+        this.misses =
+                metricsReporter.counter(
+                        "ai_completions_cache_misses",
+                        "Number of completions requested to the AI service");
+    }
+
+    /**
+     * Get the answer for a request.
+     *
+     * @param key the request
+     * @param streamingChunksConsumer the consumer of the chunks of this request
+     * @param loader the call to the AI service, it receives the consumer of the chunks
+     * @return the answer
+     */
+    public CompletableFuture<T> get(
+            String key,
+            CompletionsService.StreamingChunksConsumer streamingChunksConsumer,
+            Function<CompletionsService.StreamingChunksConsumer, CompletableFuture<T>> loader) {
+        Entry<T> entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt < clock.getAsLong()) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry<>();
+                entries.put(key, entry);
+            } else {
+                hits.count(1);
+                Entry<T> cached = entry;
+                return cached.result.thenApply(
+                        result -> {
+                            cached.replay(streamingChunksConsumer);
+                            return result;
+                        });
+            }
+        }
+        misses.count(1);
+        Entry<T> created = entry;
+        CompletableFuture<T> call;
+        try {
+            call =
+                    loader.apply(
+                            (answerId, index, chunk, last) -> {
+                                created.record(index, chunk.content(), last);
+                                if (streamingChunksConsumer != null) {
+                                    streamingChunksConsumer.consumeChunk(
+                                            answerId, index, chunk, last);
+                                }
+                            });
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete(
+                (result, error) -> {
+                    synchronized (this) {
+                        if (error != null) {
+                            // do not cache the errors
+                            entries.remove(key, created);
+                        } else {
+                            long now = clock.getAsLong();
+                            created.expiresAt =
+                                    ttlNanos == Long.MAX_VALUE ? Long.MAX_VALUE : now + ttlNanos;
+                        }
+                    }
+                    if (error != null) {
+                        created.result.completeExceptionally(error);
+                    } else {
+                        created.result.complete(result);
+                    }
+                });
+        return call;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private record RecordedChunk(int index, String content, boolean last) {}
+
+    private static class Entry<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final List<RecordedChunk> chunks = new ArrayList<>();
+        // the entry does not expire while the request is running
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        synchronized void record(int index, String content, boolean last) {
+            chunks.add(new RecordedChunk(index, content, last));
+        }
+
+        void replay(CompletionsService.StreamingChunksConsumer consumer) {
+            if (consumer == null) {
+                return;
+            }
+            List<RecordedChunk> copy;
+            synchronized (this) {
+                copy = List.copyOf(chunks);
+            }
+            // every answer has its own stream id
+            String answerId = UUID.randomUUID().toString();
+            for (RecordedChunk chunk : copy) {
+                consumer.consumeChunk(answerId, chunk.index(), chunk::content, chunk.last());
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ import ai.djl.MalformedModelException;
 import ai.djl.engine.Engine;
 import ai.djl.huggingface.translator.TextEmbeddingTranslatorFactory;
 import ai.djl.inference.Predictor;
+import ai.djl.pytorch.jni.JniUtils;
 import ai.djl.pytorch.jni.LibUtils;
 import ai.djl.repository.zoo.Criteria;
 import ai.djl.repository.zoo.ModelNotFoundException;
@@ -32,6 +33,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.locks.ReentrantLock;
 import lombok.Builder;
@@ -71,6 +73,12 @@ public abstract class AbstractHuggingFaceEmbeddingService<IN, OUT>
 
     @Override
     public void close() throws Exception {
+        if (batcher != null) {
+            batcher.close();
+        }
+        if (batchPredictor != null) {
+            batchPredictor.close();
+        }
         while (!predictorList.isEmpty()) {
             Predictor<?, ?> p = predictorList.poll();
             if (p != null) {
@@ -95,6 +103,15 @@ public abstract class AbstractHuggingFaceEmbeddingService<IN, OUT>
         String modelUrl;
 
         String modelName;
+
+        /** Maximum number of texts run in a single forward pass, 0 disables the micro-batching. */
+        @Builder.Default int microBatchSize = 0;
+
+        /** Time to wait for the texts sent by other threads before running a forward pass. */
+        @Builder.Default long microBatchDelayMillis = 5;
+
+        /** Number of threads used by the engine inside each operation, 0 for the default. */
+        @Builder.Default int intraOpThreads = 0;
     }
 
     // thread safety:
@@ -107,6 +124,9 @@ public abstract class AbstractHuggingFaceEmbeddingService<IN, OUT>
     private static final ConcurrentLinkedQueue<Predictor<?, ?>> predictorList =
             new ConcurrentLinkedQueue<>();
 
+    private Predictor<IN, OUT> batchPredictor;
+    private DynamicBatcher<IN, OUT> batcher;
+
     public AbstractHuggingFaceEmbeddingService(HuggingFaceConfig conf)
             throws IOException,
                     ModelNotFoundException,
@@ -150,6 +170,11 @@ public abstract class AbstractHuggingFaceEmbeddingService<IN, OUT>
         if (conf.arguments != null && !conf.arguments.isEmpty()) {
             conf.arguments.forEach(builder::optArgument);
         }
+        boolean microBatching = conf.microBatchSize > 0;
+        if (microBatching && (conf.arguments == null || !conf.arguments.containsKey("padding"))) {
+            // the texts of a batch must have the same number of tokens
+            builder.optArgument("padding", "true");
+        }
 
         // for getting embeddings
         builder.optTranslatorFactory(new TextEmbeddingTranslatorFactory());
@@ -169,6 +194,23 @@ public abstract class AbstractHuggingFaceEmbeddingService<IN, OUT>
         } finally {
             localModelLock.unlock();
         }
+
+        if (conf.intraOpThreads > 0
+                && "PyTorch".equals(model.getNDManager().getEngine().getEngineName())) {
+            // this is a process wide setting
+            log.info("Setting the number of PyTorch intra-op threads to {}", conf.intraOpThreads);
+            JniUtils.setNumThreads(conf.intraOpThreads);
+        }
+        if (microBatching) {
+            batchPredictor = model.newPredictor();
+            batcher =
+                    new DynamicBatcher<>(
+                            "hf-embeddings-" + conf.modelName,
+                            conf.microBatchSize,
+                            conf.microBatchDelayMillis,
+                            this::inputLength,
+                            this::computeBatch);
+        }
     }
 
     private void checkIfUrlIsAllowed(String modelUrl) throws IllegalAccessException {
@@ -206,12 +248,39 @@ public abstract class AbstractHuggingFaceEmbeddingService<IN, OUT>
         return result;
     }
 
+    private List<OUT> computeBatch(List<IN> inputs) throws TranslateException {
+        try {
+            return batchPredictor.batchPredict(inputs);
+        } catch (TranslateException error) {
+            if (error.getCause() instanceof IllegalArgumentException) {
+                throw new TranslateException(
+                        "Illegal input, maybe the number of tokens is too high", error);
+            }
+            throw error;
+        }
+    }
+
     abstract List<IN> convertInput(List<String> texts);
 
+    /** The length used to put the inputs with a similar number of tokens in the same batch. */
+    abstract int inputLength(IN input);
+
     abstract List<List<Double>> convertOutput(List<OUT> result);
 
     @Override
     public CompletableFuture<List<List<Double>>> computeEmbeddings(List<String> texts) {
+        if (batcher != null) {
+            return batcher.submit(convertInput(texts))
+                    .thenApply(this::convertOutput)
+                    .exceptionallyCompose(
+                            e ->
+                                    CompletableFuture.failedFuture(
+                                            new RuntimeException(
+                                                    "failed to compute embeddings",
+                                                    e instanceof CompletionException
+                                                            ? e.getCause()
+                                                            : e)));
+        }
         try {
             List<OUT> results = compute(convertInput(texts));
             return CompletableFuture.completedFuture(convertOutput(results));
@@ -0,0 +1,160 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.embeddings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects the inputs submitted by all the threads for a short time and runs them through the model
+ * in a few forward passes. The inputs are grouped in buckets of similar length (powers of two), so
+ * the padding added to the shorter inputs of a batch is at most as long as the inputs themselves.
+ * The results are scattered back to the callers in the original order.
+ *
+ * <p>A single thread runs the forward passes, the parallelism is left to the intra-op threads of
+ * the engine.
+ */
+@Slf4j
+class DynamicBatcher<IN, OUT> implements AutoCloseable {
+
+    interface BatchFunction<IN, OUT> {
+        List<OUT> apply(List<IN> inputs) throws Exception;
+    }
+
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final ToIntFunction<IN> lengthFunction;
+    private final BatchFunction<IN, OUT> batchFunction;
+    private final LinkedBlockingQueue<Item<IN, OUT>> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    private volatile boolean closed;
+
+    DynamicBatcher(
+            String name,
+            int maxBatchSize,
+            long maxDelayMillis,
+            ToIntFunction<IN> lengthFunction,
+            BatchFunction<IN, OUT> batchFunction) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+        this.lengthFunction = lengthFunction;
+        this.batchFunction = batchFunction;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    CompletableFuture<List<OUT>> submit(List<IN> inputs) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Batcher is closed"));
+        }
+        List<CompletableFuture<OUT>> results = new ArrayList<>(inputs.size());
+        for (IN input : inputs) {
+            Item<IN, OUT> item =
+                    new Item<>(
+                            input,
+                            bucket(lengthFunction.applyAsInt(input)),
+                            new CompletableFuture<>());
+            results.add(item.result);
+            queue.add(item);
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+                .thenApply(___ -> results.stream().map(CompletableFuture::join).toList());
+    }
+
+    static int bucket(int length) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(0, length));
+    }
+
+    private void run() {
+        List<Item<IN, OUT>> items = new ArrayList<>(maxBatchSize);
+        while (!closed) {
+            try {
+                items.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (items.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Item<IN, OUT> next =
+                            remaining > 0
+                                    ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                                    : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    items.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failAll(items, new IllegalStateException("Batcher is closed"));
+                break;
+            }
+            Map<Integer, List<Item<IN, OUT>>> buckets = new TreeMap<>();
+            for (Item<IN, OUT> item : items) {
+                buckets.computeIfAbsent(item.bucket, b -> new ArrayList<>()).add(item);
+            }
+            buckets.values().forEach(this::execute);
+            items.clear();
+        }
+        List<Item<IN, OUT>> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        failAll(pending, new IllegalStateException("Batcher is closed"));
+    }
+
+    private void execute(List<Item<IN, OUT>> batch) {
+        try {
+            List<OUT> outputs = batchFunction.apply(batch.stream().map(Item::input).toList());
+            if (outputs.size() != batch.size()) {
+                throw new IllegalStateException(
+                        "Expected " + batch.size() + " results, got " + outputs.size());
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(outputs.get(i));
+            }
+        } catch (Throwable error) {
+            log.error("Failed to run a batch of {} inputs", batch.size(), error);
+            failAll(batch, error);
+        }
+    }
+
+    private static <IN, OUT> void failAll(List<Item<IN, OUT>> items, Throwable error) {
+        for (Item<IN, OUT> item : items) {
+            item.result.completeExceptionally(error);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        worker.interrupt();
+        worker.join();
+        // fail the inputs submitted while the worker was stopping
+        List<Item<IN, OUT>> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        failAll(pending, new IllegalStateException("Batcher is closed"));
+    }
+
+    private record Item<IN, OUT>(IN input, int bucket, CompletableFuture<OUT> result) {}
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.embeddings;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import ai.langstream.api.util.FloatVector;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Content addressed cache of the embeddings. The entries are keyed by the SHA-256 of the model and
+ * of the text, so the same text embedded with another model is a different entry.
+ *
+ * <p>The first tier is an LRU map in the heap. The optional second tier is a memory mapped file
+ * that survives the restarts of the agent: it is split in two generations, new entries are appended
+ * to the active generation and when it is full the older generation is discarded and reused. The
+ * entries found in the older generation are copied to the active one, so the frequently used
+ * embeddings are not lost.
+ */
+@Slf4j
+public class EmbeddingsCache implements AutoCloseable {
+
+    private static final int MAGIC = 0x4C53454D;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 16;
+    private static final int SEGMENT_HEADER_SIZE = 4;
+    private static final int KEY_SIZE = 32;
+
+    private final String model;
+    private final int maxEntries;
+    private final LinkedHashMap<Key, FloatVector> heap;
+    private final DiskTier disk;
+    private final MetricsReporter.Counter hits;
+    private final MetricsReporter.Counter misses;
+
+    /**
+     * @param model the model, part of the key
+     * @param maxEntries the maximum number of embeddings kept in memory
+     * @param file the file of the on-disk tier, null to keep only the in-memory tier
+     * @param diskSize the size in bytes of the on-disk tier
+     * @param metricsReporter the reporter of the hits and misses
+     */
+    public EmbeddingsCache(
+            String model, int maxEntries, Path file, long diskSize, MetricsReporter metricsReporter)
+            throws IOException {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("The cache size must be positive");
+        }
+        this.model = model == null ? "" : model;
+        this.maxEntries = maxEntries;
+        this.heap =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Key, FloatVector> eldest) {
+                        return size() > EmbeddingsCache.this.maxEntries;
+                    }
+                };
+        this.disk = file != null && diskSize > 0 ? new DiskTier(file, diskSize) : null;
+        this.hits =
+                metricsReporter.counter(
+                        "ai_embeddings_cache_hits",
+                        "Number of texts whose embeddings were found in the cache");
+        this.misses =
+                metricsReporter.counter(
+                        "ai_embeddings_cache_misses",
+                        "Number of texts whose embeddings were computed by the AI service");
+    }
+
+    /** Compute the key of a text, this can be called without holding any lock. */
+    public Key key(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            return Key.of(ByteBuffer.wrap(digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Look up the embeddings of a text.
+     *
+     * @return the embeddings or null
+     */
+    public synchronized FloatVector get(Key key) {
+        FloatVector result = heap.get(key);
+        if (result == null && disk != null) {
+            result = disk.get(key);
+            if (result != null) {
+                heap.put(key, result);
+            }
+        }
+        if (result != null) {
+            hits.count(1);
+        } else {
+            misses.count(1);
+        }
+        return result;
+    }
+
+    public synchronized void put(Key key, List<Double> embeddings) {
+        if (embeddings == null) {
+            return;
+        }
+        FloatVector vector = FloatVector.of(embeddings);
+        heap.put(key, vector);
+        if (disk != null) {
+            disk.put(key, vector);
+        }
+    }
+
+    /** Record the texts that were served without calling the AI service, like duplicates. */
+    public void countHits(int count) {
+        hits.count(count);
+    }
+
+    synchronized int size() {
+        return heap.size();
+    }
+
+    synchronized void clearHeap() {
+        heap.clear();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (disk != null) {
+            disk.close();
+        }
+    }
+
+    public record Key(long l0, long l1, long l2, long l3) {
+        static Key of(ByteBuffer buffer) {
+            return new Key(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+
+        void write(ByteBuffer buffer) {
+            buffer.putLong(l0).putLong(l1).putLong(l2).putLong(l3);
+        }
+    }
+
+    private static class DiskTier {
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int segmentSize;
+        private final List<Map<Key, Integer>> indexes = List.of(new HashMap<>(), new HashMap<>());
+        private int active;
+
+        DiskTier(Path file, long size) throws IOException {
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("The disk cache cannot be larger than 2GB");
+            }
+            this.file = file;
+            Files.createDirectories(file.getParent());
+            this.channel =
+                    FileChannel.open(
+                            file,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.READ,
+                            StandardOpenOption.WRITE);
+            this.segmentSize = (int) (size - FILE_HEADER_SIZE) / 2;
+            if (segmentSize < SEGMENT_HEADER_SIZE + KEY_SIZE + 4) {
+                throw new IllegalArgumentException("The disk cache is too small: " + size);
+            }
+            boolean reuse = channel.size() == size;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (reuse
+                    && buffer.getInt(0) == MAGIC
+                    && buffer.getInt(4) == VERSION
+                    && buffer.getInt(8) == segmentSize) {
+                active = buffer.getInt(12) == 1 ? 1 : 0;
+                load(0);
+                load(1);
+                log.info(
+                        "Loaded {} embeddings from {}",
+                        indexes.get(0).size() + indexes.get(1).size(),
+                        file);
+            } else {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, segmentSize);
+                reset(0);
+                reset(1);
+                activate(0);
+            }
+        }
+
+        private int segmentStart(int segment) {
+            return FILE_HEADER_SIZE + segment * segmentSize;
+        }
+
+        private void reset(int segment) {
+            buffer.putInt(segmentStart(segment), SEGMENT_HEADER_SIZE);
+            indexes.get(segment).clear();
+        }
+
+        private void activate(int segment) {
+            active = segment;
+            buffer.putInt(12, segment);
+        }
+
+        private void load(int segment) {
+            int start = segmentStart(segment);
+            int end = buffer.getInt(start);
+            if (end < SEGMENT_HEADER_SIZE || end > segmentSize) {
+                log.warn("Discarding a corrupted segment of {}", file);
+                reset(segment);
+                return;
+            }
+            int position = SEGMENT_HEADER_SIZE;
+            while (position < end) {
+                // the header of the entry, then the whole entry must be within the segment
+                boolean valid = position + KEY_SIZE + 4 <= end;
+                long entrySize = 0;
+                if (valid) {
+                    int dimension = buffer.getInt(start + position + KEY_SIZE);
+                    entrySize = entrySize(dimension);
+                    valid = dimension > 0 && position + entrySize <= end;
+                }
+                if (!valid) {
+                    log.warn("Discarding a truncated segment of {}", file);
+                    buffer.putInt(start, position);
+                    break;
+                }
+                Key key = Key.of(buffer.slice(start + position, KEY_SIZE));
+                indexes.get(segment).put(key, start + position);
+                position += (int) entrySize;
+            }
+        }
+
+        private static long entrySize(int dimension) {
+            return KEY_SIZE + 4 + dimension * 4L;
+        }
+
+        FloatVector get(Key key) {
+            Integer offset = indexes.get(active).get(key);
+            if (offset != null) {
+                return read(offset);
+            }
+            int older = 1 - active;
+            offset = indexes.get(older).get(key);
+            if (offset == null) {
+                return null;
+            }
+            FloatVector result = read(offset);
+            indexes.get(older).remove(key);
+            put(key, result);
+            return result;
+        }
+
+        private FloatVector read(int offset) {
+            int dimension = buffer.getInt(offset + KEY_SIZE);
+            float[] values = new float[dimension];
+            buffer.slice(offset + KEY_SIZE + 4, dimension * 4).asFloatBuffer().get(values);
+            return FloatVector.wrap(values);
+        }
+
+        void put(Key key, FloatVector vector) {
+            if (indexes.get(active).containsKey(key)) {
+                return;
+            }
+            float[] values = vector.floats();
+            if (entrySize(values.length) > segmentSize - SEGMENT_HEADER_SIZE) {
+                return;
+            }
+            int entrySize = (int) entrySize(values.length);
+            int start = segmentStart(active);
+            int end = buffer.getInt(start);
+            if (end + entrySize > segmentSize) {
+                int older = 1 - active;
+                reset(older);
+                activate(older);
+                start = segmentStart(active);
+                end = SEGMENT_HEADER_SIZE;
+            }
+            int offset = start + end;
+            ByteBuffer entry = buffer.slice(offset, entrySize);
+            key.write(entry);
+            entry.putInt(values.length);
+            entry.asFloatBuffer().put(values);
+            // publish the entry only after it has been written
+            buffer.putInt(start, end + entrySize);
+            indexes.get(active).put(key, offset);
+        }
+
+        void close() {
+            buffer.force();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Error closing {}", file, e);
+            }
+        }
+    }
+}
@@ -17,13 +17,15 @@ package com.datastax.oss.streaming.ai.embeddings;
 
 import ai.djl.MalformedModelException;
 import ai.djl.repository.zoo.ModelNotFoundException;
+import ai.langstream.api.util.FloatVector;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * EmbeddingsService implementation using HuggingFace models adapted for use in the DJL. Thread safe
- * (but uses predictor per thread).
+ * (but uses predictor per thread, or a single predictor fed by a {@link DynamicBatcher} when the
+ * micro-batching is enabled).
  *
  * <p>The model requested there should be trained for "sentence similarity" task. See
  * https://github.com/deepjavalibrary/djl/blob/master/extensions/tokenizers/README.md for model
@@ -49,15 +51,16 @@ public class HuggingFaceEmbeddingService
         return texts;
     }
 
+    @Override
+    int inputLength(String text) {
+        return text.length();
+    }
+
     @Override
     List<List<Double>> convertOutput(List<float[]> result) {
         List<List<Double>> out = new ArrayList<>(result.size());
         for (float[] floats : result) {
-            List<Double> l = new ArrayList<>(floats.length);
-            for (float aFloat : floats) {
-                l.add((double) aFloat);
-            }
-            out.add(l);
+            out.add(FloatVector.wrap(floats));
         }
         return out;
     }
@@ -15,13 +15,16 @@
  */
 package com.datastax.oss.streaming.ai.embeddings;
 
+import ai.langstream.api.util.FloatVector;
+import ai.langstream.api.util.HttpClientRegistry;
+import ai.langstream.api.util.SharedHttpClient;
 import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -66,7 +69,7 @@ public class HuggingFaceRestEmbeddingService implements EmbeddingsService {
     private final URL modelUrl;
     private final URL checkUrl;
 
-    private final HttpClient httpClient;
+    private final SharedHttpClient httpClient;
 
     @Data
     @Builder
@@ -79,13 +82,18 @@ public class HuggingFaceRestEmbeddingService implements EmbeddingsService {
     }
 
     public HuggingFaceRestEmbeddingService(HuggingFaceApiConfig conf) throws MalformedURLException {
+        this(conf, HttpClientRegistry.get());
+    }
+
+    public HuggingFaceRestEmbeddingService(HuggingFaceApiConfig conf, SharedHttpClient httpClient)
+            throws MalformedURLException {
         this.conf = conf;
         this.model = conf.model;
         this.token = conf.accessKey;
         this.checkUrl = new URL(conf.hfCheckUrl + model);
         this.modelUrl = new URL(conf.hfUrl + model);
 
-        this.httpClient = HttpClient.newHttpClient();
+        this.httpClient = httpClient;
 
         try {
             HttpRequest request =
@@ -140,7 +148,7 @@ public class HuggingFaceRestEmbeddingService implements EmbeddingsService {
                     body -> {
                         try {
                             Object result = om.readValue(body, Object.class);
-                            return (List<List<Double>>) result;
+                            return toVectors((List<Object>) result);
                         } catch (Exception e) {
                             throw new RuntimeException(e);
                         }
@@ -150,6 +158,20 @@ public class HuggingFaceRestEmbeddingService implements EmbeddingsService {
         }
     }
 
+    // the result is usually a list of vectors, but some models return nested lists
+    private static List<List<Double>> toVectors(List<Object> result) {
+        List<List<Double>> vectors = new ArrayList<>(result.size());
+        for (Object item : result) {
+            List<?> list = (List<?>) item;
+            if (list.stream().allMatch(Number.class::isInstance)) {
+                vectors.add(FloatVector.of((List<Number>) list));
+            } else {
+                vectors.add((List<Double>) list);
+            }
+        }
+        return vectors;
+    }
+
     private CompletableFuture<String> query(String jsonPayload) throws Exception {
         HttpRequest request =
                 HttpRequest.newBuilder()
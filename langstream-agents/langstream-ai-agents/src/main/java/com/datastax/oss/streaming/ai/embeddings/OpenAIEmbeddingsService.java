@@ -16,8 +16,8 @@
 package com.datastax.oss.streaming.ai.embeddings;
 
 import ai.langstream.api.runner.code.MetricsReporter;
+import ai.langstream.api.util.FloatVector;
 import com.azure.ai.openai.OpenAIAsyncClient;
-import com.azure.ai.openai.models.EmbeddingItem;
 import com.azure.ai.openai.models.EmbeddingsOptions;
 import com.azure.ai.openai.models.EmbeddingsUsage;
 import java.util.List;
@@ -36,6 +36,7 @@ public class OpenAIEmbeddingsService implements EmbeddingsService {
     private final MetricsReporter.Counter numCalls;
     private final MetricsReporter.Counter numTexts;
     private final MetricsReporter.Counter numErrors;
+    private final MetricsReporter.Timer latency;
 
     public OpenAIEmbeddingsService(
             OpenAIAsyncClient openAIClient, String model, MetricsReporter metricsReporter) {
@@ -59,6 +60,9 @@ public class OpenAIEmbeddingsService implements EmbeddingsService {
                 metricsReporter.counter(
                         "openai_embeddings_num_errors",
                         "Total number of errors while calling OpenAI");
+        this.latency =
+                metricsReporter.timer(
+                        "openai_embeddings_latency", "Time to compute the embeddings with OpenAI");
     }
 
     @Override
@@ -67,6 +71,7 @@ public class OpenAIEmbeddingsService implements EmbeddingsService {
             EmbeddingsOptions embeddingsOptions = new EmbeddingsOptions(texts);
             numCalls.count(1);
             numTexts.count(texts.size());
+            long start = System.nanoTime();
             CompletableFuture<List<List<Double>>> result =
                     openAIClient
                             .getEmbeddings(model, embeddingsOptions)
@@ -77,10 +82,11 @@ public class OpenAIEmbeddingsService implements EmbeddingsService {
                                         totalTokens.count(usage.getTotalTokens());
                                         promptTokens.count(usage.getPromptTokens());
                                         return embeddings.getData().stream()
-                                                .map(EmbeddingItem::getEmbedding)
+                                                .map(e -> FloatVector.of(e.getEmbedding()))
                                                 .collect(Collectors.toList());
                                     });
 
+            result.whenComplete((___, error) -> latency.recordSince(start));
             result.exceptionally(
                     err -> {
                         // API call error
@@ -19,7 +19,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 
 @Getter
-public class BedrockConfig {
+public class BedrockConfig extends RateLimitConfig {
 
     @JsonProperty(value = "access-key", required = true)
     private String accessKey;
@@ -45,6 +45,42 @@ public class ComputeAIEmbeddingsConfig extends StepConfig {
     @JsonProperty("flush-interval")
     private int flushInterval = 0;
 
+    // close the batches also on a token budget, 0 to disable
+    @JsonProperty("batch-max-tokens")
+    private int batchMaxTokens = 0;
+
+    // "length" or a tiktoken encoding, used to count the tokens of the texts
+    @JsonProperty("length-function")
+    private String lengthFunction = "cl100k_base";
+
+    @JsonProperty("adaptive-batch-size")
+    private boolean adaptiveBatchSize = false;
+
+    // batches waiting for the AI service for each concurrency slot, 0 means no limit
+    @JsonProperty("max-pending-batches")
+    private int maxPendingBatches = 0;
+
+    @JsonProperty("max-in-flight-batches")
+    private int maxInFlightBatches = 1;
+
+    // number of embeddings kept in memory, the cache is disabled by default
+    @JsonProperty("cache-size")
+    private int cacheSize = 0;
+
+    // the on-disk tier requires a persistent disk for the agent
+    @JsonProperty("disk-cache-size-mb")
+    private int diskCacheSizeMb = 0;
+
+    // local HuggingFace models only, texts run in a single forward pass, 0 to disable
+    @JsonProperty("micro-batch-size")
+    private int microBatchSize = 0;
+
+    @JsonProperty("micro-batch-delay-ms")
+    private int microBatchDelayMs = 5;
+
+    @JsonProperty("intra-op-threads")
+    private int intraOpThreads = 0;
+
     @Deprecated
     @JsonProperty(value = "compute-service")
     private String service;
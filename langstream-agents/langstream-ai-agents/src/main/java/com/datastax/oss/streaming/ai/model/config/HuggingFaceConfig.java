@@ -19,7 +19,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 
 @Getter
-public class HuggingFaceConfig {
+public class HuggingFaceConfig extends RateLimitConfig {
     // for API compute provider
     @JsonProperty(
             value = "api-url",
@@ -19,7 +19,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 
 @Getter
-public class OllamaConfig {
+public class OllamaConfig extends RateLimitConfig {
 
     @JsonProperty(value = "url")
     private String url;
@@ -19,7 +19,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 
 @Getter
-public class OpenAIConfig {
+public class OpenAIConfig extends RateLimitConfig {
     @JsonProperty private String url;
 
     @JsonProperty(value = "access-key", required = true)
@@ -43,4 +43,11 @@ public abstract class StepConfig {
     private String type;
 
     @JsonProperty private String when;
+
+    /**
+     * The id of the agent that declared the step, set by the planner when it fuses consecutive
+     * agents. Null for the steps of the agent that runs them.
+     */
+    @JsonProperty("agent-id")
+    private String agentId;
 }
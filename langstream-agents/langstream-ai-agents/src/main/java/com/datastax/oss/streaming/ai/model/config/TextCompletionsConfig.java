@@ -77,6 +77,13 @@ public class TextCompletionsConfig extends StepConfig {
     @JsonProperty(value = "frequency-penalty")
     private Double frequencyPenalty;
 
+    // number of answers kept in memory, the cache is disabled by default
+    @JsonProperty(value = "cache-size")
+    private int cacheSize = 0;
+
+    @JsonProperty(value = "cache-ttl-seconds")
+    private long cacheTtlSeconds = 3600;
+
     @JsonProperty(value = "options")
     private Map<String, Object> options;
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.util;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import java.util.function.ToIntFunction;
+
+/** Functions that measure a text, with the same names used by the text-splitter agent. */
+public class TextLengthFunctions {
+
+    private static final EncodingRegistry REGISTRY = Encodings.newDefaultEncodingRegistry();
+
+    private TextLengthFunctions() {}
+
+    /**
+     * @param name "length" for the number of characters or the name of a <a
+     *     href="https://github.com/openai/tiktoken">tiktoken</a> encoding, like cl100k_base
+     * @return the function
+     */
+    public static ToIntFunction<String> of(String name) {
+        if ("length".equals(name)) {
+            return String::length;
+        }
+        EncodingType encodingType =
+                EncodingType.fromName(name)
+                        .orElseThrow(
+                                () -> new IllegalArgumentException("Unknown encoding: " + name));
+        // Encoding is stateful and it retains references to internal tokens
+        return text -> REGISTRY.getEncoding(encodingType).countTokens(text);
+    }
+}
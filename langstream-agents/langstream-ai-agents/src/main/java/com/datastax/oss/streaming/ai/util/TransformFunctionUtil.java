@@ -18,6 +18,7 @@ package com.datastax.oss.streaming.ai.util;
 import ai.langstream.ai.agents.commons.MutableRecord;
 import ai.langstream.ai.agents.commons.TransformSchemaType;
 import ai.langstream.ai.agents.commons.jstl.predicate.JstlPredicate;
+import ai.langstream.api.runner.code.MetricsReporter;
 import com.azure.ai.openai.OpenAIAsyncClient;
 import com.azure.ai.openai.OpenAIClient;
 import com.azure.ai.openai.OpenAIClientBuilder;
@@ -42,9 +43,13 @@ import com.datastax.oss.streaming.ai.StepPredicatePair;
 import com.datastax.oss.streaming.ai.TextCompletionsStep;
 import com.datastax.oss.streaming.ai.TransformStep;
 import com.datastax.oss.streaming.ai.UnwrapKeyValueStep;
+import com.datastax.oss.streaming.ai.completions.ChatCompletions;
+import com.datastax.oss.streaming.ai.completions.CompletionsCache;
 import com.datastax.oss.streaming.ai.completions.CompletionsService;
+import com.datastax.oss.streaming.ai.completions.TextCompletionResult;
 import com.datastax.oss.streaming.ai.datasource.CassandraDataSource;
 import com.datastax.oss.streaming.ai.datasource.QueryStepDataSource;
+import com.datastax.oss.streaming.ai.embeddings.EmbeddingsCache;
 import com.datastax.oss.streaming.ai.embeddings.EmbeddingsService;
 import com.datastax.oss.streaming.ai.model.ComputeField;
 import com.datastax.oss.streaming.ai.model.ComputeFieldType;
@@ -67,6 +72,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
@@ -77,6 +83,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
@@ -170,6 +177,30 @@ public class TransformFunctionUtil {
             StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
             StepConfig step)
             throws Exception {
+        return buildStep(
+                transformConfig,
+                serviceProvider,
+                dataSource,
+                streamingAnswersConsumerFactory,
+                MetricsReporter.DISABLED,
+                agentId -> null,
+                step);
+    }
+
+    /**
+     * @param persistentStateDirectories the persistent state directory of an agent, by agent id
+     *     (null for the agent that runs the steps), null if the agent doesn't have a persistent
+     *     disk
+     */
+    public static StepPredicatePair buildStep(
+            TransformStepConfig transformConfig,
+            ServiceProvider serviceProvider,
+            QueryStepDataSource dataSource,
+            StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
+            MetricsReporter metricsReporter,
+            Function<String, Path> persistentStateDirectories,
+            StepConfig step)
+            throws Exception {
         TransformStep transformStep;
         switch (step.getType()) {
             case "drop-fields":
@@ -197,21 +228,28 @@ public class TransformFunctionUtil {
                 break;
             case "compute-ai-embeddings":
                 transformStep =
-                        newComputeAIEmbeddings((ComputeAIEmbeddingsConfig) step, serviceProvider);
+                        newComputeAIEmbeddings(
+                                (ComputeAIEmbeddingsConfig) step,
+                                serviceProvider,
+                                metricsReporter,
+                                // the step may come from another agent, fused by the planner
+                                persistentStateDirectories.apply(step.getAgentId()));
                 break;
             case "ai-chat-completions":
                 transformStep =
                         newChatCompletionsFunction(
                                 (ChatCompletionsConfig) step,
                                 serviceProvider,
-                                streamingAnswersConsumerFactory);
+                                streamingAnswersConsumerFactory,
+                                metricsReporter);
                 break;
             case "ai-text-completions":
                 transformStep =
                         newTextCompletionsFunction(
                                 (TextCompletionsConfig) step,
                                 serviceProvider,
-                                streamingAnswersConsumerFactory);
+                                streamingAnswersConsumerFactory,
+                                metricsReporter);
                 break;
             case "query":
                 transformStep = newQuery((QueryConfig) step, dataSource);
@@ -302,18 +340,63 @@ public class TransformFunctionUtil {
         return ComputeStep.builder().fields(fieldList).build();
     }
 
-    @SneakyThrows
     public static TransformStep newComputeAIEmbeddings(
             ComputeAIEmbeddingsConfig config, ServiceProvider provider) {
+        return newComputeAIEmbeddings(config, provider, MetricsReporter.DISABLED, null);
+    }
+
+    @SneakyThrows
+    public static TransformStep newComputeAIEmbeddings(
+            ComputeAIEmbeddingsConfig config,
+            ServiceProvider provider,
+            MetricsReporter metricsReporter,
+            Path persistentStateDirectory) {
         EmbeddingsService embeddingsService = provider.getEmbeddingsService(convertToMap(config));
-        return new ComputeAIEmbeddingsStep(
-                config.getText(),
-                config.getEmbeddingsFieldName(),
-                config.getLoopOver(),
-                config.getBatchSize(),
-                config.getFlushInterval(),
-                config.getConcurrency(),
-                embeddingsService);
+        EmbeddingsCache cache = null;
+        if (config.getCacheSize() > 0) {
+            long diskCacheSize = config.getDiskCacheSizeMb() * 1024L * 1024L;
+            Path diskCacheFile = null;
+            if (diskCacheSize > 0) {
+                if (persistentStateDirectory == null) {
+                    log.warn(
+                            "The agent doesn't have a persistent disk, the embeddings are cached only in memory");
+                } else {
+                    // one file per step, the agent may run more than one embeddings step
+                    String fileName =
+                            "embeddings-cache-"
+                                    + config.getEmbeddingsFieldName()
+                                            .replaceAll("[^A-Za-z0-9_-]", "_")
+                                    + ".bin";
+                    diskCacheFile = persistentStateDirectory.resolve(fileName);
+                }
+            }
+            cache =
+                    new EmbeddingsCache(
+                            config.getModel(),
+                            config.getCacheSize(),
+                            diskCacheFile,
+                            diskCacheSize,
+                            metricsReporter);
+        }
+        return ComputeAIEmbeddingsStep.builder()
+                .text(config.getText())
+                .embeddingsFieldName(config.getEmbeddingsFieldName())
+                .loopOver(config.getLoopOver())
+                .batchSize(config.getBatchSize())
+                .flushInterval(config.getFlushInterval())
+                .concurrency(config.getConcurrency())
+                .embeddingsService(embeddingsService)
+                .cache(cache)
+                .lengthFunction(
+                        config.getBatchMaxTokens() > 0
+                                ? TextLengthFunctions.of(config.getLengthFunction())
+                                : null)
+                .batchMaxTokens(config.getBatchMaxTokens())
+                .adaptiveBatchSize(config.isAdaptiveBatchSize())
+                .maxPendingBatches(config.getMaxPendingBatches())
+                .maxInFlightBatches(config.getMaxInFlightBatches())
+                .metricsReporter(metricsReporter)
+                .build();
     }
 
     public static UnwrapKeyValueStep newUnwrapKeyValueFunction(UnwrapKeyValueConfig config) {
@@ -333,9 +416,25 @@ public class TransformFunctionUtil {
             ServiceProvider serviceProvider,
             StreamingAnswersConsumerFactory streamingAnswersConsumerFactory)
             throws Exception {
+        return newChatCompletionsFunction(
+                config, serviceProvider, streamingAnswersConsumerFactory, MetricsReporter.DISABLED);
+    }
+
+    public static ChatCompletionsStep newChatCompletionsFunction(
+            ChatCompletionsConfig config,
+            ServiceProvider serviceProvider,
+            StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
+            MetricsReporter metricsReporter)
+            throws Exception {
         CompletionsService completionsService =
                 serviceProvider.getCompletionsService(convertToMap(config));
-        return new ChatCompletionsStep(completionsService, streamingAnswersConsumerFactory, config);
+        CompletionsCache<ChatCompletions> completionsCache =
+                config.getCacheSize() > 0
+                        ? new CompletionsCache<>(
+                                config.getCacheSize(), config.getCacheTtlSeconds(), metricsReporter)
+                        : null;
+        return new ChatCompletionsStep(
+                completionsService, streamingAnswersConsumerFactory, config, completionsCache);
     }
 
     public static TextCompletionsStep newTextCompletionsFunction(
@@ -343,9 +442,25 @@ public class TransformFunctionUtil {
             ServiceProvider serviceProvider,
             StreamingAnswersConsumerFactory streamingAnswersConsumerFactory)
             throws Exception {
+        return newTextCompletionsFunction(
+                config, serviceProvider, streamingAnswersConsumerFactory, MetricsReporter.DISABLED);
+    }
+
+    public static TextCompletionsStep newTextCompletionsFunction(
+            TextCompletionsConfig config,
+            ServiceProvider serviceProvider,
+            StreamingAnswersConsumerFactory streamingAnswersConsumerFactory,
+            MetricsReporter metricsReporter)
+            throws Exception {
         CompletionsService completionsService =
                 serviceProvider.getCompletionsService(convertToMap(config));
-        return new TextCompletionsStep(completionsService, streamingAnswersConsumerFactory, config);
+        CompletionsCache<TextCompletionResult> completionsCache =
+                config.getCacheSize() > 0
+                        ? new CompletionsCache<>(
+                                config.getCacheSize(), config.getCacheTtlSeconds(), metricsReporter)
+                        : null;
+        return new TextCompletionsStep(
+                completionsService, streamingAnswersConsumerFactory, config, completionsCache);
     }
 
     public static TransformStep newQuery(QueryConfig config, QueryStepDataSource dataSource) {
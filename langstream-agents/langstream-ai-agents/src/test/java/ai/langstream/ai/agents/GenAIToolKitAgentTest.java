@@ -24,9 +24,14 @@ import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.SimpleRecord;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class GenAIToolKitAgentTest {
     private static final ObjectMapper MAPPER = new ObjectMapper();
@@ -60,6 +65,89 @@ class GenAIToolKitAgentTest {
                         Map.class));
     }
 
+    @Test
+    void testMultipleSteps() throws Exception {
+        GenAIToolKitAgent agent = new GenAIToolKitAgent();
+        AgentContext mockContext = mock(AgentContext.class);
+        when(mockContext.getMetricsReporter()).thenReturn(MetricsReporter.DISABLED);
+        agent.setContext(mockContext);
+        agent.init(
+                Map.of(
+                        "steps",
+                        List.of(
+                                computeStep("value.first", "value.input + 1", null),
+                                computeStep("value.skipped", "'skipped'", "value.input > 10"),
+                                computeStep("value.second", "value.first * 2", null),
+                                Map.of("type", "drop", "when", "value.input == 0"),
+                                computeStep("value.third", "'after drop'", null))));
+        agent.start();
+
+        Record result =
+                agent.processRecord(SimpleRecord.builder().value("{\"input\":1}").build())
+                        .get()
+                        .get(0);
+        assertEquals(
+                Map.of("input", 1, "first", 2, "second", 4, "third", "after drop"),
+                MAPPER.readValue(result.value().toString(), Map.class));
+
+        assertEquals(
+                List.of(),
+                agent.processRecord(SimpleRecord.builder().value("{\"input\":0}").build()).get());
+        agent.close();
+    }
+
+    @Test
+    void testFusedStepUsesTheDiskOfItsAgent(@TempDir Path tempDir) throws Exception {
+        GenAIToolKitAgent agent = new GenAIToolKitAgent();
+        AgentContext mockContext = mock(AgentContext.class);
+        when(mockContext.getMetricsReporter()).thenReturn(MetricsReporter.DISABLED);
+        Path embeddingsAgentDirectory = tempDir.resolve("embeddings-agent");
+        when(mockContext.getPersistentStateDirectoryForAgent("embeddings-agent"))
+                .thenReturn(Optional.of(embeddingsAgentDirectory));
+        agent.setContext(mockContext);
+        agent.init(
+                Map.of(
+                        "openai",
+                        Map.of("access-key", "xxx"),
+                        "steps",
+                        List.of(
+                                computeStep("value.first", "value.input + 1", null),
+                                Map.of(
+                                        "type",
+                                        "compute-ai-embeddings",
+                                        "agent-id",
+                                        "embeddings-agent",
+                                        "model",
+                                        "some-model",
+                                        "text",
+                                        "{{ value.text }}",
+                                        "embeddings-field",
+                                        "value.embeddings",
+                                        "cache-size",
+                                        10,
+                                        "disk-cache-size-mb",
+                                        1))));
+        agent.start();
+        assertTrue(
+                Files.exists(
+                        embeddingsAgentDirectory.resolve("embeddings-cache-value_embeddings.bin")));
+        agent.close();
+    }
+
+    private static Map<String, Object> computeStep(String name, String expression, String when) {
+        Map<String, Object> step =
+                new HashMap<>(
+                        Map.of(
+                                "type",
+                                "compute",
+                                "fields",
+                                List.of(Map.of("name", name, "expression", expression))));
+        if (when != null) {
+            step.put("when", when);
+        }
+        return step;
+    }
+
     Object compute(String expression, Object value) throws Exception {
         GenAIToolKitAgent agent = new GenAIToolKitAgent();
         AgentContext mockContext = mock(AgentContext.class);
@@ -0,0 +1,289 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.commons.jstl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import jakarta.el.ExpressionFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.el.ExpressionFactoryImpl;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Checks that {@link JstlAccessor} returns the same results as the EL engine. */
+class JstlAccessorTest {
+
+    private static final ExpressionFactory FACTORY = new ExpressionFactoryImpl();
+
+    public static class Bean {
+        public String getName() {
+            return "bean";
+        }
+    }
+
+    private static Map<String, Object> context() {
+        Map<String, Object> value = new HashMap<>();
+        value.put("language", "en");
+        value.put("count", 5);
+        value.put("text", "5");
+        value.put("flag", true);
+        value.put("missing", null);
+        value.put("items", List.of("a", "b", "c"));
+        value.put("nested", Map.of("inner", "x"));
+        value.put("session-id", "s1");
+        value.put("array", new String[] {"x", "y"});
+        value.put("bean", new Bean());
+        Map<String, Object> context = new HashMap<>();
+        context.put("value", value);
+        context.put("properties", Map.of("session-id", "s1"));
+        context.put("nothing", null);
+        return context;
+    }
+
+    private static Object evaluateWithEL(String expression, Class<?> type) {
+        return FACTORY.createValueExpression(
+                        new StandardContext(FACTORY), "${" + expression + "}", type)
+                .getValue(new EvaluationContext(new EvaluationContext.MapVariables(context())));
+    }
+
+    private static Object evaluateWithAccessor(String expression, Class<?> type) {
+        JstlAccessor accessor = JstlAccessor.compile(expression, type);
+        assertNotNull(accessor, expression);
+        Object result = accessor.evaluate(new EvaluationContext.MapVariables(context()));
+        assertNotSame(JstlAccessor.UNRESOLVED, result, expression);
+        return result;
+    }
+
+    private static void assertFallsBackToEL(String expression) {
+        JstlAccessor accessor = JstlAccessor.compile(expression, Object.class);
+        if (accessor != null) {
+            assertSame(
+                    JstlAccessor.UNRESOLVED,
+                    accessor.evaluate(new EvaluationContext.MapVariables(context())),
+                    expression);
+        }
+    }
+
+    public static Object[][] comparisons() {
+        return new Object[][] {
+            {"value.count == 5", true},
+            {"value.count eq 5", true},
+            {"value.count != 5", false},
+            {"value.count ne 5", false},
+            {"value.count < 10", true},
+            {"value.count lt 10", true},
+            {"value.count > 4", true},
+            {"value.count gt 4", true},
+            {"value.count <= 5", true},
+            {"value.count le 4", false},
+            {"value.count >= 6", false},
+            {"value.count ge 5", true},
+            {"value.count == '5'", true},
+            {"value.text == 5", true},
+            {"value.text > 4", true},
+            {"value.language == 'en'", true},
+            {"value.language eq \"en\"", true},
+            {"value.language != 'fr'", true},
+            {"value.language < 'fr'", true},
+            {"value.language >= 'fr'", false},
+            {"value.flag == true", true},
+            {"value.flag ne false", true},
+            {"value.flag == 'true'", true},
+            {"value.missing == null", true},
+            {"value.missing eq null", true},
+            {"value.missing != null", false},
+            {"value.language == null", false},
+            {"value.language ne null", true},
+            {"value.missing < 1", false},
+            {"value.missing <= null", true},
+            {"value.missing >= 1", false},
+            {"value.nothing.inner == null", true},
+            {"value.missing.inner == 'x'", false},
+            {"value.items[1] == 'b'", true},
+            {"value.items[3] == null", true}
+        };
+    }
+
+    @ParameterizedTest
+    @MethodSource("comparisons")
+    void testComparisons(String expression, boolean expected) {
+        assertEquals(expected, evaluateWithEL(expression, Object.class), expression);
+        assertEquals(expected, evaluateWithAccessor(expression, Object.class), expression);
+        assertEquals(
+                evaluateWithEL(expression, String.class),
+                evaluateWithAccessor(expression, String.class),
+                expression);
+    }
+
+    public static Object[][] paths() {
+        return new Object[][] {
+            {"value.language", "en"},
+            {"value.count", 5},
+            {"value.flag", true},
+            {"value.missing", null},
+            {"value.missing.inner", null},
+            {"value.nothing.inner.deeper", null},
+            {"nothing", null},
+            {"nothing.inner", null},
+            {"value.nested.inner", "x"},
+            {"value.nested['inner']", "x"},
+            {"value['nested'][\"inner\"]", "x"},
+            {"value['session-id']", "s1"},
+            {"properties['session-id']", "s1"},
+            {"properties['other']", null},
+            {"value.items[0]", "a"},
+            {"value.items[ 2 ]", "c"},
+            {"value.items['1']", "b"},
+            {"value.items[3]", null},
+            {"value.items[100]", null},
+            {"value.missing[0]", null}
+        };
+    }
+
+    @ParameterizedTest
+    @MethodSource("paths")
+    void testPaths(String expression, Object expected) {
+        assertEquals(expected, evaluateWithEL(expression, Object.class), expression);
+        assertEquals(expected, evaluateWithAccessor(expression, Object.class), expression);
+    }
+
+    public static List<Arguments> coercions() {
+        return List.of(
+                Arguments.of("value.count", String.class),
+                Arguments.of("value.count", Long.class),
+                Arguments.of("value.count", Double.class),
+                Arguments.of("value.text", Integer.class),
+                Arguments.of("value.flag", String.class),
+                Arguments.of("value.language", String.class),
+                Arguments.of("value.missing", String.class),
+                Arguments.of("value.missing", Integer.class),
+                Arguments.of("value.missing", Boolean.class),
+                Arguments.of("value.missing", boolean.class),
+                Arguments.of("value.missing", int.class),
+                Arguments.of("value.missing", long.class),
+                Arguments.of("value.missing", double.class),
+                Arguments.of("nothing.inner", String.class),
+                Arguments.of("value.count == 5", Boolean.class));
+    }
+
+    @ParameterizedTest
+    @MethodSource("coercions")
+    void testCoercions(String expression, Class<?> type) {
+        assertEquals(
+                evaluateWithEL(expression, type),
+                evaluateWithAccessor(expression, type),
+                expression);
+    }
+
+    public static List<Arguments> nullCoercions() {
+        return List.of(
+                Arguments.of("value.missing", boolean.class, false),
+                Arguments.of("value.missing", int.class, 0),
+                Arguments.of("value.missing", long.class, 0L),
+                Arguments.of("value.missing", double.class, 0.0),
+                Arguments.of("nothing.inner", boolean.class, false),
+                Arguments.of("value.items[5]", int.class, 0),
+                Arguments.of("value.missing", String.class, null),
+                Arguments.of("value.missing", Boolean.class, null),
+                Arguments.of("value.missing", Integer.class, null));
+    }
+
+    @ParameterizedTest
+    @MethodSource("nullCoercions")
+    void testNullCoercions(String expression, Class<?> type, Object expected) {
+        assertEquals(expected, evaluateWithEL(expression, type), expression);
+        assertEquals(expected, evaluateWithAccessor(expression, type), expression);
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                // floats
+                "value.count == 5.0",
+                "value.count < 1e3",
+                "value.count > 4.5",
+                // escaped strings
+                "value.language == 'e\\'n'",
+                "value.language == \"e\\\\n\"",
+                // a Long literal that overflows
+                "value.count < 99999999999999999999",
+                "value.items[99999999999999999999]",
+                // reserved words
+                "empty value.language",
+                "not value.flag",
+                "value.flag and true",
+                "value.count div 5",
+                "value.count mod 2",
+                "value.language instanceof String",
+                "value.count + 1",
+                "-value.count",
+                "value.items[-1]",
+                // beans and arrays
+                "value.bean.name",
+                "value.bean.name == 'bean'",
+                "value.array[1]",
+                "value.array[1] == 'y'",
+                // non numeric list indexes
+                "value.items['x']",
+                // undefined variables
+                "undefined.property"
+            })
+    void testFallbacks(String expression) {
+        assertFallsBackToEL(expression);
+        Object expected;
+        try {
+            expected = evaluateWithEL(expression, Object.class);
+        } catch (RuntimeException error) {
+            assertThrows(
+                    error.getClass(),
+                    () ->
+                            new JstlEvaluator<>("${" + expression + "}", Object.class)
+                                    .evaluateRawContext(context()),
+                    expression);
+            return;
+        }
+        assertEquals(
+                expected,
+                new JstlEvaluator<>("${" + expression + "}", Object.class)
+                        .evaluateRawContext(context()),
+                expression);
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "fn:uppercase(value.language)",
+                "fn:length(value.items)",
+                "fn:coalesce(value.missing, 'default')",
+                "fn:uppercase(value.language) == 'EN'"
+            })
+    void testFunctionsFallBackToEL(String expression) {
+        assertNull(JstlAccessor.compile(expression, Object.class), expression);
+        assertNotNull(
+                new JstlEvaluator<>("${" + expression + "}", Object.class)
+                        .evaluateRawContext(context()),
+                expression);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.ai.agents.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ProviderRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private ProviderRateLimiter newLimiter(int requestsPerMinute, int tokensPerMinute) {
+        return new ProviderRateLimiter(
+                requestsPerMinute,
+                tokensPerMinute,
+                MetricsReporter.DISABLED,
+                clock::get,
+                Executors.newSingleThreadScheduledExecutor());
+    }
+
+    private void advanceSeconds(long seconds) {
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @Test
+    void testRequestsPerMinute() {
+        try (ProviderRateLimiter limiter = newLimiter(60, 0)) {
+            for (int i = 0; i < 60; i++) {
+                assertTrue(limiter.acquire(1000).isDone());
+            }
+            CompletableFuture<Void> first = limiter.acquire(0);
+            CompletableFuture<Void> second = limiter.acquire(0);
+            assertFalse(first.isDone());
+
+            // one request per second
+            advanceSeconds(1);
+            limiter.drain();
+            first.join();
+            assertFalse(second.isDone());
+
+            advanceSeconds(1);
+            limiter.drain();
+            second.join();
+        }
+    }
+
+    @Test
+    void testTokensPerMinuteInOrder() {
+        try (ProviderRateLimiter limiter = newLimiter(0, 600)) {
+            assertTrue(limiter.acquire(500).isDone());
+            List<CompletableFuture<Void>> handles = new ArrayList<>();
+            handles.add(limiter.acquire(200));
+            // the small request does not overtake the big one
+            handles.add(limiter.acquire(10));
+            assertFalse(handles.get(0).isDone());
+            assertFalse(handles.get(1).isDone());
+
+            // 10 tokens per second
+            advanceSeconds(5);
+            limiter.drain();
+            assertFalse(handles.get(0).isDone());
+
+            advanceSeconds(5);
+            limiter.drain();
+            handles.get(0).join();
+            assertFalse(handles.get(1).isDone());
+
+            advanceSeconds(1);
+            limiter.drain();
+            handles.get(1).join();
+
+            // bigger than the whole minute
+            advanceSeconds(60);
+            assertTrue(limiter.acquire(100_000).isDone());
+        }
+    }
+
+    @Test
+    void testPause() {
+        try (ProviderRateLimiter limiter = newLimiter(60, 0)) {
+            limiter.pause(5000);
+            CompletableFuture<Void> handle = limiter.acquire(0);
+            advanceSeconds(4);
+            limiter.drain();
+            assertFalse(handle.isDone());
+            advanceSeconds(1);
+            limiter.drain();
+            handle.join();
+        }
+    }
+
+    @Test
+    void testRetryAfterHeaders() {
+        assertEquals(-1, RateLimitedException.retryAfterMillis(Map.<String, String>of()::get));
+        assertEquals(2000, RateLimitedException.retryAfterMillis(Map.of("retry-after", "2")::get));
+        assertEquals(
+                150, RateLimitedException.retryAfterMillis(Map.of("retry-after-ms", "150")::get));
+        assertEquals(
+                360_000,
+                RateLimitedException.retryAfterMillis(
+                        Map.of(
+                                        "x-ratelimit-reset-requests",
+                                        "6m0s",
+                                        "x-ratelimit-remaining-requests",
+                                        "0",
+                                        "x-ratelimit-reset-tokens",
+                                        "20ms",
+                                        "x-ratelimit-remaining-tokens",
+                                        "1000")
+                                ::get));
+        assertEquals(
+                1500,
+                RateLimitedException.retryAfterMillis(
+                        Map.of("x-ratelimit-reset-tokens", "1.5s")::get));
+    }
+}
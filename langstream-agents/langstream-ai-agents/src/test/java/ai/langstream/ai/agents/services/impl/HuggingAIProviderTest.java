@@ -15,11 +15,18 @@
  */
 package ai.langstream.ai.agents.services.impl;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 
+import ai.langstream.ai.agents.services.RateLimitedServiceProvider;
+import ai.langstream.ai.agents.services.ServiceProviderRegistry;
 import ai.langstream.api.runner.code.MetricsReporter;
 import com.datastax.oss.streaming.ai.completions.ChatCompletions;
 import com.datastax.oss.streaming.ai.completions.ChatMessage;
@@ -27,6 +34,7 @@ import com.datastax.oss.streaming.ai.completions.CompletionsService;
 import com.datastax.oss.streaming.ai.services.ServiceProvider;
 import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
 import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
@@ -80,4 +88,55 @@ class HuggingAIProviderTest {
         assertEquals("answer 1", chatCompletions.getChoices().get(0).getMessage().getContent());
         assertEquals("answer 2", chatCompletions.getChoices().get(1).getMessage().getContent());
     }
+
+    @Test
+    void testRetryWhenRateLimited(WireMockRuntimeInfo wmRuntimeInfo) throws Exception {
+        stubFor(
+                post("/models/bert-base-uncased")
+                        .inScenario("rate-limit")
+                        .whenScenarioStateIs(Scenario.STARTED)
+                        .willReturn(aResponse().withStatus(429).withHeader("retry-after-ms", "10"))
+                        .willSetStateTo("available"));
+        stubFor(
+                post("/models/bert-base-uncased")
+                        .inScenario("rate-limit")
+                        .whenScenarioStateIs("available")
+                        .willReturn(
+                                okJson(
+                                        """
+                      [
+                        {
+                          "token_str": "foo",
+                          "sequence": "answer 1",
+                          "score": 10
+                        }
+                      ]
+                """)));
+        ServiceProvider implementation =
+                ServiceProviderRegistry.getServiceProvider(
+                        Map.of(
+                                "huggingface",
+                                Map.of(
+                                        "inference-url",
+                                        wmRuntimeInfo.getHttpBaseUrl(),
+                                        "access-key",
+                                        "xxxx",
+                                        "requests-per-minute",
+                                        600)),
+                        MetricsReporter.DISABLED);
+        assertInstanceOf(RateLimitedServiceProvider.class, implementation);
+        try {
+            CompletionsService service = implementation.getCompletionsService(Map.of());
+            ChatCompletions chatCompletions =
+                    service.getChatCompletions(
+                                    List.of(new ChatMessage("user").setContent("Hello [MASK].")),
+                                    null,
+                                    Map.of("model", "bert-base-uncased"))
+                            .get();
+            assertEquals("answer 1", chatCompletions.getChoices().get(0).getMessage().getContent());
+            verify(2, postRequestedFor(urlEqualTo("/models/bert-base-uncased")));
+        } finally {
+            implementation.close();
+        }
+    }
 }
@@ -19,12 +19,18 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import ai.langstream.ai.agents.commons.MutableRecord;
+import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.runner.code.SimpleRecord;
+import com.datastax.oss.streaming.ai.embeddings.EmbeddingsCache;
+import com.datastax.oss.streaming.ai.embeddings.EmbeddingsService;
 import com.datastax.oss.streaming.ai.embeddings.MockEmbeddingsService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.apache.avro.generic.GenericData;
 import org.apache.pulsar.client.api.Schema;
 import org.apache.pulsar.client.api.schema.GenericObject;
@@ -185,4 +191,78 @@ public class ComputeAIEmbeddingsTest {
                 {documents_to_retrieve=[{firstName=Jane, lastName=The Princess, newField=[1.0, 2.0, 3.0]}, {firstName=George, lastName=The Prince, newField=[1.0, 5.0, 3.0]}]}""",
                 value.toString());
     }
+
+    @Test
+    void testCacheAndDeduplication() throws Exception {
+        List<List<String>> requests = new ArrayList<>();
+        EmbeddingsService service =
+                texts -> {
+                    requests.add(texts);
+                    return CompletableFuture.completedFuture(
+                            texts.stream()
+                                    .<List<Double>>map(t -> List.of((double) t.length()))
+                                    .toList());
+                };
+        ComputeAIEmbeddingsStep step =
+                new ComputeAIEmbeddingsStep(
+                        "{{ record.text }}",
+                        "record.newField",
+                        "value.documents",
+                        1,
+                        0,
+                        1,
+                        service,
+                        new EmbeddingsCache("model", 10, null, 0, MetricsReporter.DISABLED));
+
+        String value =
+                """
+                {"documents": [{"text": "a"}, {"text": "bb"}, {"text": "a"}]}""";
+        for (int i = 0; i < 2; i++) {
+            MutableRecord mutableRecord =
+                    MutableRecord.recordToMutableRecord(SimpleRecord.of(null, value), true);
+            step.process(mutableRecord);
+            ai.langstream.api.runner.code.Record result =
+                    MutableRecord.mutableRecordToRecord(mutableRecord).orElseThrow();
+            assertEquals(
+                    "{documents=[{newField=[1.0], text=a}, {newField=[2.0], text=bb}, {newField=[1.0], text=a}]}",
+                    result.value().toString());
+        }
+        // the duplicate is sent once, the second record is served by the cache
+        assertEquals(List.of(List.of("a", "bb")), requests);
+    }
+
+    @Test
+    void testBatchMaxTokens() throws Exception {
+        List<List<String>> requests = new CopyOnWriteArrayList<>();
+        EmbeddingsService service =
+                texts -> {
+                    requests.add(texts);
+                    return CompletableFuture.completedFuture(
+                            texts.stream().<List<Double>>map(t -> List.of(1.0)).toList());
+                };
+        ComputeAIEmbeddingsStep step =
+                ComputeAIEmbeddingsStep.builder()
+                        .text("{{ value.text }}")
+                        .embeddingsFieldName("value.embeddings")
+                        .batchSize(10)
+                        .flushInterval(60000)
+                        .concurrency(1)
+                        .embeddingsService(service)
+                        .lengthFunction(String::length)
+                        .batchMaxTokens(5)
+                        .build();
+        step.start();
+        List<CompletableFuture<?>> handles = new ArrayList<>();
+        for (String text : List.of("aaa", "bb", "cccc")) {
+            handles.add(
+                    step.processAsync(
+                            MutableRecord.recordToMutableRecord(
+                                    SimpleRecord.of(null, "{\"text\": \"" + text + "\"}"), true)));
+        }
+        handles.get(1).get();
+        assertEquals(List.of(List.of("aaa", "bb")), requests);
+        step.close();
+        handles.get(2).get();
+        assertEquals(List.of(List.of("aaa", "bb"), List.of("cccc")), requests);
+    }
 }
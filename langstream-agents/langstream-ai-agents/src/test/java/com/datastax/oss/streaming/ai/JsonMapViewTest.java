@@ -0,0 +1,97 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.ai.agents.commons.JsonMapView;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.jupiter.api.Test;
+
+public class JsonMapViewTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void testGenericRecord() throws Exception {
+        GenericRecord genericRecord = Utils.createNestedAvroRecord(3).getAvroRecord();
+        // the arrays in this record are java.util.List, JsonConverter does not handle them
+        Map<String, Object> expected =
+                MAPPER.readValue(
+                        genericRecord.toString(), new TypeReference<Map<String, Object>>() {});
+
+        Map<String, Object> view = JsonMapView.of(genericRecord);
+        assertEquals(expected, view);
+        assertEquals(expected.toString(), view.toString());
+        assertEquals(MAPPER.writeValueAsString(expected), MAPPER.writeValueAsString(view));
+        assertTrue(view.containsKey("level1String"));
+        assertFalse(view.containsKey("random"));
+    }
+
+    @Test
+    void testLogicalTypes() {
+        Schema decimalType =
+                LogicalTypes.decimal(10, 2).addToSchema(Schema.create(Schema.Type.BYTES));
+        Schema dateType = LogicalTypes.date().addToSchema(Schema.create(Schema.Type.INT));
+        Schema timestampType =
+                LogicalTypes.timestampMillis().addToSchema(Schema.create(Schema.Type.LONG));
+        Schema schema =
+                Schema.createRecord(
+                        "logical",
+                        "",
+                        "ns",
+                        false,
+                        List.of(
+                                new Schema.Field("decimal", decimalType),
+                                new Schema.Field("date", dateType),
+                                new Schema.Field("timestamp", timestampType)));
+        GenericRecord genericRecord = new GenericData.Record(schema);
+        genericRecord.put("decimal", new BigDecimal("12.34"));
+        genericRecord.put("date", 19448);
+        genericRecord.put("timestamp", 1680307200000L);
+
+        Map<String, Object> view = JsonMapView.of(genericRecord);
+        assertEquals(new BigDecimal("12.34"), view.get("decimal"));
+        assertEquals(19448, view.get("date"));
+        assertEquals(1680307200000L, view.get("timestamp"));
+    }
+
+    @Test
+    void testJsonNode() throws Exception {
+        JsonNode jsonNode =
+                MAPPER.readTree(
+                        """
+                        {"a": "b", "n": 1, "d": 1.5, "l": [1, {"x": null}], "o": {"t": true}}
+                        """);
+        Map<String, Object> expected =
+                MAPPER.convertValue(jsonNode, new TypeReference<Map<String, Object>>() {});
+
+        Object view = JsonMapView.of(jsonNode);
+        assertEquals(expected, view);
+        assertEquals(expected.toString(), view.toString());
+    }
+}
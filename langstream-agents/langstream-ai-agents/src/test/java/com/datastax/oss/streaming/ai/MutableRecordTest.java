@@ -0,0 +1,203 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.ai.agents.commons.MutableRecord;
+import ai.langstream.ai.agents.commons.jstl.JstlEvaluator;
+import ai.langstream.ai.agents.commons.jstl.JstlFunctions;
+import ai.langstream.ai.agents.commons.jstl.predicate.JstlPredicate;
+import ai.langstream.api.runner.code.Record;
+import ai.langstream.api.runner.code.SimpleRecord;
+import ai.langstream.api.util.FloatVector;
+import ai.langstream.api.util.VectorCodec;
+import com.datastax.oss.streaming.ai.embeddings.MockEmbeddingsService;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class MutableRecordTest {
+
+    @Test
+    void testUntouchedValueIsPassedThrough() throws Exception {
+        byte[] value = "{\"name\": \"foo\"}".getBytes(StandardCharsets.UTF_8);
+        MutableRecord context =
+                MutableRecord.recordToMutableRecord(SimpleRecord.of(null, value), true);
+
+        context.convertMapToStringOrBytes();
+        Record record = MutableRecord.mutableRecordToRecord(context).orElseThrow();
+        assertSame(value, record.value());
+    }
+
+    @Test
+    void testReadOnlyValueIsPassedThrough() throws Exception {
+        String value = "{\"name\": \"foo\"}";
+        MutableRecord context =
+                MutableRecord.recordToMutableRecord(SimpleRecord.of(null, value), true);
+
+        assertTrue(new JstlPredicate("value.name == 'foo'").test(context));
+        assertEquals(Map.of("name", "foo"), context.peekValueObject());
+
+        context.convertMapToStringOrBytes();
+        Record record = MutableRecord.mutableRecordToRecord(context).orElseThrow();
+        assertSame(value, record.value());
+    }
+
+    @Test
+    void testLoggedValueIsPassedThrough() throws Exception {
+        String value = "{\"name\": \"foo\"}";
+        MutableRecord context =
+                MutableRecord.recordToMutableRecord(SimpleRecord.of(null, value), true);
+        MutableRecord other =
+                MutableRecord.recordToMutableRecord(SimpleRecord.of(null, value), true);
+
+        assertTrue(context.toString().contains(value));
+        assertEquals(other, context);
+        assertEquals(other.hashCode(), context.hashCode());
+
+        context.convertMapToStringOrBytes();
+        Record record = MutableRecord.mutableRecordToRecord(context).orElseThrow();
+        assertSame(value, record.value());
+    }
+
+    @Test
+    void testReadOnlyKeyIsPassedThrough() throws Exception {
+        String key = "{\"id\": 1}";
+        MutableRecord context =
+                MutableRecord.recordToMutableRecord(
+                        SimpleRecord.of(key, "{\"name\": \"foo\", \"other\": 1}"), true);
+
+        DropFieldStep.builder().valueFields(List.of("other")).build().process(context);
+        MockEmbeddingsService embeddingsService = new MockEmbeddingsService();
+        embeddingsService.setEmbeddingsForText("foo", List.of(1.0));
+        try (ComputeAIEmbeddingsStep step =
+                new ComputeAIEmbeddingsStep(
+                        "{{ value.name }}",
+                        "value.embeddings",
+                        null,
+                        1,
+                        500,
+                        1,
+                        embeddingsService)) {
+            step.processAsync(context).get();
+        }
+
+        context.convertMapToStringOrBytes();
+        Record record = MutableRecord.mutableRecordToRecord(context).orElseThrow();
+        assertSame(key, record.key());
+        assertEquals("{\"name\":\"foo\",\"embeddings\":[1.0]}", record.value());
+    }
+
+    @Test
+    void testModifiedValueIsSerialized() throws Exception {
+        String value = "{\"name\": \"foo\"}";
+        MutableRecord context =
+                MutableRecord.recordToMutableRecord(SimpleRecord.of(null, value), true);
+
+        context.setResultField("bar", "value.other", null, null, null);
+
+        context.convertMapToStringOrBytes();
+        Record record = MutableRecord.mutableRecordToRecord(context).orElseThrow();
+        assertEquals("{\"name\":\"foo\",\"other\":\"bar\"}", record.value());
+    }
+
+    @Test
+    void testVectorIsSerializedAsArrayOfNumbers() throws Exception {
+        String value = "{\"name\": \"foo\"}";
+        MutableRecord context =
+                MutableRecord.recordToMutableRecord(SimpleRecord.of(null, value), true);
+
+        FloatVector vector = FloatVector.wrap(new float[] {0.1f, 2.5f});
+        context.setResultField(vector, "value.embeddings", null, null, null);
+        assertSame(vector, MutableRecord.safeClone(vector));
+        assertEquals(
+                List.of(0.1f, 2.5f),
+                JstlFunctions.toListOfFloat(
+                        new JstlEvaluator<>("${value.embeddings}", Object.class)
+                                .evaluate(context)));
+
+        context.convertMapToStringOrBytes();
+        Record record = MutableRecord.mutableRecordToRecord(context).orElseThrow();
+        assertEquals("{\"name\":\"foo\",\"embeddings\":[0.1,2.5]}", record.value());
+    }
+
+    @Test
+    void testValueIsNotJson() throws Exception {
+        MutableRecord context =
+                MutableRecord.recordToMutableRecord(SimpleRecord.of("key", "  not json"), true);
+
+        assertEquals("key", context.getKeyObject());
+        assertEquals("  not json", context.getValueObject());
+    }
+
+    @Test
+    void testHeaders() {
+        Record source =
+                SimpleRecord.builder()
+                        .value("value")
+                        .headers(
+                                List.of(
+                                        SimpleRecord.SimpleHeader.of(
+                                                "h1", "v1".getBytes(StandardCharsets.UTF_8)),
+                                        SimpleRecord.SimpleHeader.of("h2", 2)))
+                        .build();
+
+        Record untouched =
+                MutableRecord.mutableRecordToRecord(
+                                MutableRecord.recordToMutableRecord(source, true))
+                        .orElseThrow();
+        assertEquals("v1", untouched.getHeader("h1").valueAsString());
+        assertEquals("2", untouched.getHeader("h2").value());
+
+        MutableRecord context = MutableRecord.recordToMutableRecord(source, true);
+        assertEquals(Map.of("h1", "v1", "h2", "2"), context.getProperties());
+        context.setProperty("h3", "v3");
+        Record modified = MutableRecord.mutableRecordToRecord(context).orElseThrow();
+        assertEquals(3, modified.headers().size());
+        assertEquals("v3", modified.getHeader("h3").value());
+    }
+
+    @Test
+    void testVectorEncodedValueIsDecoded() throws Exception {
+        Map<String, Object> value =
+                Map.of("name", "foo", "embeddings", FloatVector.wrap(new float[] {0.5f, 2.5f}));
+        Record source =
+                SimpleRecord.builder()
+                        .value(VectorCodec.encode(value, VectorCodec.Format.FLOAT32))
+                        .headers(
+                                List.of(
+                                        SimpleRecord.SimpleHeader.of(
+                                                VectorCodec.HEADER,
+                                                VectorCodec.Format.FLOAT32.headerValue()),
+                                        SimpleRecord.SimpleHeader.of("h1", "v1")))
+                        .build();
+
+        MutableRecord context = MutableRecord.recordToMutableRecord(source, true);
+        assertEquals(value, context.peekValueObject());
+        assertTrue(new JstlPredicate("value.name == 'foo'").test(context));
+        assertEquals(Map.of("h1", "v1"), context.getProperties());
+
+        context.convertMapToStringOrBytes();
+        Record record = MutableRecord.mutableRecordToRecord(context).orElseThrow();
+        // the value stays a Map, the producer decides how to write it
+        assertEquals(value, record.value());
+        assertEquals(1, record.headers().size());
+    }
+}
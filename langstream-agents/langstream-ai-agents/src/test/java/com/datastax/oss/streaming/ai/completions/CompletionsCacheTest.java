@@ -0,0 +1,130 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.completions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class CompletionsCacheTest {
+
+    record Streamed(String answerId, int index, String content, boolean last) {}
+
+    @Test
+    void testConcurrentRequestsCollapse() throws Exception {
+        CompletionsCache<String> cache = new CompletionsCache<>(10, 60, MetricsReporter.DISABLED);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        List<Streamed> first = new ArrayList<>();
+        List<Streamed> second = new ArrayList<>();
+
+        CompletableFuture<String> result1 =
+                cache.get(
+                        "key",
+                        (answerId, index, chunk, last) ->
+                                first.add(new Streamed(answerId, index, chunk.content(), last)),
+                        consumer -> {
+                            calls.incrementAndGet();
+                            consumer.consumeChunk("id", 0, () -> "hello", false);
+                            consumer.consumeChunk("id", 1, () -> " world", true);
+                            return pending;
+                        });
+        CompletableFuture<String> result2 =
+                cache.get(
+                        "key",
+                        (answerId, index, chunk, last) ->
+                                second.add(new Streamed(answerId, index, chunk.content(), last)),
+                        consumer -> {
+                            calls.incrementAndGet();
+                            return CompletableFuture.completedFuture("other");
+                        });
+        assertEquals(1, calls.get());
+        assertEquals(2, first.size());
+        assertTrue(second.isEmpty());
+
+        pending.complete("hello world");
+        assertEquals("hello world", result1.get());
+        assertEquals("hello world", result2.get());
+
+        // the chunks are replayed, with a different stream id
+        assertEquals(2, second.size());
+        assertEquals("hello", second.get(0).content());
+        assertEquals(" world", second.get(1).content());
+        assertTrue(second.get(1).last());
+        assertEquals(second.get(0).answerId(), second.get(1).answerId());
+        assertNotEquals("id", second.get(0).answerId());
+    }
+
+    @Test
+    void testTtl() throws Exception {
+        AtomicLong now = new AtomicLong();
+        CompletionsCache<String> cache =
+                new CompletionsCache<>(10, 60, MetricsReporter.DISABLED, now::get);
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals("1", load(cache, "key", calls).get());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertEquals("1", load(cache, "key", calls).get());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertEquals("2", load(cache, "key", calls).get());
+    }
+
+    @Test
+    void testMaxSize() throws Exception {
+        CompletionsCache<String> cache = new CompletionsCache<>(2, 0, MetricsReporter.DISABLED);
+        AtomicInteger calls = new AtomicInteger();
+        load(cache, "a", calls).get();
+        load(cache, "b", calls).get();
+        load(cache, "a", calls).get();
+        load(cache, "c", calls).get();
+        assertEquals(2, cache.size());
+        assertEquals(3, calls.get());
+        // "b" was the least recently used
+        assertEquals("4", load(cache, "b", calls).get());
+        assertEquals("3", load(cache, "c", calls).get());
+    }
+
+    @Test
+    void testErrorsAreNotCached() throws Exception {
+        CompletionsCache<String> cache = new CompletionsCache<>(10, 60, MetricsReporter.DISABLED);
+        CompletableFuture<String> failed =
+                cache.get(
+                        "key",
+                        null,
+                        consumer -> CompletableFuture.failedFuture(new RuntimeException("error")));
+        assertThrows(ExecutionException.class, failed::get);
+        assertEquals(0, cache.size());
+        assertEquals("1", load(cache, "key", new AtomicInteger()).get());
+    }
+
+    private static CompletableFuture<String> load(
+            CompletionsCache<String> cache, String key, AtomicInteger calls) {
+        return cache.get(
+                key,
+                null,
+                consumer -> CompletableFuture.completedFuture(calls.incrementAndGet() + ""));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.embeddings;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+
+class DynamicBatcherTest {
+
+    @Test
+    void testBucket() {
+        assertEquals(0, DynamicBatcher.bucket(0));
+        assertEquals(1, DynamicBatcher.bucket(1));
+        assertEquals(2, DynamicBatcher.bucket(2));
+        assertEquals(2, DynamicBatcher.bucket(3));
+        assertEquals(3, DynamicBatcher.bucket(4));
+        assertEquals(7, DynamicBatcher.bucket(100));
+        assertEquals(7, DynamicBatcher.bucket(127));
+        assertEquals(8, DynamicBatcher.bucket(128));
+    }
+
+    @Test
+    void testBatchesFromManyThreads() throws Exception {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (DynamicBatcher<String, String> batcher =
+                new DynamicBatcher<>(
+                        "test",
+                        16,
+                        50,
+                        String::length,
+                        inputs -> {
+                            batches.add(inputs);
+                            return inputs.stream().map(String::toUpperCase).toList();
+                        })) {
+            List<CompletableFuture<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String text = i % 2 == 0 ? "a" + i : "a long text " + i;
+                results.add(
+                        CompletableFuture.supplyAsync(
+                                        () -> batcher.submit(List.of(text, text + "b")), executor)
+                                .thenCompose(f -> f));
+            }
+            for (int i = 0; i < 8; i++) {
+                String text = i % 2 == 0 ? "a" + i : "a long text " + i;
+                assertEquals(
+                        List.of(text.toUpperCase(), (text + "b").toUpperCase()),
+                        results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // the texts are collected from all the threads and grouped by length
+        assertTrue(batches.size() < 16, "too many batches: " + batches);
+        for (List<String> batch : batches) {
+            int bucket = DynamicBatcher.bucket(batch.get(0).length());
+            for (String text : batch) {
+                assertEquals(bucket, DynamicBatcher.bucket(text.length()));
+            }
+        }
+    }
+
+    @Test
+    void testMaxBatchSize() throws Exception {
+        List<Integer> sizes = new CopyOnWriteArrayList<>();
+        try (DynamicBatcher<String, String> batcher =
+                new DynamicBatcher<>(
+                        "test",
+                        3,
+                        200,
+                        String::length,
+                        inputs -> {
+                            sizes.add(inputs.size());
+                            return inputs;
+                        })) {
+            List<String> texts = List.of("a", "b", "c", "d", "e", "f", "g");
+            assertEquals(texts, batcher.submit(texts).get());
+        }
+        assertEquals(List.of(3, 3, 1), sizes);
+    }
+
+    @Test
+    void testError() throws Exception {
+        try (DynamicBatcher<String, String> batcher =
+                new DynamicBatcher<>(
+                        "test",
+                        10,
+                        0,
+                        String::length,
+                        inputs -> {
+                            if (inputs.contains("bad")) {
+                                throw new IllegalArgumentException("bad input");
+                            }
+                            return inputs;
+                        })) {
+            ExecutionException error =
+                    assertThrows(
+                            ExecutionException.class, () -> batcher.submit(List.of("bad")).get());
+            assertEquals("bad input", error.getCause().getMessage());
+            // the worker is still running
+            assertEquals(List.of("good"), batcher.submit(List.of("good")).get());
+        }
+    }
+}
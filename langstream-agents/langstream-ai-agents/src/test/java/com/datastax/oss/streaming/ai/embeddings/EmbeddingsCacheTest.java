@@ -0,0 +1,138 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.streaming.ai.embeddings;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EmbeddingsCacheTest {
+
+    @Test
+    void testKeyDependsOnModel() throws Exception {
+        try (EmbeddingsCache cache1 =
+                        new EmbeddingsCache("m1", 10, null, 0, MetricsReporter.DISABLED);
+                EmbeddingsCache cache2 =
+                        new EmbeddingsCache("m2", 10, null, 0, MetricsReporter.DISABLED)) {
+            assertEquals(cache1.key("text"), cache1.key("text"));
+            assertNotEquals(cache1.key("text"), cache1.key("other"));
+            assertNotEquals(cache1.key("text"), cache2.key("text"));
+        }
+    }
+
+    @Test
+    void testLRU() throws Exception {
+        try (EmbeddingsCache cache =
+                new EmbeddingsCache("m", 2, null, 0, MetricsReporter.DISABLED)) {
+            cache.put(cache.key("a"), List.of(1.0));
+            cache.put(cache.key("b"), List.of(2.0));
+            assertEquals(List.of(1.0), cache.get(cache.key("a")));
+            cache.put(cache.key("c"), List.of(3.0));
+            assertEquals(2, cache.size());
+            assertNull(cache.get(cache.key("b")));
+            assertEquals(List.of(1.0), cache.get(cache.key("a")));
+            assertEquals(List.of(3.0), cache.get(cache.key("c")));
+        }
+    }
+
+    @Test
+    void testDiskTierSurvivesRestart(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("cache.bin");
+        try (EmbeddingsCache cache =
+                new EmbeddingsCache("m", 1, file, 1024 * 1024, MetricsReporter.DISABLED)) {
+            cache.put(cache.key("a"), List.of(1.0, 2.0));
+            cache.put(cache.key("b"), List.of(3.0));
+            // "a" is evicted from the heap and read from the disk
+            assertEquals(List.of(1.0, 2.0), cache.get(cache.key("a")));
+        }
+        try (EmbeddingsCache cache =
+                new EmbeddingsCache("m", 1, file, 1024 * 1024, MetricsReporter.DISABLED)) {
+            assertEquals(List.of(1.0, 2.0), cache.get(cache.key("a")));
+            assertEquals(List.of(3.0), cache.get(cache.key("b")));
+            assertNull(cache.get(cache.key("c")));
+        }
+    }
+
+    @Test
+    void testDiskTierGenerations(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("cache.bin");
+        // each entry takes 44 bytes, each generation holds 5 entries
+        long size = 16 + 2 * (4 + 5 * 44);
+        try (EmbeddingsCache cache =
+                new EmbeddingsCache("m", 1, file, size, MetricsReporter.DISABLED)) {
+            for (int i = 0; i < 5; i++) {
+                cache.put(cache.key("t" + i), List.of((double) i, (double) i));
+            }
+            // reading "t0" copies it to the new generation
+            cache.put(cache.key("t5"), List.of(5.0, 5.0));
+            cache.clearHeap();
+            assertEquals(List.of(0.0, 0.0), cache.get(cache.key("t0")));
+            for (int i = 6; i < 10; i++) {
+                cache.put(cache.key("t" + i), List.of((double) i, (double) i));
+            }
+            cache.clearHeap();
+            // "t1".."t4" were in the discarded generation
+            assertNull(cache.get(cache.key("t1")));
+            assertEquals(List.of(0.0, 0.0), cache.get(cache.key("t0")));
+            assertEquals(List.of(9.0, 9.0), cache.get(cache.key("t9")));
+        }
+    }
+
+    @Test
+    void testDiskTierDiscardsCorruptedEntries(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("cache.bin");
+        long size = 1024 * 1024;
+        try (EmbeddingsCache cache =
+                new EmbeddingsCache("m", 1, file, size, MetricsReporter.DISABLED)) {
+            cache.put(cache.key("a"), List.of(1.0, 2.0));
+            cache.put(cache.key("b"), List.of(3.0));
+            cache.put(cache.key("c"), List.of(4.0));
+        }
+        // the dimension of "b", after the file header, the segment header and "a" (44 bytes)
+        // an int overflow would make this entry look 40 bytes long
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(16 + 4 + 44 + 32);
+            raf.writeInt(0x40000001);
+        }
+        try (EmbeddingsCache cache =
+                new EmbeddingsCache("m", 1, file, size, MetricsReporter.DISABLED)) {
+            assertEquals(List.of(1.0, 2.0), cache.get(cache.key("a")));
+            assertNull(cache.get(cache.key("b")));
+            assertNull(cache.get(cache.key("c")));
+            // the segment has been truncated after "a", the new entries are appended there
+            cache.put(cache.key("d"), List.of(5.0));
+            cache.clearHeap();
+            assertEquals(List.of(5.0), cache.get(cache.key("d")));
+        }
+        // a segment that ends in the middle of the header of an entry
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(16);
+            raf.writeInt(4 + 44 + 34);
+        }
+        try (EmbeddingsCache cache =
+                new EmbeddingsCache("m", 1, file, size, MetricsReporter.DISABLED)) {
+            assertEquals(List.of(1.0, 2.0), cache.get(cache.key("a")));
+            assertNull(cache.get(cache.key("d")));
+        }
+    }
+}
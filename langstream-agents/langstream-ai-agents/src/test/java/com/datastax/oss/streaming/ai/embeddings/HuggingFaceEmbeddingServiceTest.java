@@ -17,8 +17,13 @@ package com.datastax.oss.streaming.ai.embeddings;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 @Slf4j
@@ -42,4 +47,72 @@ public class HuggingFaceEmbeddingServiceTest {
             assertEquals(List.of(384), List.of(lists.get(1).size()));
         }
     }
+
+    /**
+     * Compares the throughput of the predictor per thread with the micro-batching, and checks that
+     * the padding does not change the embeddings. It downloads the model and takes minutes, run it
+     * manually.
+     */
+    @Test
+    @Disabled("Benchmark, it downloads the model from the DJL repository")
+    public void benchmarkMicroBatching() throws Exception {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 512; i++) {
+            texts.add(
+                    "This is the sentence number "
+                            + i
+                            + " ".repeat(i % 7)
+                            + "of the benchmark".repeat(1 + i % 5));
+        }
+        List<List<Double>> expected = runBenchmark("one text at a time", 0, texts);
+        List<List<Double>> actual = runBenchmark("micro-batching", 32, texts);
+        for (int i = 0; i < texts.size(); i++) {
+            List<Double> a = expected.get(i);
+            List<Double> b = actual.get(i);
+            for (int j = 0; j < a.size(); j++) {
+                assertEquals(a.get(j), b.get(j), 1e-3);
+            }
+        }
+    }
+
+    private static List<List<Double>> runBenchmark(
+            String name, int microBatchSize, List<String> texts) throws Exception {
+        AbstractHuggingFaceEmbeddingService.HuggingFaceConfig conf =
+                AbstractHuggingFaceEmbeddingService.HuggingFaceConfig.builder()
+                        .engine("PyTorch")
+                        .modelName("multilingual-e5-small")
+                        .modelUrl("djl://ai.djl.huggingface.pytorch/intfloat/multilingual-e5-small")
+                        .microBatchSize(microBatchSize)
+                        .build();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (EmbeddingsService service = new HuggingFaceEmbeddingService(conf)) {
+            // warm up
+            service.computeEmbeddings(texts.subList(0, threads)).get();
+            long start = System.nanoTime();
+            List<CompletableFuture<List<List<Double>>>> results = new ArrayList<>();
+            for (int i = 0; i < texts.size(); i += 4) {
+                List<String> batch = texts.subList(i, Math.min(i + 4, texts.size()));
+                results.add(
+                        CompletableFuture.supplyAsync(
+                                        () -> service.computeEmbeddings(batch), executor)
+                                .thenCompose(f -> f));
+            }
+            List<List<Double>> embeddings = new ArrayList<>();
+            for (CompletableFuture<List<List<Double>>> result : results) {
+                embeddings.addAll(result.get());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            int cores = Runtime.getRuntime().availableProcessors();
+            log.info(
+                    "{}: {} texts/s, {} texts/s per core ({} cores)",
+                    name,
+                    String.format("%.1f", texts.size() / seconds),
+                    String.format("%.1f", texts.size() / seconds / cores),
+                    cores);
+            return embeddings;
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
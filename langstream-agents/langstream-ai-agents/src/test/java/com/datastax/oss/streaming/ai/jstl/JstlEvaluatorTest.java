@@ -27,6 +27,11 @@ import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.pulsar.client.api.Schema;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -65,6 +70,35 @@ public class JstlEvaluatorTest {
         assertEquals("test-message", value);
     }
 
+    @Test
+    void testConcurrentEvaluations() throws Exception {
+        JstlEvaluator<String> evaluator =
+                new JstlEvaluator<>("${fn:uppercase(value)}", String.class);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    for (int j = 0; j < 1000; j++) {
+                                        String message = "message-" + j;
+                                        MutableRecord context =
+                                                Utils.createContextWithPrimitiveRecord(
+                                                        Schema.STRING, message, "");
+                                        assertEquals(
+                                                message.toUpperCase(), evaluator.evaluate(context));
+                                    }
+                                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     void testLength() {
         MutableRecord primitiveStringContext =
@@ -47,6 +47,20 @@ public class JstlPredicateTest {
         assertEquals(predicate.test(mutableRecord), match);
     }
 
+    @ParameterizedTest
+    @MethodSource("keyValuePredicates")
+    void testKeyValueAvroWithoutDirectAccessor(String when, boolean match) {
+        // the parentheses are not handled by the direct accessor, so the EL engine is used
+        JstlPredicate predicate = new JstlPredicate("(" + when + ")");
+
+        Record<GenericObject> record = Utils.createNestedAvroKeyValueRecord(2);
+        Utils.TestContext context = new Utils.TestContext(record, new HashMap<>());
+        MutableRecord mutableRecord =
+                newTransformContext(context, record.getValue().getNativeObject());
+
+        assertEquals(predicate.test(mutableRecord), match);
+    }
+
     @Test
     void testInvalidWhen() {
         assertEquals(
@@ -172,7 +186,11 @@ public class JstlPredicateTest {
             {"messageKey == 'key2'", false},
             {"topicName != 'topic-1'", false},
             {"properties.p2 == 'v3'", false},
-            {"randomHeader == 'h1'", false}
+            {"randomHeader == 'h1'", false},
+            // a missing field is coerced to false
+            {"value.missing", false},
+            {"key.missing", false},
+            {"value.level1Record.missing", false}
         };
     }
 }
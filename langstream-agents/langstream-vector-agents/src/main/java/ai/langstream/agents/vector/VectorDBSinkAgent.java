@@ -19,7 +19,9 @@ import ai.langstream.api.database.VectorDatabaseWriter;
 import ai.langstream.api.database.VectorDatabaseWriterProviderRegistry;
 import ai.langstream.api.runner.code.AbstractAgentCode;
 import ai.langstream.api.runner.code.AgentSink;
+import ai.langstream.api.runner.code.BatchResult;
 import ai.langstream.api.runner.code.Record;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
@@ -53,4 +55,20 @@ public class VectorDBSinkAgent extends AbstractAgentCode implements AgentSink {
         Map<String, Object> context = Map.of();
         return writer.upsert(record, context).thenRun(() -> processed(1, 0));
     }
+
+    @Override
+    public boolean supportsBatchWrite() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<BatchResult> write(List<Record> records) {
+        Map<String, Object> context = Map.of();
+        return writer.upsert(records, context)
+                .thenApply(
+                        result -> {
+                            processed(result.successCount(), 0);
+                            return result;
+                        });
+    }
 }
@@ -22,15 +22,20 @@ import ai.langstream.ai.agents.commons.jstl.JstlEvaluator;
 import ai.langstream.ai.agents.commons.jstl.JstlFunctions;
 import ai.langstream.api.database.VectorDatabaseWriter;
 import ai.langstream.api.database.VectorDatabaseWriterProvider;
+import ai.langstream.api.runner.code.BatchResult;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.util.ConfigurationUtils;
 import io.stargate.sdk.json.CollectionClient;
 import io.stargate.sdk.json.domain.JsonDocument;
 import io.stargate.sdk.json.domain.UpdateQuery;
 import io.stargate.sdk.json.exception.ApiException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
@@ -51,6 +56,9 @@ public class AstraVectorDBWriter implements VectorDatabaseWriterProvider {
 
     private static class AstraCollectionsDatabaseWriter implements VectorDatabaseWriter {
 
+        // the limit of the JSON API
+        private static final int MAX_DOCUMENTS_PER_INSERT = 20;
+
         AstraVectorDBDataSource dataSource;
         private final Map<String, Object> datasourceConfig;
         private String collectionName;
@@ -83,78 +91,163 @@ public class AstraVectorDBWriter implements VectorDatabaseWriterProvider {
 
         @Override
         public CompletableFuture<?> upsert(Record record, Map<String, Object> context) {
-            MutableRecord mutableRecord = recordToMutableRecord(record, true);
-            JsonDocument document = new JsonDocument();
             try {
-                computeFields(
-                        mutableRecord,
-                        fields,
-                        (name, value) -> {
-                            if (value != null) {
-                                if (log.isDebugEnabled()) {
-                                    log.debug(
-                                            "setting value {} ({}) for field {}",
-                                            value,
-                                            value.getClass(),
-                                            name);
-                                }
-                                switch (name) {
-                                    case "vector":
-                                        document.vector(JstlFunctions.toArrayOfFloat(value));
-                                        break;
-                                    case "id":
-                                        document.id(value.toString());
-                                        break;
-                                    case "data":
-                                        document.data(value);
-                                        break;
-                                    default:
-                                        document.put(name, value);
-                                        break;
-                                }
-                            }
-                        });
-                // ensure that we always have an ID
-                if (document.getId() == null) {
-                    document.setId(UUID.randomUUID().toString());
+                return CompletableFuture.completedFuture(write(record, buildDocument(record)));
+            } catch (Throwable e) {
+                log.error("Error while inserting record {}", record, e);
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        /**
+         * Inserts the documents with insertMany, up to {@link #MAX_DOCUMENTS_PER_INSERT} per
+         * request. The deletions are sent one by one. When a request fails, for instance because
+         * some of the documents already exist, its documents are upserted one by one.
+         */
+        @Override
+        public CompletableFuture<BatchResult> upsert(
+                List<Record> records, Map<String, Object> context) {
+            Map<Integer, Throwable> errors = new HashMap<>();
+            List<Integer> positions = new ArrayList<>();
+            List<JsonDocument> documents = new ArrayList<>();
+            Set<String> ids = new HashSet<>();
+            for (int position = 0; position < records.size(); position++) {
+                Record record = records.get(position);
+                JsonDocument document;
+                try {
+                    document = buildDocument(record);
+                } catch (Throwable e) {
+                    log.error("Error while inserting record {}", record, e);
+                    errors.put(position, e);
+                    continue;
                 }
-                if (record.value() == null) {
-                    int count = collection.deleteById(document.getId());
-                    if (log.isDebugEnabled()) {
-                        if (count > 0) {
-                            log.debug("Deleted document with id {}", document.getId());
-                        } else {
-                            log.debug("No document with id {} to delete", document.getId());
-                        }
-                    }
-                    return CompletableFuture.completedFuture(document.getId());
+                boolean delete = record.value() == null;
+                if (delete
+                        || ids.contains(document.getId())
+                        || documents.size() == MAX_DOCUMENTS_PER_INSERT) {
+                    // keep the order of the writes of the same document
+                    insertMany(records, positions, documents, errors);
+                    ids.clear();
+                }
+                if (delete) {
+                    write(records, position, document, errors);
                 } else {
+                    positions.add(position);
+                    documents.add(document);
+                    ids.add(document.getId());
+                }
+            }
+            insertMany(records, positions, documents, errors);
+            return CompletableFuture.completedFuture(new BatchResult(records.size(), errors));
+        }
 
-                    try {
-                        String id = collection.insertOne(document);
-                        if (log.isDebugEnabled()) {
-                            log.debug("Inserted document with id {}", id);
-                        }
-                        return CompletableFuture.completedFuture(id);
-                    } catch (ApiException e) {
-                        if ("DOCUMENT_ALREADY_EXISTS".equals(e.getErrorCode())) {
-                            collection. // Already Exist
-                                    findOneAndReplace(
-                                    UpdateQuery.builder()
-                                            .where("_id")
-                                            .isEqualsTo(document.getId())
-                                            .replaceBy(document)
-                                            .build());
-                            return CompletableFuture.completedFuture(document.getId());
-                        } else {
-                            return CompletableFuture.failedFuture(e);
-                        }
-                    }
+        private void insertMany(
+                List<Record> records,
+                List<Integer> positions,
+                List<JsonDocument> documents,
+                Map<Integer, Throwable> errors) {
+            if (documents.isEmpty()) {
+                return;
+            }
+            try {
+                List<String> ids = collection.insertMany(documents);
+                if (log.isDebugEnabled()) {
+                    log.debug("Inserted documents with ids {}", ids);
+                }
+            } catch (RuntimeException e) {
+                log.debug(
+                        "Cannot insert {} documents, upserting them one by one",
+                        documents.size(),
+                        e);
+                for (int i = 0; i < documents.size(); i++) {
+                    write(records, positions.get(i), documents.get(i), errors);
                 }
+            }
+            positions.clear();
+            documents.clear();
+        }
 
+        private void write(
+                List<Record> records,
+                int position,
+                JsonDocument document,
+                Map<Integer, Throwable> errors) {
+            try {
+                write(records.get(position), document);
             } catch (Throwable e) {
                 log.error("Error while inserting document {}", document, e);
-                return CompletableFuture.failedFuture(e);
+                errors.put(position, e);
+            }
+        }
+
+        private JsonDocument buildDocument(Record record) {
+            MutableRecord mutableRecord = recordToMutableRecord(record, true);
+            JsonDocument document = new JsonDocument();
+            computeFields(
+                    mutableRecord,
+                    fields,
+                    (name, value) -> {
+                        if (value != null) {
+                            if (log.isDebugEnabled()) {
+                                log.debug(
+                                        "setting value {} ({}) for field {}",
+                                        value,
+                                        value.getClass(),
+                                        name);
+                            }
+                            switch (name) {
+                                case "vector":
+                                    document.vector(JstlFunctions.toArrayOfFloat(value));
+                                    break;
+                                case "id":
+                                    document.id(value.toString());
+                                    break;
+                                case "data":
+                                    document.data(value);
+                                    break;
+                                default:
+                                    document.put(name, value);
+                                    break;
+                            }
+                        }
+                    });
+            // ensure that we always have an ID
+            if (document.getId() == null) {
+                document.setId(UUID.randomUUID().toString());
+            }
+            return document;
+        }
+
+        private String write(Record record, JsonDocument document) {
+            if (record.value() == null) {
+                int count = collection.deleteById(document.getId());
+                if (log.isDebugEnabled()) {
+                    if (count > 0) {
+                        log.debug("Deleted document with id {}", document.getId());
+                    } else {
+                        log.debug("No document with id {} to delete", document.getId());
+                    }
+                }
+                return document.getId();
+            }
+            try {
+                String id = collection.insertOne(document);
+                if (log.isDebugEnabled()) {
+                    log.debug("Inserted document with id {}", id);
+                }
+                return id;
+            } catch (ApiException e) {
+                if ("DOCUMENT_ALREADY_EXISTS".equals(e.getErrorCode())) {
+                    collection. // Already Exist
+                            findOneAndReplace(
+                            UpdateQuery.builder()
+                                    .where("_id")
+                                    .isEqualsTo(document.getId())
+                                    .replaceBy(document)
+                                    .build());
+                    return document.getId();
+                }
+                throw e;
             }
         }
 
@@ -17,6 +17,7 @@ package ai.langstream.agents.vector.cassandra;
 
 import ai.langstream.api.database.VectorDatabaseWriter;
 import ai.langstream.api.database.VectorDatabaseWriterProvider;
+import ai.langstream.api.runner.code.BatchResult;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.util.ConfigurationUtils;
 import com.datastax.oss.common.sink.AbstractField;
@@ -29,6 +30,7 @@ import com.datastax.oss.common.sink.util.SinkUtil;
 import com.datastax.oss.streaming.ai.datasource.CassandraDataSource;
 import com.dtsx.astra.sdk.db.DbOpsClient;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
@@ -182,7 +184,8 @@ public class CassandraWriter implements VectorDatabaseWriterProvider {
             processor.start(configuration);
         }
 
-        private final Map<Record, CompletableFuture<?>> currentRecordStatus =
+        // the adapters don't override equals, so the same record can be written twice in a batch
+        private final Map<LangStreamSinkRecordAdapter, CompletableFuture<?>> currentRecordStatus =
                 new ConcurrentHashMap<>();
 
         @Override
@@ -190,11 +193,41 @@ public class CassandraWriter implements VectorDatabaseWriterProvider {
             // we must handle one record at a time
             // so we block until the record is processed
             CompletableFuture<?> handle = new CompletableFuture();
-            currentRecordStatus.put(record, handle);
-            processor.put(List.of(new LangStreamSinkRecordAdapter(record)));
+            LangStreamSinkRecordAdapter adapter = new LangStreamSinkRecordAdapter(record);
+            currentRecordStatus.put(adapter, handle);
+            processor.put(List.of(adapter));
             return handle;
         }
 
+        /**
+         * The sink task writes the records in parallel and groups the records of the same partition
+         * in CQL batches, so the whole batch is passed to a single put.
+         */
+        @Override
+        public CompletableFuture<BatchResult> upsert(
+                List<Record> records, Map<String, Object> context) {
+            List<AbstractSinkRecord> adapters = new ArrayList<>(records.size());
+            List<CompletableFuture<?>> handles = new ArrayList<>(records.size());
+            for (Record record : records) {
+                LangStreamSinkRecordAdapter adapter = new LangStreamSinkRecordAdapter(record);
+                CompletableFuture<?> handle = new CompletableFuture<>();
+                currentRecordStatus.put(adapter, handle);
+                adapters.add(adapter);
+                handles.add(handle);
+            }
+            try {
+                processor.put(adapters);
+            } catch (RuntimeException e) {
+                for (AbstractSinkRecord adapter : adapters) {
+                    CompletableFuture<?> handle = currentRecordStatus.remove(adapter);
+                    if (handle != null) {
+                        handle.completeExceptionally(e);
+                    }
+                }
+            }
+            return BatchResult.collect(handles);
+        }
+
         @Override
         public void close() {
             processor.stop();
@@ -213,8 +246,7 @@ public class CassandraWriter implements VectorDatabaseWriterProvider {
 
             @Override
             protected void handleSuccess(AbstractSinkRecord abstractRecord) {
-                Record record = ((LangStreamSinkRecordAdapter) abstractRecord).getRecord();
-                CompletableFuture<?> remove = currentRecordStatus.remove(record);
+                CompletableFuture<?> remove = currentRecordStatus.remove(abstractRecord);
                 remove.complete(null);
             }
 
@@ -249,7 +281,7 @@ public class CassandraWriter implements VectorDatabaseWriterProvider {
                     log.warn("Error decoding/mapping Kafka record {}: {}", record, e.getMessage());
                 }
 
-                CompletableFuture<?> remove = currentRecordStatus.remove(record);
+                CompletableFuture<?> remove = currentRecordStatus.remove(abstractRecord);
 
                 if (ignoreErrors == CassandraSinkConfig.IgnoreErrorsPolicy.NONE
                         || (ignoreErrors == CassandraSinkConfig.IgnoreErrorsPolicy.DRIVER
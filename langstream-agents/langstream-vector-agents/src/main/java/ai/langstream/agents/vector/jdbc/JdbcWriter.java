@@ -22,14 +22,20 @@ import ai.langstream.ai.agents.commons.jstl.JstlEvaluator;
 import ai.langstream.ai.agents.datasource.impl.JdbcDataSourceProvider;
 import ai.langstream.api.database.VectorDatabaseWriter;
 import ai.langstream.api.database.VectorDatabaseWriterProvider;
+import ai.langstream.api.runner.code.BatchResult;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.util.ConfigurationUtils;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 
@@ -141,36 +147,7 @@ public class JdbcWriter implements VectorDatabaseWriterProvider {
                 Record record, Map<String, Object> context) {
             CompletableFuture<?> handle = new CompletableFuture<>();
             try {
-                MutableRecord mutableRecord = recordToMutableRecord(record, true);
-
-                List<Object> primaryKeyValues = prepareValueList(mutableRecord, primaryKey);
-                List<Object> otherValues = prepareValueList(mutableRecord, columns);
-                if (record.value() != null) {
-                    int i = 1;
-                    for (Object value : otherValues) {
-                        update.setObject(i++, value);
-                    }
-                    for (Object value : primaryKeyValues) {
-                        update.setObject(i++, value);
-                    }
-                    int count = update.executeUpdate();
-                    if (count == 0) {
-                        i = 1;
-                        for (Object value : primaryKeyValues) {
-                            insert.setObject(i++, value);
-                        }
-                        for (Object value : otherValues) {
-                            insert.setObject(i++, value);
-                        }
-                        insert.executeUpdate();
-                    }
-                } else {
-                    int i = 1;
-                    for (Object value : primaryKeyValues) {
-                        delete.setObject(i++, value);
-                    }
-                    delete.executeUpdate();
-                }
+                write(prepare(0, record));
                 handle.complete(null);
             } catch (Exception e) {
                 handle.completeExceptionally(e);
@@ -178,6 +155,159 @@ public class JdbcWriter implements VectorDatabaseWriterProvider {
             return handle;
         }
 
+        /**
+         * Writes the records with JDBC batches: first the updates and the deletes, then the inserts
+         * of the rows that were not updated. When the same row appears more than once the batch is
+         * split, so the writes of the row are applied in order. If a JDBC batch fails its records
+         * are written one by one, the upserts are idempotent.
+         */
+        @Override
+        public synchronized CompletableFuture<BatchResult> upsert(
+                List<Record> records, Map<String, Object> context) {
+            Map<Integer, Throwable> errors = new HashMap<>();
+            List<PreparedRecord> batch = new ArrayList<>();
+            Set<List<Object>> batchPrimaryKeys = new HashSet<>();
+            for (int position = 0; position < records.size(); position++) {
+                PreparedRecord prepared;
+                try {
+                    prepared = prepare(position, records.get(position));
+                } catch (Exception e) {
+                    errors.put(position, e);
+                    continue;
+                }
+                if (!batchPrimaryKeys.add(prepared.primaryKeyValues())) {
+                    writeBatch(batch, errors);
+                    batch.clear();
+                    batchPrimaryKeys.clear();
+                    batchPrimaryKeys.add(prepared.primaryKeyValues());
+                }
+                batch.add(prepared);
+            }
+            writeBatch(batch, errors);
+            return CompletableFuture.completedFuture(new BatchResult(records.size(), errors));
+        }
+
+        private record PreparedRecord(
+                int position,
+                boolean delete,
+                List<Object> primaryKeyValues,
+                List<Object> otherValues) {}
+
+        private PreparedRecord prepare(int position, Record record) {
+            MutableRecord mutableRecord = recordToMutableRecord(record, true);
+            return new PreparedRecord(
+                    position,
+                    record.value() == null,
+                    prepareValueList(mutableRecord, primaryKey),
+                    prepareValueList(mutableRecord, columns));
+        }
+
+        private void write(PreparedRecord record) throws SQLException {
+            if (record.delete()) {
+                bindDelete(record);
+                delete.executeUpdate();
+                return;
+            }
+            bindUpdate(record);
+            int count = update.executeUpdate();
+            if (count == 0) {
+                bindInsert(record);
+                insert.executeUpdate();
+            }
+        }
+
+        private void writeBatch(List<PreparedRecord> batch, Map<Integer, Throwable> errors) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                List<PreparedRecord> updates = new ArrayList<>();
+                boolean deletes = false;
+                for (PreparedRecord record : batch) {
+                    if (record.delete()) {
+                        bindDelete(record);
+                        delete.addBatch();
+                        deletes = true;
+                    } else {
+                        bindUpdate(record);
+                        update.addBatch();
+                        updates.add(record);
+                    }
+                }
+                List<PreparedRecord> inserts = new ArrayList<>();
+                List<PreparedRecord> unknown = new ArrayList<>();
+                if (!updates.isEmpty()) {
+                    int[] counts = update.executeBatch();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] == 0) {
+                            inserts.add(updates.get(i));
+                        } else if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                            // the driver doesn't tell if the row exists
+                            unknown.add(updates.get(i));
+                        }
+                    }
+                }
+                if (deletes) {
+                    delete.executeBatch();
+                }
+                for (PreparedRecord record : inserts) {
+                    bindInsert(record);
+                    insert.addBatch();
+                }
+                if (!inserts.isEmpty()) {
+                    insert.executeBatch();
+                }
+                writeOneByOne(unknown, errors);
+            } catch (SQLException e) {
+                log.warn("Batch of {} records failed, writing them one by one", batch.size(), e);
+                try {
+                    update.clearBatch();
+                    delete.clearBatch();
+                    insert.clearBatch();
+                } catch (SQLException clearError) {
+                    log.debug("Cannot clear the batches", clearError);
+                }
+                writeOneByOne(batch, errors);
+            }
+        }
+
+        private void writeOneByOne(List<PreparedRecord> records, Map<Integer, Throwable> errors) {
+            for (PreparedRecord record : records) {
+                try {
+                    write(record);
+                } catch (Exception e) {
+                    errors.put(record.position(), e);
+                }
+            }
+        }
+
+        private void bindUpdate(PreparedRecord record) throws SQLException {
+            int i = 1;
+            for (Object value : record.otherValues()) {
+                update.setObject(i++, value);
+            }
+            for (Object value : record.primaryKeyValues()) {
+                update.setObject(i++, value);
+            }
+        }
+
+        private void bindInsert(PreparedRecord record) throws SQLException {
+            int i = 1;
+            for (Object value : record.primaryKeyValues()) {
+                insert.setObject(i++, value);
+            }
+            for (Object value : record.otherValues()) {
+                insert.setObject(i++, value);
+            }
+        }
+
+        private void bindDelete(PreparedRecord record) throws SQLException {
+            int i = 1;
+            for (Object value : record.primaryKeyValues()) {
+                delete.setObject(i++, value);
+            }
+        }
+
         private List<Object> prepareValueList(
                 MutableRecord mutableRecord, Map<String, JstlEvaluator> primaryKey) {
             List<Object> result = new ArrayList<>();
@@ -25,6 +25,7 @@ import ai.langstream.ai.agents.datasource.impl.JdbcDataSourceProvider;
 import ai.langstream.api.model.AssetDefinition;
 import ai.langstream.api.runner.assets.AssetManager;
 import ai.langstream.api.runner.assets.AssetManagerProvider;
+import ai.langstream.api.runner.code.BatchResult;
 import ai.langstream.api.runner.code.SimpleRecord;
 import java.util.ArrayList;
 import java.util.List;
@@ -46,6 +47,12 @@ public class JdbcWriterTest {
 
     static final String DROP_TABLE = "DROP TABLE DOCUMENTS";
 
+    private static SimpleRecord documentRecord(int chunkId, String text, String vector) {
+        return SimpleRecord.of(
+                "{\"name\": \"doc2\", \"chunk_id\": %d}".formatted(chunkId),
+                "{\"vector\": %s, \"text\": \"%s\"}".formatted(vector, text));
+    }
+
     @Test
     void testWrite() throws Exception {
         JdbcDataSourceProvider dataSourceProvider = new JdbcDataSourceProvider();
@@ -169,6 +176,26 @@ public class JdbcWriterTest {
                 log.info("Results: {}", results3);
                 assertEquals(0, results3.size());
 
+                // the second write of the same row goes to a later JDBC batch
+                BatchResult batchResult =
+                        writer.upsert(
+                                        List.of(
+                                                documentRecord(2, "first", vectorAsString),
+                                                documentRecord(3, "other", vectorAsString),
+                                                documentRecord(2, "second", vector2AsString),
+                                                SimpleRecord.of(
+                                                        "{\"name\": \"doc2\", \"chunk_id\": 3}",
+                                                        null)),
+                                        Map.of())
+                                .get();
+                assertTrue(batchResult.isSuccess());
+                List<Map<String, Object>> results4 =
+                        datasource.fetchData("SELECT chunk_id,text from documents", List.of());
+                log.info("Results: {}", results4);
+                assertEquals(1, results4.size());
+                assertEquals(2, results4.get(0).get("chunk_id"));
+                assertEquals("second", results4.get(0).get("text"));
+
                 assertTrue(tableManager.assetExists());
                 tableManager.deleteAssetIfExists();
             }
@@ -21,6 +21,8 @@ import ai.langstream.api.runner.code.Header;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runtime.ClusterRuntimeRegistry;
 import ai.langstream.api.storage.ApplicationStore;
+import ai.langstream.api.util.HttpClientRegistry;
+import ai.langstream.api.util.SharedHttpClient;
 import ai.langstream.apigateway.api.ProduceRequest;
 import ai.langstream.apigateway.api.ProduceResponse;
 import ai.langstream.apigateway.gateways.ConsumeGateway;
@@ -34,7 +36,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.NotBlank;
 import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
@@ -83,11 +84,7 @@ public class GatewayResource {
     private final TopicProducerCache topicProducerCache;
     private final ApplicationStore applicationStore;
     private final GatewayRequestHandler gatewayRequestHandler;
-    private final ExecutorService httpClientThreadPool =
-            Executors.newCachedThreadPool(
-                    new BasicThreadFactory.Builder().namingPattern("http-client-%d").build());
-    private final HttpClient httpClient =
-            HttpClient.newBuilder().executor(httpClientThreadPool).build();
+    private final SharedHttpClient httpClient = HttpClientRegistry.get();
     private final ExecutorService consumeThreadPool =
             Executors.newCachedThreadPool(
                     new BasicThreadFactory.Builder().namingPattern("http-consume-%d").build());
@@ -350,7 +347,6 @@ public class GatewayResource {
 
             final HttpRequest.Builder requestBuilder =
                     HttpRequest.newBuilder(uri)
-                            .version(HttpClient.Version.HTTP_1_1)
                             .method(
                                     method,
                                     HttpRequest.BodyPublishers.ofInputStream(
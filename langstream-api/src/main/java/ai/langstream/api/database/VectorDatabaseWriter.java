@@ -15,7 +15,10 @@
  */
 package ai.langstream.api.database;
 
+import ai.langstream.api.runner.code.BatchResult;
 import ai.langstream.api.runner.code.Record;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -35,5 +38,22 @@ public interface VectorDatabaseWriter extends AutoCloseable {
      */
     CompletableFuture<?> upsert(Record record, Map<String, Object> context);
 
+    /**
+     * Update a batch of records. The default implementation upserts the records one by one, the
+     * writers that buffer the records internally can rely on it.
+     *
+     * @param records the records
+     * @param context additional context
+     * @return the outcome of each record, by position in the batch
+     */
+    default CompletableFuture<BatchResult> upsert(
+            List<Record> records, Map<String, Object> context) {
+        List<CompletableFuture<?>> writes = new ArrayList<>(records.size());
+        for (Record record : records) {
+            writes.add(upsert(record, context));
+        }
+        return BatchResult.collect(writes);
+    }
+
     default void close() throws Exception {}
 }
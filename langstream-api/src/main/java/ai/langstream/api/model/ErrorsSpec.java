@@ -15,6 +15,7 @@
  */
 package ai.langstream.api.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -34,6 +35,29 @@ public class ErrorsSpec {
 
     private Integer retries;
 
+    /** Delay before the first retry, doubled (see retryBackoffMultiplier) at each attempt. */
+    @JsonProperty("retry-initial-backoff-ms")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long retryInitialBackoffMs;
+
+    /** Upper bound of the delay between two retries. */
+    @JsonProperty("retry-max-backoff-ms")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long retryMaxBackoffMs;
+
+    @JsonProperty("retry-backoff-multiplier")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double retryBackoffMultiplier;
+
+    /** Random fraction (0..1) of the delay added or removed, to spread the retries. */
+    @JsonProperty("retry-jitter")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double retryJitter;
+
+    public ErrorsSpec(String onFailure, Integer retries) {
+        this(onFailure, retries, null, null, null, null);
+    }
+
     public static final ErrorsSpec DEFAULT = new ErrorsSpec(FAIL, 0);
 
     public ErrorsSpec withDefaultsFrom(ErrorsSpec higherLevel) {
@@ -42,6 +66,16 @@ public class ErrorsSpec {
         }
         String newOnFailure = onFailure == null ? higherLevel.getOnFailure() : onFailure;
         Integer newRetries = retries == null ? higherLevel.getRetries() : retries;
-        return new ErrorsSpec(newOnFailure, newRetries);
+        return new ErrorsSpec(
+                newOnFailure,
+                newRetries,
+                retryInitialBackoffMs == null
+                        ? higherLevel.getRetryInitialBackoffMs()
+                        : retryInitialBackoffMs,
+                retryMaxBackoffMs == null ? higherLevel.getRetryMaxBackoffMs() : retryMaxBackoffMs,
+                retryBackoffMultiplier == null
+                        ? higherLevel.getRetryBackoffMultiplier()
+                        : retryBackoffMultiplier,
+                retryJitter == null ? higherLevel.getRetryJitter() : retryJitter);
     }
 }
@@ -16,12 +16,23 @@
 package ai.langstream.api.model;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 /** Definition of the resources required by the agent. */
-public record ResourcesSpec(Integer parallelism, Integer size, DiskSpec disk) {
+public record ResourcesSpec(
+        Integer parallelism,
+        Integer size,
+        DiskSpec disk,
+        @JsonProperty("max-in-flight-records") Integer maxInFlightRecords,
+        @JsonProperty("max-in-flight-bytes") String maxInFlightBytes,
+        Integer lanes) {
 
-    public static ResourcesSpec DEFAULT = new ResourcesSpec(1, 1, null);
+    public static ResourcesSpec DEFAULT = new ResourcesSpec(1, 1, null, null, null, null);
+
+    public ResourcesSpec(Integer parallelism, Integer size, DiskSpec disk) {
+        this(parallelism, size, disk, null, null, null);
+    }
 
     public ResourcesSpec withDefaultsFrom(ResourcesSpec higherLevel) {
         if (higherLevel == null) {
@@ -31,6 +42,17 @@ public record ResourcesSpec(Integer parallelism, Integer size, DiskSpec disk) {
         Integer newUnits = size == null ? higherLevel.size() : size;
         DiskSpec newDisk =
                 disk == null ? higherLevel.disk() : disk.withDefaultsFrom(higherLevel.disk);
-        return new ResourcesSpec(newParallelism, newUnits, newDisk);
+        Integer newMaxInFlightRecords =
+                maxInFlightRecords == null ? higherLevel.maxInFlightRecords() : maxInFlightRecords;
+        String newMaxInFlightBytes =
+                maxInFlightBytes == null ? higherLevel.maxInFlightBytes() : maxInFlightBytes;
+        Integer newLanes = lanes == null ? higherLevel.lanes() : lanes;
+        return new ResourcesSpec(
+                newParallelism,
+                newUnits,
+                newDisk,
+                newMaxInFlightRecords,
+                newMaxInFlightBytes,
+                newLanes);
     }
 }
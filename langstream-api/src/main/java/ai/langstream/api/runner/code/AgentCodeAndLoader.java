@@ -160,6 +160,18 @@ public record AgentCodeAndLoader(AgentCode agentCode, ClassLoader classLoader) {
                         agentCode -> ((AgentSink) agentCode).write(record));
             }
 
+            @Override
+            public boolean supportsBatchWrite() {
+                return callNoExceptionWithContextClassloader(
+                        agentCode -> ((AgentSink) agentCode).supportsBatchWrite());
+            }
+
+            @Override
+            public CompletableFuture<BatchResult> write(List<Record> records) {
+                return callNoExceptionWithContextClassloader(
+                        agentCode -> ((AgentSink) agentCode).write(records));
+            }
+
             @Override
             public String agentId() {
                 return callNoExceptionWithContextClassloader(AgentCode::agentId);
@@ -16,6 +16,8 @@
 package ai.langstream.api.runner.code;
 
 import ai.langstream.api.runtime.ComponentType;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /** Body of the agent */
@@ -30,6 +32,29 @@ public interface AgentSink extends AgentCode {
      */
     CompletableFuture<?> write(Record record);
 
+    /**
+     * @return true if the agent implements {@link #write(List)} natively, in this case the runner
+     *     writes all the records generated from a source record with a single call
+     */
+    default boolean supportsBatchWrite() {
+        return false;
+    }
+
+    /**
+     * Write a batch of records. The default implementation writes the records one by one.
+     *
+     * @param records the records to write
+     * @return an handle to the asynchronous write, the result reports the records that failed by
+     *     their position in the batch
+     */
+    default CompletableFuture<BatchResult> write(List<Record> records) {
+        List<CompletableFuture<?>> writes = new ArrayList<>(records.size());
+        for (Record record : records) {
+            writes.add(write(record));
+        }
+        return BatchResult.collect(writes);
+    }
+
     @Override
     default ComponentType componentType() {
         return ComponentType.SINK;
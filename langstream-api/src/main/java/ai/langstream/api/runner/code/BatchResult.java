@@ -0,0 +1,85 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.api.runner.code;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outcome of a batch write on a {@link AgentSink}.
+ *
+ * @param size the number of records in the batch
+ * @param errors the errors, indexed by the position of the failed record in the batch
+ */
+public record BatchResult(int size, Map<Integer, Throwable> errors) {
+
+    public static BatchResult success(int size) {
+        return new BatchResult(size, Map.of());
+    }
+
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+
+    public int successCount() {
+        return size - errors.size();
+    }
+
+    /**
+     * @param position the position of the record in the batch
+     * @return the error of the record, or null if it has been written
+     */
+    public Throwable errorAt(int position) {
+        return errors.get(position);
+    }
+
+    /**
+     * Collect the per-record writes into a single result.
+     *
+     * @param writes the writes, in the same order of the records in the batch
+     * @return an handle that completes when all the writes are done, it never completes
+     *     exceptionally
+     */
+    public static CompletableFuture<BatchResult> collect(List<CompletableFuture<?>> writes) {
+        int size = writes.size();
+        if (size == 0) {
+            return CompletableFuture.completedFuture(success(0));
+        }
+        CompletableFuture<BatchResult> result = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(size);
+        Map<Integer, Throwable> errors = new ConcurrentHashMap<>();
+        for (int i = 0; i < size; i++) {
+            int position = i;
+            writes.get(i)
+                    .whenComplete(
+                            (__, error) -> {
+                                if (error != null) {
+                                    errors.put(position, error);
+                                }
+                                if (remaining.decrementAndGet() == 0) {
+                                    result.complete(
+                                            errors.isEmpty()
+                                                    ? success(size)
+                                                    : new BatchResult(size, Map.copyOf(errors)));
+                                }
+                            });
+        }
+        return result;
+    }
+}
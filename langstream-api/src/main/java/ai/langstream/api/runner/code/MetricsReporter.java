@@ -29,6 +29,39 @@ public interface MetricsReporter {
 
     Counter counter(String name, String help);
 
+    /**
+     * A distribution of values, aggregated in fixed buckets.
+     *
+     * @param name the name of the metric
+     * @param help the description of the metric
+     * @return the histogram
+     */
+    default Histogram histogram(String name, String help) {
+        return Histogram.NOOP;
+    }
+
+    /**
+     * A distribution of durations, for instance the latency of a stage of the pipeline.
+     *
+     * @param name the name of the metric
+     * @param help the description of the metric
+     * @return the timer
+     */
+    default Timer timer(String name, String help) {
+        return Timer.NOOP;
+    }
+
+    /**
+     * A value that can go up and down, for instance the number of records in flight.
+     *
+     * @param name the name of the metric
+     * @param help the description of the metric
+     * @return the gauge
+     */
+    default Gauge gauge(String name, String help) {
+        return Gauge.NOOP;
+    }
+
     default MetricsReporter withPodName(String podName) {
         return this;
     }
@@ -41,4 +74,51 @@ public interface MetricsReporter {
 
         long value();
     }
+
+    interface Histogram {
+
+        Histogram NOOP = value -> {};
+
+        void observe(double value);
+    }
+
+    interface Timer {
+
+        Timer NOOP = durationNanos -> {};
+
+        void record(long durationNanos);
+
+        /**
+         * Record the time elapsed since a previous call to {@link System#nanoTime()}.
+         *
+         * @param startNanos the value of {@link System#nanoTime()} at the beginning of the
+         *     operation
+         */
+        default void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+    }
+
+    interface Gauge {
+
+        Gauge NOOP =
+                new Gauge() {
+                    @Override
+                    public void set(double value) {}
+
+                    @Override
+                    public void inc(double delta) {}
+
+                    @Override
+                    public double value() {
+                        return 0;
+                    }
+                };
+
+        void set(double value);
+
+        void inc(double delta);
+
+        double value();
+    }
 }
@@ -28,6 +28,13 @@ public interface Record {
 
     Collection<Header> headers();
 
+    /**
+     * @return the size in bytes of the record as it was read from the source, -1 if it is unknown
+     */
+    default long serializedSize() {
+        return -1;
+    }
+
     default Header getHeader(String key) {
         return headers().stream().filter(h -> h.key().equals(key)).findFirst().orElse(null);
     }
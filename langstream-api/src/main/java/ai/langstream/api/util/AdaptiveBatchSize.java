@@ -0,0 +1,96 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.api.util;
+
+/**
+ * Adapt the size of the batches sent to a remote service to the observed latency and errors.
+ *
+ * <p>An error halves the size (the request was probably too large for the service). Otherwise the
+ * throughput (records per second of latency) is measured over a few batches and the size moves by
+ * small steps in the direction that improves it, so it settles around the size where the service is
+ * most efficient.
+ */
+public class AdaptiveBatchSize {
+
+    static final int WINDOW = 4;
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private int batchSize;
+    private int direction = -1;
+    private double lastThroughput = -1;
+    private int windowBatches;
+    private long windowRecords;
+    private long windowNanos;
+
+    public AdaptiveBatchSize(int minBatchSize, int maxBatchSize) {
+        if (minBatchSize <= 0 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException(
+                    "Invalid batch size range " + minBatchSize + "-" + maxBatchSize);
+        }
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.batchSize = maxBatchSize;
+    }
+
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Record a successful batch.
+     *
+     * @param records the number of records in the batch
+     * @param latencyNanos the time spent by the service
+     * @return the new batch size
+     */
+    public synchronized int onSuccess(int records, long latencyNanos) {
+        windowBatches++;
+        windowRecords += records;
+        windowNanos += Math.max(latencyNanos, 1);
+        if (windowBatches < WINDOW) {
+            return batchSize;
+        }
+        double throughput = (double) windowRecords / windowNanos;
+        if (lastThroughput >= 0 && throughput < lastThroughput) {
+            direction = -direction;
+        }
+        lastThroughput = throughput;
+        resize(batchSize + direction * Math.max(1, batchSize / 8));
+        return batchSize;
+    }
+
+    /**
+     * Record a failed batch.
+     *
+     * @param records the number of records in the batch
+     * @return the new batch size
+     */
+    public synchronized int onError(int records) {
+        resize(Math.min(batchSize, records) / 2);
+        // start again measuring and then probing the larger sizes
+        lastThroughput = -1;
+        direction = 1;
+        return batchSize;
+    }
+
+    private void resize(int newSize) {
+        batchSize = Math.max(minBatchSize, Math.min(maxBatchSize, newSize));
+        windowBatches = 0;
+        windowRecords = 0;
+        windowNanos = 0;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.api.util;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable vector of floats, like the embeddings computed by the AI services.
+ *
+ * <p>The values are stored in a float[] (4 bytes per dimension) but the vector is also a {@code
+ * List<Double>}, so it can be used wherever a list of numbers is expected: the elements are boxed
+ * only when they are accessed. Use {@link #floats()} to read the values without boxing. The JSON
+ * representation is an array of numbers, and Jackson can read it without boxing.
+ */
+public final class FloatVector extends AbstractList<Double> implements RandomAccess {
+
+    private final float[] values;
+
+    private FloatVector(float[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Wrap an array, the array must not be modified afterwards.
+     *
+     * @param values the values
+     * @return the vector
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static FloatVector wrap(float[] values) {
+        return new FloatVector(values);
+    }
+
+    /**
+     * Convert a list of numbers to a vector.
+     *
+     * @param values the values
+     * @return the vector, or null if values is null
+     */
+    public static FloatVector of(List<? extends Number> values) {
+        if (values == null) {
+            return null;
+        }
+        if (values instanceof FloatVector vector) {
+            return vector;
+        }
+        float[] result = new float[values.size()];
+        int i = 0;
+        for (Number value : values) {
+            result[i++] = value.floatValue();
+        }
+        return new FloatVector(result);
+    }
+
+    /**
+     * Convert a list of lists of numbers, like the result of a batch of embeddings, to a list of
+     * vectors.
+     *
+     * @param values the values
+     * @return the vectors
+     */
+    public static List<List<Double>> ofAll(List<? extends List<? extends Number>> values) {
+        if (values == null) {
+            return null;
+        }
+        return values.stream().<List<Double>>map(FloatVector::of).toList();
+    }
+
+    /**
+     * @return the values of the vector, the returned array must not be modified
+     */
+    @JsonValue
+    public float[] floats() {
+        return values;
+    }
+
+    @Override
+    public Double get(int index) {
+        return (double) values[index];
+    }
+
+    public float getFloat(int index) {
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof FloatVector other) {
+            return Arrays.equals(values, other.values);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
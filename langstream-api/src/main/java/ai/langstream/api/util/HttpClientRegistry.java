@@ -0,0 +1,142 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.api.util;
+
+import java.net.CookieHandler;
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Process wide registry of the HTTP clients used by the agents, the AI services and the gateway.
+ *
+ * <p>The clients share a bounded executor and the limit of concurrent requests per host, and the
+ * clients with the same options share the connection pool. HTTP/2 is negotiated with the servers
+ * that support it over TLS, plain HTTP connections use HTTP/1.1.
+ *
+ * <p>The defaults can be changed with environment variables (or system properties with the same
+ * name): LANGSTREAM_HTTP_CLIENT_THREADS and LANGSTREAM_HTTP_CLIENT_MAX_REQUESTS_PER_HOST.
+ */
+@Slf4j
+public final class HttpClientRegistry {
+
+    public static final String THREADS_PROPERTY = "LANGSTREAM_HTTP_CLIENT_THREADS";
+    public static final String MAX_REQUESTS_PER_HOST_PROPERTY =
+            "LANGSTREAM_HTTP_CLIENT_MAX_REQUESTS_PER_HOST";
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+    private static final SharedHttpClient.HostLimiter HOST_LIMITER =
+            new SharedHttpClient.HostLimiter(
+                    getIntProperty(MAX_REQUESTS_PER_HOST_PROPERTY, 64), EXECUTOR);
+    private static final Map<HttpClient.Redirect, SharedHttpClient> CLIENTS =
+            new ConcurrentHashMap<>();
+
+    private HttpClientRegistry() {}
+
+    /**
+     * @return the shared client that does not follow the redirects, like {@link
+     *     HttpClient#newHttpClient()}
+     */
+    public static SharedHttpClient get() {
+        return get(HttpClient.Redirect.NEVER);
+    }
+
+    /**
+     * @param redirect the redirect policy
+     * @return the shared client with the given redirect policy
+     */
+    public static SharedHttpClient get(HttpClient.Redirect redirect) {
+        return CLIENTS.computeIfAbsent(
+                redirect, r -> new SharedHttpClient(build(r, null), HOST_LIMITER));
+    }
+
+    /**
+     * Create a client with its own cookies. The client doesn't share the connection pool with the
+     * other clients, but it uses the shared executor and the limit of requests per host.
+     *
+     * @param redirect the redirect policy
+     * @param cookieHandler the cookie handler
+     * @return a new client
+     */
+    public static SharedHttpClient create(
+            HttpClient.Redirect redirect, CookieHandler cookieHandler) {
+        return new SharedHttpClient(build(redirect, cookieHandler), HOST_LIMITER);
+    }
+
+    /**
+     * @return the bounded executor used by the HTTP clients
+     */
+    public static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    private static HttpClient build(HttpClient.Redirect redirect, CookieHandler cookieHandler) {
+        HttpClient.Builder builder =
+                HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_2)
+                        .followRedirects(redirect)
+                        .executor(EXECUTOR);
+        if (cookieHandler != null) {
+            builder.cookieHandler(cookieHandler);
+        }
+        return builder.build();
+    }
+
+    private static ExecutorService createExecutor() {
+        int threads =
+                getIntProperty(
+                        THREADS_PROPERTY,
+                        Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        log.info("Creating the shared HTTP client executor with {} threads", threads);
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(
+                        threads,
+                        threads,
+                        60,
+                        TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(),
+                        r -> {
+                            Thread thread = new Thread(r, "http-client-" + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static int getIntProperty(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            value = System.getProperty(name);
+        }
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for {}: {}, using {}", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -15,29 +15,40 @@
  */
 package ai.langstream.api.util;
 
+import ai.langstream.api.runner.code.MetricsReporter;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Queue;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Aggregate records in batches, depending on a batch size and a maximum idle time.
+ * Aggregate records in batches, depending on a batch size and a maximum idle time. Optionally the
+ * batches are also closed when the total weight of the records (for instance the number of tokens)
+ * reaches a budget.
+ *
+ * <p>The records are assigned to a bucket depending on their hash, and the batches of a bucket are
+ * processed in order, one at a time unless more batches in flight are allowed. The batches waiting
+ * for their turn can be bounded, in this case {@link #add(Object)} blocks until there is space.
  *
  * @param <T>
  */
 @Slf4j
 public class OrderedAsyncBatchExecutor<T> {
-    private final int batchSize;
+    private volatile int batchSize;
+    private final ToIntFunction<T> weightFunction;
+    private final long maxBatchWeight;
+    private final int maxPendingBatches;
+    private final int maxInFlightBatches;
     private final Bucket[] buckets;
     private final int numBuckets;
     private final long flushInterval;
@@ -49,6 +60,10 @@ public class OrderedAsyncBatchExecutor<T> {
 
     private final Function<T, Integer> hashFunction;
 
+    private final MetricsReporter.Gauge pendingBatchesGauge;
+    private final MetricsReporter.Histogram batchSizeHistogram;
+    private final MetricsReporter.Timer batchLatency;
+
     public OrderedAsyncBatchExecutor(
             int batchSize,
             BiConsumer<List<T>, CompletableFuture<?>> processor,
@@ -56,6 +71,69 @@ public class OrderedAsyncBatchExecutor<T> {
             int numBuckets,
             Function<T, Integer> hashFunction,
             ScheduledExecutorService scheduledExecutorService) {
+        this(
+                batchSize,
+                processor,
+                maxIdleTime,
+                numBuckets,
+                hashFunction,
+                scheduledExecutorService,
+                null,
+                0);
+    }
+
+    /**
+     * @param weightFunction the weight of a record, null to disable the weight budget
+     * @param maxBatchWeight the maximum total weight of a batch, a record heavier than the budget
+     *     is processed alone
+     */
+    public OrderedAsyncBatchExecutor(
+            int batchSize,
+            BiConsumer<List<T>, CompletableFuture<?>> processor,
+            long maxIdleTime,
+            int numBuckets,
+            Function<T, Integer> hashFunction,
+            ScheduledExecutorService scheduledExecutorService,
+            ToIntFunction<T> weightFunction,
+            long maxBatchWeight) {
+        this(
+                batchSize,
+                processor,
+                maxIdleTime,
+                numBuckets,
+                hashFunction,
+                scheduledExecutorService,
+                weightFunction,
+                maxBatchWeight,
+                0,
+                1,
+                null,
+                null);
+    }
+
+    /**
+     * @param maxPendingBatches the maximum number of batches waiting in each bucket, 0 means no
+     *     limit
+     * @param maxInFlightBatches the number of batches of the same bucket that can be processed at
+     *     the same time, with more than one the records of a bucket may complete out of order
+     * @param metricsReporter the reporter of the queue depth, the batch size and the batch latency
+     * @param metricsPrefix the prefix of the names of the metrics
+     */
+    @Builder
+    private OrderedAsyncBatchExecutor(
+            int batchSize,
+            BiConsumer<List<T>, CompletableFuture<?>> processor,
+            long maxIdleTime,
+            int numBuckets,
+            Function<T, Integer> hashFunction,
+            ScheduledExecutorService scheduledExecutorService,
+            ToIntFunction<T> weightFunction,
+            long maxBatchWeight,
+            int maxPendingBatches,
+            int maxInFlightBatches,
+            MetricsReporter metricsReporter,
+            String metricsPrefix) {
+        numBuckets = Math.max(numBuckets, 1);
         this.numBuckets = numBuckets;
         this.hashFunction = hashFunction;
         Object[] buckets = new Object[numBuckets];
@@ -65,29 +143,67 @@ public class OrderedAsyncBatchExecutor<T> {
         // try to avoid "generic array creation compile error"
         this.buckets = Arrays.copyOf(buckets, numBuckets, Bucket[].class);
         this.batchSize = batchSize;
+        this.weightFunction = maxBatchWeight > 0 ? weightFunction : null;
+        this.maxBatchWeight = maxBatchWeight;
+        this.maxPendingBatches = Math.max(maxPendingBatches, 0);
+        this.maxInFlightBatches = Math.max(maxInFlightBatches, 1);
         this.processor = processor;
         this.flushInterval = maxIdleTime;
         this.scheduledExecutorService = scheduledExecutorService;
+        if (metricsReporter == null) {
+            metricsReporter = MetricsReporter.DISABLED;
+        }
+        String prefix = metricsPrefix == null ? "batch" : metricsPrefix + "_batch";
+        this.pendingBatchesGauge =
+                metricsReporter.gauge(
+                        prefix + "_pending", "Number of batches waiting to be processed");
+        this.batchSizeHistogram =
+                metricsReporter.histogram(prefix + "_size", "Number of records in a batch");
+        this.batchLatency = metricsReporter.timer(prefix + "_latency", "Time to process a batch");
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Change the maximum number of records in a batch, this applies to the batches that are not yet
+     * closed.
+     *
+     * @param batchSize the new batch size
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
     }
 
     public void start() {
         if (flushInterval > 0) {
             scheduledFuture =
                     scheduledExecutorService.scheduleWithFixedDelay(
-                            this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+                            () -> flush(false),
+                            flushInterval,
+                            flushInterval,
+                            TimeUnit.MILLISECONDS);
         }
     }
 
+    /**
+     * Stop the periodic flush and close the last batches, waiting for space in the pending batches
+     * if needed.
+     */
     public void stop() {
         if (scheduledFuture != null) {
             scheduledFuture.cancel(false);
         }
-        flush();
+        flush(true);
     }
 
-    private void flush() {
+    private void flush(boolean waitForSpace) {
         for (Bucket bucket : buckets) {
-            bucket.flush();
+            bucket.flush(waitForSpace);
         }
     }
 
@@ -98,6 +214,12 @@ public class OrderedAsyncBatchExecutor<T> {
         return buckets[Math.abs(hash % numBuckets)];
     }
 
+    /**
+     * Add a record. If the bucket of the record already has the maximum number of pending batches
+     * this method blocks until one of them is processed.
+     *
+     * @param t the record
+     */
     public void add(T t) {
         int hash = hashFunction.apply(t);
         Bucket bucket = bucket(hash);
@@ -107,71 +229,114 @@ public class OrderedAsyncBatchExecutor<T> {
     private class Bucket {
         private final Queue<List<T>> pendingBatches = new ArrayDeque<>();
         private final List<T> currentBatch = new ArrayList<>();
+        private long currentBatchWeight;
+        private int inFlight;
 
-        private final AtomicReference<UUID> processing = new AtomicReference<>();
+        // threads waiting for space to close the current batch
+        private int waitingToClose;
 
         synchronized void add(T t) {
+            // the batches closed by the records added before this one must be pending first
+            while (waitingToClose > 0 || isFull()) {
+                await();
+            }
+            if (weightFunction != null) {
+                int weight = weightFunction.applyAsInt(t);
+                if (!currentBatch.isEmpty() && currentBatchWeight + weight > maxBatchWeight) {
+                    // the record doesn't fit, it starts the next batch
+                    closeCurrentBatch();
+                }
+                currentBatchWeight += weight;
+            }
             currentBatch.add(t);
-            if (currentBatch.size() >= batchSize || flushInterval <= 0) {
-                scheduleCurrentBatchExecution();
+            if (currentBatch.size() >= batchSize
+                    || (weightFunction != null && currentBatchWeight >= maxBatchWeight)
+                    || flushInterval <= 0) {
+                closeCurrentBatch();
+            }
+        }
+
+        private boolean isFull() {
+            return maxPendingBatches > 0 && pendingBatches.size() >= maxPendingBatches;
+        }
+
+        private void await() {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(
+                        "Interrupted while waiting for the pending batches", e);
             }
         }
 
+        /** Close the current batch, when there is space for it in the pending batches. */
+        private synchronized void closeCurrentBatch() {
+            waitingToClose++;
+            try {
+                while (isFull()) {
+                    await();
+                }
+            } finally {
+                waitingToClose--;
+                notifyAll();
+            }
+            scheduleCurrentBatchExecution();
+        }
+
         private synchronized void scheduleCurrentBatchExecution() {
             if (currentBatch.isEmpty()) {
                 return;
             }
             List<T> batchToProcess = new ArrayList<>(currentBatch);
             currentBatch.clear();
-            addToPendingBatches(batchToProcess);
+            currentBatchWeight = 0;
+            pendingBatches.add(batchToProcess);
+            pendingBatchesGauge.inc(1);
+            processNextBatches();
         }
 
-        private synchronized void processNextBatch() {
-            if (pendingBatches.isEmpty()) {
-                return;
+        private synchronized void processNextBatches() {
+            while (inFlight < maxInFlightBatches && !pendingBatches.isEmpty()) {
+                List<T> nextBatch = pendingBatches.poll();
+                pendingBatchesGauge.inc(-1);
+                // wake up the producers waiting for space
+                notifyAll();
+                executeBatch(nextBatch);
             }
-            List<T> nextBatch = pendingBatches.poll();
-            executeBatch(nextBatch);
         }
 
-        private synchronized void addToPendingBatches(List<T> batchToProcess) {
-            if (processing.get() == null) {
-                executeBatch(batchToProcess);
-            } else {
-                pendingBatches.add(batchToProcess);
-            }
+        private synchronized void batchCompleted() {
+            inFlight--;
+            processNextBatches();
         }
 
         private void executeBatch(List<T> batchToProcess) {
-            UUID batchId = UUID.randomUUID();
+            inFlight++;
+            long start = System.nanoTime();
+            batchSizeHistogram.observe(batchToProcess.size());
             CompletableFuture<?> currentBatchHandle = new CompletableFuture<>();
             currentBatchHandle.whenComplete(
                     (result, error) -> {
-                        boolean check = processing.compareAndSet(batchId, null);
-                        if (!check) {
-                            log.error(
-                                    "Something went wrong, batch {} was not processed",
-                                    processing.get());
-                        } else {
-                            if (log.isDebugEnabled()) {
-                                log.debug("Batch {} completed", batchId);
-                            }
-                            processNextBatch();
+                        batchLatency.recordSince(start);
+                        if (log.isDebugEnabled()) {
+                            log.debug("Batch completed in bucket {}", this);
                         }
+                        batchCompleted();
                     });
-            boolean check = processing.compareAndSet(null, batchId);
-            if (!check) {
-                throw new IllegalStateException(
-                        "Something went wrong, the processor is still processing");
-            }
             if (log.isDebugEnabled()) {
-                log.debug("Batch {} in bucket {} started for {}", batchId, this, batchToProcess);
+                log.debug("Batch in bucket {} started for {}", this, batchToProcess);
             }
             processor.accept(batchToProcess, currentBatchHandle);
         }
 
-        private synchronized void flush() {
-            scheduleCurrentBatchExecution();
+        private synchronized void flush(boolean waitForSpace) {
+            if (waitForSpace) {
+                closeCurrentBatch();
+            } else if (!isFull()) {
+                // the batch stays open, it is closed by the next flush or by a record
+                scheduleCurrentBatchExecution();
+            }
         }
     }
 }
@@ -0,0 +1,285 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.api.util;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An {@link HttpClient} obtained from the {@link HttpClientRegistry}. The requests wait for a slot
+ * of the limit of concurrent requests to the same host before being sent, without blocking the
+ * caller thread. The slot is held until the response body has been fully received or discarded, so
+ * a streamed body (like an InputStream) keeps it until it is read to the end or closed.
+ */
+public class SharedHttpClient {
+
+    private final HttpClient client;
+    private final HostLimiter hostLimiter;
+    private final MetricsReporter.Timer latency;
+    private final MetricsReporter.Counter errors;
+    private final MetricsReporter.Gauge inFlight;
+    private final MetricsReporter.Gauge queued;
+
+    SharedHttpClient(HttpClient client, HostLimiter hostLimiter) {
+        this(client, hostLimiter, MetricsReporter.DISABLED);
+    }
+
+    private SharedHttpClient(
+            HttpClient client, HostLimiter hostLimiter, MetricsReporter metricsReporter) {
+        this.client = client;
+        this.hostLimiter = hostLimiter;
+        this.latency =
+                metricsReporter.timer(
+                        "http_client_latency", "Time spent waiting for the HTTP responses");
+        this.errors =
+                metricsReporter.counter(
+                        "http_client_errors", "Number of HTTP requests failed without a response");
+        this.inFlight =
+                metricsReporter.gauge("http_client_in_flight", "Number of HTTP requests in flight");
+        this.queued =
+                metricsReporter.gauge(
+                        "http_client_queued",
+                        "Number of HTTP requests waiting for the limit of requests per host");
+    }
+
+    /**
+     * @param metricsReporter the reporter
+     * @return a view of this client that reports the metrics of its requests
+     */
+    public SharedHttpClient withMetricsReporter(MetricsReporter metricsReporter) {
+        return new SharedHttpClient(client, hostLimiter, metricsReporter);
+    }
+
+    /**
+     * @return the underlying client, the requests sent directly are not subject to the limits
+     */
+    public HttpClient client() {
+        return client;
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(
+            HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
+        HttpRequest actualRequest = withDefaultVersion(request);
+        String host = hostKey(request.uri());
+        queued.inc(1);
+        return hostLimiter
+                .acquire(host)
+                .thenCompose(
+                        ___ -> {
+                            queued.inc(-1);
+                            inFlight.inc(1);
+                            AtomicBoolean released = new AtomicBoolean();
+                            Runnable release =
+                                    () -> {
+                                        if (released.compareAndSet(false, true)) {
+                                            hostLimiter.release(host);
+                                            inFlight.inc(-1);
+                                        }
+                                    };
+                            long start = System.nanoTime();
+                            CompletableFuture<HttpResponse<T>> response;
+                            try {
+                                // the slot is held until the body has been received, the
+                                // response completes earlier for the streaming handlers
+                                response =
+                                        client.sendAsync(
+                                                actualRequest,
+                                                responseInfo ->
+                                                        new ReleasingBodySubscriber<>(
+                                                                responseBodyHandler.apply(
+                                                                        responseInfo),
+                                                                release));
+                            } catch (RuntimeException e) {
+                                response = CompletableFuture.failedFuture(e);
+                            }
+                            return response.whenComplete(
+                                    (r, error) -> {
+                                        latency.recordSince(start);
+                                        if (error != null) {
+                                            errors.count(1);
+                                            release.run();
+                                        }
+                                    });
+                        });
+    }
+
+    public <T> HttpResponse<T> send(
+            HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler)
+            throws IOException, InterruptedException {
+        try {
+            return sendAsync(request, responseBodyHandler).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * HTTP/2 is negotiated with ALPN over TLS, the upgrade of plain HTTP connections is not
+     * supported by many servers.
+     */
+    private static HttpRequest withDefaultVersion(HttpRequest request) {
+        if (request.version().isPresent() || !"http".equalsIgnoreCase(request.uri().getScheme())) {
+            return request;
+        }
+        return HttpRequest.newBuilder(request, (name, value) -> true)
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    /**
+     * Runs the release action once the body is complete, has failed or the consumer has cancelled
+     * it, for instance by closing the InputStream of {@link
+     * HttpResponse.BodyHandlers#ofInputStream()}.
+     */
+    private static final class ReleasingBodySubscriber<T>
+            implements HttpResponse.BodySubscriber<T> {
+        private final HttpResponse.BodySubscriber<T> delegate;
+        private final Runnable release;
+
+        private ReleasingBodySubscriber(HttpResponse.BodySubscriber<T> delegate, Runnable release) {
+            this.delegate = delegate;
+            this.release = release;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(
+                    new Flow.Subscription() {
+                        @Override
+                        public void request(long n) {
+                            subscription.request(n);
+                        }
+
+                        @Override
+                        public void cancel() {
+                            try {
+                                subscription.cancel();
+                            } finally {
+                                release.run();
+                            }
+                        }
+                    });
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            delegate.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // the body has been received, before the response is completed
+            release.run();
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            // the body has been received, before the response is completed
+            release.run();
+            delegate.onComplete();
+        }
+    }
+
+    static String hostKey(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+
+    static final class HostLimiter {
+        private final int maxRequestsPerHost;
+        private final Executor executor;
+        private final Map<String, Host> hosts = new HashMap<>();
+
+        HostLimiter(int maxRequestsPerHost, Executor executor) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            this.executor = executor;
+        }
+
+        CompletableFuture<Void> acquire(String key) {
+            if (maxRequestsPerHost <= 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            synchronized (this) {
+                Host host = hosts.computeIfAbsent(key, k -> new Host());
+                if (host.inFlight < maxRequestsPerHost) {
+                    host.inFlight++;
+                    return CompletableFuture.completedFuture(null);
+                }
+                CompletableFuture<Void> handle = new CompletableFuture<>();
+                host.waiting.add(handle);
+                return handle;
+            }
+        }
+
+        void release(String key) {
+            if (maxRequestsPerHost <= 0) {
+                return;
+            }
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                Host host = hosts.get(key);
+                if (host == null) {
+                    return;
+                }
+                // the slot passes to the next request
+                next = host.waiting.poll();
+                if (next == null && --host.inFlight == 0) {
+                    hosts.remove(key);
+                }
+            }
+            if (next != null) {
+                next.completeAsync(() -> null, executor);
+            }
+        }
+
+        synchronized int inFlight(String key) {
+            Host host = hosts.get(key);
+            return host == null ? 0 : host.inFlight;
+        }
+
+        private static final class Host {
+            private int inFlight;
+            private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+        }
+    }
+}
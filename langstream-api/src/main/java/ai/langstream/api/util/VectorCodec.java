@@ -0,0 +1,458 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.api.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compact binary encoding for records that carry vectors, like the embeddings computed by the AI
+ * agents.
+ *
+ * <p>The value is a tree of maps, lists, strings, numbers, booleans and nulls, like the result of
+ * parsing a JSON document. Lists of floating point numbers are written as little-endian float32
+ * arrays, or quantized to float16 or int8 depending on the {@link Format}, everything else is
+ * written with a simple tag-length-value layout. Decoded vectors are {@link FloatVector}s.
+ *
+ * <p>The encoding is signalled on the topics with the {@link #HEADER} header, whose value is the
+ * name of the format.
+ */
+public final class VectorCodec {
+
+    /** Name of the header that marks a value encoded with this codec. */
+    public static final String HEADER = "langstream-vector-encoding";
+
+    public enum Format {
+        /** 4 bytes per dimension, lossless for float vectors. */
+        FLOAT32,
+        /** 2 bytes per dimension, IEEE 754 half precision. */
+        FLOAT16,
+        /** 1 byte per dimension, linearly quantized with a scale factor per vector. */
+        INT8;
+
+        public String headerValue() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * Parse a format name, as found in the configuration or in the header.
+         *
+         * @param value the name, case insensitive
+         * @return the format, or null if value is null or blank
+         */
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        "Unsupported vector encoding "
+                                + value
+                                + ", supported values are "
+                                + Arrays.toString(values()).toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte STRING = 5;
+    private static final byte BYTES = 6;
+    private static final byte LIST = 7;
+    private static final byte MAP = 8;
+    private static final byte VECTOR = 9;
+
+    private static final VarHandle FLOAT_LE =
+            MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle DOUBLE_LE =
+            MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle SHORT_LE =
+            MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private VectorCodec() {}
+
+    /**
+     * Encode a value.
+     *
+     * @param value the value
+     * @param format the format of the vectors
+     * @return the encoded value
+     * @throws IllegalArgumentException if the value contains an unsupported type
+     */
+    public static byte[] encode(Object value, Format format) {
+        Output output = new Output();
+        output.writeByte(VERSION);
+        write(value, format, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Decode a value written by {@link #encode(Object, Format)}. The format of the vectors is
+     * stored in the data.
+     *
+     * @param data the encoded value
+     * @return the value
+     * @throws IllegalArgumentException if the data is not valid
+     */
+    public static Object decode(byte[] data) {
+        Input input = new Input(data);
+        try {
+            byte version = input.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(
+                        "Unsupported vector encoding version " + version);
+            }
+            return read(input);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated vector encoded value", e);
+        }
+    }
+
+    private static void write(Object value, Format format, Output output) {
+        if (value == null) {
+            output.writeByte(NULL);
+        } else if (value instanceof String s) {
+            output.writeByte(STRING);
+            output.writeString(s);
+        } else if (value instanceof Boolean b) {
+            output.writeByte(b ? TRUE : FALSE);
+        } else if (value instanceof Integer
+                || value instanceof Long
+                || value instanceof Short
+                || value instanceof Byte) {
+            output.writeByte(INT);
+            output.writeVarLong(zigZag(((Number) value).longValue()));
+        } else if (value instanceof Double || value instanceof Float) {
+            output.writeByte(DOUBLE);
+            output.ensure(8);
+            DOUBLE_LE.set(output.buffer, output.position, ((Number) value).doubleValue());
+            output.position += 8;
+        } else if (value instanceof FloatVector vector) {
+            writeVector(vector.floats(), format, output);
+        } else if (value instanceof float[] floats) {
+            writeVector(floats, format, output);
+        } else if (value instanceof byte[] bytes) {
+            output.writeByte(BYTES);
+            output.writeVarLong(bytes.length);
+            output.writeBytes(bytes);
+        } else if (value instanceof Map<?, ?> map) {
+            output.writeByte(MAP);
+            output.writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                output.writeString(String.valueOf(entry.getKey()));
+                write(entry.getValue(), format, output);
+            }
+        } else if (value instanceof List<?> list) {
+            if (isVector(list)) {
+                writeVector(FloatVector.of((List<? extends Number>) list).floats(), format, output);
+            } else {
+                output.writeByte(LIST);
+                output.writeVarLong(list.size());
+                for (Object item : list) {
+                    write(item, format, output);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException(
+                    "Cannot encode a value of type " + value.getClass().getName());
+        }
+    }
+
+    private static boolean isVector(List<?> list) {
+        if (list.isEmpty()) {
+            return false;
+        }
+        for (Object item : list) {
+            if (!(item instanceof Double) && !(item instanceof Float)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeVector(float[] values, Format format, Output output) {
+        output.writeByte(VECTOR);
+        output.writeByte((byte) format.ordinal());
+        output.writeVarLong(values.length);
+        switch (format) {
+            case FLOAT32 -> {
+                output.ensure(values.length * 4);
+                ByteBuffer.wrap(output.buffer, output.position, values.length * 4)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asFloatBuffer()
+                        .put(values);
+                output.position += values.length * 4;
+            }
+            case FLOAT16 -> {
+                output.ensure(values.length * 2);
+                for (float value : values) {
+                    SHORT_LE.set(output.buffer, output.position, floatToHalf(value));
+                    output.position += 2;
+                }
+            }
+            case INT8 -> {
+                float max = 0;
+                for (float value : values) {
+                    max = Math.max(max, Math.abs(value));
+                }
+                float scale = max / 127f;
+                output.ensure(4 + values.length);
+                FLOAT_LE.set(output.buffer, output.position, scale);
+                output.position += 4;
+                for (float value : values) {
+                    int quantized = scale == 0 ? 0 : Math.round(value / scale);
+                    output.buffer[output.position++] =
+                            (byte) Math.max(-127, Math.min(127, quantized));
+                }
+            }
+        }
+    }
+
+    private static Object read(Input input) {
+        byte tag = input.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case INT:
+                {
+                    long value = unZigZag(input.readVarLong());
+                    if (value == (int) value) {
+                        return (int) value;
+                    }
+                    return value;
+                }
+            case DOUBLE:
+                {
+                    double value = (double) DOUBLE_LE.get(input.buffer, input.position);
+                    input.position += 8;
+                    return value;
+                }
+            case STRING:
+                return input.readString();
+            case BYTES:
+                return input.readBytes(input.readLength());
+            case MAP:
+                {
+                    int size = input.readLength();
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    for (int i = 0; i < size; i++) {
+                        String key = input.readString();
+                        map.put(key, read(input));
+                    }
+                    return map;
+                }
+            case LIST:
+                {
+                    int size = input.readLength();
+                    List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(read(input));
+                    }
+                    return list;
+                }
+            case VECTOR:
+                return readVector(input);
+            default:
+                throw new IllegalArgumentException("Invalid tag " + tag);
+        }
+    }
+
+    private static FloatVector readVector(Input input) {
+        byte formatIndex = input.readByte();
+        if (formatIndex < 0 || formatIndex >= Format.values().length) {
+            throw new IllegalArgumentException("Invalid vector format " + formatIndex);
+        }
+        Format format = Format.values()[formatIndex];
+        int size = input.readLength();
+        float[] values = new float[size];
+        switch (format) {
+            case FLOAT32 -> {
+                ByteBuffer.wrap(input.buffer, input.position, size * 4)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asFloatBuffer()
+                        .get(values);
+                input.position += size * 4;
+            }
+            case FLOAT16 -> {
+                for (int i = 0; i < size; i++) {
+                    values[i] = halfToFloat((short) SHORT_LE.get(input.buffer, input.position));
+                    input.position += 2;
+                }
+            }
+            case INT8 -> {
+                float scale = (float) FLOAT_LE.get(input.buffer, input.position);
+                input.position += 4;
+                for (int i = 0; i < size; i++) {
+                    values[i] = input.readByte() * scale;
+                }
+            }
+        }
+        return FloatVector.wrap(values);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static short floatToHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int abs = bits & 0x7fffffff;
+        if (abs >= 0x7f800000) {
+            // infinity or NaN
+            return (short) (sign | 0x7c00 | (abs > 0x7f800000 ? 0x200 : 0));
+        }
+        if (abs >= 0x477ff000) {
+            // rounds to a value larger than 65504, the largest half
+            return (short) (sign | 0x7c00);
+        }
+        if (abs >= 0x38800000) {
+            // normal half, round the mantissa to nearest even
+            int rounded = abs + 0xfff + ((abs >>> 13) & 1);
+            return (short) (sign | ((rounded - 0x38000000) >>> 13));
+        }
+        if (abs < 0x33000000) {
+            return (short) sign;
+        }
+        // subnormal half, in units of 2^-24
+        return (short) (sign | Math.round(Float.intBitsToFloat(abs) * 0x1p24f));
+    }
+
+    static float halfToFloat(short half) {
+        int sign = (half & 0x8000) << 16;
+        int exponent = (half >>> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+        if (exponent == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        }
+        if (exponent == 0) {
+            float value = mantissa * 0x1p-24f;
+            return sign == 0 ? value : -value;
+        }
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+    }
+
+    private static final class Output {
+        private byte[] buffer = new byte[256];
+        private int position;
+
+        void ensure(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        void writeByte(byte value) {
+            ensure(1);
+            buffer[position++] = value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Input {
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        byte readByte() {
+            return buffer[position++];
+        }
+
+        long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Invalid varint");
+        }
+
+        int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > buffer.length - position) {
+                throw new IllegalArgumentException("Invalid length " + length);
+            }
+            return (int) length;
+        }
+
+        byte[] readBytes(int length) {
+            byte[] result = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return result;
+        }
+
+        String readString() {
+            int length = readLength();
+            String result = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.api.util.AdaptiveBatchSize;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveBatchSizeTest {
+
+    @Test
+    void testErrorsHalveTheSize() {
+        AdaptiveBatchSize adaptive = new AdaptiveBatchSize(1, 64);
+        assertEquals(64, adaptive.getBatchSize());
+        assertEquals(32, adaptive.onError(64));
+        assertEquals(16, adaptive.onError(32));
+        assertEquals(1, adaptive.onError(1));
+        assertEquals(1, adaptive.onError(1));
+    }
+
+    @Test
+    void testConvergesToTheBestThroughput() {
+        AdaptiveBatchSize adaptive = new AdaptiveBatchSize(1, 100);
+        adaptive.onError(100);
+        adaptive.onError(50);
+        // latency grows slowly up to 40 records, then very quickly
+        for (int i = 0; i < 400; i++) {
+            int size = adaptive.getBatchSize();
+            long latency = 100_000_000L + size * 1_000_000L;
+            if (size > 40) {
+                latency += (size - 40) * 50_000_000L;
+            }
+            adaptive.onSuccess(size, latency);
+        }
+        int size = adaptive.getBatchSize();
+        assertTrue(size >= 30 && size <= 50, "size " + size);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.langstream.api.util.FloatVector;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FloatVectorTest {
+
+    @Test
+    void testListOfDoubles() {
+        FloatVector vector = FloatVector.of(List.of(1.0, 2.5, -3));
+        assertEquals(3, vector.size());
+        assertEquals(2.5d, vector.get(1));
+        assertEquals(-3f, vector.getFloat(2));
+        assertArrayEquals(new float[] {1f, 2.5f, -3f}, vector.floats());
+        assertEquals(List.of(1.0, 2.5, -3.0), vector);
+        assertEquals(vector, List.of(1.0, 2.5, -3.0));
+        assertEquals(List.of(1.0, 2.5, -3.0).hashCode(), vector.hashCode());
+        assertEquals(FloatVector.wrap(new float[] {1f, 2.5f, -3f}), vector);
+        assertSame(vector, FloatVector.of(vector));
+        assertEquals("[1.0, 2.5, -3.0]", vector.toString());
+        assertThrows(UnsupportedOperationException.class, () -> vector.add(1.0));
+    }
+
+    @Test
+    void testOfAll() {
+        List<List<Double>> vectors = FloatVector.ofAll(List.of(List.of(1.0), List.of(2.0, 3.0)));
+        assertEquals(List.of(List.of(1.0), List.of(2.0, 3.0)), vectors);
+        assertInstanceOf(FloatVector.class, vectors.get(1));
+        assertNull(FloatVector.ofAll(null));
+    }
+}
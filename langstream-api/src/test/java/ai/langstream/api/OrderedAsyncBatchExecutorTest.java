@@ -16,7 +16,9 @@
 package ai.langstream.api;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
+import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.util.OrderedAsyncBatchExecutor;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -24,14 +26,17 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import lombok.extern.slf4j.Slf4j;
 import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -300,4 +305,237 @@ class OrderedAsyncBatchExecutorTest {
                         });
         completionsExecutorService.shutdown();
     }
+
+    @Test
+    void executeInBatchesWithWeightBudget() {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        OrderedAsyncBatchExecutor<String> executor =
+                new OrderedAsyncBatchExecutor<>(
+                        10,
+                        (batch, future) -> {
+                            batches.add(batch);
+                            future.complete(null);
+                        },
+                        Long.MAX_VALUE,
+                        1,
+                        String::hashCode,
+                        null,
+                        String::length,
+                        5);
+        List.of("aaa", "bb", "cccc", "d", "eeeeeeeeee", "ff", "ggggg", "h").forEach(executor::add);
+        // "eeeeeeeeee" is processed alone, "ggggg" doesn't fit with "ff"
+        assertEquals(
+                List.of(
+                        List.of("aaa", "bb"),
+                        List.of("cccc", "d"),
+                        List.of("eeeeeeeeee"),
+                        List.of("ff"),
+                        List.of("ggggg")),
+                batches);
+        executor.stop();
+        assertEquals(List.of("h"), batches.get(5));
+    }
+
+    @Test
+    void changeBatchSize() {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        OrderedAsyncBatchExecutor<String> executor =
+                new OrderedAsyncBatchExecutor<>(
+                        3,
+                        (batch, future) -> {
+                            batches.add(batch);
+                            future.complete(null);
+                        },
+                        Long.MAX_VALUE,
+                        1,
+                        String::hashCode,
+                        null);
+        List.of("a", "b", "c").forEach(executor::add);
+        executor.setBatchSize(2);
+        List.of("d", "e", "f").forEach(executor::add);
+        executor.stop();
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("d", "e"), List.of("f")), batches);
+    }
+
+    @Test
+    void addBlocksWhenTooManyPendingBatches() throws Exception {
+        List<CompletableFuture<?>> inFlight = new CopyOnWriteArrayList<>();
+        List<String> started = new CopyOnWriteArrayList<>();
+        OrderedAsyncBatchExecutor<String> executor =
+                OrderedAsyncBatchExecutor.<String>builder()
+                        .batchSize(1)
+                        .processor(
+                                (batch, future) -> {
+                                    started.addAll(batch);
+                                    inFlight.add(future);
+                                })
+                        .numBuckets(1)
+                        .hashFunction(String::hashCode)
+                        .maxPendingBatches(2)
+                        .build();
+        executor.add("a");
+        executor.add("b");
+        executor.add("c");
+        assertEquals(List.of("a"), started);
+
+        CompletableFuture<?> added = CompletableFuture.runAsync(() -> executor.add("d"));
+        Thread.sleep(200);
+        assertFalse(added.isDone());
+
+        inFlight.get(0).complete(null);
+        added.get(10, TimeUnit.SECONDS);
+        assertEquals(List.of("a", "b"), started);
+
+        inFlight.get(1).complete(null);
+        Awaitility.await().untilAsserted(() -> assertEquals(3, inFlight.size()));
+        inFlight.get(2).complete(null);
+        Awaitility.await().untilAsserted(() -> assertEquals(4, inFlight.size()));
+        assertEquals(List.of("a", "b", "c", "d"), started);
+    }
+
+    @Test
+    void pendingBatchesNeverExceedTheBound() throws Exception {
+        List<CompletableFuture<?>> inFlight = new CopyOnWriteArrayList<>();
+        List<List<String>> started = new CopyOnWriteArrayList<>();
+        AtomicInteger pending = new AtomicInteger();
+        AtomicInteger maxPending = new AtomicInteger();
+        MetricsReporter metricsReporter =
+                new MetricsReporter() {
+                    @Override
+                    public Counter counter(String name, String help) {
+                        return Counter.NOOP;
+                    }
+
+                    @Override
+                    public Gauge gauge(String name, String help) {
+                        return new Gauge() {
+                            @Override
+                            public void set(double value) {
+                                pending.set((int) value);
+                            }
+
+                            @Override
+                            public void inc(double delta) {
+                                maxPending.accumulateAndGet(
+                                        pending.addAndGet((int) delta), Math::max);
+                            }
+
+                            @Override
+                            public double value() {
+                                return pending.get();
+                            }
+                        };
+                    }
+                };
+        OrderedAsyncBatchExecutor<String> executor =
+                OrderedAsyncBatchExecutor.<String>builder()
+                        .batchSize(10)
+                        .processor(
+                                (batch, future) -> {
+                                    started.add(batch);
+                                    inFlight.add(future);
+                                })
+                        .maxIdleTime(Long.MAX_VALUE)
+                        .numBuckets(1)
+                        .hashFunction(String::hashCode)
+                        .weightFunction(String::length)
+                        .maxBatchWeight(5)
+                        .maxPendingBatches(1)
+                        .metricsReporter(metricsReporter)
+                        .build();
+        // closed by the weight, it is in flight
+        executor.add("aaaaaa");
+        executor.add("ccc");
+        assertEquals(0, pending.get());
+        // "dddddd" doesn't fit with "ccc" and it is too heavy for a batch, so it closes two
+        // batches: the second one must wait for space
+        CompletableFuture<?> added = CompletableFuture.runAsync(() -> executor.add("dddddd"));
+        Awaitility.await().untilAsserted(() -> assertEquals(1, pending.get()));
+        Thread.sleep(200);
+        assertFalse(added.isDone());
+
+        inFlight.get(0).complete(null);
+        added.get(10, TimeUnit.SECONDS);
+        assertEquals(1, pending.get());
+        inFlight.get(1).complete(null);
+        inFlight.get(2).complete(null);
+        executor.stop();
+        assertEquals(List.of(List.of("aaaaaa"), List.of("ccc"), List.of("dddddd")), started);
+        assertEquals(1, maxPending.get());
+        assertEquals(0, pending.get());
+    }
+
+    @Test
+    void moreBatchesInFlight() {
+        List<CompletableFuture<?>> inFlight = new CopyOnWriteArrayList<>();
+        List<List<String>> started = new CopyOnWriteArrayList<>();
+        AtomicInteger pending = new AtomicInteger();
+        AtomicInteger latencies = new AtomicInteger();
+        List<Double> sizes = new CopyOnWriteArrayList<>();
+        MetricsReporter metricsReporter =
+                new MetricsReporter() {
+                    @Override
+                    public Counter counter(String name, String help) {
+                        return Counter.NOOP;
+                    }
+
+                    @Override
+                    public Gauge gauge(String name, String help) {
+                        assertEquals("test_batch_pending", name);
+                        return new Gauge() {
+                            @Override
+                            public void set(double value) {
+                                pending.set((int) value);
+                            }
+
+                            @Override
+                            public void inc(double delta) {
+                                pending.addAndGet((int) delta);
+                            }
+
+                            @Override
+                            public double value() {
+                                return pending.get();
+                            }
+                        };
+                    }
+
+                    @Override
+                    public Histogram histogram(String name, String help) {
+                        assertEquals("test_batch_size", name);
+                        return sizes::add;
+                    }
+
+                    @Override
+                    public Timer timer(String name, String help) {
+                        assertEquals("test_batch_latency", name);
+                        return duration -> latencies.incrementAndGet();
+                    }
+                };
+        OrderedAsyncBatchExecutor<String> executor =
+                OrderedAsyncBatchExecutor.<String>builder()
+                        .batchSize(2)
+                        .processor(
+                                (batch, future) -> {
+                                    started.add(batch);
+                                    inFlight.add(future);
+                                })
+                        .maxIdleTime(Long.MAX_VALUE)
+                        .numBuckets(1)
+                        .hashFunction(String::hashCode)
+                        .maxInFlightBatches(2)
+                        .metricsReporter(metricsReporter)
+                        .metricsPrefix("test")
+                        .build();
+        List.of("a", "b", "c", "d", "e", "f").forEach(executor::add);
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), started);
+        assertEquals(1, pending.get());
+
+        // the second batch completes before the first one
+        inFlight.get(1).complete(null);
+        assertEquals(3, started.size());
+        assertEquals(0, pending.get());
+        assertEquals(1, latencies.get());
+        assertEquals(List.of(2.0, 2.0, 2.0), sizes);
+    }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.langstream.api.util.FloatVector;
+import ai.langstream.api.util.VectorCodec;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class VectorCodecTest {
+
+    @Test
+    void testRoundTrip() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("text", "hello ✓");
+        value.put("count", 42);
+        value.put("big", 1L << 40);
+        value.put("negative", -7);
+        value.put("score", 0.5);
+        value.put("flag", true);
+        value.put("missing", null);
+        value.put("tags", List.of("a", 1, false));
+        value.put("empty", List.of());
+        value.put("bytes", new byte[] {1, 2, 3});
+        value.put("nested", Map.of("embeddings", List.of(1.0, -2.5, 3.25)));
+        value.put("vector", FloatVector.wrap(new float[] {0.1f, 0.2f}));
+
+        Map<String, Object> decoded =
+                (Map<String, Object>)
+                        VectorCodec.decode(VectorCodec.encode(value, VectorCodec.Format.FLOAT32));
+
+        assertEquals(List.copyOf(value.keySet()), List.copyOf(decoded.keySet()));
+        assertEquals("hello ✓", decoded.get("text"));
+        assertEquals(42, decoded.get("count"));
+        assertEquals(1L << 40, decoded.get("big"));
+        assertEquals(-7, decoded.get("negative"));
+        assertEquals(List.of("a", 1, false), decoded.get("tags"));
+        assertEquals(List.of(), decoded.get("empty"));
+        assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) decoded.get("bytes"));
+        assertNull(decoded.get("missing"));
+        assertTrue(decoded.containsKey("missing"));
+        Object embeddings = ((Map<String, Object>) decoded.get("nested")).get("embeddings");
+        assertInstanceOf(FloatVector.class, embeddings);
+        assertEquals(List.of(1.0, -2.5, 3.25), embeddings);
+        assertEquals(value.get("vector"), decoded.get("vector"));
+        // a single floating point number is not a vector
+        assertEquals(0.5, decoded.get("score"));
+    }
+
+    @Test
+    void testFloat32IsSmallerThanText() {
+        float[] values = randomVector(1536);
+        Map<String, Object> value = Map.of("embeddings", FloatVector.wrap(values));
+        byte[] encoded = VectorCodec.encode(value, VectorCodec.Format.FLOAT32);
+        assertTrue(encoded.length < 1536 * 4 + 32);
+        assertTrue(encoded.length * 3 < Arrays.toString(values).length());
+        FloatVector decoded =
+                (FloatVector) ((Map<?, ?>) VectorCodec.decode(encoded)).get("embeddings");
+        assertArrayEquals(values, decoded.floats());
+    }
+
+    @Test
+    void testFloat16() {
+        float[] values = randomVector(512);
+        byte[] encoded = VectorCodec.encode(FloatVector.wrap(values), VectorCodec.Format.FLOAT16);
+        assertTrue(encoded.length < 512 * 2 + 8);
+        float[] decoded = ((FloatVector) VectorCodec.decode(encoded)).floats();
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], decoded[i], Math.abs(values[i]) / 1024 + 1e-7f);
+        }
+
+        float[] special = {
+            0f, -0f, 1f, -2f, 65504f, 100000f, Float.POSITIVE_INFINITY, 1e-6f, 1e-9f, Float.NaN
+        };
+        decoded =
+                ((FloatVector)
+                                VectorCodec.decode(
+                                        VectorCodec.encode(
+                                                FloatVector.wrap(special),
+                                                VectorCodec.Format.FLOAT16)))
+                        .floats();
+        assertEquals(
+                "[0.0, -0.0, 1.0, -2.0, 65504.0, Infinity, Infinity, 1.013279E-6, 0.0, NaN]",
+                Arrays.toString(decoded));
+    }
+
+    @Test
+    void testInt8() {
+        float[] values = randomVector(384);
+        byte[] encoded = VectorCodec.encode(FloatVector.wrap(values), VectorCodec.Format.INT8);
+        assertTrue(encoded.length < 384 + 12);
+        float[] decoded = ((FloatVector) VectorCodec.decode(encoded)).floats();
+        float max = 0;
+        for (float value : values) {
+            max = Math.max(max, Math.abs(value));
+        }
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], decoded[i], max / 127);
+        }
+
+        decoded =
+                ((FloatVector)
+                                VectorCodec.decode(
+                                        VectorCodec.encode(
+                                                FloatVector.wrap(new float[3]),
+                                                VectorCodec.Format.INT8)))
+                        .floats();
+        assertArrayEquals(new float[3], decoded);
+    }
+
+    @Test
+    void testErrors() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> VectorCodec.encode(Map.of("a", new Object()), VectorCodec.Format.FLOAT32));
+        byte[] encoded =
+                VectorCodec.encode(
+                        Map.of("a", FloatVector.wrap(new float[] {1f, 2f})),
+                        VectorCodec.Format.FLOAT32);
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> VectorCodec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+        assertThrows(
+                IllegalArgumentException.class, () -> VectorCodec.decode("{\"a\":1}".getBytes()));
+        assertEquals(VectorCodec.Format.FLOAT16, VectorCodec.Format.parse(" Float16 "));
+        assertNull(VectorCodec.Format.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> VectorCodec.Format.parse("int4"));
+    }
+
+    private static float[] randomVector(int size) {
+        Random random = new Random(size);
+        float[] result = new float[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = (float) random.nextGaussian() / 10;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.api.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HttpClientRegistryTest {
+
+    private HttpServer server;
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private final List<String> protocols = new ArrayList<>();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext(
+                "/",
+                exchange -> {
+                    int current = concurrentRequests.incrementAndGet();
+                    maxConcurrentRequests.accumulateAndGet(current, Math::max);
+                    synchronized (protocols) {
+                        protocols.add(exchange.getProtocol());
+                    }
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    concurrentRequests.decrementAndGet();
+                    byte[] body =
+                            exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8);
+                    exchange.sendResponseHeaders(200, body.length);
+                    exchange.getResponseBody().write(body);
+                    exchange.close();
+                });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+    }
+
+    @Test
+    void testSharedClients() {
+        assertSame(HttpClientRegistry.get(), HttpClientRegistry.get());
+        assertSame(
+                HttpClientRegistry.get().client(),
+                HttpClientRegistry.get(HttpClient.Redirect.NEVER).client());
+        assertFalse(
+                HttpClientRegistry.get().client()
+                        == HttpClientRegistry.get(HttpClient.Redirect.NORMAL).client());
+        assertTrue(HttpClientRegistry.get().client().executor().isPresent());
+        assertEquals(HttpClient.Version.HTTP_2, HttpClientRegistry.get().client().version());
+    }
+
+    @Test
+    void testSend() throws Exception {
+        SharedHttpClient client = HttpClientRegistry.get();
+        HttpResponse<String> response =
+                client.send(
+                        HttpRequest.newBuilder(uri("/hello")).GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals("/hello", response.body());
+        // no HTTP/2 upgrade over plain HTTP
+        assertEquals(HttpClient.Version.HTTP_1_1, response.version());
+        assertEquals(List.of("HTTP/1.1"), protocols);
+    }
+
+    @Test
+    void testMaxRequestsPerHost() throws Exception {
+        // the limit is a process wide setting, the test uses a dedicated limiter
+        SharedHttpClient client =
+                new SharedHttpClient(
+                        HttpClientRegistry.get().client(),
+                        new SharedHttpClient.HostLimiter(2, HttpClientRegistry.executor()));
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            responses.add(
+                    client.sendAsync(
+                            HttpRequest.newBuilder(uri("/" + i)).GET().build(),
+                            HttpResponse.BodyHandlers.ofString()));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals("/" + i, responses.get(i).get(10, TimeUnit.SECONDS).body());
+        }
+        assertTrue(maxConcurrentRequests.get() <= 2, "max " + maxConcurrentRequests.get());
+    }
+
+    @Test
+    void testStreamedBodyHoldsTheSlot() throws Exception {
+        SharedHttpClient.HostLimiter limiter =
+                new SharedHttpClient.HostLimiter(1, HttpClientRegistry.executor());
+        SharedHttpClient client = new SharedHttpClient(HttpClientRegistry.get().client(), limiter);
+        String host = SharedHttpClient.hostKey(uri("/"));
+        CountDownLatch endOfBody = new CountDownLatch(1);
+        server.createContext(
+                "/stream",
+                exchange -> {
+                    exchange.sendResponseHeaders(200, 0);
+                    exchange.getResponseBody().write("/str".getBytes(StandardCharsets.UTF_8));
+                    exchange.getResponseBody().flush();
+                    try {
+                        endOfBody.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    exchange.getResponseBody().write("eam".getBytes(StandardCharsets.UTF_8));
+                    exchange.close();
+                });
+
+        HttpResponse<InputStream> response =
+                client.sendAsync(
+                                HttpRequest.newBuilder(uri("/stream")).GET().build(),
+                                HttpResponse.BodyHandlers.ofInputStream())
+                        .get(10, TimeUnit.SECONDS);
+        // the headers have been received, but the body has not been consumed yet
+        assertEquals(1, limiter.inFlight(host));
+        CompletableFuture<HttpResponse<String>> next =
+                client.sendAsync(
+                        HttpRequest.newBuilder(uri("/next")).GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+        Thread.sleep(100);
+        assertFalse(next.isDone());
+
+        endOfBody.countDown();
+        try (InputStream body = response.body()) {
+            assertEquals("/stream", new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals("/next", next.get(10, TimeUnit.SECONDS).body());
+        assertEquals(0, limiter.inFlight(host));
+    }
+
+    @Test
+    void testHostLimiter() throws Exception {
+        CountDownLatch released = new CountDownLatch(1);
+        SharedHttpClient.HostLimiter limiter =
+                new SharedHttpClient.HostLimiter(1, HttpClientRegistry.executor());
+        assertTrue(limiter.acquire("a").isDone());
+        // another host is not limited
+        assertTrue(limiter.acquire("b").isDone());
+        CompletableFuture<Void> waiting = limiter.acquire("a");
+        waiting.thenRun(released::countDown);
+        assertFalse(waiting.isDone());
+        limiter.release("a");
+        assertTrue(released.await(10, TimeUnit.SECONDS));
+        assertEquals(1, limiter.inFlight("a"));
+        limiter.release("a");
+        limiter.release("b");
+        assertEquals(0, limiter.inFlight("a"));
+        assertEquals(0, limiter.inFlight("b"));
+    }
+}
@@ -22,6 +22,7 @@ import ai.langstream.api.runtime.AgentNode;
 import ai.langstream.api.runtime.ComponentType;
 import ai.langstream.api.runtime.ExecutionPlan;
 import ai.langstream.api.runtime.ExecutionPlanOptimiser;
+import ai.langstream.impl.agents.ai.GenAIToolKitFunctionAgentProvider;
 import ai.langstream.impl.common.DefaultAgentNode;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -69,7 +70,17 @@ public final class ComposableAgentExecutionPlanOptimiser implements ExecutionPla
         Integer parallismB = b != null ? b.parallelism() : null;
         Integer sizeA = a != null ? a.size() : null;
         Integer sizeB = b != null ? b.size() : null;
-        return Objects.equals(parallismA, parallismB) && Objects.equals(sizeA, sizeB);
+        Integer maxInFlightRecordsA = a != null ? a.maxInFlightRecords() : null;
+        Integer maxInFlightRecordsB = b != null ? b.maxInFlightRecords() : null;
+        String maxInFlightBytesA = a != null ? a.maxInFlightBytes() : null;
+        String maxInFlightBytesB = b != null ? b.maxInFlightBytes() : null;
+        Integer lanesA = a != null ? a.lanes() : null;
+        Integer lanesB = b != null ? b.lanes() : null;
+        return Objects.equals(parallismA, parallismB)
+                && Objects.equals(sizeA, sizeB)
+                && Objects.equals(maxInFlightRecordsA, maxInFlightRecordsB)
+                && Objects.equals(maxInFlightBytesA, maxInFlightBytesB)
+                && Objects.equals(lanesA, lanesB);
     }
 
     @Override
@@ -82,7 +93,19 @@ public final class ComposableAgentExecutionPlanOptimiser implements ExecutionPla
         if (previousAgent instanceof DefaultAgentNode agent1
                 && agentImplementation instanceof DefaultAgentNode agent2) {
 
-            if (agent1.getAgentType().equals(AbstractCompositeAgentProvider.AGENT_TYPE)) {
+            Map<String, Object> fusedConfiguration = fuseGenAIToolKitAgents(agent1, agent2);
+            if (fusedConfiguration != null) {
+                // the steps of agent2 are executed by agent1, over the same record
+                if (agent1.getOutputConnectionImplementation() != null) {
+                    log.info("Discarding topic {}", agent1.getOutputConnectionImplementation());
+                    instance.discardTopic(agent1.getOutputConnectionImplementation());
+                }
+                agent1.overrideConfigurationAfterMerge(
+                        agent1.getAgentType(),
+                        fusedConfiguration,
+                        agent2.getOutputConnectionImplementation(),
+                        agent2.getDisks());
+            } else if (agent1.getAgentType().equals(AbstractCompositeAgentProvider.AGENT_TYPE)) {
                 // merge "composite-agent" with a Composable Agent
 
                 Map<String, Object> configurationAgent2 = new HashMap<>();
@@ -179,4 +202,71 @@ public final class ComposableAgentExecutionPlanOptimiser implements ExecutionPla
         }
         throw new IllegalStateException();
     }
+
+    /**
+     * Fuse agent2 into agent1, or into the last processor of agent1 if it is a composite agent,
+     * when both are GenAI tool-kit agents.
+     *
+     * @return the new configuration of agent1, or null if the agents cannot be fused
+     */
+    private static Map<String, Object> fuseGenAIToolKitAgents(
+            DefaultAgentNode agent1, DefaultAgentNode agent2) {
+        if (agent2.getComponentType() != ComponentType.PROCESSOR
+                || !GenAIToolKitFunctionAgentProvider.isGenAIToolKitAgentType(
+                        agent2.getAgentType())) {
+            return null;
+        }
+        Map<String, Object> configurationAgent2 = withAgentIdOnTheSteps(agent2);
+        if (agent1.getAgentType().equals(AbstractCompositeAgentProvider.AGENT_TYPE)) {
+            Map<String, Object> configuration = new HashMap<>(agent1.getConfiguration());
+            List<Map<String, Object>> processors =
+                    (List<Map<String, Object>>) configuration.get("processors");
+            Map<String, Object> sink = (Map<String, Object>) configuration.get("sink");
+            if (processors.isEmpty() || (sink != null && !sink.isEmpty())) {
+                return null;
+            }
+            Map<String, Object> last = processors.get(processors.size() - 1);
+            if (!GenAIToolKitFunctionAgentProvider.isGenAIToolKitAgentType(
+                    (String) last.get("agentType"))) {
+                return null;
+            }
+            Map<String, Object> fused =
+                    GenAIToolKitFunctionAgentProvider.fuseConfigurations(
+                            (Map<String, Object>) last.get("configuration"), configurationAgent2);
+            if (fused == null) {
+                return null;
+            }
+            Map<String, Object> newLast = new HashMap<>(last);
+            newLast.put("configuration", fused);
+            List<Map<String, Object>> newProcessors = new ArrayList<>(processors);
+            newProcessors.set(newProcessors.size() - 1, newLast);
+            configuration.put("processors", newProcessors);
+            return configuration;
+        }
+        if (agent1.getComponentType() != ComponentType.PROCESSOR
+                || !GenAIToolKitFunctionAgentProvider.isGenAIToolKitAgentType(
+                        agent1.getAgentType())) {
+            return null;
+        }
+        return GenAIToolKitFunctionAgentProvider.fuseConfigurations(
+                agent1.getConfiguration(), configurationAgent2);
+    }
+
+    /**
+     * The fused steps run in agent1, they record the id of agent2 in order to keep using its
+     * persistent disk.
+     */
+    private static Map<String, Object> withAgentIdOnTheSteps(DefaultAgentNode agent) {
+        Map<String, Object> configuration = new HashMap<>(agent.getConfiguration());
+        List<Map<String, Object>> steps =
+                (List<Map<String, Object>>) configuration.getOrDefault("steps", List.of());
+        List<Map<String, Object>> newSteps = new ArrayList<>(steps.size());
+        for (Map<String, Object> step : steps) {
+            Map<String, Object> newStep = new HashMap<>(step);
+            newStep.putIfAbsent("agent-id", agent.getId());
+            newSteps.add(newStep);
+        }
+        configuration.put("steps", newSteps);
+        return configuration;
+    }
 }
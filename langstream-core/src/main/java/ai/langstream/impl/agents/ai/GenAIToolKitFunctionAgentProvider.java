@@ -44,6 +44,8 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 
@@ -250,6 +252,55 @@ public class GenAIToolKitFunctionAgentProvider extends AbstractAgentProvider {
         }
     }
 
+    /**
+     * @param agentType the type of an agent
+     * @return true if the agent is executed as a step of the GenAI tool-kit agent
+     */
+    public static boolean isGenAIToolKitAgentType(String agentType) {
+        return STEP_TYPES.containsKey(agentType);
+    }
+
+    /**
+     * Fuse the configurations of two consecutive GenAI tool-kit agents, the resulting agent
+     * executes the steps of both the agents over the same record.
+     *
+     * @param first the configuration of the first agent
+     * @param second the configuration of the second agent
+     * @return the configuration of the fused agent, or null if the agents use different datasources
+     *     or AI services
+     */
+    public static Map<String, Object> fuseConfigurations(
+            Map<String, Object> first, Map<String, Object> second) {
+        for (Map.Entry<String, Object> entry : second.entrySet()) {
+            if (!entry.getKey().equals("steps")
+                    && first.containsKey(entry.getKey())
+                    && !Objects.equals(first.get(entry.getKey()), entry.getValue())) {
+                return null;
+            }
+        }
+        // the AI service is selected by the configuration key, so the agents must agree on it
+        Set<String> firstServices = aiServiceConfigKeys(first);
+        Set<String> secondServices = aiServiceConfigKeys(second);
+        if (!firstServices.isEmpty()
+                && !secondServices.isEmpty()
+                && !firstServices.equals(secondServices)) {
+            return null;
+        }
+        Map<String, Object> result = new HashMap<>(first);
+        second.forEach(result::putIfAbsent);
+        List<Object> steps = new ArrayList<>((List<Object>) first.get("steps"));
+        steps.addAll((List<Object>) second.get("steps"));
+        result.put("steps", steps);
+        return result;
+    }
+
+    private static Set<String> aiServiceConfigKeys(Map<String, Object> configuration) {
+        return AI_SERVICES.stream()
+                .map(GenAIToolKitFunctionAgentProvider::getConfigKey)
+                .filter(configuration::containsKey)
+                .collect(Collectors.toSet());
+    }
+
     private static String getConfigKey(String type) {
         return switch (type) {
             case SERVICE_VERTEX -> "vertex";
@@ -255,6 +255,24 @@ public class AITextCompletionsConfiguration extends BaseGenAIStepConfiguration {
         private String responseCompletionsExpression;
     }
 
+    @ConfigProperty(
+            description =
+                    """
+                            Number of answers to keep in memory. A request identical to a previous one (same model, options and prompt) gets the same answer without calling the AI Service, the streamed chunks are sent again to the stream-to-topic. The cache is disabled by default.
+                            """,
+            defaultValue = "0")
+    @JsonProperty(value = "cache-size")
+    private int cacheSize;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Time to live of the cached answers, in seconds.
+                            """,
+            defaultValue = "3600")
+    @JsonProperty(value = "cache-ttl-seconds")
+    private long cacheTtlSeconds = 3600;
+
     @ConfigProperty(
             description =
                     """
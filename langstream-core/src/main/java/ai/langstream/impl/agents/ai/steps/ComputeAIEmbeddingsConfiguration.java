@@ -105,6 +105,33 @@ public class ComputeAIEmbeddingsConfiguration extends BaseGenAIStepConfiguration
     @JsonProperty("batch-size")
     private int batchSize = 10;
 
+    @ConfigProperty(
+            description =
+                    """
+                            Maximum number of tokens in a batch, the batch is submitted as soon as the next text would exceed it. Use it to stay below the limits of the AI Service. The default (0) disables the limit.
+                            """,
+            defaultValue = "0")
+    @JsonProperty("batch-max-tokens")
+    private int batchMaxTokens;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Function used to count the tokens for "batch-max-tokens": "length" counts the characters, otherwise it is the name of a tiktoken encoding.
+                            """,
+            defaultValue = "cl100k_base")
+    @JsonProperty("length-function")
+    private String lengthFunction = "cl100k_base";
+
+    @ConfigProperty(
+            description =
+                    """
+                            Adapt the number of records in a batch, up to batch-size, to the latency and the errors of the AI Service.
+                            """,
+            defaultValue = "false")
+    @JsonProperty("adaptive-batch-size")
+    private boolean adaptiveBatchSize;
+
     @ConfigProperty(
             description =
                     """
@@ -113,6 +140,24 @@ public class ComputeAIEmbeddingsConfiguration extends BaseGenAIStepConfiguration
             defaultValue = "4")
     private int concurrency = 4;
 
+    @ConfigProperty(
+            description =
+                    """
+                            Maximum number of batches waiting for the AI Service for each concurrent request. When the limit is reached the agent stops reading new records until a batch completes. The default (0) means no limit.
+                            """,
+            defaultValue = "0")
+    @JsonProperty("max-pending-batches")
+    private int maxPendingBatches;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Number of batches with records with the same key sent at the same time to the AI Service. With more than one the records with the same key may be processed out of order.
+                            """,
+            defaultValue = "1")
+    @JsonProperty("max-in-flight-batches")
+    private int maxInFlightBatches = 1;
+
     @ConfigProperty(
             description =
                     """
@@ -122,6 +167,24 @@ public class ComputeAIEmbeddingsConfiguration extends BaseGenAIStepConfiguration
     @JsonProperty("flush-interval")
     private int flushInterval;
 
+    @ConfigProperty(
+            description =
+                    """
+                            Number of embeddings to keep in memory, keyed by the model and the text. Identical texts are not sent again to the AI Service. The cache is disabled by default.
+                            """,
+            defaultValue = "0")
+    @JsonProperty("cache-size")
+    private int cacheSize;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Size in megabytes of the on-disk tier of the embeddings cache, that survives the restarts of the agent. It requires "cache-size" and a persistent disk for the agent.
+                            """,
+            defaultValue = "0")
+    @JsonProperty("disk-cache-size-mb")
+    private int diskCacheSizeMb;
+
     @ConfigProperty(
             description =
                     """
@@ -144,6 +207,33 @@ public class ComputeAIEmbeddingsConfiguration extends BaseGenAIStepConfiguration
                             """)
     private Map<String, String> arguments;
 
+    @ConfigProperty(
+            description =
+                    """
+                            Maximum number of texts computed in a single forward pass by a local model. The texts sent by all the threads are collected for "micro-batch-delay-ms", grouped by length and padded. The default (0) computes one text at a time. (HuggingFace local provider only)
+                            """,
+            defaultValue = "0")
+    @JsonProperty("micro-batch-size")
+    private int microBatchSize;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Time in milliseconds to wait for other texts before running a forward pass. (HuggingFace local provider only)
+                            """,
+            defaultValue = "5")
+    @JsonProperty("micro-batch-delay-ms")
+    private int microBatchDelayMs = 5;
+
+    @ConfigProperty(
+            description =
+                    """
+                            Number of threads used by the engine inside each operation, shared by all the models of the process. The default (0) lets the engine choose. (HuggingFace local provider only)
+                            """,
+            defaultValue = "0")
+    @JsonProperty("intra-op-threads")
+    private int intraOpThreads;
+
     @ConfigProperty(
             description =
                     """
@@ -978,6 +978,33 @@ public class ModelBuilder {
                             + errorsSpec.getRetries()
                             + ")");
         }
+        if (errorsSpec.getRetryInitialBackoffMs() != null
+                && errorsSpec.getRetryInitialBackoffMs() < 0) {
+            throw new IllegalArgumentException(
+                    "retry-initial-backoff-ms must be a positive integer (bad value: "
+                            + errorsSpec.getRetryInitialBackoffMs()
+                            + ")");
+        }
+        if (errorsSpec.getRetryMaxBackoffMs() != null && errorsSpec.getRetryMaxBackoffMs() < 0) {
+            throw new IllegalArgumentException(
+                    "retry-max-backoff-ms must be a positive integer (bad value: "
+                            + errorsSpec.getRetryMaxBackoffMs()
+                            + ")");
+        }
+        if (errorsSpec.getRetryBackoffMultiplier() != null
+                && errorsSpec.getRetryBackoffMultiplier() < 1) {
+            throw new IllegalArgumentException(
+                    "retry-backoff-multiplier must be greater or equal to 1 (bad value: "
+                            + errorsSpec.getRetryBackoffMultiplier()
+                            + ")");
+        }
+        if (errorsSpec.getRetryJitter() != null
+                && (errorsSpec.getRetryJitter() < 0 || errorsSpec.getRetryJitter() > 1)) {
+            throw new IllegalArgumentException(
+                    "retry-jitter must be between 0 and 1 (bad value: "
+                            + errorsSpec.getRetryJitter()
+                            + ")");
+        }
         if (errorsSpec.getOnFailure() != null) {
             switch (errorsSpec.getOnFailure()) {
                 case ErrorsSpec.SKIP:
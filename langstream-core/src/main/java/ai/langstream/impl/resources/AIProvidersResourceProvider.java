@@ -117,9 +117,31 @@ public class AIProvidersResourceProvider extends AbstractResourceProvider {
         }
     }
 
+    @Data
+    public static class RateLimitConfig {
+
+        @ConfigProperty(
+                description =
+                        """
+                        Maximum number of requests per minute sent to the service by each agent. The requests over the limit are queued. 0 means no limit.
+                        """,
+                defaultValue = "0")
+        @JsonProperty("requests-per-minute")
+        private int requestsPerMinute;
+
+        @ConfigProperty(
+                description =
+                        """
+                        Maximum number of tokens per minute sent to the service by each agent, estimated from the length of the texts. The requests over the limit are queued. 0 means no limit.
+                        """,
+                defaultValue = "0")
+        @JsonProperty("tokens-per-minute")
+        private int tokensPerMinute;
+    }
+
     @Data
     @ResourceConfig(name = "Open AI", description = "Connect to OpenAI API or Azure OpenAI API.")
-    public static class OpenAIConfig {
+    public static class OpenAIConfig extends RateLimitConfig {
 
         public enum Provider {
             openai,
@@ -153,7 +175,7 @@ public class AIProvidersResourceProvider extends AbstractResourceProvider {
 
     @Data
     @ResourceConfig(name = "Vertex AI", description = "Connect to VertexAI API.")
-    public static class VertexAIConfig {
+    public static class VertexAIConfig extends RateLimitConfig {
 
         @ConfigProperty(
                 description =
@@ -196,7 +218,7 @@ public class AIProvidersResourceProvider extends AbstractResourceProvider {
 
     @Data
     @ResourceConfig(name = "Hugging Face", description = "Connect to Hugging Face service.")
-    public static class HuggingFaceConfig {
+    public static class HuggingFaceConfig extends RateLimitConfig {
 
         public enum Provider {
             local,
@@ -240,7 +262,7 @@ public class AIProvidersResourceProvider extends AbstractResourceProvider {
 
     @Data
     @ResourceConfig(name = "Ollama", description = "Connect to Ollama API.")
-    public static class OllamaConfig {
+    public static class OllamaConfig extends RateLimitConfig {
 
         @ConfigProperty(
                 description =
@@ -254,7 +276,7 @@ public class AIProvidersResourceProvider extends AbstractResourceProvider {
 
     @Data
     @ResourceConfig(name = "AWS Bedrock", description = "Connect to AWS Bedrock API.")
-    public static class BedrockConfig {
+    public static class BedrockConfig extends RateLimitConfig {
 
         @ConfigProperty(
                 description =
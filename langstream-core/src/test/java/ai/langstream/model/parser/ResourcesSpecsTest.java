@@ -231,4 +231,45 @@ public class ResourcesSpecsTest {
             assertEquals("15M", agent.getResources().disk().size());
         }
     }
+
+    @Test
+    public void testConfigureResourceSpecsWithInFlightBudget() throws Exception {
+        Application applicationInstance =
+                ModelBuilder.buildApplicationInstance(
+                                Map.of(
+                                        "module.yaml",
+                                        """
+                        module: "module-1"
+                        id: "pipeline-1"
+                        resources:
+                           max-in-flight-records: 100
+                        topics:
+                          - name: "input-topic"
+                            creation-mode: create-if-not-exists
+                        pipeline:
+                          - name: "step1"
+                            type: "noop"
+                            input: "input-topic"
+                          - name: "step2"
+                            type: "noop"
+                            resources:
+                               max-in-flight-records: 10
+                               max-in-flight-bytes: 64M
+                        """),
+                                buildInstanceYaml(),
+                                null)
+                        .getApplication();
+
+        Module module = applicationInstance.getModule("module-1");
+        Pipeline pipeline = module.getPipelines().get("pipeline-1");
+
+        AgentConfiguration agent1 = pipeline.getAgents().get(0);
+        assertEquals(100, agent1.getResources().maxInFlightRecords());
+        assertNull(agent1.getResources().maxInFlightBytes());
+        assertEquals(1, agent1.getResources().parallelism());
+
+        AgentConfiguration agent2 = pipeline.getAgents().get(1);
+        assertEquals(10, agent2.getResources().maxInFlightRecords());
+        assertEquals("64M", agent2.getResources().maxInFlightBytes());
+    }
 }
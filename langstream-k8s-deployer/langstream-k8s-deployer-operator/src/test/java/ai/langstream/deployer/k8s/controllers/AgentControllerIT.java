@@ -442,7 +442,8 @@ public class AgentControllerIT {
                                                 "fn-type",
                                                 Map.of("config", true),
                                                 Map.of(),
-                                                Set.of()),
+                                                Set.of(),
+                                                Map.of()),
                                         new StreamingCluster("noop", Map.of("config", true)))))
                 .inNamespace(namespace)
                 .serverSideApply();
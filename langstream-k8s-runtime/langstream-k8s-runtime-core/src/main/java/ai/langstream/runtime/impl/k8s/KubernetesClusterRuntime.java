@@ -295,6 +295,34 @@ public class KubernetesClusterRuntime extends BasicClusterRuntime {
         // set StandardErrorHandler
         errorsConfiguration.put("retries", errorsSpec.getRetries());
         errorsConfiguration.put("onFailure", errorsSpec.getOnFailure());
+        if (errorsSpec.getRetryInitialBackoffMs() != null) {
+            errorsConfiguration.put("retryInitialBackoffMs", errorsSpec.getRetryInitialBackoffMs());
+        }
+        if (errorsSpec.getRetryMaxBackoffMs() != null) {
+            errorsConfiguration.put("retryMaxBackoffMs", errorsSpec.getRetryMaxBackoffMs());
+        }
+        if (errorsSpec.getRetryBackoffMultiplier() != null) {
+            errorsConfiguration.put(
+                    "retryBackoffMultiplier", errorsSpec.getRetryBackoffMultiplier());
+        }
+        if (errorsSpec.getRetryJitter() != null) {
+            errorsConfiguration.put("retryJitter", errorsSpec.getRetryJitter());
+        }
+
+        Map<String, Object> runnerConfiguration = new HashMap<>();
+        ResourcesSpec agentResources = agent.getResources();
+        if (agentResources != null) {
+            if (agentResources.maxInFlightRecords() != null) {
+                runnerConfiguration.put("maxInFlightRecords", agentResources.maxInFlightRecords());
+            }
+            if (agentResources.maxInFlightBytes() != null) {
+                runnerConfiguration.put(
+                        "maxInFlightBytes", DiskSpec.parseSize(agentResources.maxInFlightBytes()));
+            }
+            if (agentResources.lanes() != null) {
+                runnerConfiguration.put("lanes", agentResources.lanes());
+            }
+        }
         Set<String> agentIdsWithDisks =
                 defaultAgentImplementation.getDisks() != null
                         ? defaultAgentImplementation.getDisks().keySet()
@@ -315,7 +343,8 @@ public class KubernetesClusterRuntime extends BasicClusterRuntime {
                                 defaultAgentImplementation.getAgentType(),
                                 defaultAgentImplementation.getConfiguration(),
                                 errorsConfiguration,
-                                agentIdsWithDisks != null ? agentIdsWithDisks : Set.of()),
+                                agentIdsWithDisks != null ? agentIdsWithDisks : Set.of(),
+                                runnerConfiguration),
                         streamingCluster);
 
         final Secret secret =
@@ -338,6 +338,108 @@ class CompositeAgentTest {
         }
     }
 
+    @Test
+    public void testFuseGenAIToolKitAgents() throws Exception {
+        Application applicationInstance =
+                ModelBuilder.buildApplicationInstance(
+                                Map.of(
+                                        "module.yaml",
+                                        """
+                                module: "module-1"
+                                id: "pipeline-1"
+                                topics:
+                                  - name: "input-topic"
+                                    creation-mode: create-if-not-exists
+                                  - name: "output-topic"
+                                    creation-mode: create-if-not-exists
+                                pipeline:
+                                  - name: "compute-1"
+                                    id: "step1"
+                                    type: "compute"
+                                    input: "input-topic"
+                                    configuration:
+                                      fields:
+                                        - name: "value.f1"
+                                          expression: "'a'"
+                                  - name: "drop-fields"
+                                    id: "step2"
+                                    type: "drop-fields"
+                                    configuration:
+                                      fields: ["f0"]
+                                  - name: "text-extractor"
+                                    id: "step3"
+                                    type: "text-extractor"
+                                  - name: "compute-2"
+                                    id: "step4"
+                                    type: "compute"
+                                    configuration:
+                                      fields:
+                                        - name: "value.f2"
+                                          expression: "'b'"
+                                  - name: "drop"
+                                    id: "step5"
+                                    type: "drop"
+                                    output: "output-topic"
+                                    configuration:
+                                      when: "value.f2 == 'c'"
+                                """),
+                                buildInstanceYaml(),
+                                null)
+                        .getApplication();
+
+        try (ApplicationDeployer deployer =
+                ApplicationDeployer.builder()
+                        .registry(new ClusterRuntimeRegistry())
+                        .pluginsRegistry(new PluginsRegistry())
+                        .build()) {
+
+            ExecutionPlan implementation =
+                    deployer.createImplementation("app", applicationInstance);
+
+            Module module = applicationInstance.getModule("module-1");
+            assertEquals(1, implementation.getAgents().size());
+            assertEquals(2, implementation.getTopics().size());
+
+            DefaultAgentNode defaultAgentNode =
+                    (DefaultAgentNode) implementation.getAgentImplementation(module, "step1");
+            assertEquals(
+                    AbstractCompositeAgentProvider.AGENT_TYPE, defaultAgentNode.getAgentType());
+            List<Map<String, Object>> processors =
+                    (List<Map<String, Object>>)
+                            defaultAgentNode.getConfiguration().get("processors");
+            assertEquals(3, processors.size());
+
+            // consecutive GenAI tool-kit agents are executed by the same agent
+            assertEquals("compute", processors.get(0).get("agentType"));
+            assertEquals("step1", processors.get(0).get("agentId"));
+            List<Map<String, Object>> steps =
+                    (List<Map<String, Object>>)
+                            ((Map<String, Object>) processors.get(0).get("configuration"))
+                                    .get("steps");
+            assertEquals(
+                    List.of("compute", "drop-fields"),
+                    steps.stream().map(step -> step.get("type")).toList());
+
+            assertEquals("text-extractor", processors.get(1).get("agentType"));
+
+            assertEquals("compute", processors.get(2).get("agentType"));
+            assertEquals("step4", processors.get(2).get("agentId"));
+            steps =
+                    (List<Map<String, Object>>)
+                            ((Map<String, Object>) processors.get(2).get("configuration"))
+                                    .get("steps");
+            assertEquals(
+                    List.of("compute", "drop"),
+                    steps.stream().map(step -> step.get("type")).toList());
+            assertEquals("value.f2 == 'c'", steps.get(1).get("when"));
+
+            Topic inputTopic = (Topic) defaultAgentNode.getInputConnectionImplementation();
+            assertEquals("input-topic", inputTopic.topicName());
+            Topic outputTopic = (Topic) defaultAgentNode.getOutputConnectionImplementation();
+            assertEquals("output-topic", outputTopic.topicName());
+        }
+    }
+
     @Test
     public void testMergeSourceWithProcessors() throws Exception {
         Application applicationInstance =
@@ -29,7 +29,6 @@ import ai.langstream.api.runtime.AgentNode;
 import ai.langstream.api.runtime.ClusterRuntimeRegistry;
 import ai.langstream.api.runtime.ExecutionPlan;
 import ai.langstream.api.runtime.PluginsRegistry;
-import ai.langstream.impl.agents.AbstractCompositeAgentProvider;
 import ai.langstream.impl.common.DefaultAgentNode;
 import ai.langstream.impl.deploy.ApplicationDeployer;
 import ai.langstream.impl.noop.NoOpStreamingClusterRuntimeProvider;
@@ -203,11 +202,10 @@ class GenAIAgentsTest {
         assertNotNull(agentImplementation);
         DefaultAgentNode step = (DefaultAgentNode) agentImplementation;
 
-        assertEquals(AbstractCompositeAgentProvider.AGENT_TYPE, step.getAgentType());
+        // the two agents are fused into a single agent that executes both the steps
+        assertEquals("compute-ai-embeddings", step.getAgentType());
 
-        Map<String, Object> configuration =
-                AbstractCompositeAgentProvider.getProcessorConfigurationAt(
-                        step, 0, "compute-ai-embeddings");
+        Map<String, Object> configuration = step.getConfiguration();
         log.info("Configuration: {}", configuration);
 
         Map<String, Object> openAIConfiguration = (Map<String, Object>) configuration.get("openai");
@@ -216,22 +214,19 @@ class GenAIAgentsTest {
         assertEquals("xxcxcxc", openAIConfiguration.get("access-key"));
         assertEquals("azure", openAIConfiguration.get("provider"));
 
-        List<Map<String, Object>> steps = (List<Map<String, Object>>) configuration.get("steps");
-        assertEquals(1, steps.size());
+        List<Map<String, Object>> steps = getSteps(step, "compute-ai-embeddings", "drop-fields");
         Map<String, Object> step1 = steps.get(0);
-        assertEquals("compute-ai-embeddings", step1.get("type"));
         assertEquals("text-embedding-ada-002", step1.get("model"));
         assertEquals("value.embeddings", step1.get("embeddings-field"));
         assertEquals("{{ value.name }} {{ value.description }}", step1.get("text"));
+        assertNull(step1.get("agent-id"));
 
-        configuration =
-                AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 1, "drop-fields");
-        steps = (List<Map<String, Object>>) configuration.get("steps");
-        assertEquals(1, steps.size());
-        Map<String, Object> step2 = steps.get(0);
+        Map<String, Object> step2 = steps.get(1);
         assertEquals("drop-fields", step2.get("type"));
         assertEquals(List.of("embeddings"), step2.get("fields"));
         assertEquals("value", step2.get("part"));
+        // the fused step keeps the persistent disk of its agent
+        assertEquals("step2", step2.get("agent-id"));
 
         // verify that the intermediate topic is not created
         log.info(
@@ -488,27 +483,27 @@ class GenAIAgentsTest {
         assertNotNull(agentImplementation);
         DefaultAgentNode step = (DefaultAgentNode) agentImplementation;
 
-        Map<String, Object> configuration =
-                AbstractCompositeAgentProvider.getProcessorConfigurationAt(
-                        step, 0, "compute-ai-embeddings");
+        Map<String, Object> configuration = step.getConfiguration();
         log.info("Configuration: {}", configuration);
         Map<String, Object> openAIConfiguration = (Map<String, Object>) configuration.get("openai");
         log.info("openAIConfiguration: {}", openAIConfiguration);
         assertEquals("http://something", openAIConfiguration.get("url"));
         assertEquals("xxcxcxc", openAIConfiguration.get("access-key"));
         assertEquals("azure", openAIConfiguration.get("provider"));
-        List<Map<String, Object>> steps = (List<Map<String, Object>>) configuration.get("steps");
-        assertEquals(1, steps.size());
-
-        AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 1, "drop-fields");
-        AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 2, "drop");
-        AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 3, "query");
-        AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 4, "unwrap-key-value");
-        AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 5, "flatten");
-        AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 6, "compute");
-        AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 7, "merge-key-value");
-        AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 8, "ai-chat-completions");
-        AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 9, "cast");
+        assertNotNull(configuration.get("datasource"));
+
+        getSteps(
+                step,
+                "compute-ai-embeddings",
+                "drop-fields",
+                "drop",
+                "query",
+                "unwrap-key-value",
+                "flatten",
+                "compute",
+                "merge-key-value",
+                "ai-chat-completions",
+                "cast");
 
         // verify that the intermediate topics are not created
         log.info("topics {}", implementation.getTopics());
@@ -626,26 +621,17 @@ class GenAIAgentsTest {
         {
             AgentNode agentImplementation = implementation.getAgentImplementation(module, "query2");
             DefaultAgentNode step = (DefaultAgentNode) agentImplementation;
-            {
-                Map<String, Object> configuration =
-                        AbstractCompositeAgentProvider.getProcessorConfigurationAt(
-                                step, 0, "query");
-                log.info("Configuration: {}", configuration);
-                Map<String, Object> datasourceConfiguration1 =
-                        (Map<String, Object>) configuration.get("datasource");
-                assertEquals("jdbc", datasourceConfiguration1.get("service"));
-                assertEquals(
-                        "jdbc:postgresql://localhost:5432/postgres",
-                        datasourceConfiguration1.get("url"));
-                assertEquals("org.postgresql.Driver", datasourceConfiguration1.get("driverClass"));
-                List<Map<String, Object>> steps =
-                        (List<Map<String, Object>>) configuration.get("steps");
-                // query + cast
-                assertEquals(1, steps.size());
-            }
-
-            // verify second step
-            AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 1, "cast");
+            Map<String, Object> configuration = step.getConfiguration();
+            log.info("Configuration: {}", configuration);
+            Map<String, Object> datasourceConfiguration1 =
+                    (Map<String, Object>) configuration.get("datasource");
+            assertEquals("jdbc", datasourceConfiguration1.get("service"));
+            assertEquals(
+                    "jdbc:postgresql://localhost:5432/postgres",
+                    datasourceConfiguration1.get("url"));
+            assertEquals("org.postgresql.Driver", datasourceConfiguration1.get("driverClass"));
+            // query + cast
+            getSteps(step, "query", "cast");
         }
 
         // verify that an intermediate topic is created
@@ -750,13 +736,8 @@ class GenAIAgentsTest {
             AgentNode agentImplementation = implementation.getAgentImplementation(module, "step1");
             DefaultAgentNode step = (DefaultAgentNode) agentImplementation;
 
-            Map<String, Object> computeAiConfiguration =
-                    AbstractCompositeAgentProvider.getProcessorConfigurationAt(
-                            step, 0, "compute-ai-embeddings");
-            assertNotNull(computeAiConfiguration.get("openai"));
-
-            Map<String, Object> configuration =
-                    AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 1, "query");
+            Map<String, Object> configuration = step.getConfiguration();
+            assertNotNull(configuration.get("openai"));
             log.info("Configuration: {}", configuration);
             Map<String, Object> datasourceConfiguration1 =
                     (Map<String, Object>) configuration.get("datasource");
@@ -765,11 +746,7 @@ class GenAIAgentsTest {
                     "jdbc:postgresql://localhost:5432/postgres",
                     datasourceConfiguration1.get("url"));
             assertEquals("org.postgresql.Driver", datasourceConfiguration1.get("driverClass"));
-            List<Map<String, Object>> steps =
-                    (List<Map<String, Object>>) configuration.get("steps");
-            assertEquals(1, steps.size());
-
-            AbstractCompositeAgentProvider.getProcessorConfigurationAt(step, 2, "cast");
+            getSteps(step, "compute-ai-embeddings", "query", "cast");
         }
     }
 
@@ -883,4 +860,12 @@ class GenAIAgentsTest {
             assertEquals("Function [fn:len] not found", e.getMessage());
         }
     }
+
+    private static List<Map<String, Object>> getSteps(
+            DefaultAgentNode agent, String... expectedTypes) {
+        List<Map<String, Object>> steps =
+                (List<Map<String, Object>>) agent.getConfiguration().get("steps");
+        assertEquals(List.of(expectedTypes), steps.stream().map(s -> s.get("type")).toList());
+        return steps;
+    }
 }
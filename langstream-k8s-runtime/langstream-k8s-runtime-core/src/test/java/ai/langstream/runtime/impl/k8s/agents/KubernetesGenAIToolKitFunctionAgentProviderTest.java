@@ -140,6 +140,18 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "required" : false,
                                   "type" : "string"
                                 },
+                                "cache-size" : {
+                                  "description" : "Number of answers to keep in memory. A request identical to a previous one (same model, options and prompt) gets the same answer without calling the AI Service, the streamed chunks are sent again to the stream-to-topic. The cache is disabled by default.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
+                                "cache-ttl-seconds" : {
+                                  "description" : "Time to live of the cached answers, in seconds.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "3600"
+                                },
                                 "completion-field" : {
                                   "description" : "Field to use to store the completion results in the output topic. Use \\"value\\" to write the result without a structured schema. Use \\"value.<field>\\" to write the result in a specific field.",
                                   "required" : false,
@@ -271,6 +283,18 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "required" : false,
                                   "type" : "string"
                                 },
+                                "cache-size" : {
+                                  "description" : "Number of answers to keep in memory. A request identical to a previous one (same model, options and prompt) gets the same answer without calling the AI Service, the streamed chunks are sent again to the stream-to-topic. The cache is disabled by default.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
+                                "cache-ttl-seconds" : {
+                                  "description" : "Time to live of the cached answers, in seconds.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "3600"
+                                },
                                 "completion-field" : {
                                   "description" : "Field to use to store the completion results in the output topic. Use \\"value\\" to write the result without a structured schema. Use \\"value.<field>\\" to write the result in a specific field.",
                                   "required" : false,
@@ -473,6 +497,12 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                               "name" : "Compute embeddings of the record",
                               "description" : "Compute embeddings of the record. The embeddings are stored in the record under a specific field.",
                               "properties" : {
+                                "adaptive-batch-size" : {
+                                  "description" : "Adapt the number of records in a batch, up to batch-size, to the latency and the errors of the AI Service.",
+                                  "required" : false,
+                                  "type" : "boolean",
+                                  "defaultValue" : "false"
+                                },
                                 "ai-service" : {
                                   "description" : "In case of multiple AI services configured, specify the id of the AI service to use.",
                                   "required" : false,
@@ -483,12 +513,24 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "required" : false,
                                   "type" : "object"
                                 },
+                                "batch-max-tokens" : {
+                                  "description" : "Maximum number of tokens in a batch, the batch is submitted as soon as the next text would exceed it. Use it to stay below the limits of the AI Service. The default (0) disables the limit.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
                                 "batch-size" : {
                                   "description" : "Batch size for submitting the embeddings requests.",
                                   "required" : false,
                                   "type" : "integer",
                                   "defaultValue" : "10"
                                 },
+                                "cache-size" : {
+                                  "description" : "Number of embeddings to keep in memory, keyed by the model and the text. Identical texts are not sent again to the AI Service. The cache is disabled by default.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
                                 "composable" : {
                                   "description" : "Whether this step can be composed with other steps.",
                                   "required" : false,
@@ -501,6 +543,12 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "type" : "integer",
                                   "defaultValue" : "4"
                                 },
+                                "disk-cache-size-mb" : {
+                                  "description" : "Size in megabytes of the on-disk tier of the embeddings cache, that survives the restarts of the agent. It requires \\"cache-size\\" and a persistent disk for the agent.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
                                 "embeddings-field" : {
                                   "description" : "Field where to store the embeddings.",
                                   "required" : true,
@@ -512,11 +560,47 @@ class KubernetesGenAIToolKitFunctionAgentProviderTest {
                                   "type" : "integer",
                                   "defaultValue" : "0"
                                 },
+                                "intra-op-threads" : {
+                                  "description" : "Number of threads used by the engine inside each operation, shared by all the models of the process. The default (0) lets the engine choose. (HuggingFace local provider only)",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
+                                "length-function" : {
+                                  "description" : "Function used to count the tokens for \\"batch-max-tokens\\": \\"length\\" counts the characters, otherwise it is the name of a tiktoken encoding.",
+                                  "required" : false,
+                                  "type" : "string",
+                                  "defaultValue" : "cl100k_base"
+                                },
                                 "loop-over" : {
                                   "description" : "Execute the agent over a list of documents",
                                   "required" : false,
                                   "type" : "string"
                                 },
+                                "max-in-flight-batches" : {
+                                  "description" : "Number of batches with records with the same key sent at the same time to the AI Service. With more than one the records with the same key may be processed out of order.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "1"
+                                },
+                                "max-pending-batches" : {
+                                  "description" : "Maximum number of batches waiting for the AI Service for each concurrent request. When the limit is reached the agent stops reading new records until a batch completes. The default (0) means no limit.",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
+                                "micro-batch-delay-ms" : {
+                                  "description" : "Time in milliseconds to wait for other texts before running a forward pass. (HuggingFace local provider only)",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "5"
+                                },
+                                "micro-batch-size" : {
+                                  "description" : "Maximum number of texts computed in a single forward pass by a local model. The texts sent by all the threads are collected for \\"micro-batch-delay-ms\\", grouped by length and padded. The default (0) computes one text at a time. (HuggingFace local provider only)",
+                                  "required" : false,
+                                  "type" : "integer",
+                                  "defaultValue" : "0"
+                                },
                                 "model" : {
                                   "description" : "Model to use for the embeddings. The model must be available in the configured AI Service.",
                                   "required" : false,
@@ -23,9 +23,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import lombok.Getter;
@@ -39,6 +38,13 @@ import org.apache.kafka.common.TopicPartition;
 
 @Slf4j
 public class KafkaConsumerWrapper implements TopicConsumer, ConsumerRebalanceListener {
+
+    /** Maximum time between two commits to Kafka, while there are offsets to commit. */
+    static final String COMMIT_INTERVAL_MS_CONFIG = "langstream.commit.interval.ms";
+
+    /** Number of committed records after which the offsets are sent to Kafka immediately. */
+    static final String COMMIT_MAX_RECORDS_CONFIG = "langstream.commit.max.records";
+
     private final Map<String, Object> configuration;
     private final String topicName;
     private final AtomicInteger totalOut = new AtomicInteger();
@@ -49,13 +55,33 @@ public class KafkaConsumerWrapper implements TopicConsumer, ConsumerRebalanceLis
     final AtomicReference<Throwable> commitFailure = new AtomicReference();
 
     @Getter
-    private final Map<TopicPartition, TreeSet<Long>> uncommittedOffsets = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, OffsetWindow> uncommittedOffsets = new ConcurrentHashMap<>();
 
     private final Map<TopicPartition, OffsetAndMetadata> committed = new ConcurrentHashMap<>();
 
+    private final long commitIntervalNanos;
+    private final int commitMaxRecords;
+    // records committed locally and not yet sent to Kafka
+    private int recordsToCommit;
+    private long lastCommitNanos = System.nanoTime();
+
     public KafkaConsumerWrapper(Map<String, Object> configuration, String topicName) {
-        this.configuration = configuration;
+        this.configuration = new HashMap<>(configuration);
         this.topicName = topicName;
+        this.commitIntervalNanos =
+                TimeUnit.MILLISECONDS.toNanos(
+                        Long.parseLong(
+                                this.configuration
+                                        .getOrDefault(COMMIT_INTERVAL_MS_CONFIG, "1000")
+                                        .toString()));
+        this.commitMaxRecords =
+                Integer.parseInt(
+                        this.configuration
+                                .getOrDefault(COMMIT_MAX_RECORDS_CONFIG, "1000")
+                                .toString());
+        // these are not Kafka consumer properties
+        this.configuration.remove(COMMIT_INTERVAL_MS_CONFIG);
+        this.configuration.remove(COMMIT_MAX_RECORDS_CONFIG);
     }
 
     @Override
@@ -68,7 +94,9 @@ public class KafkaConsumerWrapper implements TopicConsumer, ConsumerRebalanceLis
 
     @Override
     public synchronized void start() {
-        consumer = new KafkaConsumer(configuration);
+        consumer =
+                new KafkaConsumer(
+                        configuration, null, VectorDecodingDeserializer.create(configuration));
         if (topicName != null) {
             log.info("Subscribing consumer to {}", topicName);
             consumer.subscribe(List.of(topicName), this);
@@ -78,6 +106,24 @@ public class KafkaConsumerWrapper implements TopicConsumer, ConsumerRebalanceLis
     @Override
     public synchronized void onPartitionsRevoked(Collection<TopicPartition> partitions) {
         log.info("Partitions revoked: {}", partitions);
+        if (recordsToCommit > 0) {
+            // last chance to commit the offsets of the revoked partitions
+            Map<TopicPartition, OffsetAndMetadata> toCommit = new HashMap<>();
+            for (TopicPartition topicPartition : partitions) {
+                OffsetAndMetadata offsetAndMetadata = committed.get(topicPartition);
+                if (offsetAndMetadata != null) {
+                    toCommit.put(topicPartition, offsetAndMetadata);
+                }
+            }
+            if (!toCommit.isEmpty()) {
+                log.info("Committing offsets of the revoked partitions {}", toCommit);
+                try {
+                    consumer.commitSync(toCommit);
+                } catch (RuntimeException error) {
+                    log.error("Error committing offsets on revoked partitions", error);
+                }
+            }
+        }
         for (TopicPartition topicPartition : partitions) {
             OffsetAndMetadata offsetAndMetadata = committed.remove(topicPartition);
             if (offsetAndMetadata != null) {
@@ -86,7 +132,7 @@ public class KafkaConsumerWrapper implements TopicConsumer, ConsumerRebalanceLis
                         offsetAndMetadata.offset(),
                         topicPartition);
             }
-            TreeSet<Long> remove = uncommittedOffsets.remove(topicPartition);
+            OffsetWindow remove = uncommittedOffsets.remove(topicPartition);
             if (remove != null && !remove.isEmpty()) {
                 log.warn(
                         "There are uncommitted offsets {} on partition {} (revoked), this messages will be re-delivered",
@@ -160,7 +206,7 @@ public class KafkaConsumerWrapper implements TopicConsumer, ConsumerRebalanceLis
                 log.info("Committing offsets on {}: {}", topicName, committed);
                 consumer.commitSync(committed);
             }
-            int sum = uncommittedOffsets.values().stream().mapToInt(Set::size).sum();
+            int sum = uncommittedOffsets.values().stream().mapToInt(OffsetWindow::size).sum();
             log.info(
                     "Closing consumer to {} with {} pending commits and {} uncommitted offsets: {} ",
                     topicName,
@@ -177,7 +223,17 @@ public class KafkaConsumerWrapper implements TopicConsumer, ConsumerRebalanceLis
             throw new RuntimeException("latest commit failed", commitFailure.get());
         }
         KafkaConsumer consumer = getConsumer();
+        if (recordsToCommit > 0 && System.nanoTime() - lastCommitNanos >= commitIntervalNanos) {
+            commitAsync();
+        }
         ConsumerRecords<?, ?> poll = consumer.poll(Duration.ofSeconds(1));
+        for (TopicPartition topicPartition : poll.partitions()) {
+            if (!uncommittedOffsets.containsKey(topicPartition)) {
+                // the first record returned by the consumer is the first offset to commit
+                long firstOffset = poll.records(topicPartition).get(0).offset();
+                uncommittedOffsets.put(topicPartition, new OffsetWindow(firstOffset));
+            }
+        }
         List<Record> result = new ArrayList<>(poll.count());
         for (ConsumerRecord<?, ?> record : poll) {
             result.add(KafkaRecord.fromKafkaConsumerRecord(record));
@@ -196,6 +252,10 @@ public class KafkaConsumerWrapper implements TopicConsumer, ConsumerRebalanceLis
      * have to commit only a subset of the records. In case of rebalance or failure messages will be
      * re-delivered.
      *
+     * <p>The offsets are sent to Kafka asynchronously, at most every {@value
+     * #COMMIT_INTERVAL_MS_CONFIG} milliseconds or after {@value #COMMIT_MAX_RECORDS_CONFIG}
+     * records, and in any case on rebalance and on close.
+     *
      * @param records the records to commit, it is not strictly required from them to be in some
      *     order.
      */
@@ -206,65 +266,64 @@ public class KafkaConsumerWrapper implements TopicConsumer, ConsumerRebalanceLis
             KafkaRecord.KafkaConsumerOffsetProvider kafkaRecord =
                     (KafkaRecord.KafkaConsumerOffsetProvider) record;
             TopicPartition topicPartition = kafkaRecord.getTopicPartition();
-            long offset = kafkaRecord.offset() + 1;
-            OffsetAndMetadata offsetAndMetadata = committed.get(topicPartition);
-            if (offsetAndMetadata == null) {
-                offsetAndMetadata = consumer.committed(topicPartition);
-                log.info(
-                        "Current position on partition {} is {}",
-                        topicPartition,
-                        offsetAndMetadata);
-                if (offsetAndMetadata != null) {
-                    committed.put(topicPartition, offsetAndMetadata);
+            long offset = kafkaRecord.offset();
+            OffsetWindow offsetsForPartition = uncommittedOffsets.get(topicPartition);
+            if (offsetsForPartition == null) {
+                OffsetAndMetadata offsetAndMetadata = committed.get(topicPartition);
+                if (offsetAndMetadata == null) {
+                    offsetAndMetadata = consumer.committed(topicPartition);
+                    log.info(
+                            "Current position on partition {} is {}",
+                            topicPartition,
+                            offsetAndMetadata);
                 }
+                long currentOffset = offsetAndMetadata == null ? 0 : offsetAndMetadata.offset();
+                offsetsForPartition = new OffsetWindow(currentOffset);
+                uncommittedOffsets.put(topicPartition, offsetsForPartition);
             }
-            long currentOffset = offsetAndMetadata == null ? 0 : offsetAndMetadata.offset();
 
-            if (offset <= currentOffset) {
+            long currentOffset = offsetsForPartition.base();
+            if (offset < currentOffset) {
                 throw new IllegalStateException(
                         ("Commit called with offset %s less than or equal to the currently committed offset %s "
                                         + "on partition %s")
-                                .formatted(offset, currentOffset, topicPartition));
+                                .formatted(offset + 1, currentOffset, topicPartition));
             }
 
-            TreeSet<Long> offsetsForPartition =
-                    uncommittedOffsets.computeIfAbsent(topicPartition, (key) -> new TreeSet<>());
-            offsetsForPartition.add(offset);
-
             // advance the offset up the first gap
-            long least = offsetsForPartition.first();
-
-            while (least == currentOffset + 1) {
-                offsetsForPartition.remove(least);
-                offsetAndMetadata = new OffsetAndMetadata(least);
-                currentOffset = least;
-                if (offsetsForPartition.isEmpty()) {
-                    break;
-                }
-                least = offsetsForPartition.first();
-            }
-            if (offsetAndMetadata != null) {
-                committed.put(topicPartition, offsetAndMetadata);
+            long newOffset = offsetsForPartition.complete(offset);
+            if (newOffset != currentOffset) {
+                committed.put(topicPartition, new OffsetAndMetadata(newOffset));
                 if (log.isDebugEnabled()) {
                     log.debug(
                             "Committing offset {} on partition {} (record: {})",
-                            offset,
+                            newOffset,
                             topicPartition,
                             kafkaRecord);
                 }
             }
-            if (!offsetsForPartition.isEmpty()) {
-                log.info(
+            if (!offsetsForPartition.isEmpty() && log.isDebugEnabled()) {
+                log.debug(
                         "On partition {} there are {} uncommitted offsets",
                         topicPartition,
-                        offsetsForPartition);
+                        offsetsForPartition.size());
             }
         }
 
+        recordsToCommit += records.size();
+        if (recordsToCommit >= commitMaxRecords
+                || System.nanoTime() - lastCommitNanos >= commitIntervalNanos) {
+            commitAsync();
+        }
+    }
+
+    private void commitAsync() {
+        recordsToCommit = 0;
+        lastCommitNanos = System.nanoTime();
         pendingCommits.incrementAndGet();
 
         consumer.commitAsync(
-                committed,
+                new HashMap<>(committed),
                 (map, e) -> {
                     pendingCommits.decrementAndGet();
                     if (e != null) {
@@ -22,8 +22,10 @@ import static org.apache.kafka.clients.producer.ProducerConfig.VALUE_SERIALIZER_
 import ai.langstream.api.runner.code.Header;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.topics.TopicProducer;
+import ai.langstream.api.util.VectorCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -54,6 +56,12 @@ import org.apache.kafka.common.serialization.UUIDSerializer;
 @Slf4j
 class KafkaProducerWrapper implements TopicProducer {
 
+    /**
+     * Opt-in binary encoding of the Map values that carry vectors: float32, float16 or int8. See
+     * {@link VectorCodec}.
+     */
+    static final String VECTOR_ENCODING_CONFIG = "langstream.vector.encoding";
+
     static final Map<Class<?>, Serializer<?>> BASE_SERIALIZERS =
             Map.ofEntries(
                     entry(String.class, new StringSerializer()),
@@ -75,25 +83,21 @@ class KafkaProducerWrapper implements TopicProducer {
     private final Map<String, Object> copy;
     private final String topicName;
     private final AtomicInteger totalIn = new AtomicInteger();
-    KafkaProducer<Object, Object> producer;
-    Serializer keySerializer;
-    Class cacheKeyForKeySerializer;
-    Serializer valueSerializer;
-
-    Class cacheKeyForValueSerializer;
-    Serializer headerSerializer;
+    volatile KafkaProducer<Object, Object> producer;
 
-    Class cacheKeyForHeaderSerializer;
+    final boolean forcedKeySerializer;
+    final boolean forcedValueSerializer;
 
-    boolean forcedKeySerializer;
-    boolean forcedValueSerializer;
+    final VectorCodec.Format vectorEncoding;
 
     public KafkaProducerWrapper(Map<String, Object> copy, String topicName) {
         this.copy = copy;
         this.topicName = topicName;
-        keySerializer = null;
-        valueSerializer = null;
-        headerSerializer = null;
+        // this is not a Kafka producer property
+        Object vectorEncodingConfig = copy.remove(VECTOR_ENCODING_CONFIG);
+        this.vectorEncoding =
+                VectorCodec.Format.parse(
+                        vectorEncodingConfig == null ? null : vectorEncodingConfig.toString());
         forcedKeySerializer =
                 !Objects.equals(
                         org.apache.kafka.common.serialization.ByteArraySerializer.class.getName(),
@@ -155,55 +159,60 @@ class KafkaProducerWrapper implements TopicProducer {
         return result;
     }
 
+    /**
+     * Write a record. This method is thread safe and it does not hold any lock: the serialization
+     * happens on the caller thread and the KafkaProducer batches the records sent concurrently.
+     *
+     * @param r the record
+     * @return an handle to the asynchronous write
+     */
     @Override
-    public synchronized CompletableFuture<?> write(Record r) {
+    public CompletableFuture<?> write(Record r) {
         CompletableFuture<?> handle = new CompletableFuture<>();
         try {
-            List<org.apache.kafka.common.header.Header> headers = new ArrayList<>();
             Object key = null;
             if (r.key() != null) {
-                if (forcedKeySerializer) {
-                    key = r.key();
-                } else {
-                    Class<?> keyClass = r.key().getClass();
-                    if (keySerializer == null
-                            || !(Objects.equals(keyClass, cacheKeyForKeySerializer))) {
-                        keySerializer = getSerializer(keyClass, keySerializers, true);
-                        cacheKeyForKeySerializer = keyClass;
-                    }
-                    key = keySerializer.serialize(topicName, r.key());
-                }
+                key =
+                        forcedKeySerializer
+                                ? r.key()
+                                : serialize(r.key(), keySerializers, Boolean.TRUE);
             }
             Object value = null;
+            byte[] vectorEncoded = null;
             if (r.value() != null) {
                 if (forcedValueSerializer) {
                     value = r.value();
                 } else {
-                    Class<?> valueClass = r.value().getClass();
-                    if (valueSerializer == null
-                            || !(Objects.equals(valueClass, cacheKeyForValueSerializer))) {
-                        valueSerializer = getSerializer(valueClass, valueSerializers, false);
-                        cacheKeyForValueSerializer = valueClass;
-                    }
-                    value = valueSerializer.serialize(topicName, r.value());
+                    vectorEncoded = encodeVectors(r.value());
+                    value =
+                            vectorEncoded != null
+                                    ? vectorEncoded
+                                    : serialize(r.value(), valueSerializers, Boolean.FALSE);
                 }
             }
-            if (r.headers() != null) {
-                for (Header header : r.headers()) {
-                    Object headerValue = header.value();
-                    byte[] serializedHeader = null;
-
-                    if (headerValue != null) {
-                        Class<?> headerClass = headerValue.getClass();
-                        if (headerSerializer == null
-                                || !(Objects.equals(headerClass, cacheKeyForHeaderSerializer))) {
-                            headerSerializer = getSerializer(headerClass, headerSerializers, null);
-                            cacheKeyForHeaderSerializer = headerClass;
-                        }
-                        serializedHeader = headerSerializer.serialize(topicName, headerValue);
+            // the encoding header is kept only on values passed through as raw bytes
+            boolean keepEncodingHeader = vectorEncoded == null && r.value() instanceof byte[];
+            Collection<Header> recordHeaders = r.headers() == null ? List.of() : r.headers();
+            List<org.apache.kafka.common.header.Header> headers;
+            if (vectorEncoded != null || !recordHeaders.isEmpty()) {
+                headers = new ArrayList<>(recordHeaders.size() + 1);
+                if (vectorEncoded != null) {
+                    byte[] format = vectorEncoding.headerValue().getBytes(StandardCharsets.UTF_8);
+                    headers.add(new RecordHeader(VectorCodec.HEADER, format));
+                }
+                for (Header header : recordHeaders) {
+                    if (!keepEncodingHeader && VectorCodec.HEADER.equals(header.key())) {
+                        continue;
                     }
+                    Object headerValue = header.value();
+                    byte[] serializedHeader =
+                            headerValue == null
+                                    ? null
+                                    : serialize(headerValue, headerSerializers, null);
                     headers.add(new RecordHeader(header.key(), serializedHeader));
                 }
+            } else {
+                headers = List.of();
             }
             ProducerRecord<Object, Object> record =
                     new ProducerRecord<>(topicName, null, null, key, value, headers);
@@ -218,7 +227,7 @@ class KafkaProducerWrapper implements TopicProducer {
                         if (exception != null) {
                             handle.completeExceptionally(exception);
                         } else {
-                            totalIn.addAndGet(1);
+                            totalIn.incrementAndGet();
                             handle.complete(null);
                         }
                     });
@@ -228,6 +237,29 @@ class KafkaProducerWrapper implements TopicProducer {
         return handle;
     }
 
+    private byte[] encodeVectors(Object value) {
+        if (vectorEncoding == null || !(value instanceof Map)) {
+            return null;
+        }
+        try {
+            return VectorCodec.encode(value, vectorEncoding);
+        } catch (IllegalArgumentException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Cannot encode the value with {}, using JSON", vectorEncoding, e);
+            }
+            return null;
+        }
+    }
+
+    private byte[] serialize(
+            Object object, Map<Class<?>, Serializer<?>> serializerMap, Boolean isKey) {
+        Serializer serializer = serializerMap.get(object.getClass());
+        if (serializer == null) {
+            serializer = getSerializer(object.getClass(), serializerMap, isKey);
+        }
+        return serializer.serialize(topicName, object);
+    }
+
     private Serializer<?> getSerializer(
             Class<?> r, Map<Class<?>, Serializer<?>> serializerMap, Boolean isKey) {
         return serializerMap.computeIfAbsent(
@@ -237,7 +269,6 @@ class KafkaProducerWrapper implements TopicProducer {
                             && isKey != null) { // no AVRO in headers
                         KafkaAvroSerializer kafkaAvroSerializer = new KafkaAvroSerializer();
                         kafkaAvroSerializer.configure(copy, isKey);
-                        serializerMap.put(r, kafkaAvroSerializer);
                         return kafkaAvroSerializer;
                     }
                     if (Map.class.isAssignableFrom(k)) {
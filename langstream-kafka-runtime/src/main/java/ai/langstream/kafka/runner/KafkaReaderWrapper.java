@@ -59,7 +59,9 @@ class KafkaReaderWrapper implements TopicReader {
     public void start() throws IOException {
         try (var context =
                 ClassloaderUtils.withContextClassloader(this.getClass().getClassLoader())) {
-            consumer = new KafkaConsumer<>(configuration);
+            consumer =
+                    new KafkaConsumer<>(
+                            configuration, null, VectorDecodingDeserializer.create(configuration));
         }
         final List<TopicPartition> partitions =
                 consumer.partitionsFor(topicName).stream()
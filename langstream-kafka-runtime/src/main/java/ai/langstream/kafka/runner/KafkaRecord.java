@@ -115,6 +115,13 @@ public abstract class KafkaRecord implements Record {
             return record.serializedKeySize() + record.serializedValueSize();
         }
 
+        @Override
+        public long serializedSize() {
+            // the sizes are -1 for the null keys and values
+            return Math.max(0, record.serializedKeySize())
+                    + Math.max(0, record.serializedValueSize());
+        }
+
         @Override
         public org.apache.kafka.connect.data.Schema keySchema() {
             return null;
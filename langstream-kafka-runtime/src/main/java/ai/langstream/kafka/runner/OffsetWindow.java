@@ -0,0 +1,121 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.kafka.runner;
+
+/**
+ * Sliding window over the offsets of a partition. It keeps one bit per offset, starting from the
+ * first offset that has not been completed yet (the base). Completing the base advances the window
+ * up to the first gap, the new base is the offset to commit to Kafka.
+ *
+ * <p>This class is not thread safe.
+ */
+public final class OffsetWindow {
+
+    private long base;
+    // offset of the first bit of the head word, it is always a multiple of 64
+    private long headWordOffset;
+    private long[] words = new long[1];
+    private int head;
+    // number of completed offsets after the base
+    private int size;
+
+    OffsetWindow(long base) {
+        this.base = base;
+        this.headWordOffset = base & ~63L;
+    }
+
+    /**
+     * @return the first offset that has not been completed
+     */
+    public long base() {
+        return base;
+    }
+
+    /**
+     * @return the number of completed offsets that cannot be committed because of a gap
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Mark an offset as completed.
+     *
+     * @param offset the offset of the record
+     * @return the new base
+     */
+    long complete(long offset) {
+        if (offset < base) {
+            throw new IllegalArgumentException(
+                    "Offset %s is lower than the base %s".formatted(offset, base));
+        }
+        long relative = offset - headWordOffset;
+        ensureCapacity(relative);
+        int word = (head + (int) (relative >>> 6)) % words.length;
+        long mask = 1L << (relative & 63);
+        if ((words[word] & mask) == 0) {
+            words[word] |= mask;
+            size++;
+        }
+        if (offset == base) {
+            advance();
+        }
+        return base;
+    }
+
+    private void advance() {
+        while (true) {
+            int shift = (int) (base - headWordOffset);
+            int completed = Long.numberOfTrailingZeros(~(words[head] >>> shift));
+            if (shift + completed < 64) {
+                base += completed;
+                size -= completed;
+                return;
+            }
+            // the head word is done
+            size -= completed;
+            words[head] = 0;
+            head = (head + 1) % words.length;
+            headWordOffset += 64;
+            base = headWordOffset;
+        }
+    }
+
+    private void ensureCapacity(long relative) {
+        long required = (relative >>> 6) + 1;
+        if (required <= words.length) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE / 2) {
+            throw new IllegalStateException("Too many uncommitted offsets after " + base);
+        }
+        long[] newWords = new long[Math.max(words.length * 2, (int) required)];
+        for (int i = 0; i < words.length; i++) {
+            newWords[i] = words[(head + i) % words.length];
+        }
+        words = newWords;
+        head = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "OffsetWindow{base=" + base + ", size=" + size + '}';
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.kafka.runner;
+
+import static org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG;
+
+import ai.langstream.api.util.VectorCodec;
+import java.util.Map;
+import lombok.SneakyThrows;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Value deserializer that decodes the values written with the {@link VectorCodec} and delegates the
+ * other values to the configured deserializer. The header that marks the encoded values is removed,
+ * as the decoded value is no longer encoded.
+ */
+class VectorDecodingDeserializer implements Deserializer<Object> {
+
+    private final Deserializer<?> delegate;
+
+    private VectorDecodingDeserializer(Deserializer<?> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Create the value deserializer of a consumer. The configured deserializer is created and
+     * configured here, because Kafka doesn't configure the deserializers passed as instances.
+     *
+     * @param configuration the consumer configuration
+     * @return the deserializer
+     */
+    @SneakyThrows
+    static VectorDecodingDeserializer create(Map<String, Object> configuration) {
+        Object deserializerClass = configuration.get(VALUE_DESERIALIZER_CLASS_CONFIG);
+        Deserializer<?> delegate;
+        if (deserializerClass instanceof Class<?> klass) {
+            delegate = org.apache.kafka.common.utils.Utils.newInstance(klass, Deserializer.class);
+        } else if (deserializerClass != null) {
+            delegate =
+                    org.apache.kafka.common.utils.Utils.newInstance(
+                            deserializerClass.toString(), Deserializer.class);
+        } else {
+            throw new IllegalArgumentException(
+                    "Missing " + VALUE_DESERIALIZER_CLASS_CONFIG + " configuration");
+        }
+        delegate.configure(configuration, false);
+        return new VectorDecodingDeserializer(delegate);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return delegate.deserialize(topic, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (data != null && headers.lastHeader(VectorCodec.HEADER) != null) {
+            headers.remove(VectorCodec.HEADER);
+            return VectorCodec.decode(data);
+        }
+        return delegate.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
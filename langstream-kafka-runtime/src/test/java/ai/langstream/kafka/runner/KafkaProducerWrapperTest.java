@@ -0,0 +1,139 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.kafka.runner;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ai.langstream.api.runner.code.Record;
+import ai.langstream.api.runner.code.SimpleRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.junit.jupiter.api.Test;
+
+class KafkaProducerWrapperTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final int THREADS = 8;
+    private static final int RECORDS_PER_THREAD = 250;
+
+    /** The key and the value of each record have a type that depends on its index. */
+    private static Object object(int type, int thread, int index) {
+        return switch (type % 4) {
+            case 0 -> thread + "-" + index;
+            case 1 -> thread * 100_000 + index;
+            case 2 -> new HashMap<>(Map.of("thread", thread, "index", index));
+            default -> new ArrayList<>(List.of(thread, index));
+        };
+    }
+
+    private static Record record(int thread, int index) {
+        String id = thread + "-" + index;
+        return SimpleRecord.builder()
+                .key(object(index, thread, index))
+                .value(object(index + 1, thread, index))
+                .headers(List.of(SimpleRecord.SimpleHeader.of("id", id)))
+                .build();
+    }
+
+    private static byte[] serialized(Object object) throws Exception {
+        if (object instanceof String s) {
+            return s.getBytes(StandardCharsets.UTF_8);
+        }
+        if (object instanceof Integer i) {
+            return new IntegerSerializer().serialize("topic", i);
+        }
+        return MAPPER.writeValueAsBytes(object);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testConcurrentWrites() throws Exception {
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put(
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+        configuration.put(
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+        KafkaProducerWrapper wrapper = new KafkaProducerWrapper(configuration, "topic");
+
+        List<ProducerRecord<Object, Object>> sent = new CopyOnWriteArrayList<>();
+        KafkaProducer<Object, Object> producer = mock(KafkaProducer.class);
+        when(producer.send(any(), any()))
+                .thenAnswer(
+                        invocation -> {
+                            sent.add(invocation.getArgument(0));
+                            ((Callback) invocation.getArgument(1)).onCompletion(null, null);
+                            return null;
+                        });
+        wrapper.producer = producer;
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    start.await();
+                                    for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                                        wrapper.write(record(thread, i)).get();
+                                    }
+                                    return null;
+                                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(THREADS * RECORDS_PER_THREAD, wrapper.getTotalIn());
+        assertEquals(THREADS * RECORDS_PER_THREAD, sent.size());
+        for (ProducerRecord<Object, Object> record : sent) {
+            String id =
+                    new String(record.headers().lastHeader("id").value(), StandardCharsets.UTF_8);
+            int thread = Integer.parseInt(id.substring(0, id.indexOf('-')));
+            int index = Integer.parseInt(id.substring(id.indexOf('-') + 1));
+            assertArrayEquals(serialized(object(index, thread, index)), (byte[]) record.key(), id);
+            assertArrayEquals(
+                    serialized(object(index + 1, thread, index)), (byte[]) record.value(), id);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.kafka.runner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class OffsetWindowTest {
+
+    @Test
+    void testInOrder() {
+        OffsetWindow window = new OffsetWindow(10);
+        for (long offset = 10; offset < 1000; offset++) {
+            assertEquals(offset + 1, window.complete(offset));
+            assertTrue(window.isEmpty());
+        }
+    }
+
+    @Test
+    void testGap() {
+        OffsetWindow window = new OffsetWindow(0);
+        assertEquals(0, window.complete(2));
+        assertEquals(0, window.complete(1));
+        assertEquals(2, window.size());
+        assertEquals(3, window.complete(0));
+        assertEquals(0, window.size());
+        // already completed
+        assertThrows(IllegalArgumentException.class, () -> window.complete(2));
+    }
+
+    @Test
+    void testOutOfOrderAcrossWords() {
+        long start = 1_000_037;
+        int count = 10_000;
+        List<Long> offsets = new ArrayList<>();
+        for (long i = 0; i < count; i++) {
+            offsets.add(start + i);
+        }
+        Collections.shuffle(offsets, new Random(42));
+        OffsetWindow window = new OffsetWindow(start);
+        long expectedBase = start;
+        boolean[] completed = new boolean[count];
+        for (long offset : offsets) {
+            completed[(int) (offset - start)] = true;
+            while (expectedBase - start < count && completed[(int) (expectedBase - start)]) {
+                expectedBase++;
+            }
+            assertEquals(expectedBase, window.complete(offset));
+        }
+        assertEquals(start + count, window.base());
+        assertTrue(window.isEmpty());
+    }
+}
@@ -57,6 +57,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -65,6 +66,17 @@ import lombok.extern.slf4j.Slf4j;
 public class PravegaTopicConnectionsRuntimeProvider implements TopicConnectionsRuntimeProvider {
     private static final ObjectMapper mapper = new ObjectMapper();
 
+    /** Maximum number of events returned by a single read. */
+    static final String READ_MAX_EVENTS_CONFIG = "langstream.read.max.events";
+
+    /** Maximum size of the events returned by a single read. */
+    static final String READ_MAX_BYTES_CONFIG = "langstream.read.max.bytes";
+
+    /** Maximum number of writes waiting for the acknowledgement from Pravega. */
+    static final String MAX_PENDING_WRITES_CONFIG = "langstream.max.pending.writes";
+
+    private static final long READ_TIMEOUT_MS = 1000;
+
     @Override
     public boolean supports(String streamingClusterType) {
         return "pravega".equals(streamingClusterType);
@@ -112,6 +124,7 @@ public class PravegaTopicConnectionsRuntimeProvider implements TopicConnectionsR
             String readerGroup = "reader-" + UUID.randomUUID().toString();
             String readerId = "reader-" + UUID.randomUUID().toString();
             String topic = (String) configuration.get("topic");
+            ReadBudget readBudget = ReadBudget.fromConfiguration(configuration);
 
             // TODO: recover from "initialPosition"
 
@@ -151,24 +164,24 @@ public class PravegaTopicConnectionsRuntimeProvider implements TopicConnectionsR
 
                 @Override
                 public TopicReadResult read() throws Exception {
-                    EventRead<String> stringEventRead = reader.readNextEvent(1000);
-                    log.info("Read event {}", stringEventRead);
-
-                    if (stringEventRead != null
-                            && stringEventRead.getEvent() != null
-                            && !stringEventRead.isCheckpoint()) {
-                        totalOut.incrementAndGet();
+                    List<EventRead<String>> events = readEvents(reader, readBudget);
+                    if (!events.isEmpty()) {
+                        totalOut.addAndGet(events.size());
 
-                        SimpleRecord build = convertToRecord(stringEventRead, topic);
+                        List<Record> records = new ArrayList<>(events.size());
+                        for (EventRead<String> event : events) {
+                            records.add(convertToRecord(event, topic));
+                        }
+                        EventRead<String> lastEvent = events.get(events.size() - 1);
                         return new TopicReadResult() {
                             @Override
                             public List<Record> records() {
-                                return List.of(build);
+                                return records;
                             }
 
                             @Override
                             public byte[] offset() {
-                                ByteBuffer position = stringEventRead.getPosition().toBytes();
+                                ByteBuffer position = lastEvent.getPosition().toBytes();
                                 byte[] array = new byte[position.remaining()];
                                 position.get(array);
                                 return array;
@@ -200,6 +213,7 @@ public class PravegaTopicConnectionsRuntimeProvider implements TopicConnectionsR
             String readerId = agentId;
             String readerGroup = (String) configuration.get("reader-group");
             String topic = (String) configuration.get("topic");
+            ReadBudget readBudget = ReadBudget.fromConfiguration(configuration);
             return new TopicConsumer() {
 
                 EventStreamReader<String> reader;
@@ -235,19 +249,16 @@ public class PravegaTopicConnectionsRuntimeProvider implements TopicConnectionsR
 
                 @Override
                 public List<Record> read() throws Exception {
-                    EventRead<String> stringEventRead = reader.readNextEvent(1000);
-                    log.info("Read event {}", stringEventRead);
-
-                    if (stringEventRead != null
-                            && stringEventRead.getEvent() != null
-                            && !stringEventRead.isCheckpoint()) {
-                        totalOut.incrementAndGet();
-
-                        SimpleRecord build = convertToRecord(stringEventRead, topic);
-                        return List.of(build);
+                    List<EventRead<String>> events = readEvents(reader, readBudget);
+                    if (events.isEmpty()) {
+                        return List.of();
                     }
-
-                    return List.of();
+                    totalOut.addAndGet(events.size());
+                    List<Record> records = new ArrayList<>(events.size());
+                    for (EventRead<String> event : events) {
+                        records.add(convertToRecord(event, topic));
+                    }
+                    return records;
                 }
 
                 @Override
@@ -280,64 +291,13 @@ public class PravegaTopicConnectionsRuntimeProvider implements TopicConnectionsR
             }
 
             String producerId = agentId;
+            int maxPendingWrites =
+                    Integer.parseInt(
+                            configuration
+                                    .getOrDefault(MAX_PENDING_WRITES_CONFIG, "1000")
+                                    .toString());
 
-            return new TopicProducer() {
-
-                EventStreamWriter<String> eventStreamWriter;
-
-                final AtomicLong totalIn = new AtomicLong();
-
-                @Override
-                public void start() {
-                    log.info("Creating event stream writer for topic {}", topic);
-                    eventStreamWriter =
-                            client.createEventWriter(
-                                    producerId,
-                                    topic,
-                                    new UTF8StringSerializer(),
-                                    EventWriterConfig.builder().build());
-                }
-
-                @Override
-                public void close() {
-                    if (eventStreamWriter != null) {
-                        eventStreamWriter.close();
-                    }
-                }
-
-                @Override
-                public CompletableFuture<?> write(Record record) {
-                    log.info("Writing to {} record {}", topic, record);
-                    totalIn.incrementAndGet();
-                    try {
-                        String key = serialiseKey(record.key());
-                        String value = serialiseValue(record);
-                        log.info("Writing key {} value {}", key, value);
-                        if (key != null) {
-                            return eventStreamWriter.writeEvent(key, value);
-                        } else {
-                            return eventStreamWriter.writeEvent(value);
-                        }
-                    } catch (IOException err) {
-                        return CompletableFuture.failedFuture(err);
-                    }
-                }
-
-                @Override
-                public Object getNativeProducer() {
-                    return eventStreamWriter;
-                }
-
-                @Override
-                public Object getInfo() {
-                    return Map.of("stream", topic);
-                }
-
-                @Override
-                public long getTotalIn() {
-                    return totalIn.get();
-                }
-            };
+            return new PravegaTopicProducer(client, producerId, topic, maxPendingWrites);
         }
 
         @Override
@@ -460,10 +420,147 @@ public class PravegaTopicConnectionsRuntimeProvider implements TopicConnectionsR
         }
     }
 
+    static class PravegaTopicProducer implements TopicProducer {
+
+        private final EventStreamClientFactory client;
+        private final String producerId;
+        private final String topic;
+
+        private EventStreamWriter<String> eventStreamWriter;
+
+        private final AtomicLong totalIn = new AtomicLong();
+
+        // bounds the writes in flight, the writer pipelines them to the segment store
+        private final Semaphore pendingWrites;
+
+        PravegaTopicProducer(
+                EventStreamClientFactory client,
+                String producerId,
+                String topic,
+                int maxPendingWrites) {
+            this.client = client;
+            this.producerId = producerId;
+            this.topic = topic;
+            this.pendingWrites = new Semaphore(maxPendingWrites);
+        }
+
+        @Override
+        public void start() {
+            log.info("Creating event stream writer for topic {}", topic);
+            eventStreamWriter =
+                    client.createEventWriter(
+                            producerId,
+                            topic,
+                            new UTF8StringSerializer(),
+                            EventWriterConfig.builder().build());
+        }
+
+        @Override
+        public void close() {
+            if (eventStreamWriter != null) {
+                // wait for the pending writes before closing
+                eventStreamWriter.flush();
+                eventStreamWriter.close();
+            }
+        }
+
+        @Override
+        public CompletableFuture<?> write(Record record) {
+            if (log.isDebugEnabled()) {
+                log.debug("Writing to {} record {}", topic, record);
+            }
+            totalIn.incrementAndGet();
+            String key;
+            String value;
+            try {
+                key = serialiseKey(record.key());
+                value = serialiseValue(record);
+            } catch (IOException err) {
+                return CompletableFuture.failedFuture(err);
+            }
+            if (!pendingWrites.tryAcquire()) {
+                // too many writes in flight, block the caller
+                try {
+                    pendingWrites.acquire();
+                } catch (InterruptedException err) {
+                    Thread.currentThread().interrupt();
+                    return CompletableFuture.failedFuture(err);
+                }
+            }
+            CompletableFuture<Void> result;
+            try {
+                result =
+                        key != null
+                                ? eventStreamWriter.writeEvent(key, value)
+                                : eventStreamWriter.writeEvent(value);
+            } catch (RuntimeException err) {
+                pendingWrites.release();
+                return CompletableFuture.failedFuture(err);
+            }
+            return result.whenComplete((__, error) -> pendingWrites.release());
+        }
+
+        @Override
+        public Object getNativeProducer() {
+            return eventStreamWriter;
+        }
+
+        @Override
+        public Object getInfo() {
+            return Map.of("stream", topic);
+        }
+
+        @Override
+        public long getTotalIn() {
+            return totalIn.get();
+        }
+    }
+
+    /**
+     * Read the next events. This method waits for the first event, then it takes the events that
+     * are immediately available, up to the limits of the budget.
+     */
+    static List<EventRead<String>> readEvents(EventStreamReader<String> reader, ReadBudget budget) {
+        List<EventRead<String>> events = new ArrayList<>();
+        long bytes = 0;
+        long timeout = READ_TIMEOUT_MS;
+        while (events.size() < budget.maxEvents() && bytes < budget.maxBytes()) {
+            EventRead<String> stringEventRead = reader.readNextEvent(timeout);
+            if (stringEventRead == null) {
+                break;
+            }
+            if (stringEventRead.isCheckpoint()) {
+                continue;
+            }
+            if (stringEventRead.getEvent() == null) {
+                // no more events available
+                break;
+            }
+            events.add(stringEventRead);
+            bytes += stringEventRead.getEvent().length();
+            timeout = 0;
+        }
+        return events;
+    }
+
+    record ReadBudget(int maxEvents, long maxBytes) {
+        static ReadBudget fromConfiguration(Map<String, Object> configuration) {
+            return new ReadBudget(
+                    Integer.parseInt(
+                            configuration.getOrDefault(READ_MAX_EVENTS_CONFIG, "100").toString()),
+                    Long.parseLong(
+                            configuration
+                                    .getOrDefault(READ_MAX_BYTES_CONFIG, 1024 * 1024)
+                                    .toString()));
+        }
+    }
+
     public static SimpleRecord convertToRecord(EventRead<String> stringEventRead, String topic)
             throws JsonProcessingException {
         Collection<Header> headers = new ArrayList<>();
-        log.info("decoding event {}", stringEventRead.getEvent());
+        if (log.isDebugEnabled()) {
+            log.debug("decoding event {}", stringEventRead.getEvent());
+        }
         RecordWrapper wrapper = mapper.readValue(stringEventRead.getEvent(), RecordWrapper.class);
         if (wrapper.headers != null) {
             wrapper.headers.forEach(
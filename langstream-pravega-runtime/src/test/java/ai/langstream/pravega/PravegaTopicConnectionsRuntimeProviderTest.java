@@ -0,0 +1,204 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.pravega;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.langstream.api.runner.code.SimpleRecord;
+import io.pravega.client.EventStreamClientFactory;
+import io.pravega.client.stream.EventRead;
+import io.pravega.client.stream.EventStreamReader;
+import io.pravega.client.stream.EventStreamWriter;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+class PravegaTopicConnectionsRuntimeProviderTest {
+
+    private static EventRead<String> event(String value) {
+        EventRead<String> event = mock(EventRead.class);
+        when(event.getEvent()).thenReturn(value);
+        return event;
+    }
+
+    private static EventStreamReader<String> readerOf(String value) {
+        EventStreamReader<String> reader = mock(EventStreamReader.class);
+        when(reader.readNextEvent(anyLong())).thenAnswer(invocation -> event(value));
+        return reader;
+    }
+
+    @Test
+    void readStopsAtTheMaxEvents() {
+        EventStreamReader<String> reader = readerOf("event");
+        List<EventRead<String>> events =
+                PravegaTopicConnectionsRuntimeProvider.readEvents(
+                        reader,
+                        PravegaTopicConnectionsRuntimeProvider.ReadBudget.fromConfiguration(
+                                Map.of("langstream.read.max.events", "3")));
+        assertEquals(3, events.size());
+        // only the first read waits for the events
+        InOrder order = inOrder(reader);
+        order.verify(reader).readNextEvent(1000);
+        order.verify(reader, times(2)).readNextEvent(0);
+    }
+
+    @Test
+    void readStopsAtTheMaxBytes() {
+        EventStreamReader<String> reader = readerOf("0123456789");
+        List<EventRead<String>> events =
+                PravegaTopicConnectionsRuntimeProvider.readEvents(
+                        reader, new PravegaTopicConnectionsRuntimeProvider.ReadBudget(100, 25));
+        // the read stops as soon as the budget has been reached
+        assertEquals(3, events.size());
+    }
+
+    @Test
+    void readStopsWhenNoEventsAreAvailable() {
+        EventStreamReader<String> reader = mock(EventStreamReader.class);
+        EventRead<String> checkpoint = mock(EventRead.class);
+        when(checkpoint.isCheckpoint()).thenReturn(true);
+        EventRead<String> first = event("first");
+        EventRead<String> none = event(null);
+        when(reader.readNextEvent(anyLong())).thenReturn(checkpoint, first, none);
+        List<EventRead<String>> events =
+                PravegaTopicConnectionsRuntimeProvider.readEvents(
+                        reader,
+                        PravegaTopicConnectionsRuntimeProvider.ReadBudget.fromConfiguration(
+                                Map.of()));
+        assertEquals(List.of(first), events);
+    }
+
+    private static PravegaTopicConnectionsRuntimeProvider.PravegaTopicProducer newProducer(
+            EventStreamWriter<String> writer, int maxPendingWrites) {
+        EventStreamClientFactory client = mock(EventStreamClientFactory.class);
+        when(client.<String>createEventWriter(anyString(), anyString(), any(), any()))
+                .thenReturn(writer);
+        PravegaTopicConnectionsRuntimeProvider.PravegaTopicProducer producer =
+                new PravegaTopicConnectionsRuntimeProvider.PravegaTopicProducer(
+                        client, "producer", "topic", maxPendingWrites);
+        producer.start();
+        return producer;
+    }
+
+    @Test
+    void failedWritesReleaseThePermit() {
+        EventStreamWriter<String> writer = mock(EventStreamWriter.class);
+        when(writer.writeEvent(anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("failed")))
+                .thenThrow(new IllegalStateException("closed"))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        PravegaTopicConnectionsRuntimeProvider.PravegaTopicProducer producer =
+                newProducer(writer, 1);
+
+        assertTimeoutPreemptively(
+                Duration.ofSeconds(10),
+                () -> {
+                    assertTrue(
+                            producer.write(SimpleRecord.of(null, "a")).isCompletedExceptionally());
+                    assertTrue(
+                            producer.write(SimpleRecord.of(null, "b")).isCompletedExceptionally());
+                    // the single permit is available again
+                    producer.write(SimpleRecord.of(null, "c")).get();
+                });
+        assertEquals(3, producer.getTotalIn());
+    }
+
+    @Test
+    void writesBlockWhenTooManyArePending() throws Exception {
+        EventStreamWriter<String> writer = mock(EventStreamWriter.class);
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        when(writer.writeEvent(anyString()))
+                .thenReturn(pending)
+                .thenReturn(CompletableFuture.completedFuture(null));
+        PravegaTopicConnectionsRuntimeProvider.PravegaTopicProducer producer =
+                newProducer(writer, 1);
+
+        producer.write(SimpleRecord.of(null, "a"));
+        CompletableFuture<?> second =
+                CompletableFuture.supplyAsync(() -> producer.write(SimpleRecord.of(null, "b")))
+                        .thenCompose(f -> f);
+        Thread.sleep(200);
+        assertFalse(second.isDone());
+
+        pending.complete(null);
+        second.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void closeFlushesThePendingWrites() throws Exception {
+        EventStreamWriter<String> writer = mock(EventStreamWriter.class);
+        List<CompletableFuture<Void>> pending = new CopyOnWriteArrayList<>();
+        when(writer.writeEvent(anyString()))
+                .thenAnswer(
+                        invocation -> {
+                            CompletableFuture<Void> result = new CompletableFuture<>();
+                            pending.add(result);
+                            return result;
+                        });
+        // the writer acknowledges all the pending writes when it is flushed
+        doAnswer(
+                        invocation -> {
+                            pending.forEach(f -> f.complete(null));
+                            return null;
+                        })
+                .when(writer)
+                .flush();
+        PravegaTopicConnectionsRuntimeProvider.PravegaTopicProducer producer =
+                newProducer(writer, 1);
+
+        CompletableFuture<?> first = producer.write(SimpleRecord.of(null, "a"));
+        // this write waits for a permit while the producer is closed
+        CompletableFuture<?> second =
+                CompletableFuture.supplyAsync(() -> producer.write(SimpleRecord.of(null, "b")))
+                        .thenCompose(f -> f);
+        Thread.sleep(200);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), producer::close);
+        assertTrue(first.isDone());
+        InOrder order = inOrder(writer);
+        order.verify(writer).flush();
+        order.verify(writer).close();
+
+        // the blocked write gets the permit released by the flush
+        assertTimeoutPreemptively(
+                Duration.ofSeconds(10),
+                () -> {
+                    while (pending.size() < 2) {
+                        Thread.sleep(10);
+                    }
+                });
+        pending.get(1).complete(null);
+        second.get(10, TimeUnit.SECONDS);
+        verify(writer, times(2)).writeEvent(anyString());
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.pulsar.runner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+
+/**
+ * Acknowledges the committed messages of a consumer. With a Failover or Exclusive subscription the
+ * messages that form a prefix of the received messages of a topic partition are acknowledged
+ * cumulatively, the others are acknowledged one by one. With the other subscription types all the
+ * messages are acknowledged one by one.
+ *
+ * <p>The acks are asynchronous, a failure is reported on the next call to {@link
+ * #checkAckFailure()}.
+ */
+@Slf4j
+class MessageAcknowledger {
+
+    private final Consumer<?> consumer;
+    private final boolean cumulativeAck;
+
+    // messages received and not acknowledged yet, in the order they have been received,
+    // per topic partition
+    private final Map<String, PendingMessages> pendingMessages = new HashMap<>();
+
+    private final AtomicReference<Throwable> ackFailure = new AtomicReference<>();
+
+    MessageAcknowledger(Consumer<?> consumer, boolean cumulativeAck) {
+        this.consumer = consumer;
+        this.cumulativeAck = cumulativeAck;
+    }
+
+    void received(Iterable<? extends Message<?>> messages) {
+        if (!cumulativeAck) {
+            return;
+        }
+        synchronized (pendingMessages) {
+            for (Message<?> message : messages) {
+                pendingMessages
+                        .computeIfAbsent(message.getTopicName(), k -> new PendingMessages())
+                        .received(message.getMessageId());
+            }
+        }
+    }
+
+    void commit(Collection<? extends Message<?>> messages) {
+        checkAckFailure();
+        List<MessageId> individualAcks = new ArrayList<>(messages.size());
+        if (!cumulativeAck) {
+            for (Message<?> message : messages) {
+                individualAcks.add(message.getMessageId());
+            }
+        } else {
+            List<MessageId> cumulativeAcks = new ArrayList<>();
+            synchronized (pendingMessages) {
+                for (Message<?> message : messages) {
+                    PendingMessages pending = pendingMessages.get(message.getTopicName());
+                    if (pending == null || !pending.acknowledged(message.getMessageId())) {
+                        individualAcks.add(message.getMessageId());
+                    }
+                }
+                for (PendingMessages pending : pendingMessages.values()) {
+                    MessageId upTo = pending.pollCumulativeAck();
+                    if (upTo != null) {
+                        cumulativeAcks.add(upTo);
+                    }
+                }
+            }
+            for (MessageId messageId : cumulativeAcks) {
+                consumer.acknowledgeCumulativeAsync(messageId)
+                        .exceptionally(
+                                error -> {
+                                    log.error(
+                                            "Error acknowledging messages up to {}",
+                                            messageId,
+                                            error);
+                                    ackFailure.compareAndSet(null, error);
+                                    return null;
+                                });
+            }
+        }
+        if (!individualAcks.isEmpty()) {
+            consumer.acknowledgeAsync(individualAcks)
+                    .exceptionally(
+                            error -> {
+                                log.error(
+                                        "Error acknowledging {} messages",
+                                        individualAcks.size(),
+                                        error);
+                                ackFailure.compareAndSet(null, error);
+                                return null;
+                            });
+        }
+    }
+
+    void checkAckFailure() {
+        Throwable error = ackFailure.get();
+        if (error != null) {
+            throw new RuntimeException("latest acknowledge failed", error);
+        }
+    }
+
+    /**
+     * The messages received from a topic partition. The messages that form a prefix of the received
+     * messages are acknowledged cumulatively, the others are acknowledged one by one as soon as
+     * they are committed.
+     */
+    static class PendingMessages {
+        private final ArrayDeque<MessageId> received = new ArrayDeque<>();
+        // a message can be redelivered and received twice, so the commits are counted
+        private final Map<MessageId, Integer> acknowledged = new HashMap<>();
+        private MessageId cumulativeAck;
+
+        void received(MessageId messageId) {
+            received.add(messageId);
+        }
+
+        /**
+         * @return true if the message will be acknowledged cumulatively
+         */
+        boolean acknowledged(MessageId messageId) {
+            if (messageId.equals(received.peek())) {
+                received.poll();
+                cumulativeAck = messageId;
+                // the messages committed before the head can be covered by the same ack
+                while (!received.isEmpty() && removeAcknowledged(received.peek())) {
+                    cumulativeAck = received.poll();
+                }
+                return true;
+            }
+            acknowledged.merge(messageId, 1, Integer::sum);
+            return false;
+        }
+
+        private boolean removeAcknowledged(MessageId messageId) {
+            Integer count = acknowledged.get(messageId);
+            if (count == null) {
+                return false;
+            }
+            if (count == 1) {
+                acknowledged.remove(messageId);
+            } else {
+                acknowledged.put(messageId, count - 1);
+            }
+            return true;
+        }
+
+        MessageId pollCumulativeAck() {
+            MessageId result = cumulativeAck;
+            cumulativeAck = null;
+            return result;
+        }
+
+        boolean isEmpty() {
+            return received.isEmpty() && acknowledged.isEmpty();
+        }
+    }
+}
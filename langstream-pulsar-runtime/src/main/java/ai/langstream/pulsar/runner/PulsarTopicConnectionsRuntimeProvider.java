@@ -35,6 +35,7 @@ import ai.langstream.api.runner.topics.TopicReadResult;
 import ai.langstream.api.runner.topics.TopicReader;
 import ai.langstream.api.runtime.ExecutionPlan;
 import ai.langstream.api.runtime.Topic;
+import ai.langstream.api.util.VectorCodec;
 import ai.langstream.pulsar.PulsarClientUtils;
 import ai.langstream.pulsar.PulsarClusterRuntimeConfiguration;
 import ai.langstream.pulsar.PulsarTopic;
@@ -48,6 +49,7 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -62,9 +64,11 @@ import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.client.admin.PulsarAdmin;
 import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.api.BatchReceivePolicy;
 import org.apache.pulsar.client.api.Consumer;
 import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.Messages;
 import org.apache.pulsar.client.api.Producer;
 import org.apache.pulsar.client.api.PulsarClient;
 import org.apache.pulsar.client.api.Reader;
@@ -360,6 +364,23 @@ public class PulsarTopicConnectionsRuntimeProvider implements TopicConnectionsRu
             }
         }
 
+        /** Maximum number of messages returned by a single read. */
+        static final String BATCH_RECEIVE_MAX_MESSAGES_CONFIG =
+                "langstream.batch.receive.max.messages";
+
+        /** Maximum time to wait for a batch of messages to fill up. */
+        static final String BATCH_RECEIVE_TIMEOUT_MS_CONFIG = "langstream.batch.receive.timeout.ms";
+
+        private static int getBatchReceiveMaxMessages(Map<String, Object> configuration) {
+            Object value = configuration.remove(BATCH_RECEIVE_MAX_MESSAGES_CONFIG);
+            return value == null ? 100 : Integer.parseInt(value.toString());
+        }
+
+        private static int getBatchReceiveTimeoutMs(Map<String, Object> configuration) {
+            Object value = configuration.remove(BATCH_RECEIVE_TIMEOUT_MS_CONFIG);
+            return value == null ? 100 : Integer.parseInt(value.toString());
+        }
+
         @ToString
         private static class PulsarConsumerRecord implements Record {
             private final Object finalKey;
@@ -373,6 +394,22 @@ public class PulsarTopicConnectionsRuntimeProvider implements TopicConnectionsRu
                 this.receive = receive;
             }
 
+            static PulsarConsumerRecord fromMessage(Message<GenericRecord> receive) {
+                Object key = receive.getKey();
+                Object value = receive.getValue().getNativeObject();
+                if (value instanceof KeyValue<?, ?> kv) {
+                    key = kv.getKey();
+                    value = kv.getValue();
+                }
+                if (value instanceof byte[] bytes && receive.hasProperty(VectorCodec.HEADER)) {
+                    value = VectorCodec.decode(bytes);
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Received message: {}", receive);
+                }
+                return new PulsarConsumerRecord(key, value, receive);
+            }
+
             @Override
             public Object key() {
                 return finalKey;
@@ -393,9 +430,16 @@ public class PulsarTopicConnectionsRuntimeProvider implements TopicConnectionsRu
                 return receive.getPublishTime();
             }
 
+            @Override
+            public long serializedSize() {
+                return receive.size();
+            }
+
             @Override
             public Collection<Header> headers() {
                 return receive.getProperties().entrySet().stream()
+                        // the value has been decoded
+                        .filter(e -> !VectorCodec.HEADER.equals(e.getKey()))
                         .map(
                                 e ->
                                         new Header() {
@@ -425,10 +469,14 @@ public class PulsarTopicConnectionsRuntimeProvider implements TopicConnectionsRu
             private Map<String, byte[]> topicMessageIds = new HashMap<>();
 
             private Reader<GenericRecord> reader;
+            private final int batchReceiveMaxMessages;
 
             private PulsarTopicReader(
                     Map<String, Object> configuration, TopicOffsetPosition initialPosition) {
                 this.configuration = configuration;
+                this.batchReceiveMaxMessages = getBatchReceiveMaxMessages(configuration);
+                // the reader does not wait for the batch to fill up
+                getBatchReceiveTimeoutMs(configuration);
                 this.startMessageId =
                         switch (initialPosition.position()) {
                             case Earliest -> MessageId.earliest;
@@ -481,19 +529,18 @@ public class PulsarTopicConnectionsRuntimeProvider implements TopicConnectionsRu
                 List<Record> records;
                 byte[] offset;
                 if (receive != null) {
-                    Object key = receive.getKey();
-                    Object value = receive.getValue().getNativeObject();
-                    if (value instanceof KeyValue<?, ?> kv) {
-                        key = kv.getKey();
-                        value = kv.getValue();
+                    records = new ArrayList<>();
+                    while (receive != null) {
+                        records.add(PulsarConsumerRecord.fromMessage(receive));
+                        topicMessageIds.put(
+                                receive.getTopicName(), receive.getMessageId().toByteArray());
+                        if (records.size() >= batchReceiveMaxMessages) {
+                            break;
+                        }
+                        // take only the messages that are already available
+                        receive = reader.readNext(0, TimeUnit.MILLISECONDS);
                     }
-
-                    final Object finalKey = key;
-                    final Object finalValue = value;
-                    log.info("Received message: {}", receive);
-                    records = List.of(new PulsarConsumerRecord(finalKey, finalValue, receive));
-                    topicMessageIds.put(
-                            receive.getTopicName(), receive.getMessageId().toByteArray());
+                    // the offset is the position after the last message of the batch
                     offset = mapper.writeValueAsBytes(topicMessageIds);
                 } else {
                     records = List.of();
@@ -519,9 +566,27 @@ public class PulsarTopicConnectionsRuntimeProvider implements TopicConnectionsRu
             Consumer<GenericRecord> consumer;
 
             private final AtomicLong totalOut = new AtomicLong();
+            private final BatchReceivePolicy batchReceivePolicy;
+            private final boolean cumulativeAck;
+
+            private MessageAcknowledger acknowledger;
 
             public PulsarTopicConsumer(Map<String, Object> configuration) {
                 this.configuration = configuration;
+                this.batchReceivePolicy =
+                        BatchReceivePolicy.builder()
+                                .maxNumMessages(getBatchReceiveMaxMessages(configuration))
+                                .timeout(
+                                        getBatchReceiveTimeoutMs(configuration),
+                                        TimeUnit.MILLISECONDS)
+                                .build();
+                // cumulative acks are allowed only if there is only one active consumer
+                Object subscriptionType =
+                        configuration.getOrDefault("subscriptionType", SubscriptionType.Failover);
+                this.cumulativeAck =
+                        SubscriptionType.Failover.name().equals(subscriptionType.toString())
+                                || SubscriptionType.Exclusive.name()
+                                        .equals(subscriptionType.toString());
             }
 
             @Override
@@ -536,9 +601,11 @@ public class PulsarTopicConnectionsRuntimeProvider implements TopicConnectionsRu
                         client.newConsumer(Schema.AUTO_CONSUME())
                                 .subscriptionInitialPosition(SubscriptionInitialPosition.Earliest)
                                 .subscriptionType(SubscriptionType.Failover)
+                                .batchReceivePolicy(batchReceivePolicy)
                                 .loadConf(configuration)
                                 .topic(topic)
                                 .subscribe();
+                acknowledger = new MessageAcknowledger(consumer, cumulativeAck);
             }
 
             @Override
@@ -555,36 +622,40 @@ public class PulsarTopicConnectionsRuntimeProvider implements TopicConnectionsRu
 
             @Override
             public List<Record> read() throws Exception {
-                Message<GenericRecord> receive = consumer.receive(1, TimeUnit.SECONDS);
-                if (receive == null) {
+                acknowledger.checkAckFailure();
+                Messages<GenericRecord> messages = consumer.batchReceive();
+                if (messages == null || messages.size() == 0) {
                     return List.of();
                 }
-                Object key = receive.getKey();
-                Object value = receive.getValue().getNativeObject();
-                if (value instanceof KeyValue<?, ?> kv) {
-                    key = kv.getKey();
-                    value = kv.getValue();
+                List<Record> records = new ArrayList<>(messages.size());
+                for (Message<GenericRecord> message : messages) {
+                    records.add(PulsarConsumerRecord.fromMessage(message));
                 }
-
-                final Object finalKey = key;
-                final Object finalValue = value;
-                log.info("Received message: {}", receive);
-                totalOut.incrementAndGet();
-                return List.of(new PulsarConsumerRecord(finalKey, finalValue, receive));
+                acknowledger.received(messages);
+                totalOut.addAndGet(records.size());
+                return records;
             }
 
             @Override
-            public void commit(List<Record> records) throws Exception {
+            public void commit(List<Record> records) {
+                List<Message<GenericRecord>> messages = new ArrayList<>(records.size());
                 for (Record record : records) {
-                    PulsarConsumerRecord pulsarConsumerRecord = (PulsarConsumerRecord) record;
-                    consumer.acknowledge(pulsarConsumerRecord.receive.getMessageId());
+                    messages.add(((PulsarConsumerRecord) record).receive);
                 }
+                acknowledger.commit(messages);
             }
         }
 
         private class PulsarTopicProducer<K> implements TopicProducer {
 
+            /**
+             * Opt-in binary encoding of the Map values that carry vectors: float32, float16 or
+             * int8. See {@link VectorCodec}.
+             */
+            static final String VECTOR_ENCODING_CONFIG = "langstream.vector.encoding";
+
             private final Map<String, Object> configuration;
+            private final VectorCodec.Format vectorEncoding;
             private final AtomicLong totalIn = new AtomicLong();
             String topic;
             Producer<K> producer;
@@ -612,6 +683,12 @@ public class PulsarTopicConnectionsRuntimeProvider implements TopicConnectionsRu
 
             public PulsarTopicProducer(Map<String, Object> configuration) {
                 this.configuration = configuration;
+                Object vectorEncodingConfig = configuration.remove(VECTOR_ENCODING_CONFIG);
+                this.vectorEncoding =
+                        VectorCodec.Format.parse(
+                                vectorEncodingConfig == null
+                                        ? null
+                                        : vectorEncodingConfig.toString());
             }
 
             @Override
@@ -673,11 +750,16 @@ public class PulsarTopicConnectionsRuntimeProvider implements TopicConnectionsRu
                     throw new RuntimeException("PulsarTopicProducer not started");
                 }
                 totalIn.addAndGet(1);
+                Object value = r.value();
+                byte[] vectorEncoded = encodeVectors(value);
+                if (vectorEncoded != null) {
+                    value = vectorEncoded;
+                }
                 if (schema == null) {
                     try {
                         final Schema<?> valueSchema;
-                        if (r.value() != null) {
-                            valueSchema = getSchema(r.value().getClass());
+                        if (value != null) {
+                            valueSchema = getSchema(value.getClass());
                         } else {
                             valueSchema = Schema.BYTES;
                         }
@@ -704,35 +786,56 @@ public class PulsarTopicConnectionsRuntimeProvider implements TopicConnectionsRu
 
                 log.info("Writing message {}", r);
 
-                TypedMessageBuilder<K> message =
-                        producer.newMessage()
-                                .properties(
-                                        r.headers().stream()
-                                                .collect(
-                                                        Collectors.toMap(
-                                                                Header::key,
-                                                                h ->
-                                                                        h.value() != null
-                                                                                ? h.value()
-                                                                                        .toString()
-                                                                                : null)));
+                // the encoding header is kept only on values passed through as raw bytes
+                boolean keepEncodingHeader = vectorEncoded == null && value instanceof byte[];
+                Map<String, String> properties =
+                        r.headers().stream()
+                                .filter(
+                                        h ->
+                                                keepEncodingHeader
+                                                        || !VectorCodec.HEADER.equals(h.key()))
+                                .collect(
+                                        Collectors.toMap(
+                                                Header::key,
+                                                h ->
+                                                        h.value() != null
+                                                                ? h.value().toString()
+                                                                : null));
+                if (vectorEncoded != null) {
+                    properties.put(VectorCodec.HEADER, vectorEncoding.headerValue());
+                }
+                TypedMessageBuilder<K> message = producer.newMessage().properties(properties);
 
                 if (schema instanceof KeyValueSchema<?, ?> keyValueSchema) {
                     KeyValue<?, ?> keyValue =
                             new KeyValue<>(
                                     convertValue(r.key(), keyValueSchema.getKeySchema()),
-                                    convertValue(r.value(), keyValueSchema.getValueSchema()));
+                                    convertValue(value, keyValueSchema.getValueSchema()));
                     message.value((K) keyValue);
                 } else {
                     if (r.key() != null) {
                         message.key(r.key().toString());
                     }
-                    message.value((K) convertValue(r.value(), schema));
+                    message.value((K) convertValue(value, schema));
                 }
 
                 return message.sendAsync();
             }
 
+            private byte[] encodeVectors(Object value) {
+                if (vectorEncoding == null || !(value instanceof Map)) {
+                    return null;
+                }
+                try {
+                    return VectorCodec.encode(value, vectorEncoding);
+                } catch (IllegalArgumentException e) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Cannot encode the value with {}", vectorEncoding, e);
+                    }
+                    return null;
+                }
+            }
+
             private Object convertValue(Object value, Schema<?> schema) {
                 if (value == null) {
                     return null;
@@ -0,0 +1,184 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.pulsar.runner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+class MessageAcknowledgerTest {
+
+    private Consumer<?> consumer;
+
+    @BeforeEach
+    void setup() {
+        consumer = mock(Consumer.class);
+        when(consumer.acknowledgeAsync(anyList()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(consumer.acknowledgeCumulativeAsync(any(MessageId.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    private static MessageId id(int partition, long entry) {
+        return new MessageIdImpl(1, entry, partition);
+    }
+
+    private static Message<?> message(int partition, long entry) {
+        Message<?> message = mock(Message.class);
+        when(message.getTopicName()).thenReturn("topic-partition-" + partition);
+        when(message.getMessageId()).thenReturn(id(partition, entry));
+        return message;
+    }
+
+    @Test
+    void inOrderCommitsArePendingUntilTheHead() {
+        MessageAcknowledger.PendingMessages pending = new MessageAcknowledger.PendingMessages();
+        for (int i = 0; i < 3; i++) {
+            pending.received(id(0, i));
+        }
+        assertTrue(pending.acknowledged(id(0, 0)));
+        assertTrue(pending.acknowledged(id(0, 1)));
+        assertEquals(id(0, 1), pending.pollCumulativeAck());
+        assertNull(pending.pollCumulativeAck());
+        assertTrue(pending.acknowledged(id(0, 2)));
+        assertEquals(id(0, 2), pending.pollCumulativeAck());
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    void outOfOrderCommitsDrainWhenTheHeadArrives() {
+        MessageAcknowledger.PendingMessages pending = new MessageAcknowledger.PendingMessages();
+        for (int i = 0; i < 4; i++) {
+            pending.received(id(0, i));
+        }
+        assertFalse(pending.acknowledged(id(0, 2)));
+        assertFalse(pending.acknowledged(id(0, 1)));
+        assertNull(pending.pollCumulativeAck());
+
+        // the head covers the messages already committed, up to the first gap
+        assertTrue(pending.acknowledged(id(0, 0)));
+        assertEquals(id(0, 2), pending.pollCumulativeAck());
+        assertFalse(pending.isEmpty());
+
+        assertTrue(pending.acknowledged(id(0, 3)));
+        assertEquals(id(0, 3), pending.pollCumulativeAck());
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    void redeliveredDuplicate() {
+        MessageAcknowledger.PendingMessages pending = new MessageAcknowledger.PendingMessages();
+        pending.received(id(0, 0));
+        pending.received(id(0, 1));
+        // redelivered before the first copy is committed
+        pending.received(id(0, 1));
+        pending.received(id(0, 2));
+
+        assertFalse(pending.acknowledged(id(0, 1)));
+        assertFalse(pending.acknowledged(id(0, 1)));
+        assertTrue(pending.acknowledged(id(0, 0)));
+        // both copies are covered by the cumulative ack, the next message is not blocked
+        assertEquals(id(0, 1), pending.pollCumulativeAck());
+        assertTrue(pending.acknowledged(id(0, 2)));
+        assertEquals(id(0, 2), pending.pollCumulativeAck());
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    void cumulativeAckPerPartition() {
+        MessageAcknowledger acknowledger = new MessageAcknowledger(consumer, true);
+        List<Message<?>> messages =
+                List.of(message(0, 0), message(1, 0), message(0, 1), message(1, 1));
+        acknowledger.received(messages);
+
+        // partition 0 is committed in order, partition 1 out of order
+        acknowledger.commit(List.of(messages.get(0), messages.get(2), messages.get(3)));
+
+        verify(consumer).acknowledgeCumulativeAsync(id(0, 1));
+        verify(consumer).acknowledgeAsync(List.of(id(1, 1)));
+        verifyNoMoreInteractions(consumer);
+
+        acknowledger.commit(List.of(messages.get(1)));
+        verify(consumer).acknowledgeCumulativeAsync(id(1, 1));
+        verifyNoMoreInteractions(consumer);
+    }
+
+    @Test
+    void interleavedPartitions() {
+        MessageAcknowledger acknowledger = new MessageAcknowledger(consumer, true);
+        List<Message<?>> messages = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            messages.add(message(0, i));
+            messages.add(message(1, i));
+        }
+        acknowledger.received(messages);
+
+        acknowledger.commit(messages);
+
+        ArgumentCaptor<MessageId> cumulative = ArgumentCaptor.forClass(MessageId.class);
+        verify(consumer, times(2)).acknowledgeCumulativeAsync(cumulative.capture());
+        assertEquals(
+                List.of(id(0, 2), id(1, 2)),
+                cumulative.getAllValues().stream()
+                        .sorted((a, b) -> a.toString().compareTo(b.toString()))
+                        .toList());
+        verify(consumer, never()).acknowledgeAsync(anyList());
+    }
+
+    @Test
+    void sharedSubscriptionAcknowledgesIndividually() {
+        MessageAcknowledger acknowledger = new MessageAcknowledger(consumer, false);
+        List<Message<?>> messages = List.of(message(0, 0), message(0, 1), message(1, 0));
+        acknowledger.received(messages);
+
+        acknowledger.commit(List.of(messages.get(1), messages.get(0)));
+        acknowledger.commit(List.of(messages.get(2)));
+
+        verify(consumer).acknowledgeAsync(List.of(id(0, 1), id(0, 0)));
+        verify(consumer).acknowledgeAsync(List.of(id(1, 0)));
+        verify(consumer, never()).acknowledgeCumulativeAsync(any(MessageId.class));
+    }
+
+    @Test
+    void ackFailureIsReportedOnTheNextCall() {
+        when(consumer.acknowledgeAsync(anyList()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("ack failed")));
+        MessageAcknowledger acknowledger = new MessageAcknowledger(consumer, false);
+        acknowledger.commit(List.of(message(0, 0)));
+        assertThrows(RuntimeException.class, acknowledger::checkAckFailure);
+    }
+}
@@ -29,6 +29,7 @@ import ai.langstream.api.runner.code.AgentSink;
 import ai.langstream.api.runner.code.AgentSource;
 import ai.langstream.api.runner.code.AgentStatusResponse;
 import ai.langstream.api.runner.code.BadRecordHandler;
+import ai.langstream.api.runner.code.BatchResult;
 import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.RecordSink;
@@ -64,11 +65,14 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
@@ -432,7 +436,9 @@ public class AgentRunner {
                                 sink,
                                 agentContext,
                                 errorsHandler,
-                                continueLoop);
+                                continueLoop,
+                                RunnerConfiguration.fromMap(
+                                        configuration.agent().runnerConfiguration()));
 
                         pendingRecordsCounterSource.waitForNoPendingRecords();
                     }
@@ -656,6 +662,25 @@ public class AgentRunner {
             ErrorsHandler errorsHandler,
             Supplier<Boolean> continueLoop)
             throws Exception {
+        runMainLoop(
+                source,
+                processor,
+                sink,
+                agentContext,
+                errorsHandler,
+                continueLoop,
+                RunnerConfiguration.DEFAULT);
+    }
+
+    static void runMainLoop(
+            AgentSource source,
+            AgentProcessor processor,
+            AgentSink sink,
+            AgentContext agentContext,
+            ErrorsHandler errorsHandler,
+            Supplier<Boolean> continueLoop,
+            RunnerConfiguration runnerConfiguration)
+            throws Exception {
         source.setContext(agentContext);
         sink.setContext(agentContext);
         processor.setContext(agentContext);
@@ -663,72 +688,386 @@ public class AgentRunner {
         sink.start();
         processor.start();
 
-        SourceRecordTracker sourceRecordTracker = new SourceRecordTracker(source);
         AtomicReference<Exception> fatalError = new AtomicReference<>();
 
-        while (continueLoop.get()) {
-            List<Record> records = source.read();
-            if (records != null && !records.isEmpty()) {
-                // in case of permanent FAIL this method will throw an exception
-                runProcessorAgent(
-                        processor,
+        ProcessorLanes processorLanes = null;
+        if (runnerConfiguration.lanes() > 1) {
+            log.info(
+                    "Running the processor on {} lanes, the processor must be thread safe",
+                    runnerConfiguration.lanes());
+            processorLanes =
+                    new ProcessorLanes(
+                            runnerConfiguration.lanes(),
+                            source.agentId(),
+                            error -> setFatalError(error, fatalError));
+        }
+        RetryScheduler retryScheduler =
+                new RetryScheduler(
+                        errorsHandler, agentContext.getMetricsReporter(), source.agentId());
+        AgentRunnerMetrics metrics =
+                AgentRunnerMetrics.create(
+                        agentContext.getMetricsReporter(), source, processor, sink);
+        try {
+            runMainLoop(
+                    source,
+                    processor,
+                    sink,
+                    errorsHandler,
+                    retryScheduler,
+                    metrics,
+                    continueLoop,
+                    runnerConfiguration,
+                    processorLanes,
+                    fatalError);
+        } finally {
+            retryScheduler.close();
+            if (processorLanes != null) {
+                processorLanes.close();
+            }
+        }
+    }
+
+    private static void runMainLoop(
+            AgentSource source,
+            AgentProcessor processor,
+            AgentSink sink,
+            ErrorsHandler errorsHandler,
+            RetryScheduler retryScheduler,
+            AgentRunnerMetrics metrics,
+            Supplier<Boolean> continueLoop,
+            RunnerConfiguration runnerConfiguration,
+            ProcessorLanes processorLanes,
+            AtomicReference<Exception> fatalError)
+            throws Exception {
+        if (!runnerConfiguration.pipelined()) {
+            SourceRecordTracker sourceRecordTracker = new SourceRecordTracker(source);
+            SinkBatcher sinkBatcher =
+                    newSinkBatcher(
+                            sink,
+                            errorsHandler,
+                            retryScheduler,
+                            metrics,
+                            sourceRecordTracker,
+                            source,
+                            fatalError,
+                            runnerConfiguration);
+            while (continueLoop.get()) {
+                long readStart = System.nanoTime();
+                List<Record> records = source.read();
+                metrics.readLatency().recordSince(readStart);
+                processSourceRecords(
                         records,
-                        errorsHandler,
+                        processor,
                         source,
-                        (AgentProcessor.SourceRecordAndResult sourceRecordAndResult) -> {
-                            if (sourceRecordAndResult.error() != null) {
-                                log.error("Fatal error", sourceRecordAndResult.error());
-                                // handle error
-                                setFatalError(sourceRecordAndResult.error(), fatalError);
-                                return;
-                            }
-
-                            if (sourceRecordAndResult.resultRecords().isEmpty()) {
-                                if (log.isDebugEnabled()) {
-                                    log.debug(
-                                            "No records to send to the Sink for {}",
-                                            sourceRecordAndResult.sourceRecord());
-                                }
-                                // no records, we have to commit the source record to the source
-                                // no need to call the Sink with an empty list
-                                try {
-                                    source.commit(List.of(sourceRecordAndResult.sourceRecord()));
-                                } catch (Throwable error) {
-                                    log.error("Source could not commit the record", error);
-                                    setFatalError(error, fatalError);
-                                }
-                                return;
-                            }
+                        sink,
+                        errorsHandler,
+                        retryScheduler,
+                        metrics,
+                        sourceRecordTracker,
+                        fatalError,
+                        null,
+                        processorLanes,
+                        sinkBatcher);
+                retryScheduler.runDueRetries();
+                // the records generated from the batch read are written together
+                sinkBatcher.flush();
+                checkFatalError(fatalError);
+                commitOnTheSinkIfNeeded(sink);
+            }
+            awaitPendingRetries(retryScheduler, processorLanes, sinkBatcher, fatalError);
+            commitOnTheSinkIfNeeded(sink);
+            return;
+        }
 
-                            sourceRecordTracker.track(List.of(sourceRecordAndResult));
-                            try {
-                                // the processor maps the record coming from the Source to records
-                                // to be sent to the Sink
-                                processRecordsOnTheSink(
-                                        sink,
-                                        sourceRecordAndResult,
-                                        errorsHandler,
-                                        sourceRecordTracker,
-                                        source,
-                                        fatalError);
-                            } catch (Throwable e) {
-                                log.error("Error while processing records", e);
-                                setFatalError(e, fatalError);
+        if (sink.handlesCommit()) {
+            // the records are never committed to the source,
+            // so we cannot keep track of the records in flight
+            log.warn("The Sink handles the commits, the in-flight records budget is ignored");
+        }
+        final InFlightRecordsLimiter inFlightRecordsLimiter =
+                sink.handlesCommit()
+                        ? null
+                        : new InFlightRecordsLimiter(
+                                runnerConfiguration.maxInFlightRecords(),
+                                runnerConfiguration.maxInFlightBytes());
+        log.info(
+                "Running the main loop in pipelined mode, max in flight records {}, max in flight bytes {}",
+                runnerConfiguration.maxInFlightRecords(),
+                runnerConfiguration.maxInFlightBytes());
+        SourceRecordTracker sourceRecordTracker =
+                new SourceRecordTracker(
+                        source,
+                        committed -> {
+                            if (inFlightRecordsLimiter != null) {
+                                inFlightRecordsLimiter.release(committed);
                             }
                         });
+        SinkBatcher sinkBatcher =
+                newSinkBatcher(
+                        sink,
+                        errorsHandler,
+                        retryScheduler,
+                        metrics,
+                        sourceRecordTracker,
+                        source,
+                        fatalError,
+                        runnerConfiguration);
+
+        BlockingQueue<List<Record>> readRecords = new LinkedBlockingQueue<>();
+        AtomicBoolean reading = new AtomicBoolean(true);
+        Thread reader =
+                new Thread(
+                        () ->
+                                readSourceRecords(
+                                        source,
+                                        metrics,
+                                        inFlightRecordsLimiter,
+                                        readRecords,
+                                        () -> reading.get() && continueLoop.get(),
+                                        fatalError),
+                        "source-reader-" + source.agentId());
+        reader.start();
+        try {
+            while (continueLoop.get() && fatalError.get() == null) {
+                List<Record> records = readRecords.poll(100, TimeUnit.MILLISECONDS);
+                processSourceRecords(
+                        records,
+                        processor,
+                        source,
+                        sink,
+                        errorsHandler,
+                        retryScheduler,
+                        metrics,
+                        sourceRecordTracker,
+                        fatalError,
+                        inFlightRecordsLimiter,
+                        processorLanes,
+                        sinkBatcher);
+                retryScheduler.runDueRetries();
+                // the records generated from the batch read are written together
+                sinkBatcher.flush();
+                checkFatalError(fatalError);
+                commitOnTheSinkIfNeeded(sink);
             }
+        } finally {
+            reading.set(false);
+            reader.join();
+        }
+        checkFatalError(fatalError);
+
+        // process the records that have already been read,
+        // otherwise we would wait for them to be committed on shutdown
+        List<Record> records;
+        while ((records = readRecords.poll()) != null) {
+            processSourceRecords(
+                    records,
+                    processor,
+                    source,
+                    sink,
+                    errorsHandler,
+                    retryScheduler,
+                    metrics,
+                    sourceRecordTracker,
+                    fatalError,
+                    inFlightRecordsLimiter,
+                    processorLanes,
+                    sinkBatcher);
+            retryScheduler.runDueRetries();
+            sinkBatcher.flush();
             checkFatalError(fatalError);
+        }
+        awaitPendingRetries(retryScheduler, processorLanes, sinkBatcher, fatalError);
+        commitOnTheSinkIfNeeded(sink);
+    }
+
+    private static void awaitPendingRetries(
+            RetryScheduler retryScheduler,
+            ProcessorLanes processorLanes,
+            SinkBatcher sinkBatcher,
+            AtomicReference<Exception> fatalError)
+            throws Exception {
+        // the records waiting on the lanes or for a retry have not been committed yet,
+        // complete them before leaving the main loop
+        while (true) {
+            if (processorLanes != null) {
+                processorLanes.awaitIdle();
+            }
+            sinkBatcher.flush();
+            if (retryScheduler.getPendingRetries() == 0 || fatalError.get() != null) {
+                break;
+            }
+            retryScheduler.awaitDueRetries(100, TimeUnit.MILLISECONDS);
+        }
+        checkFatalError(fatalError);
+    }
 
-            // commit (Kafka Connect Sink)
-            if (sink.handlesCommit()) {
-                // this is the case for the Kafka Connect Sink
-                // in this case it handles directly the Kafka Consumer
-                // and so we bypass the commit
-                sink.commit();
+    private static void readSourceRecords(
+            AgentSource source,
+            AgentRunnerMetrics metrics,
+            InFlightRecordsLimiter inFlightRecordsLimiter,
+            BlockingQueue<List<Record>> readRecords,
+            Supplier<Boolean> continueReading,
+            AtomicReference<Exception> fatalError) {
+        try {
+            while (continueReading.get() && fatalError.get() == null) {
+                if (inFlightRecordsLimiter != null
+                        && !inFlightRecordsLimiter.awaitCapacity(100, TimeUnit.MILLISECONDS)) {
+                    // the budget is exhausted, wait for some records to be committed
+                    continue;
+                }
+                long readStart = System.nanoTime();
+                List<Record> records = source.read();
+                metrics.readLatency().recordSince(readStart);
+                if (records != null && !records.isEmpty()) {
+                    if (inFlightRecordsLimiter != null) {
+                        inFlightRecordsLimiter.acquire(records);
+                    }
+                    readRecords.put(records);
+                }
             }
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            setFatalError(interruptedException, fatalError);
+        } catch (Throwable error) {
+            log.error("Error while reading from the source", error);
+            setFatalError(error, fatalError);
         }
     }
 
+    private static void commitOnTheSinkIfNeeded(AgentSink sink) throws Exception {
+        // commit (Kafka Connect Sink)
+        if (sink.handlesCommit()) {
+            // this is the case for the Kafka Connect Sink
+            // in this case it handles directly the Kafka Consumer
+            // and so we bypass the commit
+            sink.commit();
+        }
+    }
+
+    private static void processSourceRecords(
+            List<Record> records,
+            AgentProcessor processor,
+            AgentSource source,
+            AgentSink sink,
+            ErrorsHandler errorsHandler,
+            RetryScheduler retryScheduler,
+            AgentRunnerMetrics metrics,
+            SourceRecordTracker sourceRecordTracker,
+            AtomicReference<Exception> fatalError,
+            InFlightRecordsLimiter inFlightRecordsLimiter,
+            ProcessorLanes processorLanes,
+            SinkBatcher sinkBatcher) {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+        if (processorLanes != null) {
+            // the records with the same key are processed in order by the same lane,
+            // the lanes don't wait for each other
+            processorLanes.process(
+                    records,
+                    laneRecords ->
+                            runProcessorOnSourceRecords(
+                                    laneRecords,
+                                    processor,
+                                    source,
+                                    sink,
+                                    errorsHandler,
+                                    retryScheduler,
+                                    metrics,
+                                    sourceRecordTracker,
+                                    fatalError,
+                                    inFlightRecordsLimiter,
+                                    processorLanes,
+                                    sinkBatcher));
+            return;
+        }
+        runProcessorOnSourceRecords(
+                records,
+                processor,
+                source,
+                sink,
+                errorsHandler,
+                retryScheduler,
+                metrics,
+                sourceRecordTracker,
+                fatalError,
+                inFlightRecordsLimiter,
+                null,
+                sinkBatcher);
+    }
+
+    private static void runProcessorOnSourceRecords(
+            List<Record> records,
+            AgentProcessor processor,
+            AgentSource source,
+            AgentSink sink,
+            ErrorsHandler errorsHandler,
+            RetryScheduler retryScheduler,
+            AgentRunnerMetrics metrics,
+            SourceRecordTracker sourceRecordTracker,
+            AtomicReference<Exception> fatalError,
+            InFlightRecordsLimiter inFlightRecordsLimiter,
+            ProcessorLanes processorLanes,
+            SinkBatcher sinkBatcher) {
+        // in case of permanent FAIL this method will throw an exception
+        runProcessorAgent(
+                processor,
+                records,
+                errorsHandler,
+                retryScheduler,
+                metrics,
+                source,
+                processorLanes,
+                (AgentProcessor.SourceRecordAndResult sourceRecordAndResult) -> {
+                    if (sourceRecordAndResult.error() != null) {
+                        log.error("Fatal error", sourceRecordAndResult.error());
+                        // handle error
+                        setFatalError(sourceRecordAndResult.error(), fatalError);
+                        return;
+                    }
+
+                    if (sourceRecordAndResult.resultRecords().isEmpty()) {
+                        if (log.isDebugEnabled()) {
+                            log.debug(
+                                    "No records to send to the Sink for {}",
+                                    sourceRecordAndResult.sourceRecord());
+                        }
+                        // no records, we have to commit the source record to the source
+                        // no need to call the Sink with an empty list
+                        try {
+                            List<Record> committed = List.of(sourceRecordAndResult.sourceRecord());
+                            source.commit(committed);
+                            if (inFlightRecordsLimiter != null) {
+                                inFlightRecordsLimiter.release(committed);
+                            }
+                        } catch (Throwable error) {
+                            log.error("Source could not commit the record", error);
+                            setFatalError(error, fatalError);
+                        }
+                        return;
+                    }
+
+                    try {
+                        // the processor maps the record coming from the Source to records
+                        // to be sent to the Sink
+                        processRecordsOnTheSink(
+                                sink,
+                                sourceRecordAndResult,
+                                errorsHandler,
+                                retryScheduler,
+                                metrics,
+                                sourceRecordTracker,
+                                source,
+                                fatalError,
+                                sinkBatcher);
+                    } catch (Throwable e) {
+                        log.error("Error while processing records", e);
+                        setFatalError(e, fatalError);
+                    }
+                },
+                0);
+    }
+
     private static void checkFatalError(AtomicReference<Exception> fatalError) throws Exception {
         if (fatalError.get() != null) {
             throw fatalError.get();
@@ -751,32 +1090,51 @@ public class AgentRunner {
             AgentSink sink,
             AgentProcessor.SourceRecordAndResult sourceRecordAndResult,
             ErrorsHandler errorsHandler,
+            RetryScheduler retryScheduler,
+            AgentRunnerMetrics metrics,
             SourceRecordTracker sourceRecordTracker,
             AgentSource source,
-            AtomicReference<Exception> fatalError) {
-        Record sourceRecord = sourceRecordAndResult.sourceRecord();
+            AtomicReference<Exception> fatalError,
+            SinkBatcher sinkBatcher) {
+        // if the Sink handles the commits the source records are never committed by the runner,
+        // so there is no need to track them
+        SourceRecordTracker.TrackedSourceRecord trackedSourceRecord =
+                sink.handlesCommit() ? null : sourceRecordTracker.track(sourceRecordAndResult);
         List<Record> toWrite = new ArrayList<>(sourceRecordAndResult.resultRecords());
+        if (sink.supportsBatchWrite()) {
+            // written with the records generated from the other source records
+            sinkBatcher.add(trackedSourceRecord, toWrite);
+            return;
+        }
         for (Record record : toWrite) {
             writeRecordToTheSink(
                     sink,
                     errorsHandler,
+                    retryScheduler,
+                    metrics,
                     sourceRecordTracker,
                     source,
                     fatalError,
-                    sourceRecord,
-                    record);
+                    trackedSourceRecord,
+                    record,
+                    0);
         }
     }
 
     private static void writeRecordToTheSink(
             AgentSink sink,
             ErrorsHandler errorsHandler,
+            RetryScheduler retryScheduler,
+            AgentRunnerMetrics metrics,
             SourceRecordTracker sourceRecordTracker,
             AgentSource source,
             AtomicReference<Exception> fatalError,
-            Record sourceRecord,
-            Record record) {
+            SourceRecordTracker.TrackedSourceRecord trackedSourceRecord,
+            Record record,
+            int attempt) {
+        long writeStart = System.nanoTime();
         CompletableFuture<?> writeResult = sink.write(record);
+        writeResult.whenComplete((___, error) -> metrics.writeLatency().recordSince(writeStart));
 
         if (sink.handlesCommit()) {
             // it is the sink that handles the commit
@@ -796,75 +1154,212 @@ public class AgentRunner {
         writeResult.whenComplete(
                 (___, error) -> {
                     if (error == null) {
-                        sourceRecordTracker.commit(List.of(record));
+                        sourceRecordTracker.commit(trackedSourceRecord);
                     } else {
-                        // handle error
-                        ErrorsHandler.ErrorsProcessingOutcome action =
-                                errorsHandler.handleErrors(sourceRecord, error);
-                        switch (action) {
-                            case SKIP -> {
-                                // skip (the whole batch)
-                                log.error(
-                                        "Unrecoverable error while processing the records, skipping",
-                                        error);
-                                sourceRecordTracker.commit(List.of(record));
+                        handleSinkError(
+                                sink,
+                                errorsHandler,
+                                retryScheduler,
+                                metrics,
+                                sourceRecordTracker,
+                                source,
+                                fatalError,
+                                trackedSourceRecord,
+                                record,
+                                error,
+                                attempt);
+                    }
+                });
+    }
+
+    private static SinkBatcher newSinkBatcher(
+            AgentSink sink,
+            ErrorsHandler errorsHandler,
+            RetryScheduler retryScheduler,
+            AgentRunnerMetrics metrics,
+            SourceRecordTracker sourceRecordTracker,
+            AgentSource source,
+            AtomicReference<Exception> fatalError,
+            RunnerConfiguration runnerConfiguration) {
+        return new SinkBatcher(
+                runnerConfiguration.maxSinkBatchSize(),
+                records -> {
+                    try {
+                        writeRecordsToTheSink(
+                                sink,
+                                errorsHandler,
+                                retryScheduler,
+                                metrics,
+                                sourceRecordTracker,
+                                source,
+                                fatalError,
+                                records);
+                    } catch (Throwable e) {
+                        log.error("Error while writing records", e);
+                        setFatalError(e, fatalError);
+                    }
+                });
+    }
+
+    private static void writeRecordsToTheSink(
+            AgentSink sink,
+            ErrorsHandler errorsHandler,
+            RetryScheduler retryScheduler,
+            AgentRunnerMetrics metrics,
+            SourceRecordTracker sourceRecordTracker,
+            AgentSource source,
+            AtomicReference<Exception> fatalError,
+            List<SinkBatcher.PendingRecord> pendingRecords) {
+        List<Record> records = new ArrayList<>(pendingRecords.size());
+        for (SinkBatcher.PendingRecord pendingRecord : pendingRecords) {
+            records.add(pendingRecord.record());
+        }
+        long writeStart = System.nanoTime();
+        CompletableFuture<BatchResult> writeResult = sink.write(records);
+        writeResult.whenComplete((___, error) -> metrics.writeLatency().recordSince(writeStart));
+
+        if (sink.handlesCommit()) {
+            // it is the sink that handles the commit
+            // we should not commit the source record or handle failures
+            writeResult.whenComplete(
+                    (result, error) -> {
+                        if (error == null && !result.isSuccess()) {
+                            error = result.errors().values().iterator().next();
+                        }
+                        if (error != null) {
+                            log.error(
+                                    "Error while writing records {} on a Sink that handles commits by itself",
+                                    records,
+                                    error);
+                            setFatalError(error, fatalError);
+                        }
+                    });
+            return;
+        }
+
+        writeResult.whenComplete(
+                (result, error) -> {
+                    // the records of the same source record are contiguous in the batch,
+                    // so a single commit is done for each run of written records
+                    SourceRecordTracker.TrackedSourceRecord current = null;
+                    int written = 0;
+                    for (int i = 0; i < pendingRecords.size(); i++) {
+                        SinkBatcher.PendingRecord pendingRecord = pendingRecords.get(i);
+                        if (pendingRecord.trackedSourceRecord() != current) {
+                            if (current != null) {
+                                sourceRecordTracker.commit(current, written);
                             }
-                            case RETRY -> {
-                                log.error(
-                                        "Retryable error while processing the records, retrying",
-                                        error);
+                            current = pendingRecord.trackedSourceRecord();
+                            written = 0;
+                        }
+                        Throwable recordError = error != null ? error : result.errors().get(i);
+                        if (recordError == null) {
+                            written++;
+                        } else {
+                            handleSinkError(
+                                    sink,
+                                    errorsHandler,
+                                    retryScheduler,
+                                    metrics,
+                                    sourceRecordTracker,
+                                    source,
+                                    fatalError,
+                                    current,
+                                    pendingRecord.record(),
+                                    recordError,
+                                    0);
+                        }
+                    }
+                    if (current != null) {
+                        sourceRecordTracker.commit(current, written);
+                    }
+                });
+    }
+
+    private static void handleSinkError(
+            AgentSink sink,
+            ErrorsHandler errorsHandler,
+            RetryScheduler retryScheduler,
+            AgentRunnerMetrics metrics,
+            SourceRecordTracker sourceRecordTracker,
+            AgentSource source,
+            AtomicReference<Exception> fatalError,
+            SourceRecordTracker.TrackedSourceRecord trackedSourceRecord,
+            Record record,
+            Throwable error,
+            int attempt) {
+        Record sourceRecord = trackedSourceRecord.sourceRecord();
+        ErrorsHandler.ErrorsProcessingOutcome action =
+                errorsHandler.handleErrors(sourceRecord, error);
+        switch (action) {
+            case SKIP -> {
+                // skip (the whole batch)
+                log.error("Unrecoverable error while processing the records, skipping", error);
+                sourceRecordTracker.commit(trackedSourceRecord);
+            }
+            case RETRY -> {
+                log.error("Retryable error while processing the records, retrying", error);
+                retryScheduler.schedule(
+                        attempt,
+                        () ->
                                 writeRecordToTheSink(
                                         sink,
                                         errorsHandler,
+                                        retryScheduler,
+                                        metrics,
                                         sourceRecordTracker,
                                         source,
                                         fatalError,
-                                        sourceRecord,
-                                        record);
-                            }
-                            case FAIL -> {
-                                log.error(
-                                        "Unrecoverable error while processing some the records, failing",
-                                        error);
-                                PermanentFailureException permanentFailureException =
-                                        new PermanentFailureException(error);
-                                try {
-                                    source.permanentFailure(
-                                            sourceRecord, permanentFailureException);
-                                } catch (Exception err) {
-                                    err.addSuppressed(permanentFailureException);
-                                    log.error("Cannot send permanent failure to the source", err);
-                                    setFatalError(err, fatalError);
-                                }
-                                if (errorsHandler.failProcessingOnPermanentErrors()) {
-                                    log.error("Failing processing on permanent error");
-                                    setFatalError(permanentFailureException, fatalError);
-                                } else {
-                                    // in case the source does not throw an exception we mark the
-                                    // record as "skipped"
-                                    sourceRecordTracker.commit(List.of(record));
-                                }
-                                return;
-                            }
-                            default -> throw new IllegalStateException(
-                                    "Unexpected value: " + action);
-                        }
+                                        trackedSourceRecord,
+                                        record,
+                                        attempt + 1));
+            }
+            case FAIL -> {
+                log.error("Unrecoverable error while processing some the records, failing", error);
+                PermanentFailureException permanentFailureException =
+                        new PermanentFailureException(error);
+                try {
+                    source.permanentFailure(sourceRecord, permanentFailureException);
+                } catch (Exception err) {
+                    // the default implementation re-throws the same exception
+                    if (err != permanentFailureException) {
+                        err.addSuppressed(permanentFailureException);
                     }
-                });
+                    log.error("Cannot send permanent failure to the source", err);
+                    setFatalError(err, fatalError);
+                }
+                if (errorsHandler.failProcessingOnPermanentErrors()) {
+                    log.error("Failing processing on permanent error");
+                    setFatalError(permanentFailureException, fatalError);
+                } else {
+                    // in case the source does not throw an exception we mark the
+                    // record as "skipped"
+                    sourceRecordTracker.commit(trackedSourceRecord);
+                }
+                return;
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + action);
+        }
     }
 
     private static void runProcessorAgent(
             AgentProcessor processor,
             List<Record> sourceRecords,
             ErrorsHandler errorsHandler,
+            RetryScheduler retryScheduler,
+            AgentRunnerMetrics metrics,
             AgentSource source,
-            RecordSink finalSink) {
+            ProcessorLanes processorLanes,
+            RecordSink finalSink,
+            int attempt) {
         if (log.isDebugEnabled()) {
             log.debug("runProcessor on {} records", sourceRecords.size());
         }
+        long processStart = System.nanoTime();
         processor.process(
                 sourceRecords,
                 (AgentProcessor.SourceRecordAndResult result) -> {
+                    metrics.processLatency().recordSince(processStart);
                     Record sourceRecord = result.sourceRecord();
                     try {
                         if (result.error() != null) {
@@ -885,14 +1380,29 @@ public class AgentRunner {
                                     log.error(
                                             "Retryable error while processing the records, retrying",
                                             error);
-                                    // retry the single record (this leads to out-of-order
-                                    // processing)
-                                    runProcessorAgent(
-                                            processor,
-                                            List.of(sourceRecord),
-                                            errorsHandler,
-                                            source,
-                                            finalSink);
+                                    // retry the single record after the backoff delay
+                                    // (this leads to out-of-order processing)
+                                    Runnable retry =
+                                            () ->
+                                                    runProcessorAgent(
+                                                            processor,
+                                                            List.of(sourceRecord),
+                                                            errorsHandler,
+                                                            retryScheduler,
+                                                            metrics,
+                                                            source,
+                                                            processorLanes,
+                                                            finalSink,
+                                                            attempt + 1);
+                                    retryScheduler.schedule(
+                                            attempt,
+                                            processorLanes == null
+                                                    ? retry
+                                                    // on the lane of the record, like the
+                                                    // first attempt
+                                                    : () ->
+                                                            processorLanes.execute(
+                                                                    sourceRecord, retry));
                                 }
                                 case FAIL -> {
                                     log.error(
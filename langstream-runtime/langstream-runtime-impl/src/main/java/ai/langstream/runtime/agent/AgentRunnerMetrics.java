@@ -0,0 +1,47 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.runtime.agent;
+
+import ai.langstream.api.runner.code.AgentProcessor;
+import ai.langstream.api.runner.code.AgentSink;
+import ai.langstream.api.runner.code.AgentSource;
+import ai.langstream.api.runner.code.MetricsReporter;
+
+/**
+ * Latency of the stages of the main loop. Each stage is reported with the id of the agent that
+ * executes it, this way it is possible to find the slowest agent of the pipeline.
+ */
+record AgentRunnerMetrics(
+        MetricsReporter.Timer readLatency,
+        MetricsReporter.Timer processLatency,
+        MetricsReporter.Timer writeLatency) {
+
+    static AgentRunnerMetrics create(
+            MetricsReporter reporter,
+            AgentSource source,
+            AgentProcessor processor,
+            AgentSink sink) {
+        return new AgentRunnerMetrics(
+                reporter.withAgentName(source.agentId())
+                        .timer("source_read_latency", "Time spent reading records from the source"),
+                reporter.withAgentName(processor.agentId())
+                        .timer(
+                                "processor_latency",
+                                "Time from the beginning of the processing to the result of each record"),
+                reporter.withAgentName(sink.agentId())
+                        .timer("sink_write_latency", "Time spent writing records to the sink"));
+    }
+}
@@ -22,6 +22,7 @@ import ai.langstream.api.runner.code.AgentProcessor;
 import ai.langstream.api.runner.code.AgentSink;
 import ai.langstream.api.runner.code.AgentSource;
 import ai.langstream.api.runner.code.AgentStatusResponse;
+import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.RecordSink;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -39,6 +40,7 @@ public class CompositeAgentProcessor extends AbstractAgentCode implements AgentP
 
     private AgentSource source;
     private final List<AgentProcessor> processors = new ArrayList<>();
+    private final List<MetricsReporter.Timer> processorsLatency = new ArrayList<>();
     private AgentSink sink;
 
     private AgentCodeRegistry agentCodeRegistry;
@@ -127,8 +129,15 @@ public class CompositeAgentProcessor extends AbstractAgentCode implements AgentP
     @Override
     public void setContext(AgentContext context) throws Exception {
         super.setContext(context);
+        processorsLatency.clear();
         for (AgentProcessor agent : processors) {
             agent.setContext(context);
+            processorsLatency.add(
+                    context.getMetricsReporter()
+                            .withAgentName(agent.agentId())
+                            .timer(
+                                    "composite_step_latency",
+                                    "Time spent by each step of a composite agent to process a record"));
         }
     }
 
@@ -161,12 +170,15 @@ public class CompositeAgentProcessor extends AbstractAgentCode implements AgentP
             Record initialSourceRecord,
             RecordSink finalStep) {
         AgentProcessor processor = processors.get(index);
+        MetricsReporter.Timer latency = processorsLatency.get(index);
+        long start = System.nanoTime();
         try {
             List<SourceRecordAndResult> results = new CopyOnWriteArrayList<>();
             processor.process(
                     currentRecords,
                     (SourceRecordAndResult recordAndResult) -> {
                         if (recordAndResult.error() != null) {
+                            latency.recordSince(start);
                             // some error occurred, early exit
                             finalStep.emit(
                                     new SourceRecordAndResult(
@@ -180,6 +192,7 @@ public class CompositeAgentProcessor extends AbstractAgentCode implements AgentP
                             // we have to wait for each record to be processed
                             return;
                         }
+                        latency.recordSince(start);
 
                         List<Record> finalRecords = new ArrayList<>();
                         for (SourceRecordAndResult result : results) {
@@ -28,4 +28,12 @@ public interface ErrorsHandler {
     ErrorsProcessingOutcome handleErrors(Record sourceRecord, Throwable error);
 
     boolean failProcessingOnPermanentErrors();
+
+    /**
+     * @param attempt the number of retries already done for the record, starting from 0
+     * @return the time to wait before retrying the record
+     */
+    default long retryDelayMs(int attempt) {
+        return 0;
+    }
 }
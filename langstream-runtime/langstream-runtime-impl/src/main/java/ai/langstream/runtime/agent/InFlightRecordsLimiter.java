@@ -0,0 +1,161 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.runtime.agent;
+
+import ai.langstream.api.runner.code.Header;
+import ai.langstream.api.runner.code.Record;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the source records that have been read but not committed yet, with a budget on the
+ * number of records and on their estimated size. The reader waits for the budget to free up before
+ * reading again. The budget is a soft limit: the last batch read may exceed it.
+ */
+class InFlightRecordsLimiter {
+
+    private final int maxRecords;
+    private final long maxBytes;
+
+    private int records;
+    private long bytes;
+
+    InFlightRecordsLimiter(int maxRecords, long maxBytes) {
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Wait until there is room for reading more records.
+     *
+     * @return false if the budget is still exhausted after the timeout
+     */
+    synchronized boolean awaitCapacity(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (isExhausted()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    synchronized void acquire(List<Record> sourceRecords) {
+        records += sourceRecords.size();
+        for (Record record : sourceRecords) {
+            bytes += estimateSize(record);
+        }
+    }
+
+    synchronized void release(List<Record> sourceRecords) {
+        if (sourceRecords.isEmpty()) {
+            return;
+        }
+        records = Math.max(0, records - sourceRecords.size());
+        for (Record record : sourceRecords) {
+            bytes = Math.max(0, bytes - estimateSize(record));
+        }
+        notifyAll();
+    }
+
+    synchronized int getRecords() {
+        return records;
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    private boolean isExhausted() {
+        return (maxRecords > 0 && records >= maxRecords) || (maxBytes > 0 && bytes >= maxBytes);
+    }
+
+    /**
+     * The size read from the source when the record knows it, otherwise an estimate of the key, the
+     * value and the headers, walking the maps, the collections and the arrays. The objects of other
+     * types (like the Avro records of the sources that don't report their size) are charged {@link
+     * #UNKNOWN_OBJECT_SIZE} bytes each.
+     */
+    static long estimateSize(Record record) {
+        long serializedSize = record.serializedSize();
+        if (serializedSize >= 0) {
+            return serializedSize;
+        }
+        long size = estimateSize(record.key(), 0) + estimateSize(record.value(), 0);
+        Collection<Header> headers = record.headers();
+        if (headers != null) {
+            for (Header header : headers) {
+                size += estimateSize(header.key(), 0) + estimateSize(header.value(), 0);
+            }
+        }
+        return size;
+    }
+
+    static final long UNKNOWN_OBJECT_SIZE = 64;
+    private static final long ENTRY_OVERHEAD = 16;
+    private static final int MAX_DEPTH = 16;
+
+    private static long estimateSize(Object value, int depth) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof byte[] bytes) {
+            return bytes.length;
+        } else if (value instanceof CharSequence string) {
+            return string.length();
+        } else if (value instanceof ByteBuffer buffer) {
+            return buffer.remaining();
+        } else if (value instanceof Boolean || value instanceof Byte) {
+            return 1;
+        } else if (value instanceof Number) {
+            return 8;
+        } else if (depth >= MAX_DEPTH) {
+            return UNKNOWN_OBJECT_SIZE;
+        } else if (value instanceof Map<?, ?> map) {
+            long size = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size +=
+                        ENTRY_OVERHEAD
+                                + estimateSize(entry.getKey(), depth + 1)
+                                + estimateSize(entry.getValue(), depth + 1);
+            }
+            return size;
+        } else if (value instanceof Collection<?> collection) {
+            long size = 0;
+            for (Object item : collection) {
+                size += ENTRY_OVERHEAD + estimateSize(item, depth + 1);
+            }
+            return size;
+        } else if (value instanceof Object[] array) {
+            long size = 0;
+            for (Object item : array) {
+                size += ENTRY_OVERHEAD + estimateSize(item, depth + 1);
+            }
+            return size;
+        } else if (value.getClass().isArray()) {
+            // primitive arrays, like the float vectors
+            return (long) Array.getLength(value) * 8;
+        } else {
+            // we don't know how to measure it, let's use a conservative value
+            return UNKNOWN_OBJECT_SIZE;
+        }
+    }
+}
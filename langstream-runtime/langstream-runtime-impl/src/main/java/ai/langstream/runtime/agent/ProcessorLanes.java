@@ -0,0 +1,168 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.runtime.agent;
+
+import ai.langstream.api.runner.code.Record;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the processor on a fixed number of single threaded lanes. The records are assigned to a lane
+ * by hashing the key, so the records with the same key are processed in the same order as they have
+ * been read. Records without a key are distributed round-robin.
+ *
+ * <p>Each lane has its own queue, so a slow lane does not hold the records of the other lanes. The
+ * caller blocks only when the queue of a lane is full.
+ *
+ * <p>The processor must be thread safe, because it is invoked concurrently by the lanes.
+ */
+@Slf4j
+class ProcessorLanes implements AutoCloseable {
+
+    static final int MAX_QUEUED_TASKS_PER_LANE = 4;
+
+    private final ExecutorService[] lanes;
+    private final Semaphore[] queuedTasks;
+    private final Consumer<Throwable> onError;
+    private int nextLaneForRecordsWithoutKey;
+
+    /**
+     * @param numLanes the number of lanes
+     * @param agentId the id of the agent, for the names of the threads
+     * @param onError the handler of the errors thrown by the tasks
+     */
+    ProcessorLanes(int numLanes, String agentId, Consumer<Throwable> onError) {
+        if (numLanes < 2) {
+            throw new IllegalArgumentException("At least 2 lanes are required, got " + numLanes);
+        }
+        lanes = new ExecutorService[numLanes];
+        queuedTasks = new Semaphore[numLanes];
+        this.onError = onError;
+        for (int i = 0; i < numLanes; i++) {
+            String threadName = "lane-" + i + "-" + agentId;
+            lanes[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, threadName));
+            queuedTasks[i] = new Semaphore(MAX_QUEUED_TASKS_PER_LANE);
+        }
+    }
+
+    /**
+     * Split the records by lane and queue the action on each lane. This method does not wait for
+     * the action to complete, the errors are passed to the error handler of the lanes.
+     *
+     * @param records the records read from the source
+     * @param action the processing of the records assigned to a lane
+     */
+    void process(List<Record> records, Consumer<List<Record>> action) {
+        List<List<Record>> recordsByLane = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            recordsByLane.add(new ArrayList<>());
+        }
+        for (Record record : records) {
+            recordsByLane.get(laneFor(record)).add(record);
+        }
+        for (int i = 0; i < lanes.length; i++) {
+            List<Record> laneRecords = recordsByLane.get(i);
+            if (!laneRecords.isEmpty()) {
+                submit(i, () -> action.accept(laneRecords));
+            }
+        }
+    }
+
+    /**
+     * Queue a task on the lane of a record, for instance to retry it.
+     *
+     * @param record the record
+     * @param task the task
+     */
+    void execute(Record record, Runnable task) {
+        submit(laneFor(record), task);
+    }
+
+    private void submit(int lane, Runnable task) {
+        queuedTasks[lane].acquireUninterruptibly();
+        try {
+            lanes[lane].execute(
+                    () -> {
+                        try {
+                            task.run();
+                        } catch (Throwable error) {
+                            log.error("Error on lane {}", lane, error);
+                            onError.accept(error);
+                        } finally {
+                            queuedTasks[lane].release();
+                        }
+                    });
+        } catch (RejectedExecutionException error) {
+            queuedTasks[lane].release();
+            throw error;
+        }
+    }
+
+    /** Wait for the tasks queued so far to complete on all the lanes. */
+    void awaitIdle() throws InterruptedException, ExecutionException {
+        List<Future<?>> handles = new ArrayList<>(lanes.length);
+        for (ExecutorService lane : lanes) {
+            handles.add(lane.submit(() -> {}));
+        }
+        for (Future<?> handle : handles) {
+            handle.get();
+        }
+    }
+
+    int laneFor(Record record) {
+        Object key = record.key();
+        if (key == null) {
+            int lane = nextLaneForRecordsWithoutKey;
+            nextLaneForRecordsWithoutKey = (lane + 1) % lanes.length;
+            return lane;
+        }
+        return Math.floorMod(keyHash(key), lanes.length);
+    }
+
+    private static int keyHash(Object key) {
+        if (key instanceof byte[] bytes) {
+            return Arrays.hashCode(bytes);
+        } else if (key instanceof ByteBuffer buffer) {
+            return buffer.hashCode();
+        } else {
+            return key.hashCode();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            if (!lane.awaitTermination(60, TimeUnit.SECONDS)) {
+                log.warn("Lane did not terminate in time, forcing shutdown");
+                lane.shutdownNow();
+            }
+        }
+    }
+}
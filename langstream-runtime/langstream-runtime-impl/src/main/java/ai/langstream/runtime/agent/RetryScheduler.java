@@ -0,0 +1,121 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.runtime.agent;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parks the records to be retried until their backoff delay expires. The timer thread only moves
+ * the expired retries to a queue, the retries are executed by the main loop of the runner in {@link
+ * #runDueRetries()}, so the processor and the sink are never called concurrently because of a
+ * retry. With the processor lanes, the main loop passes the retries of the processor to the lane of
+ * the record.
+ */
+@Slf4j
+class RetryScheduler implements AutoCloseable {
+
+    private final ErrorsHandler errorsHandler;
+    private final ScheduledExecutorService timer;
+    private final BlockingQueue<Runnable> dueRetries = new LinkedBlockingQueue<>();
+    private final AtomicInteger pendingRetries = new AtomicInteger();
+    private final MetricsReporter.Counter scheduledRetries;
+    private final MetricsReporter.Gauge pendingRetriesGauge;
+
+    RetryScheduler(ErrorsHandler errorsHandler, MetricsReporter metricsReporter, String agentId) {
+        this.errorsHandler = errorsHandler;
+        this.timer =
+                Executors.newSingleThreadScheduledExecutor(
+                        r -> {
+                            Thread thread = new Thread(r, "retry-scheduler-" + agentId);
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        this.scheduledRetries =
+                metricsReporter.counter(
+                        "retries_scheduled", "Total number of records scheduled for retry");
+        this.pendingRetriesGauge =
+                metricsReporter.gauge(
+                        "retries_pending", "Number of records waiting for their retry delay");
+    }
+
+    /**
+     * Schedule a retry.
+     *
+     * @param attempt the number of retries already done for the record, starting from 0
+     * @param retry the action to execute
+     */
+    void schedule(int attempt, Runnable retry) {
+        long delay = errorsHandler.retryDelayMs(attempt);
+        if (log.isDebugEnabled()) {
+            log.debug("Scheduling retry {} in {} ms", attempt + 1, delay);
+        }
+        scheduledRetries.count(1);
+        pendingRetriesGauge.set(pendingRetries.incrementAndGet());
+        if (delay <= 0) {
+            dueRetries.add(retry);
+        } else {
+            timer.schedule(() -> dueRetries.add(retry), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Execute the retries whose delay has expired. */
+    void runDueRetries() {
+        Runnable retry;
+        while ((retry = dueRetries.poll()) != null) {
+            pendingRetriesGauge.set(pendingRetries.decrementAndGet());
+            retry.run();
+        }
+    }
+
+    /**
+     * Wait for a retry to expire, then execute all the retries whose delay has expired.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     */
+    void awaitDueRetries(long timeout, TimeUnit unit) throws InterruptedException {
+        Runnable retry = dueRetries.poll(timeout, unit);
+        if (retry != null) {
+            pendingRetriesGauge.set(pendingRetries.decrementAndGet());
+            retry.run();
+            runDueRetries();
+        }
+    }
+
+    /**
+     * @return the number of retries that have been scheduled and not executed yet
+     */
+    int getPendingRetries() {
+        return pendingRetries.get();
+    }
+
+    @Override
+    public void close() {
+        int pending = pendingRetries.get();
+        if (pending > 0) {
+            log.info("Discarding {} pending retries, the records will be re-delivered", pending);
+        }
+        pendingRetriesGauge.set(0);
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.runtime.agent;
+
+import java.util.Map;
+
+/**
+ * Tuning of the main loop of the {@link AgentRunner}.
+ *
+ * @param maxInFlightRecords maximum number of source records read and not yet committed, 0 means
+ *     unlimited
+ * @param maxInFlightBytes maximum estimated size of the source records read and not yet committed,
+ *     0 means unlimited
+ * @param lanes number of threads that run the processor in parallel, the records with the same key
+ *     are always processed by the same lane
+ * @param maxSinkBatchSize maximum number of records written in a single call to a sink that
+ *     supports batch writes, 0 means that the batch is only bounded by the records read together
+ */
+record RunnerConfiguration(
+        int maxInFlightRecords, long maxInFlightBytes, int lanes, int maxSinkBatchSize) {
+
+    static final int DEFAULT_MAX_SINK_BATCH_SIZE = 500;
+
+    static final RunnerConfiguration DEFAULT =
+            new RunnerConfiguration(0, 0, 1, DEFAULT_MAX_SINK_BATCH_SIZE);
+
+    static RunnerConfiguration fromMap(Map<String, Object> configuration) {
+        if (configuration == null) {
+            return DEFAULT;
+        }
+        int maxInFlightRecords =
+                Integer.parseInt(configuration.getOrDefault("maxInFlightRecords", "0").toString());
+        long maxInFlightBytes =
+                Long.parseLong(configuration.getOrDefault("maxInFlightBytes", "0").toString());
+        int lanes = Integer.parseInt(configuration.getOrDefault("lanes", "1").toString());
+        int maxSinkBatchSize =
+                Integer.parseInt(
+                        configuration
+                                .getOrDefault("maxSinkBatchSize", DEFAULT_MAX_SINK_BATCH_SIZE)
+                                .toString());
+        return new RunnerConfiguration(
+                maxInFlightRecords, maxInFlightBytes, lanes, maxSinkBatchSize);
+    }
+
+    /**
+     * In pipelined mode the source is read on a dedicated thread, and the reads are paused while
+     * the in-flight budget is exhausted.
+     *
+     * @return true if the main loop should run in pipelined mode
+     */
+    boolean pipelined() {
+        return maxInFlightRecords > 0 || maxInFlightBytes > 0;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.runtime.agent;
+
+import ai.langstream.api.runner.code.Record;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Collects the records to be written to a sink that supports batch writes across the source
+ * records, this way a processor that maps each source record to a single record still writes
+ * batches. The batch is written when it reaches the maximum size, or when the main loop flushes it
+ * after each batch of records read from the source.
+ */
+class SinkBatcher {
+
+    /**
+     * A record waiting to be written.
+     *
+     * @param trackedSourceRecord the source record that generated it, null if the sink handles the
+     *     commits
+     * @param record the record to write
+     */
+    record PendingRecord(
+            SourceRecordTracker.TrackedSourceRecord trackedSourceRecord, Record record) {}
+
+    private final int maxBatchSize;
+    private final Consumer<List<PendingRecord>> writer;
+    private List<PendingRecord> pending = new ArrayList<>();
+
+    SinkBatcher(int maxBatchSize, Consumer<List<PendingRecord>> writer) {
+        this.maxBatchSize = maxBatchSize;
+        this.writer = writer;
+    }
+
+    synchronized void add(
+            SourceRecordTracker.TrackedSourceRecord trackedSourceRecord, List<Record> records) {
+        for (Record record : records) {
+            pending.add(new PendingRecord(trackedSourceRecord, record));
+            if (maxBatchSize > 0 && pending.size() >= maxBatchSize) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Write the pending records. The writer is called while holding the lock, so the batches reach
+     * the sink in the same order as the records.
+     */
+    synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<PendingRecord> batch = pending;
+        pending = new ArrayList<>();
+        writer.accept(batch);
+    }
+}
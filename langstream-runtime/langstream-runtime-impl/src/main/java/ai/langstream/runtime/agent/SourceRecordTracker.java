@@ -20,98 +20,154 @@ import ai.langstream.api.runner.code.AgentSource;
 import ai.langstream.api.runner.code.Record;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Tracks the source records until all the records generated by the processor have been written to
+ * the sink. Each source record gets a counter of the sink records still to be written. The source
+ * records are committed to the source in the order they have been tracked, up to the first one that
+ * is still waiting for the sink.
+ *
+ * <p>There is no global lock: the counters are atomic and only one thread at a time drains the
+ * completed prefix of the queue.
+ */
 @Slf4j
 class SourceRecordTracker {
-    final Map<Record, Record> sinkToSourceMapping = new ConcurrentHashMap<>();
-    final Map<Record, AtomicInteger> remainingSinkRecordsForSourceRecord =
-            new ConcurrentHashMap<>();
 
-    final Queue<Record> orderedSourceRecordsToCommit = new ConcurrentLinkedQueue<>();
+    /** The handle to a source record, to be passed back to {@link #commit(TrackedSourceRecord)}. */
+    static final class TrackedSourceRecord {
+        private final Record sourceRecord;
+        private final AtomicInteger remainingSinkRecords;
+
+        private TrackedSourceRecord(Record sourceRecord, int sinkRecords) {
+            this.sourceRecord = sourceRecord;
+            this.remainingSinkRecords = new AtomicInteger(sinkRecords);
+        }
+
+        Record sourceRecord() {
+            return sourceRecord;
+        }
+
+        @Override
+        public String toString() {
+            return "TrackedSourceRecord{"
+                    + "remaining="
+                    + remainingSinkRecords.get()
+                    + ", sourceRecord="
+                    + sourceRecord
+                    + '}';
+        }
+    }
+
+    final Queue<TrackedSourceRecord> orderedSourceRecordsToCommit = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean committing = new AtomicBoolean();
     private final AgentSource source;
+    private final Consumer<List<Record>> onSourceRecordsCommitted;
 
     public SourceRecordTracker(AgentSource source) {
+        this(source, records -> {});
+    }
+
+    public SourceRecordTracker(
+            AgentSource source, Consumer<List<Record>> onSourceRecordsCommitted) {
         this.source = source;
+        this.onSourceRecordsCommitted = onSourceRecordsCommitted;
     }
 
-    @SneakyThrows
-    public synchronized void commit(List<Record> sinkRecords) {
-        List<Record> sourceRecordsToCommit = new ArrayList<>();
-        for (Record record : sinkRecords) {
-            Record sourceRecord = sinkToSourceMapping.get(record);
-            if (sourceRecord != null) {
-                AtomicInteger remaining = remainingSinkRecordsForSourceRecord.get(sourceRecord);
-                remaining.decrementAndGet();
-            }
+    /**
+     * Start tracking a source record and the records generated by the processor.
+     *
+     * @param sourceRecordAndResult the result of the processor
+     * @return the handle to use to notify that the sink records have been written
+     */
+    public TrackedSourceRecord track(AgentProcessor.SourceRecordAndResult sourceRecordAndResult) {
+        int sinkRecords = sourceRecordAndResult.resultRecords().size();
+        TrackedSourceRecord tracked =
+                new TrackedSourceRecord(sourceRecordAndResult.sourceRecord(), sinkRecords);
+        orderedSourceRecordsToCommit.add(tracked);
+        if (sinkRecords == 0) {
+            commitCompletedSourceRecords();
         }
+        return tracked;
+    }
 
-        // we can commit only in order,
-        // so here we find the longest sequence of records that can be committed
-        for (Record record : orderedSourceRecordsToCommit) {
-            AtomicInteger remaining = remainingSinkRecordsForSourceRecord.get(record);
-            if (log.isDebugEnabled()) {
-                log.debug("remaining {} for record {}", remaining, record);
-            }
-            if (remaining == null) {
-                throw new IllegalStateException(
-                        "No sink records for source record " + record + ". Something went wrong");
-            }
-            if (remaining.get() == 0) {
-                sourceRecordsToCommit.add(record);
-            } else {
-                if (log.isDebugEnabled()) {
-                    log.debug(
-                            "record {} still has {} sink records to commit",
-                            record,
-                            remaining.get());
-                }
-                break;
-            }
+    /**
+     * Notify that one of the sink records generated from the source record has been written (or
+     * skipped).
+     *
+     * @param tracked the handle returned by {@link #track(AgentProcessor.SourceRecordAndResult)}
+     */
+    public void commit(TrackedSourceRecord tracked) {
+        commit(tracked, 1);
+    }
+
+    /**
+     * Notify that some of the sink records generated from the source record have been written (or
+     * skipped).
+     *
+     * @param tracked the handle returned by {@link #track(AgentProcessor.SourceRecordAndResult)}
+     * @param count the number of sink records
+     */
+    public void commit(TrackedSourceRecord tracked, int count) {
+        if (count == 0) {
+            return;
+        }
+        int remaining = tracked.remainingSinkRecords.addAndGet(-count);
+        if (log.isDebugEnabled()) {
+            log.debug("remaining {} for record {}", remaining, tracked);
+        }
+        if (remaining < 0) {
+            throw new IllegalStateException(
+                    "Too many commits for source record " + tracked + ". Something went wrong");
+        }
+        if (remaining == 0) {
+            commitCompletedSourceRecords();
         }
+    }
 
-        sourceRecordsToCommit.forEach(
-                r -> {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Record {} is done", r);
+    private void commitCompletedSourceRecords() {
+        while (committing.compareAndSet(false, true)) {
+            try {
+                // we can commit only in order,
+                // so here we take the longest sequence of records that can be committed
+                List<Record> sourceRecordsToCommit = null;
+                TrackedSourceRecord head = orderedSourceRecordsToCommit.peek();
+                while (head != null && head.remainingSinkRecords.get() == 0) {
+                    orderedSourceRecordsToCommit.poll();
+                    if (sourceRecordsToCommit == null) {
+                        sourceRecordsToCommit = new ArrayList<>();
                     }
-                    remainingSinkRecordsForSourceRecord.remove(r);
-                });
-
-        source.commit(sourceRecordsToCommit);
+                    sourceRecordsToCommit.add(head.sourceRecord);
+                    head = orderedSourceRecordsToCommit.peek();
+                }
+                if (sourceRecordsToCommit != null) {
+                    commitToSource(sourceRecordsToCommit);
+                }
+            } finally {
+                committing.set(false);
+            }
 
-        // forget about the committed records
-        for (Record committed : sourceRecordsToCommit) {
-            orderedSourceRecordsToCommit.remove(committed);
-            remainingSinkRecordsForSourceRecord.remove(committed);
+            // another thread may have completed the head of the queue
+            // while we were committing, in this case it didn't commit it
+            TrackedSourceRecord head = orderedSourceRecordsToCommit.peek();
+            if (head == null || head.remainingSinkRecords.get() != 0) {
+                return;
+            }
         }
-
-        // forget about this batch SinkRecords
-        sinkRecords.forEach(sinkToSourceMapping::remove);
     }
 
-    public synchronized void track(List<AgentProcessor.SourceRecordAndResult> sinkRecords) {
-
-        // map each sink record to the original source record
-        sinkRecords.forEach(
-                (sourceRecordAndResult) -> {
-                    Record sourceRecord = sourceRecordAndResult.sourceRecord();
-                    orderedSourceRecordsToCommit.add(sourceRecord);
-
-                    List<Record> resultRecords = sourceRecordAndResult.resultRecords();
-                    remainingSinkRecordsForSourceRecord.put(
-                            sourceRecord, new AtomicInteger(resultRecords.size()));
-                    sourceRecordAndResult
-                            .resultRecords()
-                            .forEach(
-                                    sinkRecord ->
-                                            sinkToSourceMapping.put(sinkRecord, sourceRecord));
-                });
+    @SneakyThrows
+    private void commitToSource(List<Record> sourceRecordsToCommit) {
+        if (log.isDebugEnabled()) {
+            log.debug("Records {} are done", sourceRecordsToCommit);
+        }
+        source.commit(sourceRecordsToCommit);
+        onSourceRecordsCommitted.accept(sourceRecordsToCommit);
     }
 }
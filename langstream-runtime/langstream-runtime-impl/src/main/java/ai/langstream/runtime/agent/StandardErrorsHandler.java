@@ -21,6 +21,7 @@ import static ai.langstream.api.model.ErrorsSpec.SKIP;
 
 import ai.langstream.api.runner.code.Record;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
 
@@ -29,6 +30,10 @@ class StandardErrorsHandler implements ErrorsHandler {
 
     private final int retries;
     private final String onFailureAction;
+    private final long retryInitialBackoffMs;
+    private final long retryMaxBackoffMs;
+    private final double retryBackoffMultiplier;
+    private final double retryJitter;
 
     private final AtomicInteger failures = new AtomicInteger(0);
 
@@ -38,6 +43,16 @@ class StandardErrorsHandler implements ErrorsHandler {
         }
         this.retries = Integer.parseInt(configuration.getOrDefault("retries", "0").toString());
         this.onFailureAction = configuration.getOrDefault("onFailure", FAIL).toString();
+        this.retryInitialBackoffMs =
+                Long.parseLong(
+                        configuration.getOrDefault("retryInitialBackoffMs", "100").toString());
+        this.retryMaxBackoffMs =
+                Long.parseLong(configuration.getOrDefault("retryMaxBackoffMs", "10000").toString());
+        this.retryBackoffMultiplier =
+                Double.parseDouble(
+                        configuration.getOrDefault("retryBackoffMultiplier", "2").toString());
+        this.retryJitter =
+                Double.parseDouble(configuration.getOrDefault("retryJitter", "0.2").toString());
     }
 
     @Override
@@ -61,6 +76,25 @@ class StandardErrorsHandler implements ErrorsHandler {
         }
     }
 
+    /**
+     * Exponential backoff: the delay is multiplied at every attempt, up to the maximum, and then it
+     * is randomly spread by the jitter factor to avoid that the retries of many records hit the
+     * failing service at the same time.
+     */
+    @Override
+    public long retryDelayMs(int attempt) {
+        if (retryInitialBackoffMs <= 0) {
+            return 0;
+        }
+        double delay = retryInitialBackoffMs * Math.pow(retryBackoffMultiplier, attempt);
+        delay = Math.min(delay, retryMaxBackoffMs);
+        if (retryJitter > 0) {
+            double spread = delay * retryJitter;
+            delay += ThreadLocalRandom.current().nextDouble(-spread, spread);
+        }
+        return Math.max(0, Math.round(delay));
+    }
+
     @Override
     public boolean failProcessingOnPermanentErrors() {
         return switch (onFailureAction) {
@@ -17,8 +17,11 @@ package ai.langstream.runtime.agent;
 
 import ai.langstream.api.runner.code.AbstractAgentCode;
 import ai.langstream.api.runner.code.AgentSink;
+import ai.langstream.api.runner.code.BatchResult;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.topics.TopicProducer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -51,6 +54,21 @@ public class TopicProducerSink extends AbstractAgentCode implements AgentSink {
         return producer.write(records);
     }
 
+    @Override
+    public boolean supportsBatchWrite() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<BatchResult> write(List<Record> records) {
+        processed(records.size(), 0);
+        List<CompletableFuture<?>> writes = new ArrayList<>(records.size());
+        for (Record record : records) {
+            writes.add(producer.write(record));
+        }
+        return BatchResult.collect(writes);
+    }
+
     @Override
     public String toString() {
         return "TopicProducerSink{" + "producer=" + producer + '}';
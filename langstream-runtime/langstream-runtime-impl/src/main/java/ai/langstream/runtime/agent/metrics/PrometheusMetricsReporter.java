@@ -16,9 +16,10 @@
 package ai.langstream.runtime.agent.metrics;
 
 import ai.langstream.api.runner.code.MetricsReporter;
-import io.prometheus.client.Counter;
+import io.prometheus.client.SimpleCollector;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class PrometheusMetricsReporter implements MetricsReporter {
 
@@ -29,8 +30,12 @@ public class PrometheusMetricsReporter implements MetricsReporter {
     // in the same JVM
     private final String podName;
 
-    private static final Map<String, io.prometheus.client.Counter> counters =
-            new ConcurrentHashMap<>();
+    private static final Map<String, SimpleCollector<?>> collectors = new ConcurrentHashMap<>();
+
+    // fixed buckets, in seconds, from the sub-millisecond steps up to the slow LLM calls
+    private static final double[] LATENCY_BUCKETS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60
+    };
 
     public PrometheusMetricsReporter(String agentName, String podName) {
         this.agentName = agentName;
@@ -53,31 +58,8 @@ public class PrometheusMetricsReporter implements MetricsReporter {
 
     @Override
     public Counter counter(String name, String help) {
-        io.prometheus.client.Counter counter =
-                counters.computeIfAbsent(
-                        name,
-                        k -> {
-                            if (podName.isEmpty()) {
-                                return io.prometheus.client.Counter.build()
-                                        .name(sanitizeMetricName(name))
-                                        .labelNames("agent_id")
-                                        .help(help)
-                                        .register();
-                            } else {
-                                return io.prometheus.client.Counter.build()
-                                        .name(sanitizeMetricName(name))
-                                        .labelNames("agent_id", "pod")
-                                        .help(help)
-                                        .register();
-                            }
-                        });
-
-        io.prometheus.client.Counter.Child counterWithLabel;
-        if (podName.isEmpty()) {
-            counterWithLabel = counter.labels(agentName);
-        } else {
-            counterWithLabel = counter.labels(agentName, podName);
-        }
+        io.prometheus.client.Counter.Child counterWithLabel =
+                register(name, help, io.prometheus.client.Counter::build).labels(labelValues());
         return new Counter() {
             @Override
             public void count(long value) {
@@ -91,6 +73,85 @@ public class PrometheusMetricsReporter implements MetricsReporter {
         };
     }
 
+    @Override
+    public Histogram histogram(String name, String help) {
+        io.prometheus.client.Histogram.Child histogramWithLabel =
+                register(
+                                name,
+                                help,
+                                () ->
+                                        io.prometheus.client.Histogram.build()
+                                                .exponentialBuckets(1, 2, 17))
+                        .labels(labelValues());
+        return histogramWithLabel::observe;
+    }
+
+    @Override
+    public Timer timer(String name, String help) {
+        // Prometheus expects the durations in seconds
+        io.prometheus.client.Histogram.Child histogramWithLabel =
+                register(
+                                name + "_seconds",
+                                help,
+                                () ->
+                                        io.prometheus.client.Histogram.build()
+                                                .buckets(LATENCY_BUCKETS))
+                        .labels(labelValues());
+        return durationNanos -> histogramWithLabel.observe(durationNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public Gauge gauge(String name, String help) {
+        io.prometheus.client.Gauge.Child gaugeWithLabel =
+                register(name, help, io.prometheus.client.Gauge::build).labels(labelValues());
+        return new Gauge() {
+            @Override
+            public void set(double value) {
+                gaugeWithLabel.set(value);
+            }
+
+            @Override
+            public void inc(double delta) {
+                gaugeWithLabel.inc(delta);
+            }
+
+            @Override
+            public double value() {
+                return gaugeWithLabel.get();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private <C extends SimpleCollector<?>> C register(
+            String name, String help, Supplier<SimpleCollector.Builder<?, C>> builder) {
+        return (C)
+                collectors.computeIfAbsent(
+                        name,
+                        k ->
+                                builder.get()
+                                        .name(sanitizeMetricName(name))
+                                        .labelNames(labelNames())
+                                        .help(help)
+                                        .register());
+    }
+
+    private String[] labelNames() {
+        if (podName.isEmpty()) {
+            return new String[] {"agent_id"};
+        } else {
+            return new String[] {"agent_id", "pod"};
+        }
+    }
+
+    private String[] labelValues() {
+        if (podName.isEmpty()) {
+            return new String[] {agentName};
+        } else {
+            return new String[] {agentName, podName};
+        }
+    }
+
     private static String sanitizeMetricName(String metricName) {
         // Define a regular expression pattern to match forbidden characters
         String pattern = "[^a-zA-Z0-9_]+";
@@ -130,16 +130,14 @@ class GenIAgentsRunnerIT extends AbstractKafkaApplicationRunner {
 
             final List<AgentStatusResponse> processors =
                     result.info().get("step1").serveWorkerStatus();
-            assertEquals(4, processors.size());
+            // the two ai-tools agents are fused into a single agent, with two steps
+            assertEquals(3, processors.size());
             for (AgentStatusResponse p : processors) {
                 boolean mayHaveProcessed = false;
                 switch (p.getAgentId()) {
                     case "step1":
                         assertEquals("drop-fields", p.getAgentType());
                         break;
-                    case "step2":
-                        assertEquals("drop", p.getAgentType());
-                        break;
                     case "topic-source":
                         // the topic source updates the lastProcessed
                         // even if it finds no messages in order to
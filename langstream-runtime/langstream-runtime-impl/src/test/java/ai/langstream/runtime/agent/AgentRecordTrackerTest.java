@@ -25,7 +25,11 @@ import ai.langstream.api.runner.code.Header;
 import ai.langstream.api.runner.code.Record;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Test;
 
 public class AgentRecordTrackerTest {
@@ -39,7 +43,7 @@ public class AgentRecordTrackerTest {
         List<Record> committed = new ArrayList<>();
 
         @Override
-        public void commit(List<Record> records) {
+        public synchronized void commit(List<Record> records) {
             committed.addAll(records);
         }
 
@@ -58,20 +62,19 @@ public class AgentRecordTrackerTest {
         Record sourceRecord = new MyRecord("key", "sourceValue", "origin", 0L, null);
         Record sinkRecord = new MyRecord("key", "sinkValue", "origin", 0L, null);
 
-        tracker.track(
-                List.of(
+        SourceRecordTracker.TrackedSourceRecord tracked =
+                tracker.track(
                         new AgentProcessor.SourceRecordAndResult(
-                                sourceRecord, List.of(sinkRecord), null)));
+                                sourceRecord, List.of(sinkRecord), null));
 
-        tracker.commit(List.of(sinkRecord));
+        tracker.commit(tracked);
 
         assertEquals(1, agentSource.committed.size());
         assertEquals(sourceRecord, agentSource.committed.get(0));
         agentSource.committed.clear();
 
         // ensure no leaks
-        assertTrue(tracker.remainingSinkRecordsForSourceRecord.isEmpty());
-        assertTrue(tracker.sinkToSourceMapping.isEmpty());
+        assertTrue(tracker.orderedSourceRecordsToCommit.isEmpty());
     }
 
     @Test
@@ -83,23 +86,22 @@ public class AgentRecordTrackerTest {
         Record sinkRecord = new MyRecord("key", "sinkValue", "origin", 0L, null);
         Record sinkRecord2 = new MyRecord("key", "sinkValue2", "origin", 0L, null);
 
-        tracker.track(
-                List.of(
+        SourceRecordTracker.TrackedSourceRecord tracked =
+                tracker.track(
                         new AgentProcessor.SourceRecordAndResult(
-                                sourceRecord, List.of(sinkRecord, sinkRecord2), null)));
+                                sourceRecord, List.of(sinkRecord, sinkRecord2), null));
 
         // the sink commits only 1 of the 2 records
-        tracker.commit(List.of(sinkRecord));
+        tracker.commit(tracked);
 
         assertEquals(0, agentSource.committed.size());
-        tracker.commit(List.of(sinkRecord2));
+        tracker.commit(tracked);
 
         assertEquals(1, agentSource.committed.size());
         assertEquals(sourceRecord, agentSource.committed.get(0));
         agentSource.committed.clear();
         // ensure no leaks
-        assertTrue(tracker.remainingSinkRecordsForSourceRecord.isEmpty());
-        assertTrue(tracker.sinkToSourceMapping.isEmpty());
+        assertTrue(tracker.orderedSourceRecordsToCommit.isEmpty());
     }
 
     @Test
@@ -109,18 +111,87 @@ public class AgentRecordTrackerTest {
         SourceRecordTracker tracker = new SourceRecordTracker(agentSource);
 
         Record sourceRecord = new MyRecord("key", "sourceValue", "origin", 0L, null);
-        Record sinkRecord = new MyRecord("key", "sinkValue", "origin", 0L, null);
-
-        tracker.track(
-                List.of(new AgentProcessor.SourceRecordAndResult(sourceRecord, List.of(), null)));
 
-        tracker.commit(List.of(sinkRecord));
+        tracker.track(new AgentProcessor.SourceRecordAndResult(sourceRecord, List.of(), null));
 
         assertEquals(1, agentSource.committed.size());
         assertEquals(sourceRecord, agentSource.committed.get(0));
         agentSource.committed.clear();
         // ensure no leaks
-        assertTrue(tracker.remainingSinkRecordsForSourceRecord.isEmpty());
-        assertTrue(tracker.sinkToSourceMapping.isEmpty());
+        assertTrue(tracker.orderedSourceRecordsToCommit.isEmpty());
+    }
+
+    @Test
+    public void testCommitInOrder() {
+        MySource agentSource = new MySource();
+        SourceRecordTracker tracker = new SourceRecordTracker(agentSource);
+
+        Record sourceRecord1 = new MyRecord("key", "sourceValue1", "origin", 0L, null);
+        Record sourceRecord2 = new MyRecord("key", "sourceValue2", "origin", 0L, null);
+        Record sourceRecord3 = new MyRecord("key", "sourceValue3", "origin", 0L, null);
+        Record sinkRecord = new MyRecord("key", "sinkValue", "origin", 0L, null);
+
+        SourceRecordTracker.TrackedSourceRecord tracked1 =
+                tracker.track(
+                        new AgentProcessor.SourceRecordAndResult(
+                                sourceRecord1, List.of(sinkRecord), null));
+        SourceRecordTracker.TrackedSourceRecord tracked2 =
+                tracker.track(
+                        new AgentProcessor.SourceRecordAndResult(
+                                sourceRecord2, List.of(sinkRecord), null));
+        SourceRecordTracker.TrackedSourceRecord tracked3 =
+                tracker.track(
+                        new AgentProcessor.SourceRecordAndResult(
+                                sourceRecord3, List.of(sinkRecord), null));
+
+        // the first record is still pending
+        tracker.commit(tracked3);
+        tracker.commit(tracked2);
+        assertEquals(0, agentSource.committed.size());
+
+        tracker.commit(tracked1);
+        assertEquals(List.of(sourceRecord1, sourceRecord2, sourceRecord3), agentSource.committed);
+        assertTrue(tracker.orderedSourceRecordsToCommit.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentCommits() throws Exception {
+        MySource agentSource = new MySource();
+        SourceRecordTracker tracker = new SourceRecordTracker(agentSource);
+
+        int numRecords = 1000;
+        int sinkRecordsPerSourceRecord = 5;
+        Record sinkRecord = new MyRecord("key", "sinkValue", "origin", 0L, null);
+        List<Record> sinkRecords = Collections.nCopies(sinkRecordsPerSourceRecord, sinkRecord);
+        List<Record> sourceRecords = new ArrayList<>();
+        List<SourceRecordTracker.TrackedSourceRecord> commits = new ArrayList<>();
+        for (int i = 0; i < numRecords; i++) {
+            Record sourceRecord = new MyRecord("key", "sourceValue" + i, "origin", 0L, null);
+            sourceRecords.add(sourceRecord);
+            SourceRecordTracker.TrackedSourceRecord tracked =
+                    tracker.track(
+                            new AgentProcessor.SourceRecordAndResult(
+                                    sourceRecord, sinkRecords, null));
+            for (int j = 0; j < sinkRecordsPerSourceRecord; j++) {
+                commits.add(tracked);
+            }
+        }
+        Collections.shuffle(commits);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (SourceRecordTracker.TrackedSourceRecord tracked : commits) {
+                futures.add(executor.submit(() -> tracker.commit(tracked)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(sourceRecords, agentSource.committed);
+        assertTrue(tracker.orderedSourceRecordsToCommit.isEmpty());
     }
 }
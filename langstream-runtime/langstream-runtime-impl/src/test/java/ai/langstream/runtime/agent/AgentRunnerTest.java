@@ -17,6 +17,7 @@ package ai.langstream.runtime.agent;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -24,16 +25,23 @@ import ai.langstream.api.runner.code.AbstractAgentCode;
 import ai.langstream.api.runner.code.AgentContext;
 import ai.langstream.api.runner.code.AgentSink;
 import ai.langstream.api.runner.code.AgentSource;
+import ai.langstream.api.runner.code.BatchResult;
 import ai.langstream.api.runner.code.MetricsReporter;
 import ai.langstream.api.runner.code.Record;
 import ai.langstream.api.runner.code.SimpleRecord;
 import ai.langstream.api.runner.code.SingleRecordAgentProcessor;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.extern.slf4j.Slf4j;
+import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
 
 @Slf4j
@@ -83,6 +91,45 @@ class AgentRunnerTest {
         source.expectUncommitted(1);
     }
 
+    @Test
+    void retriesAreDelayedWithExponentialBackoff() {
+        SimpleSource source = new SimpleSource(List.of(SimpleRecord.of("key", "fail-me")));
+        AgentSink sink = new SimpleSink();
+        SimpleAgentProcessor processor = new SimpleAgentProcessor(Set.of("fail-me"));
+        StandardErrorsHandler errorHandler =
+                new StandardErrorsHandler(
+                        Map.of(
+                                "retries",
+                                3,
+                                "onFailure",
+                                "fail",
+                                "retryInitialBackoffMs",
+                                100,
+                                "retryBackoffMultiplier",
+                                2,
+                                "retryJitter",
+                                0));
+        assertEquals(100, errorHandler.retryDelayMs(0));
+        assertEquals(200, errorHandler.retryDelayMs(1));
+        AgentContext context = createMockAgentContext();
+        when(context.getMetricsReporter()).thenReturn(MetricsReporter.DISABLED);
+        long start = System.nanoTime();
+        assertThrows(
+                AgentRunner.PermanentFailureException.class,
+                () ->
+                        AgentRunner.runMainLoop(
+                                source,
+                                processor,
+                                sink,
+                                context,
+                                errorHandler,
+                                source::hasMoreRecords));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        processor.expectExecutions(3);
+        source.expectUncommitted(1);
+        assertTrue(elapsed >= 300, "retries were not delayed, elapsed " + elapsed + " ms");
+    }
+
     @Test
     void failNoRetries() {
         SimpleSource source = new SimpleSource(List.of(SimpleRecord.of("key", "fail-me")));
@@ -180,6 +227,348 @@ class AgentRunnerTest {
         source.expectUncommitted(0);
     }
 
+    @Test
+    void pipelinedWithMaxInFlightRecords() throws Exception {
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            records.add(SimpleRecord.of("key", "process-me-" + i));
+        }
+        SimpleSource source = new SimpleSource(records);
+        PendingWritesSink sink = new PendingWritesSink();
+        SimpleAgentProcessor processor = new SimpleAgentProcessor(Set.of());
+        StandardErrorsHandler errorHandler =
+                new StandardErrorsHandler(Map.of("retries", 0, "onFailure", "fail"));
+        AgentContext context = createMockAgentContext();
+        AtomicBoolean continueLoop = new AtomicBoolean(true);
+
+        CompletableFuture<?> mainLoop =
+                CompletableFuture.runAsync(
+                        () -> {
+                            try {
+                                AgentRunner.runMainLoop(
+                                        source,
+                                        processor,
+                                        sink,
+                                        context,
+                                        errorHandler,
+                                        continueLoop::get,
+                                        new RunnerConfiguration(2, 0, 1, 0));
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+
+        Awaitility.await().untilAsserted(() -> source.expectUncommitted(2));
+        // the budget is exhausted, the runner must stop reading
+        Thread.sleep(500);
+        source.expectUncommitted(2);
+        assertEquals(2, sink.pendingWrites());
+
+        // completing the writes frees the budget
+        Awaitility.await()
+                .untilAsserted(
+                        () -> {
+                            sink.completeAll();
+                            assertEquals(10, sink.written());
+                        });
+        Awaitility.await().untilAsserted(() -> source.expectUncommitted(0));
+        continueLoop.set(false);
+        mainLoop.get();
+        processor.expectExecutions(10);
+    }
+
+    @Test
+    void lanesPreserveTheOrderOfTheRecordsWithTheSameKey() throws Exception {
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add(SimpleRecord.of("key-" + (i % 4), i));
+        }
+        SimpleSource source = new SimpleSource(20, records);
+        CollectingSink sink = new CollectingSink();
+        Set<String> laneThreads = ConcurrentHashMap.newKeySet();
+        SingleRecordAgentProcessor processor =
+                new SingleRecordAgentProcessor() {
+                    @Override
+                    public List<Record> processRecord(Record record) {
+                        laneThreads.add(Thread.currentThread().getName());
+                        return List.of(record);
+                    }
+                };
+        StandardErrorsHandler errorHandler =
+                new StandardErrorsHandler(Map.of("retries", 0, "onFailure", "fail"));
+        AgentContext context = createMockAgentContext();
+
+        AgentRunner.runMainLoop(
+                source,
+                processor,
+                sink,
+                context,
+                errorHandler,
+                source::hasMoreRecords,
+                new RunnerConfiguration(0, 0, 4, 0));
+
+        source.expectUncommitted(0);
+        assertEquals(4, laneThreads.size());
+        List<Record> written = sink.written();
+        assertEquals(100, written.size());
+        Map<Object, Integer> lastValueByKey = new HashMap<>();
+        for (Record record : written) {
+            Integer previous = lastValueByKey.put(record.key(), (Integer) record.value());
+            if (previous != null) {
+                assertTrue(previous < (Integer) record.value());
+            }
+        }
+    }
+
+    @Test
+    void lanesRetryTheRecordsOnTheirLane() throws Exception {
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            records.add(SimpleRecord.of("key-" + (i % 4), i));
+        }
+        SimpleSource source = new SimpleSource(20, records);
+        CollectingSink sink = new CollectingSink();
+        Map<Object, Set<String>> threadsByKey = new ConcurrentHashMap<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        SingleRecordAgentProcessor processor =
+                new SingleRecordAgentProcessor() {
+                    @Override
+                    public List<Record> processRecord(Record record) {
+                        threadsByKey
+                                .computeIfAbsent(record.key(), k -> ConcurrentHashMap.newKeySet())
+                                .add(Thread.currentThread().getName());
+                        if (record.value().equals(5) && failed.compareAndSet(false, true)) {
+                            throw new RuntimeException("Retry me");
+                        }
+                        return List.of(record);
+                    }
+                };
+        StandardErrorsHandler errorHandler =
+                new StandardErrorsHandler(
+                        Map.of("retries", 3, "onFailure", "fail", "retryInitialBackoffMs", 10));
+        AgentContext context = createMockAgentContext();
+
+        AgentRunner.runMainLoop(
+                source,
+                processor,
+                sink,
+                context,
+                errorHandler,
+                source::hasMoreRecords,
+                new RunnerConfiguration(0, 0, 4, 0));
+
+        assertTrue(failed.get());
+        source.expectUncommitted(0);
+        assertEquals(20, sink.written().size());
+        // the retry ran on the lane of the record
+        threadsByKey.values().forEach(threads -> assertEquals(1, threads.size(), threads + ""));
+    }
+
+    @Test
+    void aBusyLaneDoesNotHoldTheOtherLanes() throws Exception {
+        SimpleSource source =
+                new SimpleSource(List.of(SimpleRecord.of(0, "slow"), SimpleRecord.of(1, "fast")));
+        CollectingSink sink = new CollectingSink();
+        CountDownLatch slowRecordCanComplete = new CountDownLatch(1);
+        SingleRecordAgentProcessor processor =
+                new SingleRecordAgentProcessor() {
+                    @Override
+                    public List<Record> processRecord(Record record) throws Exception {
+                        if (record.value().equals("slow")) {
+                            slowRecordCanComplete.await();
+                        }
+                        return List.of(record);
+                    }
+                };
+        StandardErrorsHandler errorHandler =
+                new StandardErrorsHandler(Map.of("retries", 0, "onFailure", "fail"));
+        AgentContext context = createMockAgentContext();
+        AtomicBoolean continueLoop = new AtomicBoolean(true);
+
+        CompletableFuture<?> mainLoop =
+                CompletableFuture.runAsync(
+                        () -> {
+                            try {
+                                AgentRunner.runMainLoop(
+                                        source,
+                                        processor,
+                                        sink,
+                                        context,
+                                        errorHandler,
+                                        continueLoop::get,
+                                        new RunnerConfiguration(0, 0, 2, 0));
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+
+        // the second read batch goes to the other lane while the first one is still running
+        Awaitility.await().untilAsserted(() -> assertEquals(1, sink.written().size()));
+        assertEquals("fast", sink.written().get(0).value());
+        // only the slow record is still in flight
+        Awaitility.await().untilAsserted(() -> source.expectUncommitted(1));
+
+        slowRecordCanComplete.countDown();
+        Awaitility.await().untilAsserted(() -> source.expectUncommitted(0));
+        continueLoop.set(false);
+        mainLoop.get();
+    }
+
+    @Test
+    void batchWriteSkipsTheFailedRecords() throws Exception {
+        SimpleSource source =
+                new SimpleSource(
+                        List.of(
+                                SimpleRecord.of("key", "process-me"),
+                                SimpleRecord.of("key", "fail-me"),
+                                SimpleRecord.of("key", "process-me-too")));
+        BatchSink sink = new BatchSink(Set.of("fail-me"));
+        SimpleAgentProcessor processor = new SimpleAgentProcessor(Set.of());
+        StandardErrorsHandler errorHandler =
+                new StandardErrorsHandler(Map.of("retries", 0, "onFailure", "skip"));
+        AgentContext context = createMockAgentContext();
+        AgentRunner.runMainLoop(
+                source, processor, sink, context, errorHandler, source::hasMoreRecords);
+        processor.expectExecutions(3);
+        source.expectUncommitted(0);
+        assertEquals(3, sink.batches());
+    }
+
+    @Test
+    void batchWriteCollectsTheRecordsOfTheSourceBatch() throws Exception {
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            records.add(SimpleRecord.of("key", "process-me-" + i));
+        }
+        records.add(SimpleRecord.of("key", "fail-me"));
+        SimpleSource source = new SimpleSource(11, records);
+        BatchSink sink = new BatchSink(Set.of("fail-me"));
+        SimpleAgentProcessor processor = new SimpleAgentProcessor(Set.of());
+        StandardErrorsHandler errorHandler =
+                new StandardErrorsHandler(Map.of("retries", 0, "onFailure", "skip"));
+        AgentContext context = createMockAgentContext();
+        AgentRunner.runMainLoop(
+                source,
+                processor,
+                sink,
+                context,
+                errorHandler,
+                source::hasMoreRecords,
+                new RunnerConfiguration(0, 0, 1, 4));
+        processor.expectExecutions(11);
+        source.expectUncommitted(0);
+        // the 1:1 processor results are written in batches bounded by the max batch size
+        assertEquals(List.of(4, 4, 3), sink.batchSizes());
+    }
+
+    @Test
+    void batchWriteFailure() {
+        SimpleSource source =
+                new SimpleSource(
+                        List.of(
+                                SimpleRecord.of("key", "process-me"),
+                                SimpleRecord.of("key", "fail-me")));
+        BatchSink sink = new BatchSink(Set.of("fail-me"));
+        SimpleAgentProcessor processor = new SimpleAgentProcessor(Set.of());
+        StandardErrorsHandler errorHandler =
+                new StandardErrorsHandler(Map.of("retries", 0, "onFailure", "fail"));
+        AgentContext context = createMockAgentContext();
+        assertThrows(
+                AgentRunner.PermanentFailureException.class,
+                () ->
+                        AgentRunner.runMainLoop(
+                                source,
+                                processor,
+                                sink,
+                                context,
+                                errorHandler,
+                                source::hasMoreRecords));
+        source.expectUncommitted(1);
+    }
+
+    private static class BatchSink extends AbstractAgentCode implements AgentSink {
+        private final Set<String> failOnContent;
+        private final List<Integer> batchSizes = new ArrayList<>();
+
+        BatchSink(Set<String> failOnContent) {
+            this.failOnContent = failOnContent;
+        }
+
+        @Override
+        public CompletableFuture<?> write(Record record) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean supportsBatchWrite() {
+            return true;
+        }
+
+        @Override
+        public synchronized CompletableFuture<BatchResult> write(List<Record> records) {
+            batchSizes.add(records.size());
+            Map<Integer, Throwable> errors = new HashMap<>();
+            for (int i = 0; i < records.size(); i++) {
+                if (failOnContent.contains((String) records.get(i).value())) {
+                    errors.put(i, new RuntimeException("Failed on " + records.get(i).value()));
+                }
+            }
+            return CompletableFuture.completedFuture(new BatchResult(records.size(), errors));
+        }
+
+        synchronized int batches() {
+            return batchSizes.size();
+        }
+
+        synchronized List<Integer> batchSizes() {
+            return new ArrayList<>(batchSizes);
+        }
+    }
+
+    private static class CollectingSink extends AbstractAgentCode implements AgentSink {
+        private final List<Record> written = new ArrayList<>();
+
+        @Override
+        public synchronized CompletableFuture<?> write(Record record) {
+            written.add(record);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        synchronized List<Record> written() {
+            return new ArrayList<>(written);
+        }
+    }
+
+    private static class PendingWritesSink extends AbstractAgentCode implements AgentSink {
+        private final List<CompletableFuture<?>> pending = new ArrayList<>();
+        private int written;
+
+        @Override
+        public synchronized CompletableFuture<?> write(Record record) {
+            CompletableFuture<?> result = new CompletableFuture<>();
+            pending.add(result);
+            return result;
+        }
+
+        synchronized int pendingWrites() {
+            return pending.size();
+        }
+
+        synchronized int written() {
+            return written;
+        }
+
+        void completeAll() {
+            List<CompletableFuture<?>> toComplete;
+            synchronized (this) {
+                toComplete = new ArrayList<>(pending);
+                written += pending.size();
+                pending.clear();
+            }
+            toComplete.forEach(f -> f.complete(null));
+        }
+    }
+
     private static class SimpleSink extends AbstractAgentCode implements AgentSink {
         @Override
         public CompletableFuture<?> write(Record record) {
@@ -0,0 +1,92 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.runtime.agent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ai.langstream.api.runner.code.Header;
+import ai.langstream.api.runner.code.Record;
+import ai.langstream.api.runner.code.SimpleRecord;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class InFlightRecordsLimiterTest {
+
+    private record SizedRecord(Object value, long serializedSize) implements Record {
+        @Override
+        public Object key() {
+            return null;
+        }
+
+        @Override
+        public String origin() {
+            return null;
+        }
+
+        @Override
+        public Long timestamp() {
+            return null;
+        }
+
+        @Override
+        public Collection<Header> headers() {
+            return List.of();
+        }
+    }
+
+    @Test
+    void testSerializedSizeIsPreferred() {
+        assertEquals(
+                1000, InFlightRecordsLimiter.estimateSize(new SizedRecord(Map.of("a", 1), 1000)));
+        assertEquals(
+                InFlightRecordsLimiter.UNKNOWN_OBJECT_SIZE,
+                InFlightRecordsLimiter.estimateSize(new SizedRecord(new Object(), -1)));
+    }
+
+    @Test
+    void testStructuredValuesAreWalked() {
+        String text = "x".repeat(10_000);
+        Record record =
+                SimpleRecord.builder()
+                        .key("key")
+                        .value(Map.of("text", text, "embeddings", List.of(0.1f, 0.2f)))
+                        .build();
+        long size = InFlightRecordsLimiter.estimateSize(record);
+        assertTrue(size > text.length(), "size " + size);
+        assertTrue(size < text.length() + 200, "size " + size);
+        assertEquals(
+                4 * 8,
+                InFlightRecordsLimiter.estimateSize(
+                        SimpleRecord.builder().value(new float[4]).build()));
+    }
+
+    @Test
+    void testReleaseFreesTheBudget() throws Exception {
+        InFlightRecordsLimiter limiter = new InFlightRecordsLimiter(0, 1000);
+        List<Record> records =
+                List.of(SimpleRecord.builder().value(Map.of("text", "x".repeat(2000))).build());
+        limiter.acquire(records);
+        assertFalse(limiter.awaitCapacity(10, TimeUnit.MILLISECONDS));
+        limiter.release(records);
+        assertEquals(0, limiter.getBytes());
+        assertTrue(limiter.awaitCapacity(10, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright DataStax, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ai.langstream.runtime.agent.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import ai.langstream.api.runner.code.MetricsReporter;
+import io.prometheus.client.CollectorRegistry;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class PrometheusMetricsReporterTest {
+
+    @Test
+    void timerReportsSeconds() {
+        MetricsReporter reporter = new PrometheusMetricsReporter().withAgentName("agent-timer");
+        MetricsReporter.Timer timer = reporter.timer("test_timer", "help");
+        timer.record(TimeUnit.MILLISECONDS.toNanos(1500));
+        timer.record(TimeUnit.MILLISECONDS.toNanos(500));
+
+        String[] labels = {"agent_id"};
+        String[] values = {"agent-timer"};
+        CollectorRegistry registry = CollectorRegistry.defaultRegistry;
+        assertEquals(2, registry.getSampleValue("test_timer_seconds_count", labels, values));
+        assertEquals(2.0, registry.getSampleValue("test_timer_seconds_sum", labels, values));
+        assertEquals(
+                1,
+                registry.getSampleValue(
+                        "test_timer_seconds_bucket",
+                        new String[] {"agent_id", "le"},
+                        new String[] {"agent-timer", "1.0"}));
+    }
+
+    @Test
+    void histogramAndGauge() {
+        MetricsReporter reporter = new PrometheusMetricsReporter().withAgentName("agent-histogram");
+        MetricsReporter.Histogram histogram = reporter.histogram("test_histogram", "help");
+        histogram.observe(3);
+        MetricsReporter.Gauge gauge = reporter.gauge("test_gauge", "help");
+        gauge.set(10);
+        gauge.inc(-3);
+
+        String[] labels = {"agent_id"};
+        String[] values = {"agent-histogram"};
+        CollectorRegistry registry = CollectorRegistry.defaultRegistry;
+        assertEquals(1, registry.getSampleValue("test_histogram_count", labels, values));
+        assertEquals(7, gauge.value());
+        assertEquals(7, registry.getSampleValue("test_gauge", labels, values));
+    }
+}